@@ -7,6 +7,9 @@ public class CustomerOrderSystem {
         Scanner input = new Scanner(System.in);
         CustomerStorageCreator customerStorageCreator = new CustomerStorageCreator(); // Manages customer data persistence
         OrderFileStorage orderFileStorage = new OrderFileStorage(); // Manages order data persistence
+        orderFileStorage.getOutbox().addSink(new FileOrderEventSink("order-events.log")); // Publish order events
+        orderFileStorage.getOutbox().start();
+        orderFileStorage.getCompactor().start(); // Keep orders.dat small in the background
         Cart sharedCart = new Cart(); // Create ONE cart object that will be used throughout the session
 
         // Start the pre-authentication session, passing the shared cart
@@ -19,6 +19,7 @@ public class AccountCreator {
         String password;
         String name;
         String address;
+        String regionCode;
         String creditCard;
         String securityQuestion;
         String securityAnswer;
@@ -58,6 +59,17 @@ public class AccountCreator {
         System.out.println("Enter customer address:");
         address = input.nextLine();
 
+        // Tax region, which is otherwise worked out from the end of the address
+        while (true) { // Loop for region code validation
+            System.out.println("Enter your tax region code (e.g. US-CA), or press Enter to use your address:");
+            regionCode = input.nextLine().trim();
+            if (regionCode.isEmpty() || TaxRates.getDefault().isKnownRegion(regionCode)) {
+                break; // Valid, exit loop
+            } else {
+                System.out.println("Unknown tax region. Please re-enter.");
+            }
+        }
+
         // Step 7: Credit Card Number with validation
         while (true) { // Loop for credit card validation
             System.out.println("Enter credit card number:");
@@ -100,6 +112,9 @@ public class AccountCreator {
         // Create and save the new customer
         Customer newCustomer = new Customer(customerId, password, name, address, creditCard, securityQuestion,
                 securityAnswer);
+        if (!regionCode.isEmpty()) {
+            newCustomer.setRegionCode(regionCode);
+        }
         storageCreator.addCustomer(newCustomer);
         System.out.println("Account created successfully!");
         return true; // Indicate success
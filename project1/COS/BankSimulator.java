@@ -74,4 +74,15 @@ public class BankSimulator {
         // Use the single constructor: approved=true, auth="...", reason=null
         return new ChargeResult(true, authNumber, null);
     }
+
+    /**
+     * Simulates voiding an approved charge, e.g. because the order it paid for could not be saved.
+     *
+     * @param authorizationNumber The authorization number of the charge.
+     * @param amount              The amount charged.
+     */
+    public static void voidCharge(String authorizationNumber, double amount) {
+        System.out.println("Contacting bank to void the charge of $" + String.format("%.2f", amount)
+                + " (Authorization Number: " + authorizationNumber + ")...");
+    }
 }
@@ -1,6 +1,7 @@
 package project1.COS;
 
 import java.io.Serializable;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -10,6 +11,16 @@ import java.util.Map;
  * before proceeding to checkout. It calculates subtotal, taxes, and total
  * amounts.
  * Implements Serializable to allow its state to be saved if needed.
+ * Every change to the cart's contents publishes a {@link DomainEvent.CartChanged}
+ * event on the {@link DomainEventBus} describing which line changed, so views can
+ * update just that line. The subtotal is kept up to date as items are added and
+ * removed, so the totals are available without walking the cart.
+ * <p>
+ * Promotions are applied the same way. When a line changes, only that line's discount is
+ * looked up in the compiled {@link PromotionRules} and the running discount adjusted; the
+ * cart threshold is then one binary search on the discounted subtotal. Taxes are charged on
+ * the subtotal after discounts, at the {@link TaxRates.TaxRate} resolved for the customer's
+ * region when they log in.
  */
 public class Cart implements Serializable {
     /**
@@ -25,10 +36,35 @@ public class Cart implements Serializable {
      */
     private Map<Merchandise, Integer> items;
     /**
-     * The sales tax rate applied to the subtotal.
-     * Set as a constant (8%).
+     * The running subtotal of all items in the cart before taxes, updated on every change.
      */
-    private static final double TAX_RATE = 0.08; // 8% sales tax
+    private double subtotal;
+    /**
+     * The discount on each line that has one.
+     */
+    private Map<Merchandise, Double> lineDiscounts = new HashMap<>();
+    /**
+     * The running sum of the line discounts, updated on every change.
+     */
+    private double lineDiscountTotal;
+    /**
+     * The amount taken off the whole cart by its threshold promotion.
+     */
+    private double orderDiscount;
+    /**
+     * The promotion rules set for the cart; the default rules are followed if null.
+     */
+    private transient PromotionRules promotions;
+    /**
+     * The rules the line and threshold discounts were worked out with; null if they must be
+     * worked out again, e.g. after deserialization.
+     */
+    private transient PromotionRules pricedWith;
+    /**
+     * The sales tax rate applied to the discounted subtotal, resolved once for the
+     * customer's region; the standard rate if null, e.g. before anyone logs in.
+     */
+    private transient TaxRates.TaxRate taxRate;
 
     /**
      * Constructs a new, empty Cart.
@@ -52,7 +88,12 @@ public class Cart implements Serializable {
             // Feedback for this case is handled in MerchSelect or GUI.
             return;
         }
-        items.put(item, items.getOrDefault(item, 0) + quantity);
+        ensurePriced();
+        Integer previous = items.put(item, items.getOrDefault(item, 0) + quantity);
+        subtotal += item.getCurrentPrice() * quantity;
+        repriceLine(item);
+        publishChange(previous == null ? DomainEvent.CartChanged.Change.ITEM_ADDED
+                : DomainEvent.CartChanged.Change.QUANTITY_CHANGED, item);
         // Removed: System.out.println(quantity + "x " + item.getName() + " added to
         // cart.");
         // This message should be displayed by the calling class (MerchSelect or GUI)
@@ -73,18 +114,26 @@ public class Cart implements Serializable {
             return;
         }
 
+        ensurePriced();
         int currentQuantity = items.get(item);
         if (quantity >= currentQuantity) {
             items.remove(item);
+            subtotal = items.isEmpty() ? 0.0 : subtotal - item.getCurrentPrice() * currentQuantity; // No rounding drift once empty
+            repriceLine(item);
             System.out.println(item.getName() + " completely removed from cart.");
+            publishChange(DomainEvent.CartChanged.Change.ITEM_REMOVED, item);
         } else {
             items.put(item, currentQuantity - quantity);
+            subtotal -= item.getCurrentPrice() * quantity;
+            repriceLine(item);
             System.out.println(quantity + "x " + item.getName() + " removed from cart.");
+            publishChange(DomainEvent.CartChanged.Change.QUANTITY_CHANGED, item);
         }
     }
 
     /**
      * Returns the current items in the cart with their quantities.
+     * The map must not be modified directly; use {@link #addItem} and {@link #removeItem}.
      *
      * @return A {@link Map} where keys are {@link Merchandise} objects and values
      *         are their quantities.
@@ -94,36 +143,136 @@ public class Cart implements Serializable {
     }
 
     /**
-     * Calculates the subtotal of all items in the cart before taxes.
+     * Returns the quantity of a merchandise item in the cart.
+     *
+     * @param item The {@link Merchandise} item.
+     * @return The quantity in the cart, or 0 if the item is not in the cart.
+     */
+    public int getQuantity(Merchandise item) {
+        return items.getOrDefault(item, 0);
+    }
+
+    /**
+     * Returns the subtotal of all items in the cart before taxes.
      *
      * @return The subtotal as a double.
      */
     public double getSubtotal() {
-        double subtotal = 0.0;
-        for (Map.Entry<Merchandise, Integer> entry : items.entrySet()) {
-            subtotal += entry.getKey().getCurrentPrice() * entry.getValue();
-        }
         return subtotal;
     }
 
     /**
-     * Calculates the sales tax amount based on the subtotal and a predefined tax
-     * rate.
+     * Returns the amount taken off the cart by promotions: the line discounts plus the
+     * cart threshold discount.
+     *
+     * @return The total discount as a double.
+     */
+    public double getDiscount() {
+        ensurePriced();
+        return lineDiscountTotal + orderDiscount;
+    }
+
+    /**
+     * Returns the discount on one line of the cart.
+     *
+     * @param item The {@link Merchandise} item.
+     * @return The line's discount, or 0 if no promotion applies to it.
+     */
+    public double getLineDiscount(Merchandise item) {
+        ensurePriced();
+        return lineDiscounts.getOrDefault(item, 0.0);
+    }
+
+    /**
+     * Returns the promotion that gives a line of the cart its discount.
+     *
+     * @param item The {@link Merchandise} item.
+     * @return The promotion, or null if no promotion applies to the line.
+     */
+    public Promotion getLinePromotion(Merchandise item) {
+        ensurePriced();
+        return lineDiscounts.containsKey(item) ? pricedWith.getLinePromotion(item, getQuantity(item)) : null;
+    }
+
+    /**
+     * Returns the cart threshold promotion the cart qualifies for.
+     *
+     * @return The promotion, or null if the cart reaches no threshold.
+     */
+    public Promotion getOrderPromotion() {
+        ensurePriced();
+        return (orderDiscount > 0) ? pricedWith.getOrderPromotion(subtotal - lineDiscountTotal) : null;
+    }
+
+    /**
+     * Returns the subtotal after promotions, which taxes are charged on.
+     *
+     * @return The discounted subtotal as a double.
+     */
+    public double getDiscountedSubtotal() {
+        return subtotal - getDiscount();
+    }
+
+    /**
+     * Calculates the sales tax amount based on the discounted subtotal and the
+     * cart's tax rate.
      *
      * @return The tax amount as a double.
      */
     public double getTaxAmount() {
-        return getSubtotal() * TAX_RATE;
+        return getDiscountedSubtotal() * getTaxRate().getRate();
     }
 
     /**
-     * Calculates the grand total of the cart, which includes the subtotal and the
-     * tax amount.
+     * Returns the sales tax rate applied to the cart.
+     *
+     * @return The rate set with {@link #setTaxRate}, or the standard rate of {@link TaxRates#getDefault()}.
+     */
+    public TaxRates.TaxRate getTaxRate() {
+        if (taxRate == null) {
+            taxRate = TaxRates.getDefault().getStandardRate();
+        }
+        return taxRate;
+    }
+
+    /**
+     * Sets the sales tax rate applied to the cart, e.g. the logged-in customer's rate from
+     * {@link TaxRates#getRate(Customer)}.
+     *
+     * @param taxRate The rate, or null for the standard rate.
+     */
+    public void setTaxRate(TaxRates.TaxRate taxRate) {
+        this.taxRate = taxRate;
+    }
+
+    /**
+     * Calculates the grand total of the cart, which includes the discounted
+     * subtotal and the tax amount.
      *
      * @return The grand total as a double.
      */
     public double getTotal() {
-        return getSubtotal() + getTaxAmount();
+        return getDiscountedSubtotal() + getTaxAmount();
+    }
+
+    /**
+     * Returns the promotion rules applied to the cart.
+     *
+     * @return The rules set with {@link #setPromotions}, or {@link PromotionRules#getDefault()},
+     *         which change when promotions start or end.
+     */
+    public PromotionRules getPromotions() {
+        return (promotions != null) ? promotions : PromotionRules.getDefault();
+    }
+
+    /**
+     * Applies different promotion rules to the cart, repricing every line.
+     *
+     * @param promotions The compiled rules, or null to follow the default rules.
+     */
+    public void setPromotions(PromotionRules promotions) {
+        this.promotions = promotions;
+        ensurePriced();
     }
 
     /**
@@ -141,7 +290,67 @@ public class Cart implements Serializable {
      */
     public void clear() {
         items.clear();
+        subtotal = 0.0;
+        lineDiscounts.clear();
+        lineDiscountTotal = 0.0;
+        orderDiscount = 0.0;
         System.out.println("Cart cleared.");
+        publishChange(DomainEvent.CartChanged.Change.CLEARED, null);
+    }
+
+    /**
+     * Reprices every line if the rules applied to the cart have changed since its discounts were
+     * worked out, e.g. because a promotion started or ended.
+     */
+    private void ensurePriced() {
+        PromotionRules current = getPromotions();
+        if (current == pricedWith) {
+            return;
+        }
+        pricedWith = current;
+        if (lineDiscounts == null) {
+            lineDiscounts = new HashMap<>();
+        }
+        lineDiscounts.clear();
+        lineDiscountTotal = 0.0;
+        for (Merchandise item : items.keySet()) {
+            repriceLine(item);
+        }
+        repriceOrder();
+    }
+
+    /**
+     * Looks up the discount on one line after its quantity changed, adjusts the running
+     * line discount by the difference, and re-checks the cart threshold.
+     *
+     * @param item The item whose line changed.
+     */
+    private void repriceLine(Merchandise item) {
+        int quantity = getQuantity(item);
+        double discount = (quantity > 0) ? pricedWith.getLineDiscount(item, quantity) : 0.0;
+        Double previous = (discount > 0) ? lineDiscounts.put(item, discount) : lineDiscounts.remove(item);
+        lineDiscountTotal = lineDiscounts.isEmpty() ? 0.0
+                : lineDiscountTotal - (previous == null ? 0.0 : previous) + discount; // No rounding drift once empty
+        repriceOrder();
+    }
+
+    /**
+     * Re-checks which cart threshold, if any, the discounted subtotal reaches.
+     */
+    private void repriceOrder() {
+        orderDiscount = items.isEmpty() ? 0.0 : pricedWith.getOrderDiscount(subtotal - lineDiscountTotal);
+    }
+
+    /**
+     * Publishes a {@link DomainEvent.CartChanged} event for a change to one line of the
+     * cart, or to the whole cart.
+     *
+     * @param change The kind of change.
+     * @param item   The item whose line changed, or null if the cart was cleared.
+     */
+    private void publishChange(DomainEvent.CartChanged.Change change, Merchandise item) {
+        int quantity = (item == null) ? 0 : getQuantity(item);
+        DomainEventBus.getDefault().publish(new DomainEvent.CartChanged(this, change, item, quantity));
     }
 
     /**
@@ -163,9 +372,20 @@ public class Cart implements Serializable {
             System.out.printf("%d x %s ($%.2f each) = $%.2f\n",
                     quantity, item.getName(), item.getCurrentPrice(),
                     (quantity * item.getCurrentPrice()));
+            Promotion promotion = getLinePromotion(item);
+            if (promotion != null) {
+                System.out.printf("    %s: -$%.2f\n", promotion.getName(), getLineDiscount(item));
+            }
         }
         System.out.printf("\nSubtotal: $%.2f\n", getSubtotal());
-        System.out.printf("Taxes (%.0f%%): $%.2f\n", TAX_RATE * 100, getTaxAmount());
+        Promotion orderPromotion = getOrderPromotion();
+        if (orderPromotion != null) {
+            System.out.printf("%s: -$%.2f\n", orderPromotion.getName(), orderDiscount);
+        }
+        if (getDiscount() > 0) {
+            System.out.printf("Promotions: -$%.2f\n", getDiscount());
+        }
+        System.out.printf("Taxes (%s): $%.2f\n", getTaxRate(), getTaxAmount());
         System.out.printf("Total: $%.2f\n", getTotal());
         System.out.println("-------------------");
     }
@@ -45,6 +45,11 @@ public class Customer implements Serializable {
      * The answer to the customer's security question.
      */
     private String securityAnswer;
+    /**
+     * The tax region the customer's orders are taxed in (e.g. "US-CA"), or null to
+     * work it out from the address; see {@link TaxRates#getRate(Customer)}.
+     */
+    private String regionCode;
 
     /**
      * Constructs a new Customer object with all required details.
@@ -132,6 +137,24 @@ public class Customer implements Serializable {
         return this.id;
     }
 
+    /**
+     * Returns the customer's address.
+     *
+     * @return The address as a String, or null if none was given.
+     */
+    public String getAddress() {
+        return address;
+    }
+
+    /**
+     * Returns the tax region the customer's orders are taxed in, if one was set.
+     *
+     * @return The region code (e.g. "US-CA"), or null if it is worked out from the address.
+     */
+    public String getRegionCode() {
+        return regionCode;
+    }
+
     /**
      * Returns the customer's credit card number.
      *
@@ -163,6 +186,16 @@ public class Customer implements Serializable {
         this.address = addressInput;
     }
 
+    /**
+     * Sets the tax region the customer's orders are taxed in, instead of working it
+     * out from the address.
+     *
+     * @param regionCodeInput The region code (e.g. "US-CA"), or null to use the address.
+     */
+    public void setRegionCode(String regionCodeInput) {
+        this.regionCode = regionCodeInput;
+    }
+
     /**
      * Sets a new password for the customer.
      * In a real application, password changes would typically involve
@@ -57,7 +57,8 @@ public class CustomerStorageCreator {
     /**
      * Adds a new {@link Customer} object to the collection and saves the updated
      * list
-     * of customers to the persistent file.
+     * of customers to the persistent file, then publishes a
+     * {@link DomainEvent.CustomerUpdated} event.
      *
      * @param customer The {@link Customer} object to be added.
      * @return {@code true} if the customer was successfully added and saved.
@@ -69,6 +70,7 @@ public class CustomerStorageCreator {
     public boolean addCustomer(Customer customer) {
         customers.add(customer);
         storage.save(customers); // Save the updated list to file
+        DomainEventBus.getDefault().publish(new DomainEvent.CustomerUpdated(customer));
         return true;
     }
 
@@ -0,0 +1,195 @@
+package project1.COS;
+
+import java.time.LocalDateTime;
+
+/**
+ * Base class for in-process domain events published on the {@link DomainEventBus}.
+ * Each kind of change has its own nested event class, so subscribers can register for
+ * exactly the changes they care about and update themselves incrementally instead of
+ * re-reading state.
+ */
+public abstract class DomainEvent {
+
+    /**
+     * When the event was published.
+     */
+    private final LocalDateTime occurredAt = LocalDateTime.now();
+
+    /**
+     * Returns when the event was published.
+     *
+     * @return The date and time of the event.
+     */
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    /**
+     * Published when an order has been completed and saved.
+     */
+    public static class OrderPlaced extends DomainEvent {
+        private final OrderCreator order;
+
+        /**
+         * Constructs an OrderPlaced event.
+         *
+         * @param order The order that was placed.
+         */
+        public OrderPlaced(OrderCreator order) {
+            this.order = order;
+        }
+
+        /**
+         * Returns the order that was placed.
+         * @return The placed order.
+         */
+        public OrderCreator getOrder() {
+            return order;
+        }
+    }
+
+    /**
+     * Published when a completed order is cancelled or refunded.
+     */
+    public static class OrderUpdated extends DomainEvent {
+        private final OrderCreator order;
+
+        /**
+         * Constructs an OrderUpdated event.
+         *
+         * @param order The order that changed.
+         */
+        public OrderUpdated(OrderCreator order) {
+            this.order = order;
+        }
+
+        /**
+         * Returns the order that changed.
+         * @return The updated order.
+         */
+        public OrderCreator getOrder() {
+            return order;
+        }
+    }
+
+    /**
+     * Published when a customer account is created or its details are saved.
+     */
+    public static class CustomerUpdated extends DomainEvent {
+        private final Customer customer;
+
+        /**
+         * Constructs a CustomerUpdated event.
+         *
+         * @param customer The customer that was saved.
+         */
+        public CustomerUpdated(Customer customer) {
+            this.customer = customer;
+        }
+
+        /**
+         * Returns the customer that was saved.
+         * @return The customer.
+         */
+        public Customer getCustomer() {
+            return customer;
+        }
+    }
+
+    /**
+     * Published when the contents of a cart change. Each event describes one change to one
+     * line of the cart (or the clearing of the whole cart) and carries the line's quantity
+     * after the change, so applying events in order, or applying one again, leaves a view of
+     * the cart correct.
+     */
+    public static class CartChanged extends DomainEvent {
+
+        /** The kinds of change to a cart. */
+        public enum Change {
+            /** An item not previously in the cart was added. */
+            ITEM_ADDED,
+            /** The quantity of an item already in the cart changed. */
+            QUANTITY_CHANGED,
+            /** An item was removed from the cart entirely. */
+            ITEM_REMOVED,
+            /** Every item was removed from the cart. */
+            CLEARED
+        }
+
+        private final Cart cart;
+        private final Change change;
+        private final Merchandise item;
+        private final int quantity;
+
+        /**
+         * Constructs a CartChanged event.
+         *
+         * @param cart     The cart that changed.
+         * @param change   The kind of change.
+         * @param item     The item whose line changed, or null if the cart was cleared.
+         * @param quantity The item's quantity after the change; 0 if it was removed.
+         */
+        public CartChanged(Cart cart, Change change, Merchandise item, int quantity) {
+            this.cart = cart;
+            this.change = change;
+            this.item = item;
+            this.quantity = quantity;
+        }
+
+        /**
+         * Returns the cart that changed.
+         * @return The cart.
+         */
+        public Cart getCart() {
+            return cart;
+        }
+
+        /**
+         * Returns the kind of change.
+         * @return The change.
+         */
+        public Change getChange() {
+            return change;
+        }
+
+        /**
+         * Returns the item whose line changed.
+         * @return The item, or null if the cart was cleared.
+         */
+        public Merchandise getItem() {
+            return item;
+        }
+
+        /**
+         * Returns the item's quantity after the change.
+         * @return The quantity; 0 if the item was removed or the cart was cleared.
+         */
+        public int getQuantity() {
+            return quantity;
+        }
+    }
+
+    /**
+     * Published when the merchandise catalog changes.
+     */
+    public static class CatalogChanged extends DomainEvent {
+        private final MerchCatalog catalog;
+
+        /**
+         * Constructs a CatalogChanged event.
+         *
+         * @param catalog The catalog that changed.
+         */
+        public CatalogChanged(MerchCatalog catalog) {
+            this.catalog = catalog;
+        }
+
+        /**
+         * Returns the catalog that changed.
+         * @return The catalog.
+         */
+        public MerchCatalog getCatalog() {
+            return catalog;
+        }
+    }
+}
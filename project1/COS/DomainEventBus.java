@@ -0,0 +1,166 @@
+package project1.COS;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * A lightweight in-process publish/subscribe bus for {@link DomainEvent}s.
+ * <p>
+ * Publishing never blocks: the event is added to each interested subscriber's lock-free queue,
+ * and the subscriber's executor is asked to drain it. Each subscriber has its own executor (for
+ * example a dedicated background thread, or {@code Platform::runLater} for JavaFX views), so a
+ * slow subscriber never delays the publisher or other subscribers. A subscriber receives events
+ * one at a time, in the order they were published.
+ */
+public class DomainEventBus {
+
+    /**
+     * The bus shared by the whole application.
+     */
+    private static final DomainEventBus DEFAULT = new DomainEventBus();
+
+    /**
+     * The current subscribers. Copy-on-write, since publishing is far more frequent than subscribing.
+     */
+    private final List<Subscriber<?>> subscribers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Returns the bus shared by the whole application.
+     *
+     * @return The default {@link DomainEventBus}.
+     */
+    public static DomainEventBus getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Subscribes to events of the given type (including subclasses), handling them on the given executor.
+     *
+     * @param eventType The class of events to receive.
+     * @param executor  The executor that runs the handler.
+     * @param handler   The handler called for each event.
+     * @param <E>       The event type.
+     * @return A {@link Subscription} that can be cancelled to stop receiving events.
+     */
+    public <E extends DomainEvent> Subscription subscribe(Class<E> eventType, Executor executor,
+                                                         Consumer<? super E> handler) {
+        Subscriber<E> subscriber = new Subscriber<>(eventType, executor, handler, null);
+        subscribers.add(subscriber);
+        return subscriber;
+    }
+
+    /**
+     * Subscribes to events of the given type (including subclasses), handling them on a new
+     * background thread dedicated to this subscriber. The thread ends when the subscription is cancelled.
+     *
+     * @param eventType The class of events to receive.
+     * @param handler   The handler called for each event.
+     * @param <E>       The event type.
+     * @return A {@link Subscription} that can be cancelled to stop receiving events.
+     */
+    public <E extends DomainEvent> Subscription subscribe(Class<E> eventType, Consumer<? super E> handler) {
+        ExecutorService ownExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "event-subscriber-" + eventType.getSimpleName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Subscriber<E> subscriber = new Subscriber<>(eventType, ownExecutor, handler, ownExecutor);
+        subscribers.add(subscriber);
+        return subscriber;
+    }
+
+    /**
+     * Publishes an event to every subscriber of its type. Returns immediately; handlers run later
+     * on their own executors.
+     *
+     * @param event The event to publish.
+     */
+    public void publish(DomainEvent event) {
+        for (Subscriber<?> subscriber : subscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    /**
+     * A handle for a subscription, used to stop receiving events.
+     */
+    public interface Subscription {
+        /**
+         * Stops delivering events to this subscriber. Events already queued are discarded.
+         */
+        void cancel();
+    }
+
+    /**
+     * One subscriber: its event type, handler, executor and queue of undelivered events.
+     */
+    private class Subscriber<E extends DomainEvent> implements Subscription {
+        private final Class<E> eventType;
+        private final Executor executor;
+        private final Consumer<? super E> handler;
+        private final ExecutorService ownExecutor; // Shut down on cancel; null if the executor was supplied
+        private final Queue<E> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean drainScheduled = new AtomicBoolean();
+        private volatile boolean cancelled;
+
+        Subscriber(Class<E> eventType, Executor executor, Consumer<? super E> handler, ExecutorService ownExecutor) {
+            this.eventType = eventType;
+            this.executor = executor;
+            this.handler = handler;
+            this.ownExecutor = ownExecutor;
+        }
+
+        /**
+         * Queues the event if this subscriber wants it, and schedules a drain unless one is already pending.
+         */
+        void offer(DomainEvent event) {
+            if (cancelled || !eventType.isInstance(event)) {
+                return;
+            }
+            queue.offer(eventType.cast(event));
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (drainScheduled.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        /**
+         * Delivers queued events one by one. Runs on the subscriber's executor, never concurrently with itself.
+         */
+        private void drain() {
+            E event;
+            while (!cancelled && (event = queue.poll()) != null) {
+                try {
+                    handler.accept(event);
+                } catch (RuntimeException e) {
+                    System.err.println("Error handling " + event.getClass().getSimpleName() + ": " + e.getMessage());
+                }
+            }
+            drainScheduled.set(false);
+            // An event may have arrived after the last poll but before the flag was cleared
+            if (!cancelled && !queue.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscribers.remove(this);
+            queue.clear();
+            if (ownExecutor != null) {
+                ownExecutor.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package project1.COS;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * An {@link OrderEventSink} that appends each event as a line of text to a local file
+ * (see {@link OrderEvent#toLine()} for the format), for other programs to pick up.
+ */
+public class FileOrderEventSink implements OrderEventSink {
+
+    private final String filename;
+
+    /**
+     * Constructs a new FileOrderEventSink.
+     *
+     * @param filename The file that events are appended to; it is created if it does not exist.
+     */
+    public FileOrderEventSink(String filename) {
+        this.filename = filename;
+    }
+
+    @Override
+    public void deliver(List<OrderEvent> events) throws IOException {
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(filename, true))) {
+            for (OrderEvent event : events) {
+                out.write(event.toLine());
+                out.newLine();
+            }
+        }
+    }
+}
@@ -1,24 +1,68 @@
 package project1.COS;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A generic utility class for saving and loading {@link ArrayList}s of objects
  * to and from a file using Java's serialization mechanism.
  * This class handles the low-level file I/O operations, making it easier
  * to persist collections of serializable objects.
+ * <p>
+ * Each object is written as its own length-prefixed record, so the file can be
+ * read back one record at a time with {@link #stream()} instead of deserializing
+ * the whole list at once, and new objects can be added with {@link #append(Object)}
+ * without rewriting the file. Files written by earlier versions (a single serialized
+ * {@link ArrayList}) are still readable, and are converted to the record format the
+ * first time something is appended to them.
  *
  * @param <T> The type of objects contained within the ArrayList to be stored.
  * This type must implement the {@link Serializable} interface.
  */
 public class FileStorage<T> {
 
+    /**
+     * The header written by {@link ObjectOutputStream}; a file starting with it uses the
+     * legacy single-list format rather than length-prefixed records.
+     */
+    private static final int LEGACY_STREAM_HEADER = 0xACED0005;
+
+    /**
+     * How many times {@link #replaceWith} tries to move the compacted file into place, and how
+     * long it waits after the first failed try (doubling after each one).
+     */
+    private static final int MOVE_ATTEMPTS = 5;
+    private static final long MOVE_RETRY_MILLIS = 50;
+
     /**
      * The name of the file used for storing and loading the ArrayList.
      */
     private final String filename;
 
+    /**
+     * Whether {@link #prepareForAppend()} has already checked the file.
+     */
+    private boolean appendPrepared;
+
     /**
      * Constructs a new FileStorage instance.
      *
@@ -35,14 +79,130 @@ public class FileStorage<T> {
      *
      * @param list The {@link ArrayList} of objects to be saved.
      */
-    public void save(ArrayList<T> list) {
-        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(filename))) {
-            out.writeObject(list);
+    public synchronized void save(ArrayList<T> list) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))) {
+            for (T item : list) {
+                writeRecord(out, item);
+            }
         } catch (IOException e) {
             System.err.println("Error saving data to " + filename + ": " + e.getMessage());
         }
     }
 
+    /**
+     * Appends a single object to the end of the file, leaving the existing records untouched.
+     *
+     * @param item The object to append.
+     * @return true if the object was written, false if an error occurred.
+     */
+    public boolean append(T item) {
+        return appendAll(Collections.singletonList(item));
+    }
+
+    /**
+     * Appends several objects to the end of the file in a single write, so that they are
+     * stored together. If the write is interrupted part-way, readers ignore the incomplete
+     * record at the end of the file.
+     * Any {@link IOException} that occurs will be caught and an error message will be printed.
+     *
+     * @param items The objects to append, in order.
+     * @return true if the objects were written, false if an error occurred.
+     */
+    public synchronized boolean appendAll(List<? extends T> items) {
+        return appendAndGetPositions(items) != null;
+    }
+
+    /**
+     * Appends several objects like {@link #appendAll(List)}, and does not return until they
+     * have been written through to the storage device, so they survive a crash or power loss.
+     * Callers with many small records should batch them, since each call waits for the device.
+     *
+     * @param items The objects to append, in order.
+     * @return true if the objects were written and synced, false if an error occurred.
+     */
+    public synchronized boolean appendAllDurably(List<? extends T> items) {
+        return appendRecords(items, true) != null;
+    }
+
+    /**
+     * Appends several objects like {@link #appendAll(List)}, and returns the byte position at
+     * which each one was written, so they can later be read back individually with {@link #readAt(long)}.
+     *
+     * @param items The objects to append, in order.
+     * @return The position of each object's record, in the same order, or null if an error occurred.
+     */
+    public synchronized long[] appendAndGetPositions(List<? extends T> items) {
+        return appendRecords(items, false);
+    }
+
+    /**
+     * Appends several objects in a single write, optionally syncing the file afterwards.
+     *
+     * @param items The objects to append, in order.
+     * @param sync  Whether to wait until the records are on the storage device.
+     * @return The position of each object's record, in the same order, or null if an error occurred.
+     */
+    private long[] appendRecords(List<? extends T> items, boolean sync) {
+        prepareForAppend();
+        try {
+            long start = new File(filename).length();
+            long[] positions = new long[items.size()];
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream records = new DataOutputStream(buffer);
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = start + buffer.size();
+                writeRecord(records, items.get(i));
+            }
+            try (FileOutputStream out = new FileOutputStream(filename, true)) {
+                buffer.writeTo(out);
+                if (sync) {
+                    out.getFD().sync();
+                }
+            }
+            return positions;
+        } catch (IOException e) {
+            System.err.println("Error appending data to " + filename + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reads the single record that starts at the given byte position, as returned by
+     * {@link #appendAndGetPositions(List)} or {@link #forEachFrom(long, BiConsumer)}.
+     *
+     * @param position The byte position of the record.
+     * @return The stored object, or null if it could not be read.
+     */
+    public T readAt(long position) {
+        try (FileChannel file = openForReading()) {
+            return readRecordAt(file, position);
+        } catch (IOException | ClassNotFoundException e) {
+            System.err.println("Error reading record at " + position + " in " + filename + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reads the records at several byte positions, opening the file only once.
+     * Records that cannot be read are skipped, with an error message printed.
+     *
+     * @param positions The positions of the records to read, in the order they should be visited.
+     * @param action    The action to perform for each object read and its position.
+     */
+    public void forEachAt(Iterable<Long> positions, BiConsumer<? super T, Long> action) {
+        try (FileChannel file = openForReading()) {
+            for (long position : positions) {
+                try {
+                    action.accept(readRecordAt(file, position), position);
+                } catch (IOException | ClassNotFoundException e) {
+                    System.err.println("Error reading record at " + position + " in " + filename + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading data from " + filename + ": " + e.getMessage());
+        }
+    }
+
     /**
      * Loads an {@link ArrayList} of objects from the file specified during construction.
      * If the file does not exist or an error occurs during loading (e.g., {@link IOException},
@@ -52,15 +212,443 @@ public class FileStorage<T> {
      * if the file does not exist or loading fails.
      */
     public ArrayList<T> load() {
-        try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(filename))) {
+        ArrayList<T> loadedList = new ArrayList<>();
+        forEach(loadedList::add);
+        return loadedList;
+    }
+
+    /**
+     * Reads the file one record at a time and passes each object to the given action.
+     * Only the record currently being visited is held in memory.
+     *
+     * @param action The action to perform for each stored object.
+     */
+    public void forEach(Consumer<? super T> action) {
+        try (Stream<T> records = stream()) {
+            records.forEach(action);
+        }
+    }
+
+    /**
+     * Reads the records that start at or after the given byte position in the file, passing each
+     * object to the action together with the position just after it. That position can be saved
+     * and passed back later to continue reading from where this call stopped.
+     * Reading stops at the end of the file, or before an incomplete record still being written.
+     *
+     * @param position The byte position of the first record to read; 0 for the start of the file.
+     * @param action   The action to perform for each object and the position following it.
+     * @return The position after the last complete record read (equal to {@code position} if none was
+     * read), or 0 if the file does not exist.
+     */
+    public long forEachFrom(long position, BiConsumer<? super T, Long> action) {
+        return forEachFrom(first -> position, action);
+    }
+
+    /**
+     * Like {@link #forEachFrom(long, BiConsumer)}, but chooses the starting position from the
+     * file's first record (for example a header describing the file). The first record and the
+     * records that follow are read from the same open file, so the position stays valid even if
+     * the file is replaced by {@link #replaceWith} in the meantime.
+     *
+     * @param start  Given the first record in the file (or null if the file is empty), returns
+     *               the byte position of the first record to read.
+     * @param action The action to perform for each object and the position following it.
+     * @return The position after the last complete record read (the starting position if none was
+     * read), or 0 if the file does not exist.
+     */
+    public long forEachFrom(ToLongFunction<? super T> start, BiConsumer<? super T, Long> action) {
+        long position = 0;
+        try (FileChannel file = openForReading()) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(file)));
+            T first = null;
+            try {
+                int length = in.readInt();
+                if (length == LEGACY_STREAM_HEADER) {
+                    return 0; // Legacy single-list files have no record positions
+                }
+                if (length < 0 || Integer.BYTES + (long) length > file.size()) {
+                    throw new EOFException(); // A torn or corrupt first record
+                }
+                byte[] record = new byte[length];
+                in.readFully(record);
+                first = deserialize(record);
+            } catch (EOFException e) {
+                // Empty file, or its first record is still being written
+            }
+            position = start.applyAsLong(first);
+            file.position(position);
+            in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(file)));
+            long end = file.size();
+            while (true) {
+                int length = in.readInt();
+                if (length < 0 || position + Integer.BYTES + length > end) {
+                    end = file.size(); // The file may have grown since it was last checked
+                    if (length < 0 || position + Integer.BYTES + length > end) {
+                        return position; // A torn or corrupt record ends the data
+                    }
+                }
+                byte[] record = new byte[length];
+                in.readFully(record);
+                T item = deserialize(record);
+                position += Integer.BYTES + length;
+                action.accept(item, position);
+            }
+        } catch (EOFException | NoSuchFileException e) {
+            return position; // Reached the end of the data (or there is no file yet)
+        } catch (IOException | ClassNotFoundException e) {
+            System.err.println("Error reading data from " + filename + ": " + e.getMessage());
+            return position;
+        }
+    }
+
+    /**
+     * Returns the current size of the file in bytes. Since appends are made under the same lock,
+     * the size always falls at the end of a complete record.
+     *
+     * @return The file size, or 0 if the file does not exist.
+     */
+    public synchronized long size() {
+        return new File(filename).length();
+    }
+
+    /**
+     * Replaces this file with a compacted copy of it. The records written to this file from
+     * {@code copyFrom} onwards (those added since the copy was made) are first copied to the end
+     * of the compacted file, then the compacted file atomically takes this file's place. Appends
+     * wait only while the new records are copied; readers that already have the old file open
+     * keep reading it until they close it. This class opens files for reading through NIO, which
+     * on Windows lets them be replaced while open; if the move is still refused, for example
+     * because another program has the file open, it is retried a few times before giving up.
+     * <p>
+     * The compacted file must start with a placeholder record, which is overwritten by
+     * {@code header} once it is known where the copied records begin. The header must serialize
+     * to the same size as the placeholder (e.g. an object of the same class holding only primitives).
+     *
+     * @param compacted The storage holding the compacted records; its file is moved into place.
+     * @param copyFrom  The position in this file where the records not included in the copy begin.
+     * @param header    Given the position in the compacted file where the copied records begin,
+     *                  returns the record that replaces the placeholder.
+     * @return The position in the new file where the copied records begin, or -1 if an error occurred
+     * (this file is then left unchanged).
+     */
+    public synchronized long replaceWith(FileStorage<T> compacted, long copyFrom, LongFunction<? extends T> header) {
+        Path source = Paths.get(filename);
+        Path target = Paths.get(compacted.filename);
+        try {
+            long tailPosition;
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(target, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                tailPosition = out.size();
+                long end = in.size();
+                out.position(tailPosition);
+                for (long copied = copyFrom; copied < end; ) {
+                    copied += in.transferTo(copied, end - copied, out);
+                }
+
+                ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+                writeRecord(new DataOutputStream(headerBytes), header.apply(tailPosition));
+                ByteBuffer placeholderLength = ByteBuffer.allocate(Integer.BYTES);
+                out.read(placeholderLength, 0);
+                placeholderLength.flip();
+                if (placeholderLength.remaining() < Integer.BYTES
+                        || Integer.BYTES + placeholderLength.getInt() != headerBytes.size()) {
+                    throw new IOException("header does not match the size of its placeholder");
+                }
+                out.write(ByteBuffer.wrap(headerBytes.toByteArray()), 0);
+                out.force(true); // Make sure the new file is complete on disk before it replaces the old one
+            }
+            moveWithRetry(target, source);
+            return tailPosition;
+        } catch (IOException e) {
+            System.err.println("Error replacing " + filename + " with its compacted copy: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Atomically moves a file over another, retrying with a growing delay if the move is refused.
+     *
+     * @param from The file to move.
+     * @param to   The file it replaces.
+     * @throws IOException if the file could not be moved after every attempt, or the thread was
+     *                     interrupted while waiting to try again.
+     */
+    private static void moveWithRetry(Path from, Path to) throws IOException {
+        long delay = MOVE_RETRY_MILLIS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Files.move(from, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return;
+            } catch (IOException e) {
+                if (attempt == MOVE_ATTEMPTS) {
+                    throw e;
+                }
+            }
+            try {
+                Thread.sleep(delay); // Typically a reader in another program that is about to close the file
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while waiting to replace the file");
+            }
+            delay *= 2;
+        }
+    }
+
+    /**
+     * Opens the file for reading. Files are opened through a {@link FileChannel} rather than a
+     * {@link FileInputStream} because on Windows that shares them for deletion, so
+     * {@link #replaceWith} can move a compacted copy over a file that is still being read.
+     *
+     * @return The open file, positioned at its start.
+     * @throws IOException if the file does not exist or cannot be opened.
+     */
+    private FileChannel openForReading() throws IOException {
+        return FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+    }
+
+    /**
+     * Returns a lazy {@link Stream} over the objects stored in the file. Records are
+     * deserialized as the stream is consumed, so the file is never fully loaded into memory.
+     * The stream holds the file open and should be closed (e.g. with try-with-resources)
+     * once it is no longer needed. If the file does not exist, an empty stream is returned.
+     *
+     * @return A stream of the stored objects, in the order they were written.
+     */
+    public Stream<T> stream() {
+        FileChannel file;
+        DataInputStream in;
+        try {
+            file = openForReading();
+            in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(file)));
+        } catch (IOException e) {
+            return Stream.empty(); // No file yet
+        }
+
+        try {
+            in.mark(Integer.BYTES);
+            if (in.readInt() == LEGACY_STREAM_HEADER) {
+                in.reset();
+                return loadLegacy(in).stream();
+            }
+            in.reset();
+        } catch (IOException e) {
+            // Empty file (or unreadable header): nothing to stream
+            closeQuietly(in);
+            return Stream.empty();
+        }
+
+        RecordSpliterator records = new RecordSpliterator(in, file);
+        return StreamSupport.stream(records, false).onClose(() -> closeQuietly(in));
+    }
+
+    /**
+     * Serializes a single object and writes it to the stream as a length-prefixed record.
+     *
+     * @param out  The stream to write to.
+     * @param item The object to write.
+     * @throws IOException if the object cannot be serialized or written.
+     */
+    private void writeRecord(DataOutputStream out, T item) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOut = new ObjectOutputStream(bytes)) {
+            objectOut.writeObject(item);
+        }
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+    }
+
+    /**
+     * Reads the single record that starts at the given position of an open file.
+     *
+     * @param file     The open file.
+     * @param position The byte position of the record.
+     * @return The stored object.
+     * @throws IOException            if there is no complete record at that position.
+     * @throws ClassNotFoundException if the record's class is not available.
+     */
+    private T readRecordAt(FileChannel file, long position) throws IOException, ClassNotFoundException {
+        ByteBuffer lengthPrefix = readFully(file, position, Integer.BYTES);
+        int length = lengthPrefix.getInt();
+        if (length < 0 || position + Integer.BYTES + length > file.size()) {
+            throw new IOException("no complete record at this position");
+        }
+        return deserialize(readFully(file, position + Integer.BYTES, length).array());
+    }
+
+    /**
+     * Reads a number of bytes starting at a position of an open file.
+     *
+     * @param file     The open file.
+     * @param position The position of the first byte.
+     * @param count    The number of bytes to read.
+     * @return A buffer holding the bytes, ready to be read.
+     * @throws IOException if the file ends before that many bytes were read.
+     */
+    private static ByteBuffer readFully(FileChannel file, long position, int count) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(count);
+        while (buffer.hasRemaining()) {
+            if (file.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Deserializes the contents of a single record.
+     *
+     * @param record The bytes of the record, without its length prefix.
+     * @return The stored object.
+     * @throws IOException            if the record cannot be read.
+     * @throws ClassNotFoundException if the record's class is not available.
+     */
+    private T deserialize(byte[] record) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(record))) {
+            // Suppress unchecked cast warning as we are confident about the type from the write methods
+            @SuppressWarnings("unchecked")
+            T item = (T) objectIn.readObject();
+            return item;
+        }
+    }
+
+    /**
+     * Rewrites a file in the legacy single-list format in the record format, so that its objects
+     * can be appended to and read by position. Files already in the record format are left alone.
+     *
+     * @return true if the file was converted, false if it was not in the legacy format.
+     */
+    public synchronized boolean convertLegacyFormat() {
+        try (DataInputStream in = new DataInputStream(Channels.newInputStream(openForReading()))) {
+            if (in.readInt() != LEGACY_STREAM_HEADER) {
+                return false;
+            }
+        } catch (IOException e) {
+            return false; // No file, or too short to hold a header
+        }
+        save(load());
+        return true;
+    }
+
+    /**
+     * Tells the storage that every record before the given position is complete, as found by
+     * reading the file with {@link #forEachFrom}. If that position is the end of the file, the
+     * scan for an incomplete last record that would otherwise run before the first append is
+     * skipped, which matters for large files.
+     *
+     * @param position The position after the last complete record read.
+     */
+    public synchronized void confirmCompleteUpTo(long position) {
+        if (position == new File(filename).length()) {
+            appendPrepared = true;
+        }
+    }
+
+    /**
+     * Makes the file ready to be appended to. This runs once per FileStorage instance:
+     * a file in the legacy single-list format is rewritten in the record format, and an
+     * incomplete record left at the end by an interrupted write is cut off so new records
+     * are not appended after it.
+     */
+    private void prepareForAppend() {
+        if (appendPrepared) {
+            return;
+        }
+        appendPrepared = true;
+        if (convertLegacyFormat()) {
+            return;
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(filename, "rw")) {
+            long length = file.length();
+            // Walk the record lengths to find where the last complete record ends
+            long position = 0;
+            while (position + Integer.BYTES <= length) {
+                file.seek(position);
+                int recordLength = file.readInt();
+                long next = position + Integer.BYTES + recordLength;
+                if (recordLength < 0 || next > length) {
+                    break; // A torn or corrupt length prefix: everything from here is cut off
+                }
+                position = next;
+            }
+            if (position < length) {
+                file.setLength(position);
+            }
+        } catch (IOException e) {
+            System.err.println("Error checking " + filename + " before appending: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads a file written in the legacy format, where the whole list was serialized as one object.
+     *
+     * @param in The stream positioned at the start of the file; it is closed by this method.
+     * @return The stored list, or an empty list if it cannot be read.
+     */
+    private ArrayList<T> loadLegacy(InputStream in) {
+        try (ObjectInputStream objectIn = new ObjectInputStream(in)) {
             // Suppress unchecked cast warning as we are confident about the type from save method
             @SuppressWarnings("unchecked")
-            ArrayList<T> loadedList = (ArrayList<T>) in.readObject();
+            ArrayList<T> loadedList = (ArrayList<T>) objectIn.readObject();
             return loadedList;
         } catch (IOException | ClassNotFoundException e) {
-            // If the file doesn't exist yet, or there's a problem loading, return an empty list
-            // System.err.println("Error loading data from " + filename + ": " + e.getMessage()); // Optional: for debugging
             return new ArrayList<>();
         }
     }
+
+    /**
+     * Closes a stream, ignoring any error since there is nothing useful to do about it.
+     *
+     * @param in The stream to close.
+     */
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException e) {
+            // Nothing to recover; the stream is being discarded
+        }
+    }
+
+    /**
+     * Reads length-prefixed records one at a time, stopping at the end of the file.
+     * A truncated or corrupt record at the end (e.g. from an interrupted write) is treated as the
+     * end of the data: a length prefix that is negative or runs past the end of the file is never
+     * allocated.
+     */
+    private class RecordSpliterator extends Spliterators.AbstractSpliterator<T> {
+        private final DataInputStream in;
+        private final FileChannel file; // The file under in, for its size
+        private long position; // Where the next record starts
+        private long end; // The file size when last checked
+
+        RecordSpliterator(DataInputStream in, FileChannel file) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.in = in;
+            this.file = file;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            try {
+                int length = in.readInt();
+                if (length < 0 || position + Integer.BYTES + length > end) {
+                    end = file.size(); // The file may have grown since it was last checked
+                    if (length < 0 || position + Integer.BYTES + length > end) {
+                        return false; // A torn or corrupt last record
+                    }
+                }
+                byte[] record = new byte[length];
+                in.readFully(record);
+                position += Integer.BYTES + length;
+                action.accept(deserialize(record));
+                return true;
+            } catch (EOFException e) {
+                return false; // End of file (or a partially written last record)
+            } catch (IOException | ClassNotFoundException e) {
+                System.err.println("Error reading data from " + filename + ": " + e.getMessage());
+                return false;
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,150 @@
+package project1.COS;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * A bounded, time-expiring cache that remembers the result of an operation by its idempotency key,
+ * so that repeating the operation with the same key returns the first result instead of running it again.
+ * <p>
+ * The first caller for a key runs the operation; callers that arrive with the same key while it is
+ * still running wait for that result rather than starting a second run. Entries expire after the
+ * configured time window, and the oldest entries are evicted once the cache holds more than its
+ * maximum number of keys. The cache is safe to use from many threads at once: entries live in a
+ * {@link ConcurrentHashMap} and eviction order is tracked in a lock-free queue.
+ *
+ * @param <V> The type of result being remembered.
+ */
+public class IdempotencyCache<V> {
+
+    /**
+     * A remembered result (or a result still being computed) and when it expires.
+     */
+    private static class Entry<V> {
+        private final String key;
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private final long expiresAtNanos;
+
+        Entry(String key, long expiresAtNanos) {
+            this.key = key;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        boolean isExpired(long nowNanos) {
+            return nowNanos - expiresAtNanos >= 0;
+        }
+    }
+
+    /**
+     * The cached entries, keyed by idempotency key.
+     */
+    private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    /**
+     * Entries in the order they were added, oldest first, used for expiry and eviction.
+     */
+    private final ConcurrentLinkedQueue<Entry<V>> insertionOrder = new ConcurrentLinkedQueue<>();
+    /**
+     * The maximum number of keys kept before the oldest are evicted.
+     */
+    private final int maxEntries;
+    /**
+     * How long a result is remembered, in nanoseconds.
+     */
+    private final long ttlNanos;
+
+    /**
+     * Constructs a new IdempotencyCache.
+     *
+     * @param maxEntries The maximum number of keys to remember; must be greater than 0.
+     * @param window     How long each result is remembered after it is first requested.
+     * @throws IllegalArgumentException if {@code maxEntries} is not positive or the window is not positive.
+     */
+    public IdempotencyCache(int maxEntries, Duration window) {
+        if (maxEntries <= 0 || window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Cache size and window must be greater than 0.");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = window.toNanos();
+    }
+
+    /**
+     * Returns the result remembered for {@code key}, running {@code operation} only if there is none.
+     * If another thread is already running the operation for the same key, this call waits for that
+     * result. If the operation throws, nothing is remembered and the exception is passed on.
+     *
+     * @param key       The idempotency key identifying the operation.
+     * @param operation The operation to run if the key has not been seen within the window.
+     * @return The result of the first run of the operation for this key.
+     */
+    public V getOrCompute(String key, Supplier<V> operation) {
+        while (true) {
+            long now = System.nanoTime();
+            Entry<V> existing = entries.get(key);
+            if (existing != null) {
+                if (!existing.isExpired(now)) {
+                    return existing.result.join();
+                }
+                entries.remove(key, existing);
+            }
+
+            Entry<V> created = new Entry<>(key, now + ttlNanos);
+            if (entries.putIfAbsent(key, created) != null) {
+                continue; // Another thread claimed the key first; use its result
+            }
+            insertionOrder.offer(created);
+            evictStaleEntries(now);
+
+            try {
+                V value = operation.get();
+                created.result.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                entries.remove(key, created);
+                created.result.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Forgets the result remembered for {@code key}, so the next request with that key runs the
+     * operation again. Used when a result should not be replayed, e.g. a declined payment.
+     *
+     * @param key The idempotency key to forget.
+     */
+    public void invalidate(String key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Returns the number of keys currently remembered.
+     *
+     * @return The number of cached keys.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes expired entries from the front of the queue and evicts the oldest entries while the
+     * cache is over its size limit.
+     *
+     * @param now The current {@link System#nanoTime()}.
+     */
+    private void evictStaleEntries(long now) {
+        Entry<V> oldest;
+        while ((oldest = insertionOrder.peek()) != null) {
+            boolean stillCached = entries.get(oldest.key) == oldest;
+            if (stillCached && !oldest.isExpired(now) && entries.size() <= maxEntries) {
+                break;
+            }
+            if (insertionOrder.remove(oldest)) {
+                entries.remove(oldest.key, oldest);
+            }
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package project1.COS;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks how many units of each merchandise item are in stock, so checkout cannot sell more
+ * than there is.
+ * <p>
+ * Each item has its own {@link AtomicInteger} counter, and stock is reserved at checkout by
+ * compare-and-set on the counters of the items in the cart: a reservation only succeeds if
+ * there are enough units left at that instant, and nothing is ever locked. Checkouts for
+ * different items touch different counters and never wait for each other; checkouts for the
+ * same popular item only ever retry a failed compare-and-set, which means another checkout
+ * succeeded. A reservation either takes every item in the cart or none of them, and is released
+ * if the payment is denied. The items of an order that is later cancelled or fully refunded are
+ * put back on sale with {@link #returnItems(List)}.
+ * <p>
+ * Every change to a stock level is saved to an {@link InventoryJournal}, which writes the changes
+ * in batches on a background thread; {@link Reservation#awaitDurable()} waits until a
+ * reservation is on disk, so a card is never charged for stock a crash could give back, and
+ * releasing a reservation or returning items waits until the returned stock is on disk too.
+ * The first time the default inventory is created, each catalog item is stocked with the
+ * quantity given for it in the catalog data ({@link MerchCatalog#getInitialStock()}).
+ * Items that have never been stocked are not tracked and never run out, so merchandise added
+ * without inventory keeps selling as before. A checkout interrupted by a crash keeps its stock
+ * reserved, so stock can be under-counted after a crash but never oversold.
+ */
+public class Inventory {
+
+    /** The number of units reported for an item whose stock is not tracked. */
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+    /** The file the default inventory is saved to. */
+    static final String FILENAME = "inventory.dat";
+
+    private final ConcurrentHashMap<String, AtomicInteger> stock = new ConcurrentHashMap<>();
+    private final InventoryJournal journal;
+
+    /**
+     * Constructs an Inventory, loading the stock levels saved in a journal file.
+     *
+     * @param filename The journal file; created when stock first changes if it does not exist.
+     */
+    public Inventory(String filename) {
+        this.journal = new InventoryJournal(filename);
+        for (Map.Entry<String, Integer> level : journal.load().entrySet()) {
+            stock.put(level.getKey(), new AtomicInteger(level.getValue()));
+        }
+    }
+
+    /**
+     * Returns the inventory shared by the console and GUI, loading it from {@value #FILENAME}
+     * the first time. If nothing has been stocked yet, the items of the default
+     * {@link MerchCatalog} are given their initial stock.
+     *
+     * @return The default inventory.
+     */
+    public static Inventory getDefault() {
+        return DefaultHolder.DEFAULT;
+    }
+
+    /**
+     * Checks whether an item's stock is tracked.
+     *
+     * @param merchandiseId The ID of the item (case-insensitive).
+     * @return true if the item has been stocked, false if it never runs out.
+     */
+    public boolean isTracked(String merchandiseId) {
+        return stock.containsKey(key(merchandiseId));
+    }
+
+    /**
+     * Returns the number of units of an item that can still be reserved.
+     *
+     * @param merchandiseId The ID of the item (case-insensitive).
+     * @return The units in stock, or {@link #UNLIMITED} if the item's stock is not tracked.
+     */
+    public int getAvailable(String merchandiseId) {
+        AtomicInteger counter = stock.get(key(merchandiseId));
+        return (counter == null) ? UNLIMITED : counter.get();
+    }
+
+    /**
+     * Adds units of an item to stock, starting to track it if it was not tracked before.
+     *
+     * @param merchandiseId The ID of the item (case-insensitive).
+     * @param quantity      The number of units to add; must be positive.
+     * @return A future completed once the change is saved.
+     */
+    public CompletableFuture<Void> restock(String merchandiseId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Restock quantity must be positive.");
+        }
+        String key = key(merchandiseId);
+        stock.computeIfAbsent(key, k -> new AtomicInteger()).addAndGet(quantity);
+        return journal.record(key, quantity);
+    }
+
+    /**
+     * Reserves stock for every item in a cart, or for none of them if any item is short.
+     * Items whose stock is not tracked are not reserved. The reservation is saved in the
+     * background; call {@link Reservation#awaitDurable()} before relying on it.
+     *
+     * @param items The items and quantities to reserve, e.g. from {@link Cart#getItems()}.
+     * @return The {@link Reservation}; check {@link Reservation#isSuccessful()}.
+     */
+    public Reservation reserve(Map<Merchandise, Integer> items) {
+        Map<String, Integer> taken = new LinkedHashMap<>();
+        for (Map.Entry<Merchandise, Integer> item : items.entrySet()) {
+            String key = key(item.getKey().getId());
+            AtomicInteger counter = stock.get(key);
+            if (counter == null) {
+                continue; // Not tracked, so never runs out
+            }
+            int quantity = item.getValue();
+            if (!tryTake(counter, quantity)) {
+                // Give back what was already taken; it was never saved, so only the counters change
+                for (Map.Entry<String, Integer> undo : taken.entrySet()) {
+                    stock.get(undo.getKey()).addAndGet(undo.getValue());
+                }
+                int left = Math.max(0, counter.get());
+                return new Reservation(this, null, null, (left == 0)
+                        ? item.getKey().getName() + " is out of stock"
+                        : "Only " + left + " of " + item.getKey().getName() + " left in stock");
+            }
+            taken.merge(key, quantity, Integer::sum);
+        }
+
+        List<CompletableFuture<Void>> saves = new ArrayList<>(taken.size());
+        for (Map.Entry<String, Integer> reserved : taken.entrySet()) {
+            saves.add(journal.record(reserved.getKey(), -reserved.getValue()));
+        }
+        return new Reservation(this, taken, CompletableFuture.allOf(saves.toArray(new CompletableFuture<?>[0])), null);
+    }
+
+    /**
+     * Puts the items of a cancelled or refunded order back in stock, and waits until the change
+     * is saved. Items whose stock is not tracked are left untracked.
+     *
+     * @param items The items and quantities of the order.
+     * @return true if the stock was returned and saved, false if it could not be saved.
+     */
+    public boolean returnItems(List<OrderCreator.OrderItem> items) {
+        Map<String, Integer> units = new LinkedHashMap<>();
+        for (OrderCreator.OrderItem item : items) {
+            String key = key(item.getMerchandiseId());
+            if (stock.containsKey(key)) {
+                units.merge(key, item.getQuantity(), Integer::sum);
+            }
+        }
+        return await(giveBack(units), "returned stock");
+    }
+
+    /**
+     * Takes units from a counter by compare-and-set, if there are enough.
+     *
+     * @param counter  The item's counter.
+     * @param quantity The number of units to take.
+     * @return true if the units were taken, false if there were not enough.
+     */
+    private static boolean tryTake(AtomicInteger counter, int quantity) {
+        while (true) {
+            int current = counter.get();
+            if (current < quantity) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current - quantity)) {
+                return true;
+            }
+            // Another checkout changed the count first; try again with the new count
+        }
+    }
+
+    /**
+     * Returns units to stock, e.g. when a reservation is released.
+     *
+     * @param units The units to return, keyed by upper-case merchandise ID.
+     * @return A future completed once the change is saved.
+     */
+    private CompletableFuture<Void> giveBack(Map<String, Integer> units) {
+        List<CompletableFuture<Void>> saves = new ArrayList<>(units.size());
+        for (Map.Entry<String, Integer> unit : units.entrySet()) {
+            stock.computeIfAbsent(unit.getKey(), k -> new AtomicInteger()).addAndGet(unit.getValue());
+            saves.add(journal.record(unit.getKey(), unit.getValue()));
+        }
+        return CompletableFuture.allOf(saves.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Waits until a change to the stock is saved.
+     *
+     * @param saved       Completed once the change is saved.
+     * @param description What was changed, for the error message.
+     * @return true if the change was saved, false if it could not be.
+     */
+    private static boolean await(CompletableFuture<Void> saved, String description) {
+        try {
+            saved.join();
+            return true;
+        } catch (CompletionException e) {
+            System.err.println("Error saving " + description + ": " + e.getCause().getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Returns the key an item's stock is kept under.
+     *
+     * @param merchandiseId The ID of the item.
+     * @return The ID in upper case.
+     */
+    private static String key(String merchandiseId) {
+        return merchandiseId.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Loads an inventory, stocking it with the given quantities if nothing has been stocked yet.
+     * The initial stock is saved before this returns.
+     *
+     * @param filename     The journal file.
+     * @param initialStock The units to stock of each item, keyed by merchandise ID.
+     * @return The inventory.
+     */
+    static Inventory load(String filename, Map<String, Integer> initialStock) {
+        Inventory inventory = new Inventory(filename);
+        if (inventory.stock.isEmpty()) {
+            List<CompletableFuture<Void>> saves = new ArrayList<>(initialStock.size());
+            for (Map.Entry<String, Integer> item : initialStock.entrySet()) {
+                if (item.getValue() > 0) {
+                    saves.add(inventory.restock(item.getKey(), item.getValue()));
+                }
+            }
+            await(CompletableFuture.allOf(saves.toArray(new CompletableFuture<?>[0])), "initial stock");
+        }
+        return inventory;
+    }
+
+    /**
+     * Holds the default inventory, which is loaded the first time it is used.
+     */
+    private static class DefaultHolder {
+        private static final Inventory DEFAULT = load(FILENAME, MerchCatalog.getDefault().getInitialStock());
+    }
+
+    /**
+     * The stock taken for one checkout by {@link #reserve(Map)}, or the reason it could not be.
+     */
+    public static class Reservation {
+        private final Inventory inventory;
+        private final Map<String, Integer> taken; // Null if the reservation failed
+        private final CompletableFuture<Void> saved;
+        private final String shortage;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * Constructs a Reservation.
+         *
+         * @param inventory The inventory the units were taken from.
+         * @param taken     The units taken, keyed by upper-case merchandise ID; null if the reservation failed.
+         * @param saved     Completed once the reservation is saved; null if it failed.
+         * @param shortage  Why the reservation failed, or null if it succeeded.
+         */
+        private Reservation(Inventory inventory, Map<String, Integer> taken, CompletableFuture<Void> saved,
+                            String shortage) {
+            this.inventory = inventory;
+            this.taken = taken;
+            this.saved = saved;
+            this.shortage = shortage;
+        }
+
+        /**
+         * Returns whether the stock was reserved.
+         * @return true if every item was reserved, false if one was short.
+         */
+        public boolean isSuccessful() {
+            return taken != null;
+        }
+
+        /**
+         * Returns why the stock could not be reserved.
+         * @return A description of the item that was short, or null if the reservation succeeded.
+         */
+        public String getShortage() {
+            return shortage;
+        }
+
+        /**
+         * Returns the units reserved.
+         * @return The units reserved, keyed by upper-case merchandise ID; empty if the reservation failed.
+         */
+        public Map<String, Integer> getReserved() {
+            return (taken == null) ? Collections.emptyMap() : Collections.unmodifiableMap(taken);
+        }
+
+        /**
+         * Waits until the reservation is saved to disk. Reservations made at the same time are
+         * saved together, so this usually shares one disk write with other checkouts.
+         *
+         * @return true if the reservation is saved, false if it failed or could not be saved.
+         */
+        public boolean awaitDurable() {
+            return taken != null && await(saved, "stock reservation");
+        }
+
+        /**
+         * Returns the reserved units to stock, e.g. because the payment was denied, and waits
+         * until the change is saved, so the units are not lost if the application then stops.
+         * Releasing a reservation more than once, or one that failed, has no effect.
+         *
+         * @return true if the units were returned and saved, or there was nothing to return;
+         *         false if the change could not be saved.
+         */
+        public boolean release() {
+            if (taken != null && released.compareAndSet(false, true)) {
+                return await(inventory.giveBack(taken), "released stock");
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package project1.COS;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The durable record of {@link Inventory} stock levels: a file of {@link StockDelta}s, written
+ * in batches by a background thread.
+ * <p>
+ * Recording a delta only adds it to a lock-free queue and returns a future that completes once
+ * the delta is safely on disk. The writer thread takes everything queued, adds up the deltas for
+ * each item into one record, appends the records in a single write and syncs the file, then
+ * completes the futures. Checkouts that happen at the same time therefore share one sync
+ * instead of each waiting for their own, and never wait for one another to queue a delta.
+ * <p>
+ * When the journal is loaded, each item's deltas are added up to give its stock level. If the
+ * file has grown well beyond one record per item, it is rewritten with just those totals.
+ */
+class InventoryJournal {
+
+    /** The maximum number of queued deltas written in one batch. */
+    private static final int BATCH_SIZE = 1024;
+    /** How many more records than items the file may hold before it is rewritten on load. */
+    private static final int COMPACTION_SLACK = 10_000;
+
+    private final String filename;
+    private final FileStorage<StockDelta> storage;
+    private final ConcurrentLinkedQueue<QueuedDelta> queue = new ConcurrentLinkedQueue<>();
+    private volatile Thread writer;
+
+    /**
+     * Constructs an InventoryJournal for a file. Nothing is read until {@link #load()}.
+     *
+     * @param filename The journal file.
+     */
+    InventoryJournal(String filename) {
+        this.filename = filename;
+        this.storage = new FileStorage<>(filename);
+    }
+
+    /**
+     * Reads the journal and adds up each item's deltas, rewriting the file more compactly if it
+     * has grown large. Must be called before anything is recorded.
+     *
+     * @return The stock level of each item in the journal, keyed by upper-case merchandise ID.
+     */
+    Map<String, Integer> load() {
+        Map<String, Integer> levels = new LinkedHashMap<>();
+        int[] records = new int[1];
+        storage.forEach(delta -> {
+            levels.merge(delta.getMerchandiseId(), delta.getDelta(), Integer::sum);
+            records[0]++;
+        });
+        if (records[0] > levels.size() + COMPACTION_SLACK) {
+            compact(levels);
+        }
+        return levels;
+    }
+
+    /**
+     * Queues a change to an item's stock level to be written. Never blocks.
+     *
+     * @param merchandiseId The ID of the item, in upper case.
+     * @param delta         The change to its stock level.
+     * @return A future completed once the change is on disk, or completed exceptionally if it
+     *         could not be written.
+     */
+    CompletableFuture<Void> record(String merchandiseId, int delta) {
+        QueuedDelta queued = new QueuedDelta(new StockDelta(merchandiseId, delta));
+        queue.offer(queued);
+        Thread thread = writer;
+        LockSupport.unpark((thread != null) ? thread : startWriter());
+        return queued.written;
+    }
+
+    /**
+     * Starts the writer thread the first time something is recorded.
+     *
+     * @return The writer thread.
+     */
+    private synchronized Thread startWriter() {
+        if (writer == null) {
+            writer = new Thread(this::writeLoop, "inventory-journal-writer");
+            writer.setDaemon(true); // Callers wait on their futures for anything that must be saved
+            writer.start();
+        }
+        return writer;
+    }
+
+    /**
+     * Writes queued deltas in batches, sleeping while the queue is empty.
+     */
+    private void writeLoop() {
+        List<QueuedDelta> batch = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            QueuedDelta queued;
+            while (batch.size() < BATCH_SIZE && (queued = queue.poll()) != null) {
+                batch.add(queued);
+            }
+            if (batch.isEmpty()) {
+                LockSupport.park(this); // Woken by record(); a wake-up that came first is not lost
+                continue;
+            }
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Writes a batch of deltas as one record per item, syncs the file, and completes their futures.
+     *
+     * @param batch The queued deltas.
+     */
+    private void writeBatch(List<QueuedDelta> batch) {
+        Map<String, Integer> totals = new LinkedHashMap<>();
+        for (QueuedDelta queued : batch) {
+            totals.merge(queued.delta.getMerchandiseId(), queued.delta.getDelta(), Integer::sum);
+        }
+        List<StockDelta> records = new ArrayList<>(totals.size());
+        for (Map.Entry<String, Integer> total : totals.entrySet()) {
+            if (total.getValue() != 0) { // A reservation released in the same batch cancels out
+                records.add(new StockDelta(total.getKey(), total.getValue()));
+            }
+        }
+        boolean written;
+        try {
+            written = records.isEmpty() || storage.appendAllDurably(records);
+        } catch (RuntimeException e) {
+            System.err.println("Error saving stock changes to " + filename + ": " + e.getMessage());
+            written = false;
+        }
+        for (QueuedDelta queued : batch) {
+            if (written) {
+                queued.written.complete(null);
+            } else {
+                queued.written.completeExceptionally(new IOException("Stock changes could not be saved to " + filename));
+            }
+        }
+    }
+
+    /**
+     * Rewrites the journal as one record per item holding its stock level. The new file is
+     * written and synced under a temporary name, then moved over the old one in one step.
+     *
+     * @param levels The stock level of each item.
+     */
+    private void compact(Map<String, Integer> levels) {
+        Path source = Paths.get(filename);
+        Path target = Paths.get(filename + ".compact");
+        List<StockDelta> records = new ArrayList<>(levels.size());
+        for (Map.Entry<String, Integer> level : levels.entrySet()) {
+            records.add(new StockDelta(level.getKey(), level.getValue()));
+        }
+        try {
+            Files.deleteIfExists(target);
+            if (new FileStorage<StockDelta>(target.toString()).appendAllDurably(records)) {
+                Files.move(target, source, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            System.err.println("Error compacting " + filename + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * A delta waiting to be written, with the future its caller waits on.
+     */
+    private static class QueuedDelta {
+        private final StockDelta delta;
+        private final CompletableFuture<Void> written = new CompletableFuture<>();
+
+        /**
+         * Constructs a QueuedDelta.
+         *
+         * @param delta The delta to write.
+         */
+        QueuedDelta(StockDelta delta) {
+            this.delta = delta;
+        }
+    }
+}
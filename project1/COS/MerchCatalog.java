@@ -1,18 +1,77 @@
 package project1.COS;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Manages a catalog of {@link Merchandise} items available in the Customer Ordering System.
  * This class provides methods to access and display the list of products.
  * Currently, it initializes with a predefined set of sample merchandise.
+ * <p>
+ * Each item has an ordinal, its position in the catalog, which never changes because
+ * items are only ever appended. Large catalogs can be read a page at a time by ordinal
+ * with {@link #getMerchandisePage(int, int)} instead of copying the whole catalog, and
+ * items are looked up by ID through a hash index.
+ * <p>
+ * Items can also be found by the words in their name and description with
+ * {@link #search(String)}, which is served from a {@link MerchSearchIndex} rather than by
+ * scanning the catalog, and may be called from a background thread. Items whose ID or
+ * name starts with what a customer has typed so far are suggested by
+ * {@link #complete(String, int)}, from a {@link MerchPrefixIndex}.
+ * <p>
+ * The catalog can be narrowed by whether items are on sale, by {@link PriceBucket} and by
+ * category with {@link #filter(MerchFilter, String)}, which also counts the items for each
+ * of those values. Filters are evaluated over the bitsets of a {@link MerchFacetIndex}.
+ * <p>
+ * Items can be listed in price order, a page at a time and optionally within a price range,
+ * with {@link #getMerchandiseByPrice(double, double, int, int, boolean)}, and any set of items
+ * can be put in price order with {@link #sortByPrice(int[], boolean)}. Both read a
+ * {@link MerchPriceIndex} that keeps the catalog sorted by current price.
+ * <p>
+ * The item list and ID lookup are guarded by the catalog's monitor and each index by its own,
+ * so every method may be called from a background thread while items are being added. An item
+ * is in the list before any index returns its ordinal.
  */
 public class MerchCatalog {
+    /**
+     * The catalog shared by the application. Guarded by MerchCatalog.class.
+     */
+    private static MerchCatalog defaultCatalog;
     /**
      * A {@link List} of {@link Merchandise} objects representing the available items in the catalog.
+     * Guarded by this catalog.
      */
     private List<Merchandise> merchandise;
+    /**
+     * The merchandise items keyed by upper-case ID, for case-insensitive lookup. Guarded by this catalog.
+     */
+    private Map<String, Merchandise> merchandiseById;
+    /**
+     * The inverted index over item names and descriptions used by {@link #search(String)}.
+     */
+    private MerchSearchIndex searchIndex;
+    /**
+     * The prefix index over item IDs and names used by {@link #complete(String, int)}.
+     */
+    private MerchPrefixIndex prefixIndex;
+    /**
+     * The facet bitsets used by {@link #filter(MerchFilter, String)}.
+     */
+    private MerchFacetIndex facetIndex;
+    /**
+     * The catalog sorted by current price, used by the price-ordered methods.
+     */
+    private MerchPriceIndex priceIndex;
+    /**
+     * The units of each sample item to stock when the inventory is first created, by item ID.
+     * Guarded by this catalog.
+     */
+    private final Map<String, Integer> initialStock = new LinkedHashMap<>();
 
     /**
      * Constructs a new MerchCatalog and initializes it with a predefined set of sample merchandise items.
@@ -20,12 +79,58 @@ public class MerchCatalog {
      */
     public MerchCatalog() {
         merchandise = new ArrayList<>();
+        merchandiseById = new HashMap<>();
+        searchIndex = new MerchSearchIndex();
+        prefixIndex = new MerchPrefixIndex();
+        facetIndex = new MerchFacetIndex();
+        priceIndex = new MerchPriceIndex();
         // Initialize with some sample merchandise
-        merchandise.add(new Merchandise("M001", "Laptop Pro", "High-performance laptop", 1200.00, 1000.00));
-        merchandise.add(new Merchandise("M002", "Mechanical Keyboard", "RGB gaming keyboard", 80.00, 0.00));
-        merchandise.add(new Merchandise("M003", "Wireless Mouse", "Ergonomic wireless mouse", 35.00, 25.00));
-        merchandise.add(new Merchandise("M004", "USB-C Hub", "Multi-port adapter", 50.00, 0.00));
-        merchandise.add(new Merchandise("M005", "External SSD 1TB", "Portable solid state drive", 150.00, 130.00));
+        append(new Merchandise("M001", "Laptop Pro", "High-performance laptop", 1200.00, 1000.00, "Computers"));
+        append(new Merchandise("M002", "Mechanical Keyboard", "RGB gaming keyboard", 80.00, 0.00, "Accessories"));
+        append(new Merchandise("M003", "Wireless Mouse", "Ergonomic wireless mouse", 35.00, 25.00, "Accessories"));
+        append(new Merchandise("M004", "USB-C Hub", "Multi-port adapter", 50.00, 0.00, "Accessories"));
+        append(new Merchandise("M005", "External SSD 1TB", "Portable solid state drive", 150.00, 130.00, "Storage"));
+        // The stock each sample item starts with when the inventory is first created
+        initialStock.put("M001", 20);
+        initialStock.put("M002", 50);
+        initialStock.put("M003", 100);
+        initialStock.put("M004", 75);
+        initialStock.put("M005", 40);
+    }
+
+    /**
+     * Returns the units of each item to stock when the {@link Inventory} is first created.
+     * Items added later with {@link #addMerchandise(Merchandise)} have none, so their stock is not
+     * tracked until they are restocked.
+     *
+     * @return The initial stock of each item, keyed by item ID.
+     */
+    public synchronized Map<String, Integer> getInitialStock() {
+        return new LinkedHashMap<>(initialStock);
+    }
+
+    /**
+     * Returns the catalog shared by the console and GUI, creating it the first time it is needed.
+     * Code that only needs item details, such as showing an order, should use this catalog rather
+     * than building a new one and all its indexes.
+     *
+     * @return The default {@link MerchCatalog}.
+     */
+    public static synchronized MerchCatalog getDefault() {
+        if (defaultCatalog == null) {
+            defaultCatalog = new MerchCatalog();
+        }
+        return defaultCatalog;
+    }
+
+    /**
+     * Adds a merchandise item to the catalog and publishes a {@link DomainEvent.CatalogChanged} event.
+     *
+     * @param item The {@link Merchandise} item to add.
+     */
+    public void addMerchandise(Merchandise item) {
+        append(item);
+        DomainEventBus.getDefault().publish(new DomainEvent.CatalogChanged(this));
     }
 
     /**
@@ -34,10 +139,48 @@ public class MerchCatalog {
      *
      * @return A {@link List} of all available merchandise.
      */
-    public List<Merchandise> getAllMerchandise() {
+    public synchronized List<Merchandise> getAllMerchandise() {
         return new ArrayList<>(merchandise);
     }
 
+    /**
+     * Returns the number of merchandise items in the catalog.
+     *
+     * @return The catalog size.
+     */
+    public synchronized int size() {
+        return merchandise.size();
+    }
+
+    /**
+     * Returns the merchandise item with the given ordinal (its position in the catalog).
+     *
+     * @param ordinal The ordinal, from 0 to {@link #size()} - 1.
+     * @return The {@link Merchandise} item.
+     * @throws IndexOutOfBoundsException if the ordinal is out of range.
+     */
+    public synchronized Merchandise getMerchandise(int ordinal) {
+        return merchandise.get(ordinal);
+    }
+
+    /**
+     * Returns one page of the catalog: the items with ordinals from {@code offset}
+     * up to, but not including, {@code offset + limit}. Only that page is copied.
+     *
+     * @param offset The ordinal of the first item to return.
+     * @param limit  The maximum number of items to return.
+     * @return A {@link List} of at most {@code limit} items; empty if {@code offset} is past the end.
+     */
+    public synchronized List<Merchandise> getMerchandisePage(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative.");
+        }
+        if (offset >= merchandise.size()) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(merchandise.subList(offset, Math.min(merchandise.size(), offset + limit)));
+    }
+
     /**
      * Retrieves a specific {@link Merchandise} item from the catalog by its ID.
      * The comparison is case-insensitive.
@@ -45,13 +188,154 @@ public class MerchCatalog {
      * @param id The unique identifier of the merchandise item to retrieve.
      * @return The {@link Merchandise} object if found, or {@code null} if no item with the given ID exists.
      */
-    public Merchandise getMerchandiseById(String id) {
-        for (Merchandise item : merchandise) {
-            if (item.getId().equalsIgnoreCase(id)) {
-                return item;
-            }
+    public synchronized Merchandise getMerchandiseById(String id) {
+        return (id == null) ? null : merchandiseById.get(id.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Finds the items whose name or description contains every word of a query, ignoring case
+     * (e.g. "wireless mouse"). Safe to call from a background thread.
+     *
+     * @param query The words to search for.
+     * @return The ordinals of the matching items, in catalog order; empty if nothing matches.
+     */
+    public int[] search(String query) {
+        return searchIndex.search(query);
+    }
+
+    /**
+     * Finds the items whose name or description contains every word of a query, ignoring case.
+     *
+     * @param query The words to search for.
+     * @param limit The maximum number of items to return.
+     * @return A {@link List} of at most {@code limit} matching items, in catalog order.
+     */
+    public List<Merchandise> searchMerchandise(String query, int limit) {
+        return toMerchandise(search(query), limit);
+    }
+
+    /**
+     * Finds the items whose ID or name starts with a prefix, ignoring case, to suggest
+     * as a customer types (e.g. "m00" or "wire"). Safe to call from a background thread.
+     *
+     * @param prefix The text typed so far.
+     * @param limit  The maximum number of suggestions.
+     * @return The ordinals of up to {@code limit} items, in alphabetical order of the
+     *         matching ID or name; empty if the prefix is blank.
+     */
+    public int[] complete(String prefix, int limit) {
+        return prefixIndex.complete(prefix, limit);
+    }
+
+    /**
+     * Finds the items whose ID or name starts with a prefix, ignoring case.
+     *
+     * @param prefix The text typed so far.
+     * @param limit  The maximum number of items to return.
+     * @return A {@link List} of up to {@code limit} items, in alphabetical order of the matching ID or name.
+     */
+    public List<Merchandise> completeMerchandise(String prefix, int limit) {
+        return toMerchandise(complete(prefix, limit), limit);
+    }
+
+    /**
+     * Finds the items that pass a filter and, if a query is given, contain its words, and
+     * counts the items for each facet value. Safe to call from a background thread.
+     *
+     * @param filter The facet selections; an empty filter passes every item.
+     * @param query  The words to search for, as for {@link #search(String)}; null or blank
+     *               to consider the whole catalog.
+     * @return The matching items' ordinals, in catalog order, and the facet counts.
+     */
+    public FilterResult filter(MerchFilter filter, String query) {
+        int[] within = (query == null || query.isBlank()) ? null : search(query);
+        return facetIndex.filter(filter, within);
+    }
+
+    /**
+     * Counts the items whose current price is within a range.
+     *
+     * @param min The lowest price, inclusive; {@link Double#NEGATIVE_INFINITY} for no lower limit.
+     * @param max The highest price, inclusive; {@link Double#POSITIVE_INFINITY} for no upper limit.
+     * @return The number of items in the range.
+     */
+    public int countByPrice(double min, double max) {
+        return priceIndex.count(min, max);
+    }
+
+    /**
+     * Returns one page of the items whose current price is within a range, in price order
+     * (e.g. the items from $20 to $50, cheapest first). Only that page is read from the
+     * price index. Safe to call from a background thread.
+     *
+     * @param min        The lowest price, inclusive; {@link Double#NEGATIVE_INFINITY} for no lower limit.
+     * @param max        The highest price, inclusive; {@link Double#POSITIVE_INFINITY} for no upper limit.
+     * @param offset     The number of items in the range to skip.
+     * @param limit      The maximum number of items to return.
+     * @param descending true for the most expensive first; false for the cheapest first.
+     * @return The ordinals of up to {@code limit} items; items with the same price are in catalog order.
+     */
+    public int[] getOrdinalsByPrice(double min, double max, int offset, int limit, boolean descending) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative.");
         }
-        return null; // Merchandise not found
+        return priceIndex.range(min, max, offset, limit, descending);
+    }
+
+    /**
+     * Returns one page of the items whose current price is within a range, in price order.
+     *
+     * @param min        The lowest price, inclusive; {@link Double#NEGATIVE_INFINITY} for no lower limit.
+     * @param max        The highest price, inclusive; {@link Double#POSITIVE_INFINITY} for no upper limit.
+     * @param offset     The number of items in the range to skip.
+     * @param limit      The maximum number of items to return.
+     * @param descending true for the most expensive first; false for the cheapest first.
+     * @return A {@link List} of up to {@code limit} items.
+     */
+    public List<Merchandise> getMerchandiseByPrice(double min, double max, int offset, int limit, boolean descending) {
+        return toMerchandise(getOrdinalsByPrice(min, max, offset, limit, descending), limit);
+    }
+
+    /**
+     * Puts some of the catalog's items in order of current price, such as search or filter
+     * results, without comparing the items themselves. Safe to call from a background thread.
+     *
+     * @param ordinals   The ordinals of the items; not modified.
+     * @param descending true for the most expensive first; false for the cheapest first.
+     * @return The same ordinals in price order.
+     */
+    public int[] sortByPrice(int[] ordinals, boolean descending) {
+        return priceIndex.sort(ordinals, descending);
+    }
+
+    /**
+     * Looks up the items with the given ordinals.
+     *
+     * @param ordinals The ordinals.
+     * @param limit    The maximum number of items to return.
+     * @return A {@link List} of the first {@code limit} items, in the order of the ordinals.
+     */
+    private synchronized List<Merchandise> toMerchandise(int[] ordinals, int limit) {
+        List<Merchandise> items = new ArrayList<>(Math.min(limit, ordinals.length));
+        for (int i = 0; i < ordinals.length && i < limit; i++) {
+            items.add(merchandise.get(ordinals[i]));
+        }
+        return items;
+    }
+
+    /**
+     * Appends an item to the catalog and to the ID, search, prefix, facet and price indexes.
+     * If another item has the same ID, lookups by ID find the first one, as before.
+     *
+     * @param item The {@link Merchandise} item to add.
+     */
+    private synchronized void append(Merchandise item) {
+        merchandise.add(item);
+        searchIndex.add(merchandise.size() - 1, item);
+        prefixIndex.add(merchandise.size() - 1, item);
+        facetIndex.add(merchandise.size() - 1, item);
+        priceIndex.add(merchandise.size() - 1, item);
+        merchandiseById.putIfAbsent(item.getId().toUpperCase(Locale.ROOT), item);
     }
 
     /**
@@ -59,7 +343,7 @@ public class MerchCatalog {
      * Each item's details are displayed using its {@code toString()} method.
      * If the catalog is empty, a corresponding message is displayed.
      */
-    public void displayCatalog() {
+    public synchronized void displayCatalog() {
         System.out.println("\n--- Merchandise Catalog ---");
         if (merchandise.isEmpty()) {
             System.out.println("No merchandise available at the moment.");
@@ -70,4 +354,101 @@ public class MerchCatalog {
         }
         System.out.println("---------------------------");
     }
+
+    /**
+     * The items that passed a {@link MerchFilter}, and how many items there are for each facet value.
+     * <p>
+     * Each facet's counts take every other facet's selection into account but not its own: the
+     * on-sale count is how many items would remain if only items on sale were shown, and a price
+     * bucket or category count is how many items there would be in that bucket or category.
+     * <p>
+     * The matches are kept as a bitset over ordinals and only listed as ordinals when
+     * {@link #getOrdinals()} is first called, so a result used only for its counts stays cheap.
+     */
+    public static class FilterResult {
+        private final long[] matchBits;
+        private final int matchCount;
+        private int[] ordinals; // Listed from matchBits when first asked for
+        private final int onSaleCount;
+        private final Map<PriceBucket, Integer> priceBucketCounts;
+        private final Map<String, Integer> categoryCounts;
+
+        /**
+         * Constructs a FilterResult.
+         *
+         * @param matchBits         The bitset of the matching items' ordinals.
+         * @param onSaleCount       The number of items on sale.
+         * @param priceBucketCounts The number of items in each price bucket.
+         * @param categoryCounts    The number of items in each category, in order of category.
+         */
+        FilterResult(long[] matchBits, int onSaleCount, Map<PriceBucket, Integer> priceBucketCounts,
+                     Map<String, Integer> categoryCounts) {
+            int count = 0;
+            for (long word : matchBits) {
+                count += Long.bitCount(word);
+            }
+            this.matchBits = matchBits;
+            this.matchCount = count;
+            this.onSaleCount = onSaleCount;
+            this.priceBucketCounts = Collections.unmodifiableMap(priceBucketCounts);
+            this.categoryCounts = Collections.unmodifiableMap(categoryCounts);
+        }
+
+        /**
+         * Returns the ordinals of the items that passed the filter. They are listed from the
+         * bitset on the first call, which takes time proportional to the number of matches.
+         *
+         * @return The ordinals, in catalog order; must not be modified.
+         */
+        public synchronized int[] getOrdinals() {
+            if (ordinals == null) {
+                ordinals = new int[matchCount];
+                int n = 0;
+                for (int i = 0; i < matchBits.length; i++) {
+                    long word = matchBits[i];
+                    while (word != 0) {
+                        ordinals[n++] = (i << 6) + Long.numberOfTrailingZeros(word);
+                        word &= word - 1; // Clear the lowest set bit
+                    }
+                }
+            }
+            return ordinals;
+        }
+
+        /**
+         * Returns the number of items that passed the filter.
+         *
+         * @return The number of matching items.
+         */
+        public int getMatchCount() {
+            return matchCount;
+        }
+
+        /**
+         * Returns the number of items on sale, with the price and category selections applied.
+         *
+         * @return The number of items on sale.
+         */
+        public int getOnSaleCount() {
+            return onSaleCount;
+        }
+
+        /**
+         * Returns the number of items in each price bucket, with the on-sale and category selections applied.
+         *
+         * @return The count for every {@link PriceBucket}, in bucket order.
+         */
+        public Map<PriceBucket, Integer> getPriceBucketCounts() {
+            return priceBucketCounts;
+        }
+
+        /**
+         * Returns the number of items in each category, with the on-sale and price selections applied.
+         *
+         * @return The count for every category in the catalog, in alphabetical order.
+         */
+        public Map<String, Integer> getCategoryCounts() {
+            return categoryCounts;
+        }
+    }
 }
\ No newline at end of file
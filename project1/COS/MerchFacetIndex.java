@@ -0,0 +1,224 @@
+package project1.COS;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Bitsets over catalog ordinals for each facet value merchandise can be filtered by, used by
+ * {@link MerchCatalog#filter(MerchFilter, String)}.
+ * <p>
+ * There is one bitset for items on sale, one per {@link PriceBucket} and one per category, with
+ * bit {@code n} set if the item with ordinal {@code n} has that value. A filter is then a few
+ * bitwise ORs (within a facet) and ANDs (across facets) over arrays of longs, and the number of
+ * matches for a facet value is a population count, so filtering costs a pass over
+ * {@code catalog size / 64} words no matter how many items match. For a million items that is
+ * about 16,000 words per bitset.
+ * <p>
+ * The counts shown beside each facet value are computed with every other facet's selection
+ * applied but not the facet's own, so they say how many items there would be if that value were
+ * selected as well (for on sale) or instead (for the others).
+ * <p>
+ * Items are indexed as they are appended to the catalog; their prices and categories never
+ * change. All methods are synchronized, so the index can be queried from a background thread
+ * while items are being added.
+ */
+class MerchFacetIndex {
+
+    private int size; // The number of items indexed
+    private final Bits onSale = new Bits();
+    private final Map<PriceBucket, Bits> byPriceBucket = new EnumMap<>(PriceBucket.class);
+    private final Map<String, Bits> byCategory = new TreeMap<>();
+
+    /**
+     * Constructs an empty MerchFacetIndex.
+     */
+    MerchFacetIndex() {
+        for (PriceBucket bucket : PriceBucket.values()) {
+            byPriceBucket.put(bucket, new Bits());
+        }
+    }
+
+    /**
+     * Sets the item's bit in the bitsets of its facet values.
+     * Items must be added in ordinal order.
+     *
+     * @param ordinal The item's ordinal in the catalog.
+     * @param item    The item.
+     */
+    synchronized void add(int ordinal, Merchandise item) {
+        if (item.isOnSale()) {
+            onSale.set(ordinal);
+        }
+        byPriceBucket.get(PriceBucket.of(item.getCurrentPrice())).set(ordinal);
+        byCategory.computeIfAbsent(item.getCategory(), category -> new Bits()).set(ordinal);
+        size = Math.max(size, ordinal + 1);
+    }
+
+    /**
+     * Finds the items that pass a filter, and counts the items for each facet value.
+     *
+     * @param filter The facet selections.
+     * @param within The ordinals of the only items to consider, in ascending order (e.g. search
+     *               results); null to consider the whole catalog.
+     * @return The matching ordinals, in catalog order, and the facet counts.
+     */
+    synchronized MerchCatalog.FilterResult filter(MerchFilter filter, int[] within) {
+        int words = (size + 63) >>> 6;
+        long[] base = (within == null) ? allOf(words) : toWords(within, words);
+        long[] saleMask = filter.isOnSaleOnly() ? onSale.words(words) : null;
+        long[] priceMask = null;
+        for (PriceBucket bucket : filter.getPriceBuckets()) {
+            priceMask = or(priceMask, byPriceBucket.get(bucket).words(words));
+        }
+        long[] categoryMask = null;
+        for (String category : filter.getCategories()) {
+            Bits bits = byCategory.get(category); // An unknown category matches nothing
+            categoryMask = or(categoryMask, (bits == null) ? new long[words] : bits.words(words));
+        }
+
+        // Each facet's counts ignore that facet's own selection
+        long[] exceptSale = and(base, priceMask, categoryMask);
+        long[] exceptPrice = and(base, saleMask, categoryMask);
+        long[] exceptCategory = and(base, saleMask, priceMask);
+        long[] matches = and(exceptSale, saleMask, null);
+
+        int onSaleCount = countAnd(exceptSale, onSale.words(words));
+        Map<PriceBucket, Integer> priceBucketCounts = new EnumMap<>(PriceBucket.class);
+        for (Map.Entry<PriceBucket, Bits> entry : byPriceBucket.entrySet()) {
+            priceBucketCounts.put(entry.getKey(), countAnd(exceptPrice, entry.getValue().words(words)));
+        }
+        Map<String, Integer> categoryCounts = new TreeMap<>();
+        for (Map.Entry<String, Bits> entry : byCategory.entrySet()) {
+            categoryCounts.put(entry.getKey(), countAnd(exceptCategory, entry.getValue().words(words)));
+        }
+        for (String category : filter.getCategories()) {
+            categoryCounts.putIfAbsent(category, 0); // Keep unknown selections visible
+        }
+        return new MerchCatalog.FilterResult(matches, onSaleCount, priceBucketCounts, categoryCounts);
+    }
+
+    /**
+     * Returns a bitset with the bits of every indexed item set.
+     *
+     * @param words The length of the bitset in words.
+     * @return The bitset.
+     */
+    private long[] allOf(int words) {
+        long[] all = new long[words];
+        Arrays.fill(all, -1L);
+        if ((size & 63) != 0) {
+            all[words - 1] = (1L << size) - 1; // Only the bits below size; shifts are mod 64
+        }
+        return all;
+    }
+
+    /**
+     * Returns a bitset with the bits of some ordinals set.
+     *
+     * @param ordinals The ordinals.
+     * @param words    The length of the bitset in words.
+     * @return The bitset.
+     */
+    private static long[] toWords(int[] ordinals, int words) {
+        long[] bits = new long[words];
+        for (int ordinal : ordinals) {
+            if (ordinal >>> 6 < words) {
+                bits[ordinal >>> 6] |= 1L << ordinal;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Returns the union of two bitsets of the same length.
+     *
+     * @param a A bitset, or null for none; it may be updated and returned.
+     * @param b A bitset; not modified.
+     * @return The union.
+     */
+    private static long[] or(long[] a, long[] b) {
+        if (a == null) {
+            return b.clone();
+        }
+        for (int i = 0; i < a.length; i++) {
+            a[i] |= b[i];
+        }
+        return a;
+    }
+
+    /**
+     * Returns the intersection of a bitset with up to two masks.
+     *
+     * @param base  The bitset; not modified.
+     * @param mask1 A mask, or null for no restriction.
+     * @param mask2 A mask, or null for no restriction.
+     * @return A new bitset with the bits set in all three, or {@code base} itself if both masks are null.
+     */
+    private static long[] and(long[] base, long[] mask1, long[] mask2) {
+        if (mask1 == null && mask2 == null) {
+            return base;
+        }
+        long[] result = base.clone();
+        if (mask1 != null) {
+            for (int i = 0; i < result.length; i++) {
+                result[i] &= mask1[i];
+            }
+        }
+        if (mask2 != null) {
+            for (int i = 0; i < result.length; i++) {
+                result[i] &= mask2[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Counts the bits set in both of two bitsets of the same length.
+     *
+     * @param a A bitset.
+     * @param b A bitset.
+     * @return The number of bits set in both.
+     */
+    private static int countAnd(long[] a, long[] b) {
+        int count = 0;
+        for (int i = 0; i < a.length; i++) {
+            count += Long.bitCount(a[i] & b[i]);
+        }
+        return count;
+    }
+
+    /**
+     * A growable bitset over ordinals.
+     */
+    private static class Bits {
+        private long[] words = new long[1];
+
+        /**
+         * Sets a bit, growing the bitset if needed.
+         *
+         * @param ordinal The bit to set.
+         */
+        void set(int ordinal) {
+            int word = ordinal >>> 6;
+            if (word >= words.length) {
+                words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+            }
+            words[word] |= 1L << ordinal;
+        }
+
+        /**
+         * Returns the bitset as exactly {@code count} words, without copying if it already is.
+         *
+         * @param count The number of words wanted.
+         * @return The words; must not be modified.
+         */
+        long[] words(int count) {
+            if (words.length != count) {
+                words = Arrays.copyOf(words, count); // Growth spare room is never set, so nothing is lost
+            }
+            return words;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package project1.COS;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The facets a customer has chosen to narrow the merchandise catalog by, passed to
+ * {@link MerchCatalog#filter(MerchFilter, String)}.
+ * <p>
+ * An item passes the filter if it matches every facet that has a selection: it must be on
+ * sale if {@link #isOnSaleOnly()} is set, its price must fall in one of the selected
+ * {@link PriceBucket}s if any are selected, and its category must be one of the selected
+ * categories if any are selected. A new filter has no selections and passes every item.
+ */
+public class MerchFilter {
+    private boolean onSaleOnly;
+    private final Set<PriceBucket> priceBuckets = EnumSet.noneOf(PriceBucket.class);
+    private final Set<String> categories = new LinkedHashSet<>();
+
+    /**
+     * Returns whether only items on sale pass the filter.
+     *
+     * @return true if only items on sale pass.
+     */
+    public boolean isOnSaleOnly() {
+        return onSaleOnly;
+    }
+
+    /**
+     * Sets whether only items on sale pass the filter.
+     *
+     * @param onSaleOnly true to pass only items on sale.
+     */
+    public void setOnSaleOnly(boolean onSaleOnly) {
+        this.onSaleOnly = onSaleOnly;
+    }
+
+    /**
+     * Returns the selected price buckets.
+     *
+     * @return An unmodifiable view of the selected buckets; empty if price is not filtered.
+     */
+    public Set<PriceBucket> getPriceBuckets() {
+        return Collections.unmodifiableSet(priceBuckets);
+    }
+
+    /**
+     * Selects or deselects a price bucket.
+     *
+     * @param bucket   The bucket.
+     * @param selected true to select it, false to deselect it.
+     */
+    public void setPriceBucket(PriceBucket bucket, boolean selected) {
+        if (selected) {
+            priceBuckets.add(bucket);
+        } else {
+            priceBuckets.remove(bucket);
+        }
+    }
+
+    /**
+     * Returns the selected categories.
+     *
+     * @return An unmodifiable view of the selected categories; empty if category is not filtered.
+     */
+    public Set<String> getCategories() {
+        return Collections.unmodifiableSet(categories);
+    }
+
+    /**
+     * Selects or deselects a category.
+     *
+     * @param category The category, as returned by {@link Merchandise#getCategory()}.
+     * @param selected true to select it, false to deselect it.
+     */
+    public void setCategory(String category, boolean selected) {
+        if (selected) {
+            categories.add(category);
+        } else {
+            categories.remove(category);
+        }
+    }
+
+    /**
+     * Checks whether the filter has no selections, and so passes every item.
+     *
+     * @return true if nothing is selected.
+     */
+    public boolean isEmpty() {
+        return !onSaleOnly && priceBuckets.isEmpty() && categories.isEmpty();
+    }
+
+    /**
+     * Returns a copy of this filter, which can be changed without affecting this one.
+     *
+     * @return A copy of this filter.
+     */
+    public MerchFilter copy() {
+        MerchFilter copy = new MerchFilter();
+        copy.onSaleOnly = onSaleOnly;
+        copy.priceBuckets.addAll(priceBuckets);
+        copy.categories.addAll(categories);
+        return copy;
+    }
+}
@@ -0,0 +1,183 @@
+package project1.COS;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A sorted-array prefix index over merchandise IDs and names, used by
+ * {@link MerchCatalog#complete(String, int)} to suggest items as a customer types.
+ * <p>
+ * Every item contributes two keys, its lower-case ID and its lower-case name, kept in one sorted
+ * array alongside the item's ordinal. The keys starting with a prefix are next to each other, so
+ * a completion is a binary search for the first of them followed by reading the next few entries:
+ * O(log n + K) for K completions. The arrays hold only strings and ints, so the index stays
+ * compact for large catalogs.
+ * <p>
+ * Items added to the catalog are collected in a small pending list and merged into the sorted
+ * arrays the next time a completion is asked for. Merging only sorts the new keys and works back
+ * from the end of arrays that keep spare room, so only the keys that sort after the new ones are
+ * moved; the index is never re-sorted as a whole.
+ * All methods are synchronized, so completions can be asked for from a background thread while
+ * items are being added.
+ */
+class MerchPrefixIndex {
+
+    private static final int[] NO_MATCHES = new int[0];
+    private static final Comparator<Entry> KEY_ORDER =
+            Comparator.comparing((Entry entry) -> entry.key).thenComparingInt(entry -> entry.ordinal);
+
+    private String[] keys = new String[16];
+    private int[] ordinals = new int[16];
+    private int size; // The number of keys merged into the arrays
+    private final List<Entry> pending = new ArrayList<>();
+
+    /**
+     * Adds an item's ID and name to the index.
+     *
+     * @param ordinal The item's ordinal in the catalog.
+     * @param item    The item.
+     */
+    synchronized void add(int ordinal, Merchandise item) {
+        pending.add(new Entry(fold(item.getId()), ordinal));
+        pending.add(new Entry(fold(item.getName()), ordinal));
+    }
+
+    /**
+     * Finds the items whose ID or name starts with a prefix, ignoring case.
+     *
+     * @param prefix The text typed so far.
+     * @param limit  The maximum number of items to return.
+     * @return The ordinals of up to {@code limit} matching items, in alphabetical order of the
+     *         matching ID or name; each item appears once. Empty if the prefix is blank.
+     */
+    synchronized int[] complete(String prefix, int limit) {
+        String folded = fold(prefix).strip();
+        if (folded.isEmpty() || limit <= 0) {
+            return NO_MATCHES;
+        }
+        mergePending();
+
+        int[] matches = new int[limit];
+        int count = 0;
+        // Each item has two keys, so at most 2 * limit entries are read
+        for (int i = firstAtOrAfter(folded); i < size && count < limit && keys[i].startsWith(folded); i++) {
+            if (!contains(matches, count, ordinals[i])) { // The item's ID and name may both match
+                matches[count++] = ordinals[i];
+            }
+        }
+        return (count == limit) ? matches : Arrays.copyOf(matches, count);
+    }
+
+    /**
+     * Merges the keys added since the last completion into the sorted arrays.
+     */
+    private void mergePending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        pending.sort(KEY_ORDER);
+        int merged = size + pending.size();
+        if (merged > keys.length) {
+            int capacity = Math.max(merged, keys.length + (keys.length >> 1));
+            keys = Arrays.copyOf(keys, capacity);
+            ordinals = Arrays.copyOf(ordinals, capacity);
+        }
+        // Fill from the back, taking the larger of the last existing and last pending key,
+        // until the pending keys run out; the existing keys before them stay where they are
+        int a = size - 1;
+        int b = pending.size() - 1;
+        for (int m = merged - 1; b >= 0; m--) {
+            if (a >= 0 && compare(keys[a], ordinals[a], pending.get(b)) > 0) {
+                keys[m] = keys[a];
+                ordinals[m] = ordinals[a--];
+            } else {
+                keys[m] = pending.get(b).key;
+                ordinals[m] = pending.get(b--).ordinal;
+            }
+        }
+        size = merged;
+        pending.clear();
+    }
+
+    /**
+     * Finds the first key that is not less than a prefix, by binary search.
+     *
+     * @param prefix The prefix.
+     * @return The index of the first key at or after the prefix; {@code size} if none.
+     */
+    private int firstAtOrAfter(String prefix) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compares an indexed key with a pending entry, in {@link #KEY_ORDER}.
+     *
+     * @param key     The indexed key.
+     * @param ordinal The indexed key's ordinal.
+     * @param entry   The pending entry.
+     * @return A negative number, zero or a positive number as the indexed key sorts before, with or after the entry.
+     */
+    private static int compare(String key, int ordinal, Entry entry) {
+        int byKey = key.compareTo(entry.key);
+        return (byKey != 0) ? byKey : Integer.compare(ordinal, entry.ordinal);
+    }
+
+    /**
+     * Checks whether an ordinal is among the first {@code count} of a small array.
+     *
+     * @param values The array.
+     * @param count  The number of values in use.
+     * @param value  The ordinal to look for.
+     * @return true if the ordinal is present.
+     */
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Folds text to the case used for keys.
+     *
+     * @param text The text; may be null.
+     * @return The lower-case text, or an empty string for null.
+     */
+    private static String fold(String text) {
+        return (text == null) ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A key waiting to be merged into the sorted arrays.
+     */
+    private static class Entry {
+        private final String key;
+        private final int ordinal;
+
+        /**
+         * Constructs an Entry.
+         *
+         * @param key     The folded ID or name.
+         * @param ordinal The item's ordinal.
+         */
+        Entry(String key, int ordinal) {
+            this.key = key;
+            this.ordinal = ordinal;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package project1.COS;
+
+import java.util.Arrays;
+
+/**
+ * The catalog's items sorted by current price ({@link Merchandise#getCurrentPrice()}), used by
+ * {@link MerchCatalog#getOrdinalsByPrice(double, double, int, int, boolean)} and
+ * {@link MerchCatalog#sortByPrice(int[], boolean)}.
+ * <p>
+ * Each item is one {@code long} in a sorted array: its price in cents in the upper 32 bits and
+ * its ordinal in the lower 32, so items are ordered by price and then by catalog order. The items
+ * in a price range are next to each other, so a range is found with two binary searches and a
+ * page of it is read straight from the array, cheapest first or most expensive first. Prices are
+ * rounded to the cent, as they are displayed.
+ * <p>
+ * Items added to the catalog are collected in a pending array and merged in the next time the
+ * index is read, the same way as in {@link MerchPrefixIndex}: only the new entries are sorted,
+ * and only the entries that sort after them move. All methods are synchronized, so the index can
+ * be read from a background thread while items are being added.
+ */
+class MerchPriceIndex {
+
+    private static final int[] NO_MATCHES = new int[0];
+
+    private long[] entries = new long[16]; // Price in cents << 32 | ordinal, ascending
+    private int size;
+    private long[] pending = new long[16];
+    private int pendingSize;
+    private int[] ranks = new int[0]; // Each ordinal's position in entries; rebuilt when stale
+    private boolean ranksStale;
+
+    /**
+     * Adds an item to the index.
+     *
+     * @param ordinal The item's ordinal in the catalog.
+     * @param item    The item.
+     */
+    synchronized void add(int ordinal, Merchandise item) {
+        if (pendingSize == pending.length) {
+            pending = Arrays.copyOf(pending, pendingSize * 2);
+        }
+        pending[pendingSize++] = ((long) toCents(item.getCurrentPrice()) << 32) | ordinal;
+    }
+
+    /**
+     * Counts the items whose price is within a range.
+     *
+     * @param min The lowest price, inclusive.
+     * @param max The highest price, inclusive.
+     * @return The number of items in the range.
+     */
+    synchronized int count(double min, double max) {
+        mergePending();
+        return Math.max(0, upperBound(max) - lowerBound(min));
+    }
+
+    /**
+     * Returns one page of the items whose price is within a range, in price order.
+     *
+     * @param min        The lowest price, inclusive.
+     * @param max        The highest price, inclusive.
+     * @param offset     The number of items in the range to skip.
+     * @param limit      The maximum number of items to return.
+     * @param descending true for the most expensive first; false for the cheapest first.
+     * @return The ordinals of up to {@code limit} items; items with the same price are in
+     *         catalog order, or reverse catalog order if descending.
+     */
+    synchronized int[] range(double min, double max, int offset, int limit, boolean descending) {
+        mergePending();
+        int low = lowerBound(min);
+        int high = upperBound(max);
+        int count = Math.min(limit, high - low - offset);
+        if (count <= 0) {
+            return NO_MATCHES;
+        }
+        int[] ordinals = new int[count];
+        for (int i = 0; i < count; i++) {
+            long entry = descending ? entries[high - 1 - offset - i] : entries[low + offset + i];
+            ordinals[i] = (int) entry;
+        }
+        return ordinals;
+    }
+
+    /**
+     * Sorts some of the catalog's items by price. A small set is sorted by each item's position
+     * in the index; a large one is read off the index in order, which takes one pass over it.
+     *
+     * @param ordinals   The ordinals of the items, each listed once; not modified.
+     * @param descending true for the most expensive first; false for the cheapest first.
+     * @return The same ordinals in price order.
+     */
+    synchronized int[] sort(int[] ordinals, boolean descending) {
+        mergePending();
+        if (ordinals.length > size / 32) { // Sorting would cost more than one pass over the index
+            long[] wanted = new long[(size + 63) >>> 6];
+            for (int ordinal : ordinals) {
+                wanted[ordinal >>> 6] |= 1L << ordinal;
+            }
+            int[] sorted = new int[ordinals.length];
+            int n = 0;
+            for (int i = 0; i < size && n < sorted.length; i++) {
+                int ordinal = (int) entries[descending ? size - 1 - i : i];
+                if ((wanted[ordinal >>> 6] & (1L << ordinal)) != 0) {
+                    sorted[n++] = ordinal;
+                }
+            }
+            return sorted;
+        }
+        if (ranksStale) {
+            ranks = new int[size];
+            for (int i = 0; i < size; i++) {
+                ranks[(int) entries[i]] = i;
+            }
+            ranksStale = false;
+        }
+        int[] positions = new int[ordinals.length];
+        for (int i = 0; i < ordinals.length; i++) {
+            positions[i] = ranks[ordinals[i]];
+        }
+        Arrays.sort(positions);
+        int[] sorted = new int[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            int position = descending ? positions[positions.length - 1 - i] : positions[i];
+            sorted[i] = (int) entries[position];
+        }
+        return sorted;
+    }
+
+    /**
+     * Merges the entries added since the index was last read into the sorted array.
+     */
+    private void mergePending() {
+        if (pendingSize == 0) {
+            return;
+        }
+        Arrays.sort(pending, 0, pendingSize);
+        int merged = size + pendingSize;
+        if (merged > entries.length) {
+            entries = Arrays.copyOf(entries, Math.max(merged, entries.length + (entries.length >> 1)));
+        }
+        // Fill from the back, taking the larger of the last existing and last pending entry,
+        // until the pending entries run out; the existing entries before them stay where they are
+        int a = size - 1;
+        int b = pendingSize - 1;
+        for (int m = merged - 1; b >= 0; m--) {
+            entries[m] = (a >= 0 && entries[a] > pending[b]) ? entries[a--] : pending[b--];
+        }
+        size = merged;
+        pendingSize = 0;
+        ranksStale = true;
+    }
+
+    /**
+     * Finds the first entry priced at or above a price, by binary search.
+     *
+     * @param price The price.
+     * @return The index of the first entry at or above the price; {@code size} if none.
+     */
+    private int lowerBound(double price) {
+        return firstAtOrAfter((long) toCents(price) << 32);
+    }
+
+    /**
+     * Finds the first entry priced above a price, by binary search.
+     *
+     * @param price The price.
+     * @return The index of the first entry above the price; {@code size} if none.
+     */
+    private int upperBound(double price) {
+        int cents = toCents(price);
+        return (cents == Integer.MAX_VALUE) ? size : firstAtOrAfter((long) (cents + 1) << 32);
+    }
+
+    /**
+     * Finds the first entry that is not less than a key, by binary search.
+     *
+     * @param key The key.
+     * @return The index of the first entry at or after the key; {@code size} if none.
+     */
+    private int firstAtOrAfter(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Converts a price to whole cents, rounding to the nearest cent.
+     *
+     * @param price The price; infinite prices are clamped and NaN counts as 0.
+     * @return The price in cents, between {@link Integer#MIN_VALUE} and {@link Integer#MAX_VALUE}.
+     */
+    private static int toCents(double price) {
+        long cents = Math.round(price * 100);
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, cents));
+    }
+}
@@ -0,0 +1,152 @@
+package project1.COS;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An inverted index over the words in merchandise names and descriptions, used by
+ * {@link MerchCatalog#search(String)}.
+ * <p>
+ * Each word maps to the ordinals of the catalog items containing it, in ascending order. A query
+ * finds the items containing every one of its words by intersecting those lists, starting with the
+ * shortest, so its cost depends on how many items match rather than on the size of the catalog.
+ * Words are case-insensitive and split at anything that is not a letter or digit.
+ * <p>
+ * Items are indexed as they are appended to the catalog. All methods are synchronized, so the
+ * index can be queried from a background thread while items are being added.
+ */
+class MerchSearchIndex {
+
+    private static final int[] NO_MATCHES = new int[0];
+
+    private final Map<String, Postings> postingsByWord = new HashMap<>();
+
+    /**
+     * Indexes the words of an item's name and description.
+     * Items must be added in ordinal order.
+     *
+     * @param ordinal The item's ordinal in the catalog.
+     * @param item    The item.
+     */
+    synchronized void add(int ordinal, Merchandise item) {
+        Set<String> words = new LinkedHashSet<>(); // Each word is listed once per item
+        tokenize(item.getName(), words);
+        tokenize(item.getDescription(), words);
+        for (String word : words) {
+            postingsByWord.computeIfAbsent(word, w -> new Postings()).add(ordinal);
+        }
+    }
+
+    /**
+     * Finds the items whose name or description contains every word of a query.
+     *
+     * @param query The words to search for.
+     * @return The ordinals of the matching items in ascending (catalog) order; empty if the query
+     *         has no words or nothing matches.
+     */
+    synchronized int[] search(String query) {
+        Set<String> words = new LinkedHashSet<>();
+        tokenize(query, words);
+        if (words.isEmpty()) {
+            return NO_MATCHES;
+        }
+        Postings[] lists = new Postings[words.size()];
+        int i = 0;
+        for (String word : words) {
+            Postings postings = postingsByWord.get(word);
+            if (postings == null) {
+                return NO_MATCHES; // A word no item contains
+            }
+            lists[i++] = postings;
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size)); // Shortest first bounds the work
+
+        int[] matches = Arrays.copyOf(lists[0].ordinals, lists[0].size);
+        int count = matches.length;
+        for (int l = 1; l < lists.length && count > 0; l++) {
+            count = retainAll(matches, count, lists[l]);
+        }
+        return (count == matches.length) ? matches : Arrays.copyOf(matches, count);
+    }
+
+    /**
+     * Keeps only the candidates that also appear in a posting list. Each candidate is looked up
+     * by galloping (exponential then binary) search from where the last one was found, which
+     * costs little whether the lists are of similar length or very different lengths.
+     *
+     * @param candidates The candidate ordinals, ascending; the survivors are moved to the front.
+     * @param count      The number of candidates.
+     * @param postings   The posting list to intersect with.
+     * @return The number of candidates kept.
+     */
+    private static int retainAll(int[] candidates, int count, Postings postings) {
+        int[] list = postings.ordinals;
+        int kept = 0;
+        int from = 0;
+        for (int c = 0; c < count && from < postings.size; c++) {
+            int target = candidates[c];
+            // Gallop forward until the target is within [from, bound)
+            int step = 1;
+            int bound = from;
+            while (bound < postings.size && list[bound] < target) {
+                from = bound + 1;
+                bound += step;
+                step <<= 1;
+            }
+            int found = Arrays.binarySearch(list, from, Math.min(bound + 1, postings.size), target);
+            if (found >= 0) {
+                candidates[kept++] = target;
+                from = found + 1;
+            } else {
+                from = -found - 1; // Later candidates are larger, so start from the insertion point
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Splits text into lower-case words at anything that is not a letter or digit.
+     *
+     * @param text  The text to split; may be null.
+     * @param words Receives the words.
+     */
+    static void tokenize(String text, Set<String> words) {
+        if (text == null) {
+            return;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+    }
+
+    /**
+     * A growable, ascending list of the ordinals of the items containing one word.
+     */
+    private static class Postings {
+        private int[] ordinals = new int[4];
+        private int size;
+
+        /**
+         * Appends an ordinal, which must be larger than any already in the list.
+         *
+         * @param ordinal The ordinal to add.
+         */
+        void add(int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+    }
+}
@@ -1,5 +1,10 @@
 package project1.COS;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Scanner;
 
 /**
@@ -10,12 +15,22 @@ import java.util.Scanner;
  */
 public class MerchSelect {
 
+    /** The maximum number of suggestions and search results listed when an entry is not a merchandise ID. */
+    private static final int MAX_SEARCH_RESULTS = 10;
+    /** The number of items listed at a time when browsing by price. */
+    private static final int PRICE_PAGE_SIZE = 10;
+
     /**
      * Guides the user through browsing the merchandise catalog and adding items to
      * their cart.
      * The process allows the user to repeatedly add items until they choose to
      * finish.
      * Input validation is performed for both merchandise ID and quantity.
+     * Anything entered that is not a merchandise ID is used to suggest items: first
+     * those whose ID or name starts with it (so "m00" or a mistyped ending still
+     * finds the item), then those whose name or description contains its words.
+     * Entering 'filter' narrows the catalog by sale, price range and category, and
+     * 'price' lists the items in a price range, cheapest first.
      * This method can be called both before and after a user logs in.
      *
      * @param input       The {@link Scanner} object for reading user input from the
@@ -25,14 +40,22 @@ public class MerchSelect {
      *                    This cart instance is updated directly by this method.
      */
     public static void selectMerchandise(Scanner input, Cart currentCart) {
-        MerchCatalog merchCatalog = new MerchCatalog();
+        MerchCatalog merchCatalog = MerchCatalog.getDefault(); // The catalog carts are priced against
 
         System.out.println("\n--- Browse Merchandise ---");
         merchCatalog.displayCatalog(); // Display the entire catalog to the user
+        List<Promotion> promotions = currentCart.getPromotions().getPromotions();
+        if (!promotions.isEmpty()) {
+            System.out.println("Current promotions:");
+            for (Promotion promotion : promotions) {
+                System.out.println("  - " + promotion.getName());
+            }
+        }
 
         boolean addingToCart = true; // Control flag for the merchandise selection loop
         while (addingToCart) {
-            System.out.print("Enter merchandise ID to add to cart (or 'done' to finish shopping): ");
+            System.out.print("Enter merchandise ID to add to cart, words to search for, 'filter' to narrow the catalog,"
+                    + " 'price' to browse by price (or 'done' to finish shopping): ");
             String merchandiseId = input.nextLine(); // Read the user's input for merchandise ID
 
             // Check if the user wants to finish shopping
@@ -41,6 +64,14 @@ public class MerchSelect {
                 System.out.println("Finished browsing merchandise.");
                 break; // Exit the adding loop
             }
+            if (merchandiseId.equalsIgnoreCase("filter")) {
+                filterCatalog(input, merchCatalog);
+                continue;
+            }
+            if (merchandiseId.equalsIgnoreCase("price")) {
+                browseByPrice(input, merchCatalog);
+                continue;
+            }
 
             // Attempt to retrieve the merchandise item by the entered ID
             Merchandise selectedMerchandise = merchCatalog.getMerchandiseById(merchandiseId);
@@ -51,7 +82,13 @@ public class MerchSelect {
                     System.out.print("Enter quantity for " + selectedMerchandise.getName() + ": ");
                     try {
                         int quantity = Integer.parseInt(input.nextLine()); // Parse the quantity input
-                        if (quantity > 0) {
+                        int available = Inventory.getDefault().getAvailable(selectedMerchandise.getId());
+                        if (quantity > 0 && currentCart.getQuantity(selectedMerchandise) + quantity > available) {
+                            // Stock is only reserved at checkout, but warn now rather than then
+                            System.out.println((available == 0) ? selectedMerchandise.getName() + " is out of stock."
+                                    : "Only " + available + " of " + selectedMerchandise.getName() + " left in stock.");
+                            validQuantityEntered = true; // Back to choosing an item
+                        } else if (quantity > 0) {
                             currentCart.addItem(selectedMerchandise, quantity); // Add item to the cart
                             System.out.println(quantity + "x " + selectedMerchandise.getName() + " added to cart.");
                             validQuantityEntered = true; // Set flag to exit the inner loop
@@ -66,9 +103,161 @@ public class MerchSelect {
                     }
                 }
             } else {
-                // Inform the user if the entered merchandise ID was not found
-                System.out.println("Merchandise not found. Please enter a valid merchandise ID.");
+                // Not an ID, so suggest items whose ID or name starts with the entry, then
+                // items whose name or description contains its words
+                Set<Merchandise> matches = new LinkedHashSet<>(
+                        merchCatalog.completeMerchandise(merchandiseId, MAX_SEARCH_RESULTS));
+                List<Merchandise> searchMatches = merchCatalog.searchMerchandise(merchandiseId, MAX_SEARCH_RESULTS);
+                for (int i = 0; i < searchMatches.size() && matches.size() < MAX_SEARCH_RESULTS; i++) {
+                    matches.add(searchMatches.get(i));
+                }
+                if (matches.isEmpty()) {
+                    System.out.println("Merchandise not found. Please enter a valid merchandise ID or other search words.");
+                } else {
+                    System.out.println("Did you mean:");
+                    for (Merchandise match : matches) {
+                        System.out.println(match);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Asks the user whether to show only items on sale, then for a price range and a
+     * category, showing beside each choice how many items it would leave, and lists
+     * the items that pass. Any question can be skipped by pressing Enter.
+     *
+     * @param input        The {@link Scanner} object for reading user input from the console.
+     * @param merchCatalog The {@link MerchCatalog} to filter.
+     */
+    private static void filterCatalog(Scanner input, MerchCatalog merchCatalog) {
+        MerchFilter filter = new MerchFilter();
+        MerchCatalog.FilterResult result = merchCatalog.filter(filter, null);
+
+        System.out.print("Show only items on sale (" + result.getOnSaleCount() + " items)? (y/n): ");
+        filter.setOnSaleOnly(input.nextLine().trim().equalsIgnoreCase("y"));
+        result = merchCatalog.filter(filter, null);
+
+        List<PriceBucket> buckets = new ArrayList<>(result.getPriceBucketCounts().keySet());
+        for (int i = 0; i < buckets.size(); i++) {
+            System.out.println((i + 1) + ". " + buckets.get(i) + " (" + result.getPriceBucketCounts().get(buckets.get(i)) + ")");
+        }
+        PriceBucket bucket = choose(input, "Price range number (press Enter for any): ", buckets);
+        if (bucket != null) {
+            filter.setPriceBucket(bucket, true);
+            result = merchCatalog.filter(filter, null);
+        }
+
+        List<String> categories = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : result.getCategoryCounts().entrySet()) {
+            if (entry.getValue() > 0) { // Only categories that would leave something to show
+                categories.add(entry.getKey());
+                System.out.println(categories.size() + ". " + entry.getKey() + " (" + entry.getValue() + ")");
+            }
+        }
+        String category = choose(input, "Category number (press Enter for any): ", categories);
+        if (category != null) {
+            filter.setCategory(category, true);
+            result = merchCatalog.filter(filter, null);
+        }
+
+        if (result.getMatchCount() == 0) {
+            System.out.println("No merchandise matches those filters.");
+            return;
+        }
+        System.out.println("\n--- Filtered Merchandise (" + result.getMatchCount() + " items) ---");
+        for (int ordinal : result.getOrdinals()) {
+            System.out.println(merchCatalog.getMerchandise(ordinal));
+        }
+        System.out.println("---------------------------");
+    }
+
+    /**
+     * Asks the user for a price range and lists the items in it, cheapest first,
+     * {@value #PRICE_PAGE_SIZE} at a time. Each page is read from the catalog's price
+     * index as it is shown.
+     *
+     * @param input        The {@link Scanner} object for reading user input from the console.
+     * @param merchCatalog The {@link MerchCatalog} to browse.
+     */
+    private static void browseByPrice(Scanner input, MerchCatalog merchCatalog) {
+        double min = readPrice(input, "Lowest price (press Enter for none): ", Double.NEGATIVE_INFINITY);
+        double max = readPrice(input, "Highest price (press Enter for none): ", Double.POSITIVE_INFINITY);
+        int total = merchCatalog.countByPrice(min, max);
+        if (total == 0) {
+            System.out.println("No merchandise in that price range.");
+            return;
+        }
+        System.out.println("\n--- Merchandise by Price (" + total + " items) ---");
+        for (int offset = 0; offset < total; offset += PRICE_PAGE_SIZE) {
+            if (offset > 0) {
+                System.out.print("Press Enter for more, or type anything to stop: ");
+                if (!input.nextLine().isEmpty()) {
+                    break;
+                }
+            }
+            for (Merchandise item : merchCatalog.getMerchandiseByPrice(min, max, offset, PRICE_PAGE_SIZE, false)) {
+                System.out.println(item);
+            }
+        }
+        System.out.println("---------------------------");
+    }
+
+    /**
+     * Asks the user for a price, repeating until a valid one is entered.
+     *
+     * @param input        The {@link Scanner} object for reading user input from the console.
+     * @param prompt       The question to ask.
+     * @param defaultPrice The price to use if the user presses Enter.
+     * @return The price entered, or {@code defaultPrice}.
+     */
+    private static double readPrice(Scanner input, String prompt, double defaultPrice) {
+        while (true) {
+            System.out.print(prompt);
+            String entry = input.nextLine().trim().replace("$", "");
+            if (entry.isEmpty()) {
+                return defaultPrice;
+            }
+            try {
+                double price = Double.parseDouble(entry);
+                if (price >= 0) {
+                    return price;
+                }
+            } catch (NumberFormatException e) {
+                // Reported below, like a negative price
+            }
+            System.out.println("Invalid price. Please enter an amount (e.g., 20 or 49.99).");
+        }
+    }
+
+    /**
+     * Asks the user to choose one of a numbered list of options.
+     *
+     * @param input   The {@link Scanner} object for reading user input from the console.
+     * @param prompt  The question to ask.
+     * @param options The options, numbered from 1 as they were listed.
+     * @param <T>     The type of the options.
+     * @return The chosen option, or null if the user pressed Enter or entered an invalid number.
+     */
+    private static <T> T choose(Scanner input, String prompt, List<T> options) {
+        if (options.isEmpty()) {
+            return null;
+        }
+        System.out.print(prompt);
+        String choice = input.nextLine().trim();
+        if (choice.isEmpty()) {
+            return null;
+        }
+        try {
+            int number = Integer.parseInt(choice);
+            if (number >= 1 && number <= options.size()) {
+                return options.get(number - 1);
             }
+        } catch (NumberFormatException e) {
+            // Reported below, like an out-of-range number
         }
+        System.out.println("Invalid choice; not filtering by this.");
+        return null;
     }
 }
\ No newline at end of file
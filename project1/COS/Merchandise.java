@@ -6,7 +6,7 @@ import java.io.Serializable;
  * Represents a single merchandise item available for purchase in the Customer
  * Ordering System.
  * This class stores details about a product including its unique identifier,
- * name, description, and pricing information (regular and sale prices).
+ * name, description, category, and pricing information (regular and sale prices).
  * It implements {@link Serializable} to allow merchandise data to be persisted
  * (saved to a file).
  */
@@ -16,6 +16,11 @@ public class Merchandise implements Serializable {
      */
     private static final long serialVersionUID = 1L;
 
+    /**
+     * The category of merchandise created without one, or saved before categories existed.
+     */
+    public static final String DEFAULT_CATEGORY = "General";
+
     /**
      * The unique identifier for the merchandise item (e.g., "M001").
      */
@@ -38,6 +43,11 @@ public class Merchandise implements Serializable {
      * indicates no active sale.
      */
     private double salePrice; // Could be 0.0 if no sale
+    /**
+     * The category the merchandise item is listed under (e.g., "Accessories").
+     * Null for items saved before categories existed; see {@link #getCategory()}.
+     */
+    private String category;
 
     /**
      * Constructs a new Merchandise object with specified details.
@@ -50,11 +60,29 @@ public class Merchandise implements Serializable {
      *                     set to 0.0 or {@code regularPrice}.
      */
     public Merchandise(String id, String name, String description, double regularPrice, double salePrice) {
+        this(id, name, description, regularPrice, salePrice, DEFAULT_CATEGORY);
+    }
+
+    /**
+     * Constructs a new Merchandise object with specified details, including its category.
+     *
+     * @param id           The unique identifier of the merchandise.
+     * @param name         The name of the merchandise.
+     * @param description  A brief description of the merchandise.
+     * @param regularPrice The regular selling price of the merchandise.
+     * @param salePrice    The sale price of the merchandise. If no sale, typically
+     *                     set to 0.0 or {@code regularPrice}.
+     * @param category     The category the merchandise is listed under; if null or
+     *                     blank, {@link #DEFAULT_CATEGORY}.
+     */
+    public Merchandise(String id, String name, String description, double regularPrice, double salePrice,
+                       String category) {
         this.id = id;
         this.name = name;
         this.description = description;
         this.regularPrice = regularPrice;
         this.salePrice = salePrice;
+        this.category = (category == null || category.isBlank()) ? DEFAULT_CATEGORY : category;
     }
 
     // Getters
@@ -106,6 +134,25 @@ public class Merchandise implements Serializable {
         return salePrice;
     }
 
+    /**
+     * Returns the category the merchandise item is listed under.
+     *
+     * @return The category, or {@link #DEFAULT_CATEGORY} if the item has none.
+     */
+    public String getCategory() {
+        return (category == null) ? DEFAULT_CATEGORY : category;
+    }
+
+    /**
+     * Checks whether the merchandise item is on sale: whether a sale price greater
+     * than 0 and less than the regular price is set.
+     *
+     * @return true if the item is on sale, false otherwise.
+     */
+    public boolean isOnSale() {
+        return salePrice > 0 && salePrice < regularPrice;
+    }
+
     /**
      * Returns the current effective price of the merchandise item.
      * If a valid sale price is set (greater than 0 and less than the regular
@@ -116,7 +163,7 @@ public class Merchandise implements Serializable {
      *         double.
      */
     public double getCurrentPrice() {
-        return (salePrice > 0 && salePrice < regularPrice) ? salePrice : regularPrice;
+        return isOnSale() ? salePrice : regularPrice;
     }
 
     /**
@@ -129,7 +176,7 @@ public class Merchandise implements Serializable {
      */
     @Override
     public String toString() {
-        if (salePrice > 0 && salePrice < regularPrice) {
+        if (isOnSale()) {
             return String.format("ID: %s, Name: %s (%s) - Reg Price: $%.2f, SALE Price: $%.2f",
                     id, name, description, regularPrice, salePrice);
         } else {
@@ -1,11 +1,15 @@
 package project1.COS;
 
 import java.io.Serializable;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Scanner;
-import java.util.UUID; // To generate unique order IDs
+import java.util.function.Consumer;
 
 /**
  * Represents a customer order within the Customer Ordering System.
@@ -13,14 +17,25 @@ import java.util.UUID; // To generate unique order IDs
  * total amount, delivery method, and bank authorization. It also contains static methods
  * to facilitate the order creation process.
  * <p>
- * Implements {@link Serializable} to allow order objects to be saved to and loaded from files.
+ * Implements {@link Serializable} (through {@link OrderLogRecord}) to allow order objects to be
+ * saved to and loaded from the order log. Each order carries an {@link OrderStatus}; changes
+ * to it are stored as separate {@link OrderStatusRecord}s, and refunds as {@link OrderRefundRecord}s.
  */
-public class OrderCreator implements Serializable {
+public class OrderCreator implements OrderLogRecord {
     private static final long serialVersionUID = 1L;
 
     public static final double MAIL_DELIVERY_FEE = 3.00; // Constant for mail delivery fee
     public static final double IN_STORE_PICKUP_FEE = 0.00; // Assuming this constant also exists and should be public
 
+    /**
+     * How long a placed order is remembered by its idempotency key, so resubmissions return it unchanged.
+     */
+    public static final Duration IDEMPOTENCY_WINDOW = Duration.ofMinutes(15);
+    /**
+     * Results of recent submissions, keyed by idempotency key (bounded to the most recent 10,000 checkouts).
+     */
+    private static final IdempotencyCache<OrderResult> SUBMISSIONS = new IdempotencyCache<>(10_000, IDEMPOTENCY_WINDOW);
+
     /**
      * Represents a single item within an order, storing its merchandise ID and the quantity ordered.
      * This nested class ensures that individual order items can be easily managed and serialized.
@@ -81,6 +96,8 @@ public class OrderCreator implements Serializable {
     private String bankAuthorizationNumber;
     private String deliveryMethod; // "Mail" or "In-store Pickup"
     private double deliveryFee;
+    private OrderStatus status; // Null for orders saved before statuses existed, which were all complete
+    private double refundedAmount; // Total of the refund records applied to this order
 
     /**
      * Constructs a new {@code OrderCreator} instance representing a completed customer order.
@@ -109,6 +126,7 @@ public class OrderCreator implements Serializable {
         this.bankAuthorizationNumber = null; // Initially null, set after successful bank approval
         this.deliveryMethod = deliveryMethod;
         this.deliveryFee = deliveryFee;
+        this.status = OrderStatus.PENDING; // Not yet paid for
     }
 
     // --- Getters for Order Data Fields ---
@@ -145,6 +163,22 @@ public class OrderCreator implements Serializable {
         return new ArrayList<>(orderedItems); // Return a copy to prevent external modification
     }
 
+    /**
+     * Returns a read-only view of the {@link OrderItem}s in this order, without copying the list.
+     * @return An unmodifiable {@link List} of the items in the order.
+     */
+    public List<OrderItem> getOrderedItemsView() {
+        return Collections.unmodifiableList(orderedItems);
+    }
+
+    /**
+     * Visits each {@link OrderItem} in this order without copying the list.
+     * @param visitor The action to perform for each item.
+     */
+    public void forEachItem(Consumer<? super OrderItem> visitor) {
+        orderedItems.forEach(visitor);
+    }
+
     /**
      * Returns the total monetary amount of this order, including items, taxes, and delivery fees.
      * @return The total amount.
@@ -177,6 +211,56 @@ public class OrderCreator implements Serializable {
         return deliveryFee;
     }
 
+    /**
+     * Returns the current lifecycle status of this order.
+     * @return The order status; orders saved before statuses were tracked are {@link OrderStatus#PERSISTED}.
+     */
+    public OrderStatus getStatus() {
+        return status == null ? OrderStatus.PERSISTED : status;
+    }
+
+    /**
+     * Applies a status change read from, or just written to, the order log.
+     * The transition is assumed to have been validated when the record was written.
+     * @param record The status change to apply.
+     */
+    void applyStatus(OrderStatusRecord record) {
+        this.status = record.getStatus();
+        if (record.getAuthorizationNumber() != null) {
+            this.bankAuthorizationNumber = record.getAuthorizationNumber();
+        }
+    }
+
+    /**
+     * Returns the total amount refunded on this order so far.
+     * @return The refunded amount, or 0 if nothing has been refunded.
+     */
+    public double getRefundedAmount() {
+        return refundedAmount;
+    }
+
+    /**
+     * Adds a refund read from, or just written to, the order log.
+     * The amount is assumed to have been validated when the record was written.
+     * @param record The refund to apply.
+     */
+    void applyRefund(OrderRefundRecord record) {
+        this.refundedAmount += record.getAmount();
+    }
+
+    /**
+     * Sets the status, authorization number and refunded amount of an order read back from the
+     * order log, from the values kept in its index entry.
+     * @param status              The order's current status.
+     * @param authorizationNumber The bank authorization number, or null if none.
+     * @param refundedAmount      The total refunded so far.
+     */
+    void restoreState(OrderStatus status, String authorizationNumber, double refundedAmount) {
+        this.status = status;
+        this.bankAuthorizationNumber = authorizationNumber;
+        this.refundedAmount = refundedAmount;
+    }
+
     // --- Setters (for properties updated after order creation, like auth number) ---
     /**
      * Sets the bank authorization number for this order. This is typically called
@@ -202,9 +286,10 @@ public class OrderCreator implements Serializable {
         sb.append("Date: ").append(orderDate.toLocalDate()).append("\n");
         sb.append("Time: ").append(orderDate.toLocalTime().withNano(0)).append("\n"); // Trim nanos for cleaner display
         sb.append("Customer ID: ").append(customerId).append("\n");
+        sb.append("Status: ").append(getStatus()).append("\n");
         sb.append("Items:\n");
         // Iterate through the ArrayList of OrderItem objects to display each item
-        MerchCatalog catalog = new MerchCatalog(); // Re-instantiate to get merchandise details for display
+        MerchCatalog catalog = MerchCatalog.getDefault(); // For merchandise details, without rebuilding its indexes
         for (OrderItem item : orderedItems) {
             Merchandise merch = catalog.getMerchandiseById(item.getMerchandiseId());
             if (merch != null) {
@@ -220,6 +305,9 @@ public class OrderCreator implements Serializable {
             sb.append(String.format(" ($%.2f fee)", deliveryFee));
         }
         sb.append("\nTotal Amount: $").append(String.format("%.2f", totalAmount)).append("\n");
+        if (refundedAmount > 0) {
+            sb.append("Refunded: $").append(String.format("%.2f", refundedAmount)).append("\n");
+        }
         if (bankAuthorizationNumber != null && !bankAuthorizationNumber.isEmpty()) {
             sb.append("Authorization #: ").append(bankAuthorizationNumber).append("\n");
         } else {
@@ -299,25 +387,29 @@ public class OrderCreator implements Serializable {
 
         // Step 5 & 6 & 7: Credit card retrieval and bank authorization
         String creditCardToUse = customer.getCreditCard(); // Get the customer's default credit card
-        boolean bankApproved = false;
-        String authorizationNumber = null;
+        // One key for this checkout, so a repeated submission can never charge or save the order twice
+        String idempotencyKey = newIdempotencyKey();
+        OrderResult orderResult = null;
         int maxAttempts = 3; // Maximum number of attempts for credit card payment
         int attempts = 0;
 
-        while (!bankApproved && attempts < maxAttempts) {
+        while ((orderResult == null || !orderResult.isApproved()) && attempts < maxAttempts) {
             System.out.println("\nAttempting to charge your default credit card: " + creditCardToUse + " for $" + String.format("%.2f", currentTotal) + "...");
-            // Simulate charging the card using the BankSimulator
-            // *** MODIFIED LINE BELOW ***
-            BankSimulator.ChargeResult result = BankSimulator.chargeCard(creditCardToUse, currentTotal); 
-
-            // *** MODIFIED CONDITION AND ASSIGNMENT BELOW ***
-            if (result.isApproved()) { 
-                bankApproved = true; // Payment successful
-                authorizationNumber = result.getAuthorizationNumber(); 
-            } else {
+            // Charge the card and, if approved, store the customer order (Step 8)
+            orderResult = submitOrder(idempotencyKey, customer.getId(), cart, creditCardToUse,
+                                      currentTotal, deliveryMethod, deliveryFee, orderFileStorage);
+
+            if (orderResult.isOutOfStock()) {
+                System.out.println(orderResult.getDenialReason() + ". Please update your cart. Your card was not charged.");
+                return; // Another card will not help
+            }
+            if (orderResult.isNotSaved()) {
+                System.out.println(orderResult.getDenialReason() + " Your cart has not been cleared.");
+                return; // Another card will not help
+            }
+            if (!orderResult.isApproved()) {
                 attempts++;
-                // *** MODIFIED ERROR MESSAGE BELOW ***
-                System.out.println("Bank charge denied: " + result.getDenialReason() + ". Attempts left: " + (maxAttempts - attempts)); 
+                System.out.println("Bank charge denied: " + orderResult.getDenialReason() + ". Attempts left: " + (maxAttempts - attempts)); 
                 if (attempts < maxAttempts) {
                     System.out.print("Enter a new credit card number (or 'exit' to cancel order): ");
                     String newCard = input.nextLine();
@@ -336,27 +428,11 @@ public class OrderCreator implements Serializable {
         }
 
         // Final check for bank approval after all attempts
-        if (!bankApproved) {
+        if (orderResult == null || !orderResult.isApproved()) {
             System.out.println("Order could not be completed due to bank authorization failure.");
             return; // Exit if bank approval was not achieved
         }
-
-        // Step 8: Store the customer order upon successful payment
-        // Generate a unique order ID using UUID
-        String orderId = "ORD-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-
-        // Create a new OrderCreator object to represent the completed order's data
-        OrderCreator newOrder = new OrderCreator(
-            orderId,
-            customer.getId(),
-            cart.getItems(), // Pass the cart items (Map<Merchandise, Integer>) for conversion to OrderItem list
-            currentTotal,
-            deliveryMethod,
-            deliveryFee
-        );
-        newOrder.setBankAuthorizationNumber(authorizationNumber); // Set the obtained authorization number
-
-        orderFileStorage.addOrder(newOrder); // Save the new OrderCreator object to file storage
+        OrderCreator newOrder = orderResult.getOrder();
 
         // Step 9: Display order confirmation to the user
         System.out.println("\n" + newOrder); // Uses OrderCreator's toString() for a nicely formatted confirmation
@@ -364,4 +440,252 @@ public class OrderCreator implements Serializable {
 
         cart.clear(); // Clear the cart after a successful order
     }
+
+    /**
+     * Creates a new idempotency key for a checkout. Pass the same key to every
+     * {@link #submitOrder} call that represents the same purchase (e.g. a retry after a timeout
+     * or a repeated button click) and a new key for each new purchase.
+     *
+     * @return A new idempotency key.
+     */
+    public static String newIdempotencyKey() {
+        return "CHK-" + Long.toString(OrderIdGenerator.getDefault().nextId(), 36).toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Charges the customer's card and, if the bank approves, creates and saves the order.
+     * This is the non-interactive part of checkout shared by the console and GUI.
+     * <p>
+     * Stock for the cart's items is reserved in the {@link Inventory#getDefault() inventory}
+     * before anything else, and the card is only charged once the reservation is saved. If an
+     * item is short, no order is recorded and the result reports it
+     * ({@link OrderResult#isOutOfStock()}); if the charge is denied, the stock is released.
+     * <p>
+     * Submissions are idempotent: if the same {@code idempotencyKey} was approved within the last
+     * {@link #IDEMPOTENCY_WINDOW}, the original result is returned without charging the card or
+     * saving the order again, and a submission already in progress for the key is waited for
+     * rather than repeated. Declined submissions are not remembered, so the same key can be retried
+     * (e.g. with a different card).
+     *
+     * @param idempotencyKey   The key identifying this purchase, from {@link #newIdempotencyKey()}.
+     * @param customerId       The ID of the customer placing the order.
+     * @param cart             The {@link Cart} holding the items being ordered. It is not cleared by this method.
+     * @param creditCard       The credit card number to charge.
+     * @param totalAmount      The final amount to charge, including taxes and delivery fees.
+     * @param deliveryMethod   The chosen delivery method.
+     * @param deliveryFee      The fee for the chosen delivery method.
+     * @param orderFileStorage The {@link OrderFileStorage} used to persist the order.
+     * @return An {@link OrderResult} with the saved order, or the reason the charge was denied.
+     */
+    public static OrderResult submitOrder(String idempotencyKey, String customerId, Cart cart, String creditCard,
+                                          double totalAmount, String deliveryMethod, double deliveryFee,
+                                          OrderFileStorage orderFileStorage) {
+        return submitOrder(idempotencyKey, customerId, cart, creditCard, totalAmount, deliveryMethod, deliveryFee,
+                orderFileStorage, status -> { });
+    }
+
+    /**
+     * Charges the customer's card and, if the bank approves, creates and saves the order,
+     * reporting each status the order reaches along the way (e.g. to drive a progress bar).
+     * Otherwise identical to {@link #submitOrder(String, String, Cart, String, double, String, double, OrderFileStorage)}.
+     *
+     * @param idempotencyKey   The key identifying this purchase, from {@link #newIdempotencyKey()}.
+     * @param customerId       The ID of the customer placing the order.
+     * @param cart             The {@link Cart} holding the items being ordered. It is not cleared by this method.
+     * @param creditCard       The credit card number to charge.
+     * @param totalAmount      The final amount to charge, including taxes and delivery fees.
+     * @param deliveryMethod   The chosen delivery method.
+     * @param deliveryFee      The fee for the chosen delivery method.
+     * @param orderFileStorage The {@link OrderFileStorage} used to persist the order.
+     * @param progress         Called on the submitting thread with {@link OrderStatus#PENDING} once the order
+     *                         is recorded and the card is about to be charged, then with
+     *                         {@link OrderStatus#AUTHORIZED} and {@link OrderStatus#PERSISTED}. Not called
+     *                         when an earlier result for the key is returned, or when an item is out of stock.
+     * @return An {@link OrderResult} with the saved order, or the reason the charge was denied.
+     */
+    public static OrderResult submitOrder(String idempotencyKey, String customerId, Cart cart, String creditCard,
+                                          double totalAmount, String deliveryMethod, double deliveryFee,
+                                          OrderFileStorage orderFileStorage, Consumer<OrderStatus> progress) {
+        OrderResult result = SUBMISSIONS.getOrCompute(idempotencyKey, () -> {
+            // Reserve the stock first, so two checkouts can never both take the last unit
+            Inventory.Reservation reservation = Inventory.getDefault().reserve(cart.getItems());
+            if (!reservation.isSuccessful()) {
+                return new OrderResult(null, reservation.getShortage(), true);
+            }
+            if (!reservation.awaitDurable()) {
+                reservation.release();
+                return new OrderResult(null, "Stock could not be reserved", true);
+            }
+            OrderResult placed = null;
+            try {
+                placed = chargeAndSave(customerId, cart, creditCard, totalAmount, deliveryMethod, deliveryFee,
+                        orderFileStorage, progress);
+                return placed;
+            } finally {
+                if (placed == null || !placed.isApproved()) {
+                    reservation.release(); // Denied or failed, so the stock goes back on sale
+                }
+            }
+        });
+
+        if (!result.isApproved()) {
+            SUBMISSIONS.invalidate(idempotencyKey); // Let the customer retry a declined payment
+        }
+        return result;
+    }
+
+    /**
+     * Records the order as pending, charges the card and, if the bank approves, completes the order.
+     *
+     * @param customerId       The ID of the customer placing the order.
+     * @param cart             The {@link Cart} holding the items being ordered.
+     * @param creditCard       The credit card number to charge.
+     * @param totalAmount      The final amount to charge.
+     * @param deliveryMethod   The chosen delivery method.
+     * @param deliveryFee      The fee for the chosen delivery method.
+     * @param orderFileStorage The {@link OrderFileStorage} used to persist the order.
+     * @param progress         Called with each status the order reaches.
+     * @return An {@link OrderResult} with the saved order, or the reason the charge was denied or
+     *         the order could not be saved. If the order cannot be saved after the card was
+     *         charged, the charge is voided.
+     */
+    private static OrderResult chargeAndSave(String customerId, Cart cart, String creditCard, double totalAmount,
+                                             String deliveryMethod, double deliveryFee,
+                                             OrderFileStorage orderFileStorage, Consumer<OrderStatus> progress) {
+        // Generate a unique, time-sortable order ID
+        String orderId = OrderIdGenerator.getDefault().nextOrderId();
+        // Record the order as PENDING before charging, so an interrupted checkout can be reconciled
+        OrderCreator newOrder = new OrderCreator(orderId, customerId, cart.getItems(), totalAmount,
+                                                 deliveryMethod, deliveryFee);
+        if (!orderFileStorage.addOrder(newOrder)) {
+            return new OrderResult(null, "Your order could not be saved. Your card was not charged.", false, true);
+        }
+        progress.accept(OrderStatus.PENDING);
+
+        BankSimulator.ChargeResult charge = BankSimulator.chargeCard(creditCard, totalAmount);
+        if (!charge.isApproved()) {
+            if (!orderFileStorage.updateStatus(orderId, OrderStatus.FAILED, null, charge.getDenialReason())) {
+                System.err.println("Error: order " + orderId + " could not be marked as failed; it will be on restart.");
+            }
+            return new OrderResult(null, charge.getDenialReason());
+        }
+
+        if (!orderFileStorage.updateStatus(orderId, OrderStatus.AUTHORIZED, charge.getAuthorizationNumber(), null)) {
+            return voidAndFail(orderId, charge, totalAmount, orderFileStorage);
+        }
+        progress.accept(OrderStatus.AUTHORIZED);
+        if (!orderFileStorage.updateStatus(orderId, OrderStatus.PERSISTED, null, null)) {
+            return voidAndFail(orderId, charge, totalAmount, orderFileStorage);
+        }
+        progress.accept(OrderStatus.PERSISTED);
+        return new OrderResult(newOrder, null);
+    }
+
+    /**
+     * Gives the money back for an order that was charged but could not be saved, and marks the
+     * order as failed so it is not completed on restart.
+     *
+     * @param orderId          The ID of the order.
+     * @param charge           The approved charge.
+     * @param totalAmount      The amount charged.
+     * @param orderFileStorage The {@link OrderFileStorage} the order is recorded in.
+     * @return An {@link OrderResult} reporting that the order could not be saved.
+     */
+    private static OrderResult voidAndFail(String orderId, BankSimulator.ChargeResult charge, double totalAmount,
+                                           OrderFileStorage orderFileStorage) {
+        BankSimulator.voidCharge(charge.getAuthorizationNumber(), totalAmount);
+        if (!orderFileStorage.updateStatus(orderId, OrderStatus.FAILED, null, "Order could not be saved; charge voided")) {
+            System.err.println("Error: order " + orderId + " could not be marked as failed after its charge was voided.");
+        }
+        return new OrderResult(null, "Your order could not be saved. The charge to your card was voided.", false, true);
+    }
+
+    /**
+     * The outcome of {@link #submitOrder}: either the order that was placed, or the reason
+     * the bank denied the charge or an item could not be reserved.
+     */
+    public static class OrderResult {
+        private final OrderCreator order;     // Non-null if the order was placed
+        private final String denialReason;    // Non-null if the charge was denied
+        private final boolean outOfStock;     // Whether the order failed for lack of stock rather than payment
+        private final boolean notSaved;       // Whether the order failed because it could not be saved
+
+        /**
+         * Constructs an OrderResult.
+         *
+         * @param order        The placed order, or null if the charge was denied.
+         * @param denialReason The reason for denial, or null if the order was placed.
+         */
+        public OrderResult(OrderCreator order, String denialReason) {
+            this(order, denialReason, false);
+        }
+
+        /**
+         * Constructs an OrderResult that may report a stock shortage.
+         *
+         * @param order        The placed order, or null if it was not placed.
+         * @param denialReason The reason the order was not placed, or null if it was.
+         * @param outOfStock   true if the order was not placed because an item was short.
+         */
+        public OrderResult(OrderCreator order, String denialReason, boolean outOfStock) {
+            this(order, denialReason, outOfStock, false);
+        }
+
+        /**
+         * Constructs an OrderResult that may report a stock shortage or a failure to save the order.
+         *
+         * @param order        The placed order, or null if it was not placed.
+         * @param denialReason The reason the order was not placed, or null if it was.
+         * @param outOfStock   true if the order was not placed because an item was short.
+         * @param notSaved     true if the order was not placed because it could not be saved.
+         */
+        public OrderResult(OrderCreator order, String denialReason, boolean outOfStock, boolean notSaved) {
+            this.order = order;
+            this.denialReason = denialReason;
+            this.outOfStock = outOfStock;
+            this.notSaved = notSaved;
+        }
+
+        /**
+         * Returns whether the charge was approved and the order placed.
+         * @return true if the order was placed, false otherwise.
+         */
+        public boolean isApproved() {
+            return order != null;
+        }
+
+        /**
+         * Returns whether the order was not placed because an item was short, in which case
+         * the card was not charged and trying another card will not help.
+         * @return true if an item was out of stock, false otherwise.
+         */
+        public boolean isOutOfStock() {
+            return outOfStock;
+        }
+
+        /**
+         * Returns whether the order was not placed because it could not be saved, in which case
+         * the card was not charged or the charge was voided, and trying another card will not help.
+         * @return true if the order could not be saved, false otherwise.
+         */
+        public boolean isNotSaved() {
+            return notSaved;
+        }
+
+        /**
+         * Returns the order that was placed.
+         * @return The placed order, or null if the charge was denied.
+         */
+        public OrderCreator getOrder() {
+            return order;
+        }
+
+        /**
+         * Returns the reason the bank denied the charge, or which item was short.
+         * @return The denial reason, or null if the order was placed.
+         */
+        public String getDenialReason() {
+            return denialReason;
+        }
+    }
 }
\ No newline at end of file
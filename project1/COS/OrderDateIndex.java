@@ -0,0 +1,189 @@
+package project1.COS;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A time-ordered index of orders, used to answer "orders placed between two times"
+ * queries without scanning every order.
+ * <p>
+ * Order dates are stored as a sorted array of {@code long} timestamps with the order IDs
+ * kept in a parallel array, so a range query is two binary searches plus a copy of the
+ * matching IDs: O(log n + k). Only IDs are held, so the orders themselves need not be
+ * loaded to build the index. Orders are normally placed in time order, so adding one
+ * is an append; an out-of-order date is inserted at its sorted position.
+ * All methods are synchronized so the index can be queried while orders are being added.
+ */
+public class OrderDateIndex {
+
+    /**
+     * The initial capacity of the arrays when the index starts empty.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Order timestamps in ascending order (nanoseconds since the epoch, see {@link #toKey(LocalDateTime)}).
+     */
+    private long[] timestamps;
+    /**
+     * The IDs of the orders matching each entry of {@code timestamps}.
+     */
+    private String[] orderIds;
+    /**
+     * The number of orders in the index.
+     */
+    private int size;
+
+    /**
+     * Constructs an empty OrderDateIndex.
+     */
+    public OrderDateIndex() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty OrderDateIndex with room for the given number of orders.
+     *
+     * @param expectedSize The number of orders expected to be added.
+     */
+    public OrderDateIndex(int expectedSize) {
+        int capacity = Math.max(INITIAL_CAPACITY, expectedSize);
+        timestamps = new long[capacity];
+        orderIds = new String[capacity];
+    }
+
+    /**
+     * Adds an order to the index at the position given by its order date.
+     * Orders with the same date keep the order in which they were added.
+     *
+     * @param orderId   The ID of the order to add.
+     * @param orderDate The date the order was placed.
+     */
+    public void add(String orderId, LocalDateTime orderDate) {
+        add(orderId, toKey(orderDate));
+    }
+
+    /**
+     * Adds an order to the index given its timestamp key (see {@link #toKey(LocalDateTime)}).
+     * Orders are normally added in time order, which makes this an append.
+     *
+     * @param orderId The ID of the order to add.
+     * @param key     The order date as a timestamp key.
+     */
+    synchronized void add(String orderId, long key) {
+        if (size == timestamps.length) {
+            int newCapacity = timestamps.length * 2;
+            timestamps = Arrays.copyOf(timestamps, newCapacity);
+            orderIds = Arrays.copyOf(orderIds, newCapacity);
+        }
+
+        int position = size;
+        if (size > 0 && key < timestamps[size - 1]) {
+            // Out-of-order date: shift later entries up to make room
+            position = upperBound(key);
+            System.arraycopy(timestamps, position, timestamps, position + 1, size - position);
+            System.arraycopy(orderIds, position, orderIds, position + 1, size - position);
+        }
+        timestamps[position] = key;
+        orderIds[position] = orderId;
+        size++;
+    }
+
+    /**
+     * Returns the IDs of the orders placed at or after {@code from} and before {@code to}, oldest first.
+     *
+     * @param from The start of the time window (inclusive).
+     * @param to   The end of the time window (exclusive).
+     * @return A {@link List} of the matching order IDs; empty if none match or {@code to} is not after {@code from}.
+     */
+    public synchronized List<String> getOrderIdsBetween(LocalDateTime from, LocalDateTime to) {
+        int start = lowerBound(toKey(from));
+        int end = lowerBound(toKey(to));
+        List<String> matches = new ArrayList<>(Math.max(0, end - start));
+        for (int i = start; i < end; i++) {
+            matches.add(orderIds[i]);
+        }
+        return matches;
+    }
+
+    /**
+     * Counts the orders placed at or after {@code from} and before {@code to}, without copying them.
+     *
+     * @param from The start of the time window (inclusive).
+     * @param to   The end of the time window (exclusive).
+     * @return The number of matching orders.
+     */
+    public synchronized int countOrdersBetween(LocalDateTime from, LocalDateTime to) {
+        return Math.max(0, lowerBound(toKey(to)) - lowerBound(toKey(from)));
+    }
+
+    /**
+     * Returns the number of orders in the index.
+     *
+     * @return The index size.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Finds the first position whose timestamp is greater than or equal to {@code key}.
+     *
+     * @param key The timestamp to search for.
+     * @return The insertion point for {@code key} before any equal timestamps.
+     */
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the first position whose timestamp is greater than {@code key}.
+     *
+     * @param key The timestamp to search for.
+     * @return The insertion point for {@code key} after any equal timestamps.
+     */
+    private int upperBound(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Converts a date and time to a sortable timestamp in nanoseconds since the epoch (UTC is used
+     * only as a fixed reference, so the ordering matches {@link LocalDateTime#compareTo}).
+     * Dates too far from the epoch to fit in a {@code long} are clamped, which keeps queries with
+     * very wide bounds (e.g. {@link LocalDateTime#MIN}) working.
+     *
+     * @param dateTime The date and time to convert.
+     * @return The timestamp key.
+     */
+    static long toKey(LocalDateTime dateTime) {
+        long seconds = dateTime.toEpochSecond(ZoneOffset.UTC);
+        try {
+            return Math.addExact(Math.multiplyExact(seconds, 1_000_000_000L), dateTime.getNano());
+        } catch (ArithmeticException e) {
+            return seconds < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package project1.COS;
+
+import java.time.LocalDateTime;
+
+/**
+ * An event describing something that happened to an order, published to downstream
+ * systems (fulfilment, email, analytics) through the {@link OrderOutbox}.
+ * <p>
+ * Events are stored in the order log in the same append as the change they describe, so an
+ * event exists if and only if the change was saved. Each event has a unique, increasing ID
+ * from {@link OrderIdGenerator}, which the outbox uses to remember what it has delivered.
+ */
+public class OrderEvent implements OrderLogRecord {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The kinds of order events.
+     */
+    public enum Type {
+        /** An order was completed and paid for. */
+        ORDER_PLACED,
+        /** A completed order was cancelled. */
+        ORDER_CANCELLED,
+        /** Part or all of an order's total was refunded. */
+        ORDER_REFUNDED
+    }
+
+    private final long eventId;
+    private final Type type;
+    private final String orderId;
+    private final String customerId;
+    private final double totalAmount; // For ORDER_REFUNDED, the amount refunded
+    private final LocalDateTime occurredAt;
+
+    /**
+     * Constructs a new OrderEvent with a fresh event ID, timestamped with the current time.
+     *
+     * @param type  The kind of event.
+     * @param order The order the event is about.
+     */
+    public OrderEvent(Type type, OrderCreator order) {
+        this(type, order, order.getTotalAmount());
+    }
+
+    /**
+     * Constructs a new OrderEvent about a specific amount (e.g. a refund), with a fresh event ID,
+     * timestamped with the current time.
+     *
+     * @param type   The kind of event.
+     * @param order  The order the event is about.
+     * @param amount The amount the event is about.
+     */
+    public OrderEvent(Type type, OrderCreator order, double amount) {
+        this.eventId = OrderIdGenerator.getDefault().nextId();
+        this.type = type;
+        this.orderId = order.getOrderId();
+        this.customerId = order.getCustomerId();
+        this.totalAmount = amount;
+        this.occurredAt = LocalDateTime.now();
+    }
+
+    /**
+     * Returns the unique ID of this event. Later events have larger IDs.
+     * @return The event ID.
+     */
+    public long getEventId() {
+        return eventId;
+    }
+
+    /**
+     * Returns the kind of event.
+     * @return The event type.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the ID of the order the event is about.
+     * @return The order ID.
+     */
+    public String getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * Returns the ID of the customer who owns the order.
+     * @return The customer ID.
+     */
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    /**
+     * Returns the order's total amount at the time of the event, or for
+     * {@link Type#ORDER_REFUNDED} the amount refunded.
+     * @return The amount of the event.
+     */
+    public double getTotalAmount() {
+        return totalAmount;
+    }
+
+    /**
+     * Returns when the event happened.
+     * @return The date and time of the event.
+     */
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    /**
+     * Returns the event as a single tab-separated line, as written by the file and socket sinks:
+     * event ID, type, order ID, customer ID, total amount and time.
+     *
+     * @return The event in line form, without a line terminator.
+     */
+    public String toLine() {
+        return eventId + "\t" + type + "\t" + orderId + "\t" + customerId + "\t"
+                + String.format("%.2f", totalAmount) + "\t" + occurredAt;
+    }
+
+    @Override
+    public String toString() {
+        return toLine();
+    }
+}
@@ -0,0 +1,26 @@
+package project1.COS;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A destination for order events delivered by the {@link OrderOutbox}.
+ * Events arrive in batches, in the order they were recorded. Delivery is at-least-once:
+ * if a batch fails it is retried, so a sink may see an event more than once and should
+ * use {@link OrderEvent#getEventId()} to ignore repeats where that matters.
+ * <p>
+ * An in-process listener can be registered directly as a lambda; see
+ * {@link FileOrderEventSink} and {@link SocketOrderEventSink} for sinks that forward
+ * events outside the process.
+ */
+@FunctionalInterface
+public interface OrderEventSink {
+
+    /**
+     * Delivers a batch of events.
+     *
+     * @param events The events to deliver, oldest first.
+     * @throws IOException if the batch could not be delivered and should be retried.
+     */
+    void deliver(List<OrderEvent> events) throws IOException;
+}
@@ -1,66 +1,900 @@
 package project1.COS;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * Manages the storage and retrieval of OrderCreator objects (completed orders).
  * It utilizes FileStorage for actual file operations.
+ * <p>
+ * The order file is an append-only log: each new order is appended as it is placed, and
+ * later changes to an order's {@link OrderStatus} are appended as small
+ * {@link OrderStatusRecord}s rather than rewriting the file. Loading the file replays the
+ * log, and any order left mid-checkout (e.g. by a crash) is reconciled. When an order is
+ * completed, an {@link OrderEvent} is written in the same append and handed to the
+ * {@link OrderOutbox}, which delivers it to downstream systems in the background, and a
+ * {@link DomainEvent.OrderPlaced} event is published for in-process subscribers.
+ * <p>
+ * A completed order can be cancelled with {@link #cancelOrder(String, String)} and refunded with
+ * {@link #refundOrder(String, double, String)}. Both append a small record referencing the order ID
+ * (an {@link OrderStatusRecord} or {@link OrderRefundRecord}) together with an {@link OrderEvent},
+ * so their cost does not depend on how many orders are stored; the records are applied to the
+ * order when the log is loaded.
+ * <p>
+ * The log is kept compact by an {@link OrderStoreCompactor}, which rewrites it in the background
+ * once it has grown enough; call {@code getCompactor().start()} to enable it.
+ * <p>
+ * Only a small {@link OrderIndexEntry} per order is kept in memory (its ID, customer, date, status,
+ * refunds and position in the log); the full order is read from the log when it is first needed
+ * and cached while memory allows. The entries are saved to an {@link OrderIndexCheckpoint} in the
+ * background every few thousand changes, so on startup the checkpoint is loaded and only the log
+ * records written after it are replayed.
+ * <p>
+ * Only completed orders ({@link OrderStatus#isVisible()}) appear in the indexes and views below.
+ * Orders can be read without copying through {@link #stream()}, {@link #iterator()}
+ * and {@link #forEach(Consumer)}, or straight from the order file with
+ * {@link #streamFromDisk()}. A customer's history can be read one page at a time,
+ * newest first, with {@link #getOrderHistoryPage(String, int, String)}, and orders
+ * in a time window are found through an {@link OrderDateIndex}.
  */
-public class OrderFileStorage { 
+public class OrderFileStorage implements Iterable<OrderCreator> {
 
-    private ArrayList<OrderCreator> orders;
-    private FileStorage<OrderCreator> storage;
-    private static final String FILENAME = "orders.dat"; // File to store order data
+    // Completed orders, in the order they were completed
+    private ArrayList<OrderIndexEntry> orders;
+    // Each customer's orders, oldest first, so history pages can be sliced from the end
+    private Map<String, List<OrderIndexEntry>> ordersByCustomer;
+    // Every order in the log (including in-flight and failed ones) keyed by order ID
+    private Map<String, OrderIndexEntry> ordersById;
+    // IDs of orders whose checkout has not finished, oldest first
+    private Set<String> inFlightOrderIds;
+    // All orders sorted by order date, for time-window queries
+    private OrderDateIndex dateIndex;
+    private FileStorage<OrderLogRecord> storage;
+    // Delivers order events to downstream systems
+    private OrderOutbox outbox;
+    // Rewrites the log without its dead records
+    private OrderStoreCompactor compactor;
+    // Positions in the log of events not yet delivered by the outbox, by event ID, for checkpoints
+    private TreeMap<Long, Long> undeliveredEventPositions;
+    private final String filename;      // The order log
+    private final String indexFilename; // The index checkpoint
+    private final Inventory inventory;  // Takes back the items of cancelled and refunded orders
+    // The compaction generation of the log file that entry positions refer to
+    private long generation;
+    // Log records written since the index checkpoint was last saved
+    private int recordsSinceCheckpoint;
+    private boolean checkpointScheduled;
+    // Saves index checkpoints in the background
+    private final ExecutorService checkpointWriter = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-index-checkpoint");
+        thread.setDaemon(true); // A checkpoint not yet written is simply taken again later
+        return thread;
+    });
+    static final String FILENAME = "orders.dat"; // File to store order data (also read by OrderLogTailer)
+    private static final String OUTBOX_POSITION_FILENAME = "outbox.pos"; // Last event delivered by the outbox
+    private static final String INDEX_FILENAME = "orders.idx"; // Checkpoint of the in-memory indexes
+    private static final int CHECKPOINT_INTERVAL = 10_000; // Log records between index checkpoints
+    // System property for the compactor's maximum I/O rate in bytes per second (0 for no limit)
+    private static final String COMPACTION_RATE_PROPERTY = "cos.compactionBytesPerSecond";
+    private static final long DEFAULT_COMPACTION_BYTES_PER_SECOND = 4L * 1024 * 1024;
+    private static final String CURSOR_PREFIX = "idx:"; // Marks the content of an encoded page cursor
 
     /**
      * Constructor for OrderFileStorage.
-     * Initializes the FileStorage and loads any existing orders from the file.
+     * Initializes the FileStorage, loads the index checkpoint (if any), replays the order log
+     * written after it and reconciles any orders that were still being checked out when the
+     * log was last written.
      */
     public OrderFileStorage() { // Renamed constructor
-        storage = new FileStorage<>(FILENAME);
-        // Attempt to load existing orders. If the file doesn't exist or is empty,
-        // FileStorage.load() returns a new empty ArrayList.
-        orders = storage.load();
+        this(Paths.get(""), Inventory.getDefault());
     }
 
     /**
-     * Adds a new order to the collection and saves the updated list to the file.
+     * Constructs an OrderFileStorage that keeps its files, and its own inventory, in the given directory.
+     *
+     * @param directory The directory holding the order log, index checkpoint and outbox position.
+     */
+    OrderFileStorage(Path directory) {
+        this(directory, new Inventory(directory.resolve(Inventory.FILENAME).toString()));
+    }
+
+    /**
+     * Constructs an OrderFileStorage that keeps its files in the given directory.
+     *
+     * @param directory The directory holding the order log, index checkpoint and outbox position.
+     * @param inventory The inventory the items of cancelled and refunded orders are returned to.
+     */
+    OrderFileStorage(Path directory, Inventory inventory) {
+        this.inventory = inventory;
+        filename = directory.resolve(FILENAME).toString();
+        indexFilename = directory.resolve(INDEX_FILENAME).toString();
+        storage = new FileStorage<>(filename);
+        outbox = new OrderOutbox(directory.resolve(OUTBOX_POSITION_FILENAME).toString());
+        compactor = new OrderStoreCompactor(this, storage, filename, outbox,
+                Long.getLong(COMPACTION_RATE_PROPERTY, DEFAULT_COMPACTION_BYTES_PER_SECOND));
+        orders = new ArrayList<>();
+        ordersById = new HashMap<>();
+        ordersByCustomer = new HashMap<>();
+        inFlightOrderIds = new LinkedHashSet<>();
+        undeliveredEventPositions = new TreeMap<>();
+
+        // Orders are loaded by position, so a file in the legacy single-list format is converted to records first
+        storage.convertLegacyFormat();
+
+        // Load the checkpoint if it matches the log, then replay the records written after it one at a time.
+        // If the file doesn't exist or is empty, nothing is replayed.
+        long[] position = new long[1];
+        int[] replayed = new int[1];
+        long end = storage.forEachFrom(first -> {
+            generation = (first instanceof OrderLogHeader) ? ((OrderLogHeader) first).getGeneration() : 0;
+            position[0] = loadCheckpoint();
+            return position[0];
+        }, (record, next) -> {
+            replay(record, position[0]);
+            position[0] = next;
+            replayed[0]++;
+        });
+        storage.confirmCompleteUpTo(end); // The log was just read to its end, so appends need not scan it again
+
+        for (OrderIndexEntry entry : orders) {
+            indexByCustomer(entry);
+        }
+        // Orders are appended as they are placed, but sort once in case older files are out of order
+        Comparator<OrderIndexEntry> byDate = Comparator.comparingLong(OrderIndexEntry::getDateKey);
+        for (List<OrderIndexEntry> customerOrders : ordersByCustomer.values()) {
+            customerOrders.sort(byDate);
+        }
+        List<OrderIndexEntry> sortedByDate = new ArrayList<>(orders);
+        sortedByDate.sort(byDate); // Stable, and nearly sorted already, so this is close to linear
+        dateIndex = new OrderDateIndex(sortedByDate.size());
+        for (OrderIndexEntry entry : sortedByDate) {
+            dateIndex.add(entry.getOrderId(), entry.getDateKey());
+        }
+
+        advanceIdsPastSaved();
+
+        recordsAppended(replayed[0]); // Save a new checkpoint if a long tail of the log had to be replayed
+        int reconciled = reconcileInFlightOrders();
+        if (reconciled > 0) {
+            System.err.println("Recovered " + reconciled + " order(s) interrupted during checkout.");
+        }
+    }
+
+    /**
+     * Adds a new order by appending it to the order log.
+     * A completed order is indexed immediately; an order that is still being checked out
+     * (e.g. {@link OrderStatus#PENDING}) becomes visible once {@link #updateStatus} completes it.
      *
      * @param order The OrderCreator object to be added and saved.
      * @return true if the order was successfully added and saved, false otherwise.
      */
-    public boolean addOrder(OrderCreator order) {
+    public synchronized boolean addOrder(OrderCreator order) {
         if (order == null) {
             System.err.println("Cannot add a null order.");
             return false;
         }
-        orders.add(order);
-        storage.save(orders); // Save the entire list after adding
+        if (ordersById.containsKey(order.getOrderId())) {
+            System.err.println("An order with ID " + order.getOrderId() + " already exists.");
+            return false;
+        }
+        long[] positions = storage.appendAndGetPositions(Collections.singletonList(order)); // Append only the new order
+        if (positions == null) {
+            return false;
+        }
+        OrderIndexEntry entry = new OrderIndexEntry(order, positions[0]);
+        ordersById.put(order.getOrderId(), entry);
+        if (entry.getStatus().isVisible()) {
+            addToIndexes(entry);
+        } else if (!entry.getStatus().isTerminal()) {
+            inFlightOrderIds.add(order.getOrderId());
+        }
+        recordsAppended(1);
+        return true;
+    }
+
+    /**
+     * Moves an order to a new {@link OrderStatus}, appending the change to the order log as a
+     * small {@link OrderStatusRecord}. An order that reaches {@link OrderStatus#PERSISTED}
+     * becomes visible in order history and queries.
+     *
+     * @param orderId             The ID of the order to update.
+     * @param newStatus           The order's new status.
+     * @param authorizationNumber The bank authorization number (when authorizing); may be null.
+     * @param reason              An optional explanation of the change; may be null.
+     * @return true if the change was valid and saved, false otherwise.
+     */
+    public synchronized boolean updateStatus(String orderId, OrderStatus newStatus,
+                                             String authorizationNumber, String reason) {
+        OrderIndexEntry entry = ordersById.get(orderId);
+        if (entry == null) {
+            System.err.println("Cannot update status: no order with ID " + orderId + ".");
+            return false;
+        }
+        if (!entry.getStatus().canTransitionTo(newStatus)) {
+            System.err.println("Cannot move order " + orderId + " from " + entry.getStatus() + " to " + newStatus + ".");
+            return false;
+        }
+
+        OrderStatusRecord record = new OrderStatusRecord(orderId, newStatus, authorizationNumber, reason);
+        OrderEvent.Type eventType = null;
+        if (newStatus == OrderStatus.PERSISTED) {
+            eventType = OrderEvent.Type.ORDER_PLACED;
+        } else if (newStatus == OrderStatus.CANCELLED && entry.getStatus() == OrderStatus.PERSISTED) {
+            // Downstream systems only heard about completed orders, so only those need a cancellation event
+            eventType = OrderEvent.Type.ORDER_CANCELLED;
+        }
+
+        if (eventType == null) {
+            if (!storage.append(record)) {
+                return false;
+            }
+            applyStatus(entry, record);
+            recordsAppended(1);
+            return true;
+        }
+        OrderCreator order = load(entry); // Needed for the event's details
+        if (order == null) {
+            return false;
+        }
+        OrderEvent event = new OrderEvent(eventType, order);
+        // Write the event together with the change it announces, so neither is saved without the other
+        long[] positions = storage.appendAndGetPositions(Arrays.asList(record, event));
+        if (positions == null) {
+            return false;
+        }
+        applyStatus(entry, record);
+        trackUndeliveredEvent(event, positions[1]);
+        recordsAppended(2);
+        outbox.enqueue(event);
+        DomainEventBus.getDefault().publish(eventType == OrderEvent.Type.ORDER_PLACED
+                ? new DomainEvent.OrderPlaced(order) : new DomainEvent.OrderUpdated(order));
+        return true;
+    }
+
+    /**
+     * Cancels an order by appending a {@link OrderStatus#CANCELLED} status record (a tombstone)
+     * to the order log. A cancelled order stays in the customer's history, marked as cancelled,
+     * and its items are put back in stock. Any refund is made separately with
+     * {@link #refundOrder(String, double, String)}.
+     * <p>
+     * An order still being checked out is never cancelled: it is marked {@link OrderStatus#FAILED}
+     * instead, so it does not appear in order history, and if its card was already charged
+     * the charge is voided.
+     *
+     * @param orderId The ID of the order to cancel.
+     * @param reason  An optional explanation of the cancellation; may be null.
+     * @return true if the order was cancelled or failed, false if it does not exist, cannot be cancelled,
+     *         or could not be saved.
+     */
+    public synchronized boolean cancelOrder(String orderId, String reason) {
+        OrderIndexEntry entry = ordersById.get(orderId);
+        if (entry == null || entry.getStatus().isTerminal()) {
+            boolean wasRefunded = entry != null && isFullyRefunded(entry);
+            if (!updateStatus(orderId, OrderStatus.CANCELLED, null, reason)) { // Reports why it cannot be cancelled
+                return false;
+            }
+            if (!wasRefunded) { // A fully refunded order's items are already back in stock
+                returnItems(entry);
+            }
+            return true;
+        }
+        if (entry.getStatus() == OrderStatus.AUTHORIZED) {
+            OrderCreator order = load(entry);
+            if (order == null) {
+                return false;
+            }
+            BankSimulator.voidCharge(entry.getAuthorizationNumber(), order.getTotalAmount());
+        }
+        return updateStatus(orderId, OrderStatus.FAILED, null, (reason != null) ? reason : "Cancelled during checkout");
+    }
+
+    /**
+     * Refunds part or all of a completed (or cancelled) order by appending an
+     * {@link OrderRefundRecord} to the order log. The total refunded can never exceed the
+     * order's total amount. Once a completed order is fully refunded its items are put back in
+     * stock; a partial refund is taken to be a price adjustment and returns no stock.
+     *
+     * @param orderId The ID of the order to refund.
+     * @param amount  The amount to refund; must be greater than 0.
+     * @param reason  An optional explanation of the refund; may be null.
+     * @return true if the refund was valid and saved, false otherwise.
+     */
+    public synchronized boolean refundOrder(String orderId, double amount, String reason) {
+        OrderIndexEntry entry = ordersById.get(orderId);
+        if (entry == null) {
+            System.err.println("Cannot refund: no order with ID " + orderId + ".");
+            return false;
+        }
+        if (!entry.getStatus().isVisible()) {
+            System.err.println("Cannot refund order " + orderId + " while it is " + entry.getStatus() + ".");
+            return false;
+        }
+        OrderCreator order = load(entry);
+        if (order == null) {
+            return false;
+        }
+        // Allow half a cent of rounding error when refunding the full total
+        if (amount <= 0 || order.getRefundedAmount() + amount > order.getTotalAmount() + 0.005) {
+            System.err.println(String.format("Cannot refund $%.2f on order %s: $%.2f of $%.2f already refunded.",
+                    amount, orderId, order.getRefundedAmount(), order.getTotalAmount()));
+            return false;
+        }
+
+        OrderRefundRecord record = new OrderRefundRecord(orderId, amount, reason);
+        OrderEvent event = new OrderEvent(OrderEvent.Type.ORDER_REFUNDED, order, amount);
+        long[] positions = storage.appendAndGetPositions(Arrays.asList(record, event));
+        if (positions == null) {
+            return false;
+        }
+        entry.applyRefund(record);
+        trackUndeliveredEvent(event, positions[1]);
+        recordsAppended(2);
+        outbox.enqueue(event);
+        DomainEventBus.getDefault().publish(new DomainEvent.OrderUpdated(order));
+        if (entry.getStatus() != OrderStatus.CANCELLED && isFullyRefunded(entry)) {
+            returnItems(entry); // Cancelled orders already had their items returned
+        }
         return true;
     }
 
+    /**
+     * Checks whether the whole total of an order has been refunded.
+     *
+     * @param entry The order's index entry.
+     * @return true if nothing is left to refund, allowing half a cent of rounding error.
+     */
+    private boolean isFullyRefunded(OrderIndexEntry entry) {
+        OrderCreator order = load(entry);
+        return order != null && entry.getRefundedAmount() >= order.getTotalAmount() - 0.005;
+    }
+
+    /**
+     * Puts the items of a cancelled or fully refunded order back in stock.
+     *
+     * @param entry The order's index entry.
+     */
+    private void returnItems(OrderIndexEntry entry) {
+        OrderCreator order = load(entry);
+        if (order == null || !inventory.returnItems(order.getOrderedItemsView())) {
+            System.err.println("The items of order " + entry.getOrderId() + " could not be put back in stock.");
+        }
+    }
+
+    /**
+     * Finishes the checkout of every order that was left in a non-terminal status, e.g. because
+     * the application stopped mid-checkout. Orders whose payment was authorized are completed
+     * ({@link OrderStatus#PERSISTED}); orders that never got an authorization are marked
+     * {@link OrderStatus#FAILED}. Only in-flight orders are examined, not the whole log.
+     *
+     * @return The number of orders that were reconciled.
+     */
+    public synchronized int reconcileInFlightOrders() {
+        List<String> pending = new ArrayList<>(inFlightOrderIds);
+        for (String orderId : pending) {
+            if (ordersById.get(orderId).getStatus() == OrderStatus.AUTHORIZED) {
+                updateStatus(orderId, OrderStatus.PERSISTED, null, "Completed during recovery");
+            } else {
+                updateStatus(orderId, OrderStatus.FAILED, null, "Checkout interrupted before payment was authorized");
+            }
+        }
+        return pending.size();
+    }
+
+    /**
+     * Returns the outbox that delivers this store's order events. Register sinks on it
+     * and call {@link OrderOutbox#start()} to begin delivery.
+     *
+     * @return The {@link OrderOutbox} for this order store.
+     */
+    public OrderOutbox getOutbox() {
+        return outbox;
+    }
+
+    /**
+     * Returns the compactor that keeps this store's order log small. Call
+     * {@link OrderStoreCompactor#start()} to compact it in the background. Its maximum I/O rate
+     * is set with the {@code cos.compactionBytesPerSecond} system property (4 MiB/s by default).
+     *
+     * @return The {@link OrderStoreCompactor} for this order store.
+     */
+    public OrderStoreCompactor getCompactor() {
+        return compactor;
+    }
+
+    /**
+     * Saves the in-memory indexes to the index checkpoint, so the next startup only has to
+     * replay the log records written after this point. This is done automatically in the
+     * background every few thousand changes; the indexes are copied under the lock and written
+     * without it, so orders can be placed while the checkpoint is being written.
+     *
+     * @return true if the checkpoint was saved, false if an error occurred.
+     */
+    public boolean saveCheckpoint() {
+        OrderIndexCheckpoint checkpoint;
+        synchronized (this) {
+            checkpointScheduled = false;
+            recordsSinceCheckpoint = 0;
+            List<OrderIndexEntry> entries = new ArrayList<>(ordersById.size());
+            for (OrderIndexEntry entry : orders) { // Completed orders first, in completion order
+                entries.add(entry.copy());
+            }
+            for (OrderIndexEntry entry : ordersById.values()) {
+                if (!entry.getStatus().isVisible()) {
+                    entries.add(entry.copy());
+                }
+            }
+            undeliveredEventPositions.headMap(outbox.getLastDeliveredEventId(), true).clear();
+            // Appends happen under this lock, so the file currently ends after the last record applied
+            checkpoint = new OrderIndexCheckpoint(generation, storage.size(), entries,
+                    new TreeMap<>(undeliveredEventPositions));
+        }
+        return checkpoint.write(indexFilename);
+    }
+
     /**
      * Retrieves all stored orders.
+     * This reads every order that is not already in memory; prefer {@link #stream()} or
+     * {@link #forEach(Consumer)} when the orders only need to be read once.
      *
      * @return An ArrayList containing all OrderCreator objects currently stored.
      */
-    public ArrayList<OrderCreator> getAllOrders() {
-        // Return a copy to prevent external modification of the internal list
-        return new ArrayList<>(orders);
+    public synchronized ArrayList<OrderCreator> getAllOrders() {
+        ArrayList<OrderCreator> allOrders = new ArrayList<>(orders.size());
+        for (OrderIndexEntry entry : orders) {
+            addIfLoaded(allOrders, entry);
+        }
+        return allOrders;
+    }
+
+    /**
+     * Returns a sequential stream over the stored orders, in the order they were placed.
+     * Orders are read from the log as the stream reaches them, unless they are already in memory.
+     * The stream covers the orders stored when it was created, and may be read while new orders
+     * are being placed.
+     *
+     * @return A {@link Stream} of all stored orders.
+     */
+    public Stream<OrderCreator> stream() {
+        int size;
+        synchronized (this) {
+            size = orders.size(); // Orders are only appended, so the first size entries never change
+        }
+        return IntStream.range(0, size).mapToObj(this::entryAt).map(this::load).filter(Objects::nonNull);
+    }
+
+    /**
+     * Returns the index entry of a stored order, reading the list under the store's lock so it
+     * is safe while orders are being appended.
+     *
+     * @param index The order's position in the list of stored orders.
+     * @return The order's index entry.
+     */
+    private synchronized OrderIndexEntry entryAt(int index) {
+        return orders.get(index);
+    }
+
+    /**
+     * Returns a read-only iterator over the stored orders, in the order they were placed.
+     *
+     * @return An {@link Iterator} that does not support {@code remove()}.
+     */
+    @Override
+    public Iterator<OrderCreator> iterator() {
+        return stream().iterator();
     }
 
     /**
-     * Placeholder method to find an order by its ID.
-     * (Currently not implemented for actual search but provides the signature).
+     * Visits each stored order in the order they were placed, without copying the collection.
+     *
+     * @param visitor The action to perform for each order.
+     */
+    @Override
+    public void forEach(Consumer<? super OrderCreator> visitor) {
+        stream().forEach(visitor);
+    }
+
+    /**
+     * Returns a lazy stream that reads orders straight from the order file, one record at a time.
+     * Useful for reports over order histories that should not be held in memory.
+     * Orders are returned as they were first recorded (every order in the log, including failed
+     * ones); status changes recorded after them are not applied. Use {@link #streamLogFromDisk()}
+     * to see those changes as well.
+     * The stream keeps the file open and should be closed once consumed.
+     *
+     * @return A {@link Stream} of the orders persisted on disk.
+     */
+    public Stream<OrderCreator> streamFromDisk() {
+        return streamLogFromDisk()
+                .filter(OrderCreator.class::isInstance)
+                .map(OrderCreator.class::cast);
+    }
+
+    /**
+     * Returns a lazy stream over every record in the order log, in the order they were written:
+     * orders followed by the status changes and refunds made to them.
+     * The stream keeps the file open and should be closed once consumed.
+     *
+     * @return A {@link Stream} of the records in the order log.
+     */
+    public Stream<OrderLogRecord> streamLogFromDisk() {
+        return storage.stream();
+    }
+
+    /**
+     * Finds an order by its ID using the order ID index.
+     * Orders that are still being checked out, or whose checkout failed, are found as well;
+     * check {@link OrderCreator#getStatus()} to tell them apart.
      * @param orderId The ID of the order to find.
      * @return The OrderCreator object if found, or null.
      */
-    public OrderCreator getOrderById(String orderId) {
-        for (OrderCreator order : orders) {
-            if (order.getOrderId().equals(orderId)) {
-                return order;
+    public synchronized OrderCreator getOrderById(String orderId) {
+        OrderIndexEntry entry = ordersById.get(orderId);
+        return (entry == null) ? null : load(entry);
+    }
+
+    /**
+     * Retrieves one page of a customer's order history, most recent order first.
+     * The first page is requested with a {@code null} cursor; each following page is requested
+     * with the cursor returned on the previous page. Each call costs O(pageSize), regardless of
+     * how many orders the customer has, and reads at most {@code pageSize} orders from the log.
+     * Orders placed after the first page was read do not shift later pages.
+     *
+     * @param customerId The ID of the customer whose orders are requested.
+     * @param pageSize   The maximum number of orders to return; must be greater than 0.
+     * @param cursor     The cursor from the previous page, or {@code null} for the newest orders.
+     * @return An {@link OrderPage} with up to {@code pageSize} orders and the cursor for the next page.
+     * @throws IllegalArgumentException if {@code pageSize} is not positive or the cursor is not valid.
+     */
+    public synchronized OrderPage getOrderHistoryPage(String customerId, int pageSize, String cursor) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be greater than 0.");
+        }
+        List<OrderIndexEntry> customerOrders = ordersByCustomer.getOrDefault(customerId, Collections.emptyList());
+        int end = (cursor == null) ? customerOrders.size() : decodeCursor(cursor);
+        if (end > customerOrders.size()) {
+            throw new IllegalArgumentException("Invalid order history cursor.");
+        }
+        int start = Math.max(0, end - pageSize);
+
+        ArrayList<OrderCreator> page = new ArrayList<>(end - start);
+        for (int i = end - 1; i >= start; i--) { // Walk backwards so the newest order comes first
+            addIfLoaded(page, customerOrders.get(i));
+        }
+        return new OrderPage(page, start > 0 ? encodeCursor(start) : null);
+    }
+
+    /**
+     * Retrieves the orders placed at or after {@code from} and before {@code to}, oldest first.
+     * The lookup uses the date index, costing O(log n + k) for k matching orders.
+     *
+     * @param from The start of the time window (inclusive).
+     * @param to   The end of the time window (exclusive).
+     * @return A {@link List} of the orders placed within the window.
+     */
+    public synchronized List<OrderCreator> getOrdersBetween(LocalDateTime from, LocalDateTime to) {
+        List<String> orderIds = dateIndex.getOrderIdsBetween(from, to);
+        List<OrderCreator> matches = new ArrayList<>(orderIds.size());
+        for (String orderId : orderIds) {
+            addIfLoaded(matches, ordersById.get(orderId));
+        }
+        return matches;
+    }
+
+    /**
+     * Retrieves the orders placed within the given period up to now, oldest first
+     * (e.g. {@code getOrdersInLast(Duration.ofMinutes(15))}).
+     *
+     * @param window How far back from the current time to look.
+     * @return A {@link List} of the orders placed within the window.
+     */
+    public List<OrderCreator> getOrdersInLast(Duration window) {
+        LocalDateTime now = LocalDateTime.now();
+        // Use an exclusive upper bound just past now so orders placed this instant are included
+        return getOrdersBetween(now.minus(window), now.plusNanos(1));
+    }
+
+    /**
+     * Replaces the order log with a compacted copy written by the {@link OrderStoreCompactor},
+     * and moves every index entry to its order's position in the new file. Holding this store's
+     * lock for the swap keeps orders from being read or written at stale positions.
+     *
+     * @param compacted       The compacted copy, starting with a placeholder {@link OrderLogHeader}.
+     * @param sourcePosition  The position in the current log up to which it was compacted.
+     * @param newGeneration   The generation of the compacted file.
+     * @param orderPositions  The position of each order in the compacted copy, by order ID.
+     * @param eventPositions  The position of each event in the compacted copy, by event ID.
+     * @param recordPositions The position of each compacted record, for the new file's header.
+     * @param foldedThrough   For each compacted record, where its last change ends in the current log.
+     * @return The position in the new file where the records copied from the old one begin, or -1 on error.
+     */
+    synchronized long replaceLog(FileStorage<OrderLogRecord> compacted, long sourcePosition, long newGeneration,
+                                 Map<String, Long> orderPositions, Map<Long, Long> eventPositions,
+                                 long[] recordPositions, long[] foldedThrough) {
+        long tailPosition = storage.replaceWith(compacted, sourcePosition,
+                tail -> new OrderLogHeader(newGeneration, sourcePosition, tail, recordPositions, foldedThrough));
+        if (tailPosition < 0) {
+            return -1;
+        }
+        generation = newGeneration;
+
+        Iterator<OrderIndexEntry> entries = ordersById.values().iterator();
+        while (entries.hasNext()) {
+            OrderIndexEntry entry = entries.next();
+            Long newPosition = (entry.getPosition() >= sourcePosition)
+                    ? Long.valueOf(tailPosition + entry.getPosition() - sourcePosition)
+                    : orderPositions.get(entry.getOrderId());
+            if (newPosition != null) {
+                entry.setPosition(newPosition);
+            } else {
+                entries.remove(); // A failed checkout, dropped by the compactor (it is not in any other index)
+            }
+        }
+        Iterator<Map.Entry<Long, Long>> events = undeliveredEventPositions.entrySet().iterator();
+        while (events.hasNext()) {
+            Map.Entry<Long, Long> event = events.next();
+            Long newPosition = (event.getValue() >= sourcePosition)
+                    ? Long.valueOf(tailPosition + event.getValue() - sourcePosition)
+                    : eventPositions.get(event.getKey());
+            if (newPosition != null) {
+                event.setValue(newPosition);
+            } else {
+                events.remove(); // Delivered, so dropped by the compactor
+            }
+        }
+
+        recordsAppended(CHECKPOINT_INTERVAL); // The saved checkpoint refers to the old file
+        return tailPosition;
+    }
+
+    /**
+     * Returns an order, reading it from the log if it is not already in memory.
+     *
+     * @param entry The order's index entry.
+     * @return The order, or null if it could not be read.
+     */
+    private synchronized OrderCreator load(OrderIndexEntry entry) {
+        OrderCreator order = entry.getLoadedOrder();
+        if (order == null) {
+            OrderLogRecord record = storage.readAt(entry.getPosition());
+            if (!(record instanceof OrderCreator)) {
+                System.err.println("Order " + entry.getOrderId() + " could not be read from " + filename + ".");
+                return null;
+            }
+            order = (OrderCreator) record;
+            entry.setLoadedOrder(order);
+        }
+        return order;
+    }
+
+    /**
+     * Adds the order for an index entry to a list, unless it could not be read.
+     *
+     * @param list  The list to add to.
+     * @param entry The order's index entry.
+     */
+    private void addIfLoaded(List<OrderCreator> list, OrderIndexEntry entry) {
+        OrderCreator order = load(entry);
+        if (order != null) {
+            list.add(order);
+        }
+    }
+
+    /**
+     * Loads the index checkpoint into the (still empty) indexes, if there is one for the current
+     * log file, and queues the events it lists as undelivered.
+     *
+     * @return The position in the log from which records must be replayed; 0 if there is no usable checkpoint.
+     */
+    private long loadCheckpoint() {
+        OrderIndexCheckpoint checkpoint = OrderIndexCheckpoint.read(indexFilename);
+        if (checkpoint == null || checkpoint.getGeneration() != generation
+                || checkpoint.getCoveredPosition() > storage.size()) {
+            return 0; // Missing, or written for a different file (e.g. before a compaction): replay everything
+        }
+        for (OrderIndexEntry entry : checkpoint.getEntries()) {
+            ordersById.put(entry.getOrderId(), entry);
+            if (entry.getStatus().isVisible()) {
+                orders.add(entry);
+            } else if (!entry.getStatus().isTerminal()) {
+                inFlightOrderIds.add(entry.getOrderId());
+            }
+        }
+        // Events are queued in ID order, which is also the order they were written. Skip any the outbox
+        // delivered after the checkpoint was saved rather than reading them only to drop them.
+        long lastDelivered = outbox.getLastDeliveredEventId();
+        Collection<Long> undelivered = checkpoint.getUndeliveredEventPositions().tailMap(lastDelivered, false).values();
+        storage.forEachAt(undelivered, (record, position) -> {
+            if (record instanceof OrderEvent) {
+                replay(record, position);
+            }
+        });
+        return checkpoint.getCoveredPosition();
+    }
+
+    /**
+     * Applies one record from the order log while it is being loaded.
+     * Completed orders are collected here and indexed once the whole log has been read.
+     *
+     * @param record   The record to apply.
+     * @param position Where the record starts in the log.
+     */
+    private void replay(OrderLogRecord record, long position) {
+        if (record instanceof OrderCreator) {
+            OrderIndexEntry entry = new OrderIndexEntry((OrderCreator) record, position);
+            ordersById.put(entry.getOrderId(), entry);
+            if (entry.getStatus().isVisible()) {
+                orders.add(entry);
+            } else if (!entry.getStatus().isTerminal()) {
+                inFlightOrderIds.add(entry.getOrderId());
+            }
+        } else if (record instanceof OrderStatusRecord) {
+            OrderStatusRecord change = (OrderStatusRecord) record;
+            OrderIndexEntry entry = ordersById.get(change.getOrderId());
+            // Skip changes no longer allowed, e.g. an in-flight order cancelled by an older version
+            if (entry != null && entry.getStatus().canTransitionTo(change.getStatus())) {
+                boolean wasVisible = entry.getStatus().isVisible();
+                entry.applyStatus(change);
+                trackInFlight(entry);
+                if (!wasVisible && entry.getStatus().isVisible()) {
+                    orders.add(entry);
+                }
+            }
+        } else if (record instanceof OrderRefundRecord) {
+            OrderRefundRecord refund = (OrderRefundRecord) record;
+            OrderIndexEntry entry = ordersById.get(refund.getOrderId());
+            if (entry != null) {
+                entry.applyRefund(refund);
+            }
+        } else if (record instanceof OrderEvent) {
+            OrderEvent event = (OrderEvent) record;
+            trackUndeliveredEvent(event, position);
+            outbox.enqueue(event); // Ignored if it was already delivered
+        }
+    }
+
+    /**
+     * Makes the ID generator issue order and event IDs greater than any already saved, so that
+     * after the clock is set back new events are not taken for ones the outbox has delivered, and
+     * new orders still sort after older ones.
+     */
+    private void advanceIdsPastSaved() {
+        long largest = outbox.getLastDeliveredEventId();
+        if (!undeliveredEventPositions.isEmpty()) {
+            largest = Math.max(largest, undeliveredEventPositions.lastKey());
+        }
+        for (String orderId : ordersById.keySet()) {
+            largest = Math.max(largest, OrderIdGenerator.parse(orderId)); // -1 for IDs from older versions
+        }
+        OrderIdGenerator.getDefault().advancePast(largest);
+    }
+
+    /**
+     * Remembers where an event is in the log until the outbox has delivered it, so that index
+     * checkpoints can queue it again after a restart.
+     *
+     * @param event    The event.
+     * @param position Where the event starts in the log.
+     */
+    private void trackUndeliveredEvent(OrderEvent event, long position) {
+        if (event.getEventId() > outbox.getLastDeliveredEventId()) {
+            undeliveredEventPositions.put(event.getEventId(), position);
+        }
+    }
+
+    /**
+     * Counts records written to the log, and schedules a background index checkpoint once
+     * enough have been written since the last one.
+     *
+     * @param count The number of records written (or replayed on startup).
+     */
+    private void recordsAppended(int count) {
+        recordsSinceCheckpoint += count;
+        if (recordsSinceCheckpoint >= CHECKPOINT_INTERVAL && !checkpointScheduled) {
+            checkpointScheduled = true;
+            checkpointWriter.execute(this::saveCheckpoint);
+        }
+    }
+
+    /**
+     * Applies a status change that has just been written to the log, updating the indexes.
+     *
+     * @param entry  The index entry of the order that changed.
+     * @param record The status change.
+     */
+    private void applyStatus(OrderIndexEntry entry, OrderStatusRecord record) {
+        boolean wasVisible = entry.getStatus().isVisible();
+        entry.applyStatus(record);
+        trackInFlight(entry);
+        if (!wasVisible && entry.getStatus().isVisible()) {
+            addToIndexes(entry);
+        }
+    }
+
+    /**
+     * Adds or removes an order from the in-flight set according to its status.
+     *
+     * @param entry The index entry of the order to track.
+     */
+    private void trackInFlight(OrderIndexEntry entry) {
+        if (entry.getStatus().isTerminal()) {
+            inFlightOrderIds.remove(entry.getOrderId());
+        } else {
+            inFlightOrderIds.add(entry.getOrderId());
+        }
+    }
+
+    /**
+     * Adds a newly completed order to the list of orders and to the customer and date indexes.
+     *
+     * @param entry The index entry of the order.
+     */
+    private void addToIndexes(OrderIndexEntry entry) {
+        orders.add(entry);
+        indexByCustomer(entry);
+        dateIndex.add(entry.getOrderId(), entry.getDateKey());
+    }
+
+    /**
+     * Adds an order to the end of its customer's history.
+     *
+     * @param entry The index entry of the order.
+     */
+    private void indexByCustomer(OrderIndexEntry entry) {
+        ordersByCustomer.computeIfAbsent(entry.getCustomerId(), id -> new ArrayList<>()).add(entry);
+    }
+
+    /**
+     * Encodes a position in a customer's history as an opaque cursor string.
+     *
+     * @param position The index one past the next order to return.
+     * @return The encoded cursor.
+     */
+    private static String encodeCursor(int position) {
+        byte[] raw = (CURSOR_PREFIX + position).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    /**
+     * Decodes a cursor produced by {@link #encodeCursor(int)}.
+     *
+     * @param cursor The cursor to decode.
+     * @return The position encoded in the cursor.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    private static int decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (raw.startsWith(CURSOR_PREFIX)) {
+                int position = Integer.parseInt(raw.substring(CURSOR_PREFIX.length()));
+                if (position >= 0) {
+                    return position;
+                }
             }
+        } catch (IllegalArgumentException e) { // Also covers NumberFormatException
+            // Fall through to the error below
         }
-        return null; // Order not found
+        throw new IllegalArgumentException("Invalid order history cursor.");
     }
 }
\ No newline at end of file
@@ -0,0 +1,178 @@
+package project1.COS;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates unique, time-sortable order IDs without locking.
+ * <p>
+ * Each ID is a 64-bit number made of three parts, from most to least significant:
+ * <ul>
+ * <li>41 bits: milliseconds since {@link #EPOCH_MILLIS} (about 69 years of range),</li>
+ * <li>10 bits: the node number, so several processes can generate IDs without colliding,</li>
+ * <li>12 bits: a sequence number, allowing 4096 IDs per millisecond per node.</li>
+ * </ul>
+ * IDs from one generator always increase, so sorting IDs sorts orders by creation time.
+ * The last issued timestamp and sequence are kept in a single {@link AtomicLong} and advanced
+ * with compare-and-set, so concurrent callers never block each other. If the sequence runs
+ * out within a millisecond, or the clock moves backwards, the generator carries on from the
+ * next millisecond instead of waiting.
+ * <p>
+ * IDs are rendered as {@code "ORD-"} followed by 13 base-36 digits, e.g. {@code ORD-0000A1B2C3D4E},
+ * which sort in the same order as the numbers they represent.
+ */
+public class OrderIdGenerator {
+
+    /**
+     * The custom epoch IDs count from: 2025-01-01T00:00:00Z.
+     */
+    public static final long EPOCH_MILLIS = 1735689600000L;
+    /**
+     * The prefix placed before the encoded number in an order ID string.
+     */
+    public static final String PREFIX = "ORD-";
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int TIMESTAMP_SHIFT = NODE_BITS + SEQUENCE_BITS;
+    private static final int ENCODED_LENGTH = 13; // Base-36 digits needed for any positive long
+    /**
+     * The system property used to choose the node number of the default generator.
+     */
+    private static final String NODE_PROPERTY = "cos.nodeId";
+
+    /**
+     * The shared generator used for order IDs in this process.
+     */
+    private static final OrderIdGenerator DEFAULT = new OrderIdGenerator(Long.getLong(NODE_PROPERTY, 0L));
+
+    /**
+     * This generator's node number, already shifted into position.
+     */
+    private final long nodeBits;
+    /**
+     * The timestamp and sequence of the last issued ID, packed as {@code timestamp << 12 | sequence}.
+     */
+    private final AtomicLong lastTimeAndSequence = new AtomicLong();
+
+    /**
+     * Constructs a new OrderIdGenerator for the given node.
+     *
+     * @param nodeId The node number, between 0 and 1023. Processes generating IDs at the same time
+     *               must use different node numbers.
+     * @throws IllegalArgumentException if the node number is out of range.
+     */
+    public OrderIdGenerator(long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE) {
+            throw new IllegalArgumentException("Node ID must be between 0 and " + MAX_NODE + ".");
+        }
+        this.nodeBits = nodeId << SEQUENCE_BITS;
+    }
+
+    /**
+     * Returns the generator shared by this process. Its node number is taken from the
+     * {@code cos.nodeId} system property, defaulting to 0.
+     *
+     * @return The default {@link OrderIdGenerator}.
+     */
+    public static OrderIdGenerator getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Generates the next ID as a number.
+     *
+     * @return A new ID, greater than every ID previously returned by this generator.
+     */
+    public long nextId() {
+        while (true) {
+            long last = lastTimeAndSequence.get();
+            long lastTime = last >>> SEQUENCE_BITS;
+            long now = System.currentTimeMillis() - EPOCH_MILLIS;
+
+            long next;
+            if (now > lastTime) {
+                next = now << SEQUENCE_BITS; // New millisecond: restart the sequence at 0
+            } else {
+                next = last + 1; // Same millisecond (or clock went back): bump the sequence, carrying into the time
+            }
+            if (lastTimeAndSequence.compareAndSet(last, next)) {
+                long time = next >>> SEQUENCE_BITS;
+                long sequence = next & SEQUENCE_MASK;
+                return (time << TIMESTAMP_SHIFT) | nodeBits | sequence;
+            }
+        }
+    }
+
+    /**
+     * Makes sure every ID generated from now on is greater than the given one, for example the
+     * largest ID saved before a restart. Without this, IDs issued after the clock was set back
+     * could be smaller than ones already saved.
+     *
+     * @param id An ID already in use; it may have come from any node.
+     */
+    public void advancePast(long id) {
+        // The last possible sequence in that millisecond, so the next ID starts in the following one
+        long target = ((id >>> TIMESTAMP_SHIFT) << SEQUENCE_BITS) | SEQUENCE_MASK;
+        while (true) {
+            long last = lastTimeAndSequence.get();
+            if (last >= target || lastTimeAndSequence.compareAndSet(last, target)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Generates the next ID in its string form, e.g. {@code ORD-0000A1B2C3D4E}.
+     *
+     * @return A new order ID string.
+     */
+    public String nextOrderId() {
+        return format(nextId());
+    }
+
+    /**
+     * Renders an ID as a fixed-width string that sorts in the same order as the number.
+     *
+     * @param id The numeric ID.
+     * @return The order ID string.
+     */
+    public static String format(long id) {
+        String digits = Long.toString(id, 36).toUpperCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(PREFIX.length() + ENCODED_LENGTH).append(PREFIX);
+        for (int i = digits.length(); i < ENCODED_LENGTH; i++) {
+            sb.append('0');
+        }
+        return sb.append(digits).toString();
+    }
+
+    /**
+     * Parses an order ID string produced by {@link #format(long)} back into its number.
+     *
+     * @param orderId The order ID string.
+     * @return The numeric ID, or -1 if the string was not produced by this generator
+     *         (e.g. an order ID created by an earlier version of the system).
+     */
+    public static long parse(String orderId) {
+        if (orderId == null || orderId.length() != PREFIX.length() + ENCODED_LENGTH || !orderId.startsWith(PREFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(orderId.substring(PREFIX.length()), 36);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Extracts the creation time from an ID.
+     *
+     * @param id The numeric ID.
+     * @return The time the ID was generated, in milliseconds since the Unix epoch.
+     */
+    public static long getTimestampMillis(long id) {
+        return (id >>> TIMESTAMP_SHIFT) + EPOCH_MILLIS;
+    }
+}
@@ -0,0 +1,182 @@
+package project1.COS;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A saved copy of {@link OrderFileStorage}'s in-memory indexes, so that a restart can load them
+ * directly instead of reading every order in the order log.
+ * <p>
+ * The checkpoint holds one compact {@link OrderIndexEntry} per order (ID, customer, date, status,
+ * refunds and the order's position in the log), the positions of events the outbox had not yet
+ * delivered, and the position in the log it covers. On startup the entries are loaded and only the
+ * records written after that position are replayed; the orders themselves are read from the log
+ * when they are first needed. A checkpoint is only used with the log file it was written for,
+ * identified by the log's compaction generation.
+ * <p>
+ * The file is written in a simple binary format with {@link DataOutputStream}, and replaced
+ * atomically so that a crash never leaves it half-written.
+ */
+class OrderIndexCheckpoint {
+
+    /** Identifies an order index checkpoint file ("OIDX"). */
+    private static final int MAGIC = 0x4F494458;
+    /** The version of the file format. */
+    private static final int VERSION = 1;
+
+    private final long generation;
+    private final long coveredPosition;
+    private final List<OrderIndexEntry> entries;
+    private final TreeMap<Long, Long> undeliveredEventPositions;
+
+    /**
+     * Constructs a checkpoint.
+     *
+     * @param generation                The compaction generation of the log file the positions refer to.
+     * @param coveredPosition           The position in the log up to which the entries are up to date.
+     * @param entries                   One entry per order; completed orders first, in the order they completed.
+     * @param undeliveredEventPositions The positions of undelivered events, by event ID.
+     */
+    OrderIndexCheckpoint(long generation, long coveredPosition, List<OrderIndexEntry> entries,
+                         TreeMap<Long, Long> undeliveredEventPositions) {
+        this.generation = generation;
+        this.coveredPosition = coveredPosition;
+        this.entries = entries;
+        this.undeliveredEventPositions = undeliveredEventPositions;
+    }
+
+    /**
+     * Returns the compaction generation of the log file this checkpoint was written for.
+     * @return The generation.
+     */
+    long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns the position in the log up to which this checkpoint is up to date.
+     * @return The covered position; records from here on must be replayed.
+     */
+    long getCoveredPosition() {
+        return coveredPosition;
+    }
+
+    /**
+     * Returns the saved order entries.
+     * @return The entries; completed orders first, in the order they completed.
+     */
+    List<OrderIndexEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Returns the positions of the events that had not been delivered when the checkpoint was saved.
+     * @return The event positions, by event ID.
+     */
+    TreeMap<Long, Long> getUndeliveredEventPositions() {
+        return undeliveredEventPositions;
+    }
+
+    /**
+     * Reads a checkpoint from a file.
+     *
+     * @param filename The checkpoint file.
+     * @return The checkpoint, or null if there is none or it cannot be read.
+     */
+    static OrderIndexCheckpoint read(String filename) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null; // Not a checkpoint this version understands; the log is replayed instead
+            }
+            long generation = in.readLong();
+            long coveredPosition = in.readLong();
+
+            int entryCount = in.readInt();
+            List<OrderIndexEntry> entries = new ArrayList<>(entryCount);
+            Map<String, String> customerIds = new HashMap<>(); // Share one String per customer
+            OrderStatus[] statuses = OrderStatus.values();
+            for (int i = 0; i < entryCount; i++) {
+                long position = in.readLong();
+                String orderId = in.readUTF();
+                String customerId = customerIds.computeIfAbsent(in.readUTF(), id -> id);
+                long dateKey = in.readLong();
+                OrderStatus status = statuses[in.readByte()];
+                String authorizationNumber = in.readBoolean() ? in.readUTF() : null;
+                double refundedAmount = in.readDouble();
+                entries.add(new OrderIndexEntry(orderId, customerId, dateKey, position, status,
+                        authorizationNumber, refundedAmount));
+            }
+
+            int eventCount = in.readInt();
+            TreeMap<Long, Long> undeliveredEventPositions = new TreeMap<>();
+            for (int i = 0; i < eventCount; i++) {
+                undeliveredEventPositions.put(in.readLong(), in.readLong());
+            }
+            return new OrderIndexCheckpoint(generation, coveredPosition, entries, undeliveredEventPositions);
+        } catch (FileNotFoundException e) {
+            return null; // No checkpoint saved yet
+        } catch (IOException | RuntimeException e) { // Also covers a corrupt status value
+            System.err.println("Error reading order index checkpoint from " + filename + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes this checkpoint to a file, replacing the file atomically.
+     *
+     * @param filename The checkpoint file.
+     * @return true if the checkpoint was saved, false if an error occurred.
+     */
+    boolean write(String filename) {
+        Path file = Paths.get(filename);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp.toFile())))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(generation);
+                out.writeLong(coveredPosition);
+
+                out.writeInt(entries.size());
+                for (OrderIndexEntry entry : entries) {
+                    out.writeLong(entry.getPosition());
+                    out.writeUTF(entry.getOrderId());
+                    out.writeUTF(entry.getCustomerId());
+                    out.writeLong(entry.getDateKey());
+                    out.writeByte(entry.getStatus().ordinal());
+                    out.writeBoolean(entry.getAuthorizationNumber() != null);
+                    if (entry.getAuthorizationNumber() != null) {
+                        out.writeUTF(entry.getAuthorizationNumber());
+                    }
+                    out.writeDouble(entry.getRefundedAmount());
+                }
+
+                out.writeInt(undeliveredEventPositions.size());
+                for (Map.Entry<Long, Long> event : undeliveredEventPositions.entrySet()) {
+                    out.writeLong(event.getKey());
+                    out.writeLong(event.getValue());
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error saving order index checkpoint to " + filename + ": " + e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package project1.COS;
+
+import java.lang.ref.SoftReference;
+
+/**
+ * What {@link OrderFileStorage} keeps in memory about one order: the fields its indexes need,
+ * the order's current status and refunds, and where the order is stored in the order log.
+ * <p>
+ * The full {@link OrderCreator} is read from the log only when it is first needed, and is then
+ * cached through a soft reference, so memory can reclaim orders that are not being used. The
+ * entry, not the cached order, holds the current status, authorization number and refunded
+ * amount, which are applied again whenever the order is read back from the log.
+ */
+class OrderIndexEntry {
+    private final String orderId;
+    private final String customerId;
+    private final long dateKey; // Order date as an OrderDateIndex key
+    private long position; // Where the order's record starts in the order log
+    private OrderStatus status;
+    private String authorizationNumber;
+    private double refundedAmount;
+    private SoftReference<OrderCreator> loaded;
+
+    /**
+     * Constructs an entry for an order that has just been read or written, caching the order.
+     *
+     * @param order    The order.
+     * @param position Where the order's record starts in the order log.
+     */
+    OrderIndexEntry(OrderCreator order, long position) {
+        this(order.getOrderId(), order.getCustomerId(), OrderDateIndex.toKey(order.getOrderDate()), position,
+                order.getStatus(), order.getBankAuthorizationNumber(), order.getRefundedAmount());
+        this.loaded = new SoftReference<>(order);
+    }
+
+    /**
+     * Constructs an entry read from an index checkpoint, without loading the order.
+     *
+     * @param orderId             The order ID.
+     * @param customerId          The ID of the customer who placed the order.
+     * @param dateKey             The order date as an {@link OrderDateIndex} key.
+     * @param position            Where the order's record starts in the order log.
+     * @param status              The order's current status.
+     * @param authorizationNumber The bank authorization number, or null.
+     * @param refundedAmount      The total refunded so far.
+     */
+    OrderIndexEntry(String orderId, String customerId, long dateKey, long position, OrderStatus status,
+                    String authorizationNumber, double refundedAmount) {
+        this.orderId = orderId;
+        this.customerId = customerId;
+        this.dateKey = dateKey;
+        this.position = position;
+        this.status = status;
+        this.authorizationNumber = authorizationNumber;
+        this.refundedAmount = refundedAmount;
+    }
+
+    /**
+     * Returns a copy of this entry's current values, without the cached order, for saving in a checkpoint.
+     *
+     * @return A detached copy of this entry.
+     */
+    OrderIndexEntry copy() {
+        return new OrderIndexEntry(orderId, customerId, dateKey, position, status, authorizationNumber, refundedAmount);
+    }
+
+    /**
+     * Returns the order ID.
+     * @return The order ID.
+     */
+    String getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * Returns the ID of the customer who placed the order.
+     * @return The ID of the customer who placed the order.
+     */
+    String getCustomerId() {
+        return customerId;
+    }
+
+    /**
+     * Returns the order date as an {@link OrderDateIndex} key.
+     * @return The order date as an {@link OrderDateIndex} key.
+     */
+    long getDateKey() {
+        return dateKey;
+    }
+
+    /**
+     * Returns where the order's record starts in the order log.
+     * @return Where the order's record starts in the order log.
+     */
+    long getPosition() {
+        return position;
+    }
+
+    /**
+     * Moves the entry to a new position in the log.
+     * @param position Where the order's record now starts, after the log was compacted.
+     */
+    void setPosition(long position) {
+        this.position = position;
+    }
+
+    /**
+     * Returns the order's current status.
+     * @return The order's current status.
+     */
+    OrderStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the bank authorization number, or null.
+     * @return The bank authorization number, or null.
+     */
+    String getAuthorizationNumber() {
+        return authorizationNumber;
+    }
+
+    /**
+     * Returns the total refunded so far.
+     * @return The total refunded so far.
+     */
+    double getRefundedAmount() {
+        return refundedAmount;
+    }
+
+    /**
+     * Returns the cached order, if it is still in memory.
+     *
+     * @return The order, or null if it has to be read from the log.
+     */
+    OrderCreator getLoadedOrder() {
+        return (loaded == null) ? null : loaded.get();
+    }
+
+    /**
+     * Caches an order just read from the log, after bringing it up to date with this entry.
+     *
+     * @param order The order read from the log.
+     */
+    void setLoadedOrder(OrderCreator order) {
+        order.restoreState(status, authorizationNumber, refundedAmount);
+        loaded = new SoftReference<>(order);
+    }
+
+    /**
+     * Applies a status change to this entry and to the cached order, if any.
+     *
+     * @param record The status change.
+     */
+    void applyStatus(OrderStatusRecord record) {
+        status = record.getStatus();
+        if (record.getAuthorizationNumber() != null) {
+            authorizationNumber = record.getAuthorizationNumber();
+        }
+        OrderCreator order = getLoadedOrder();
+        if (order != null) {
+            order.applyStatus(record);
+        }
+    }
+
+    /**
+     * Applies a refund to this entry and to the cached order, if any.
+     *
+     * @param record The refund.
+     */
+    void applyRefund(OrderRefundRecord record) {
+        refundedAmount += record.getAmount();
+        OrderCreator order = getLoadedOrder();
+        if (order != null) {
+            order.applyRefund(record);
+        }
+    }
+}
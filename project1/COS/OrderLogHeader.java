@@ -0,0 +1,90 @@
+package project1.COS;
+
+import java.util.Arrays;
+
+/**
+ * The first record of an order log written by the {@link OrderStoreCompactor}.
+ * <p>
+ * It records which compaction produced the file and how positions in the previous file map
+ * onto it: the compacted orders come first, and the records that were appended to the previous
+ * file from {@link #getSourcePosition()} onwards were copied after them, starting at
+ * {@link #getTailPosition()}. Readers that remember positions in the log, such as the
+ * {@link OrderLogTailer}, use this to carry on after the file is replaced. For each compacted
+ * record it also keeps the position in the previous file after the last record folded into it,
+ * so a reader that had got part of the way through the previous file can tell which compacted
+ * records hold only changes it has already seen.
+ * <p>
+ * All fields are primitives or arrays of them, fixed in length before the file is written, so
+ * that the record always serializes to the same size; the compactor writes a placeholder first
+ * and fills in the positions when they are known.
+ */
+public class OrderLogHeader implements OrderLogRecord {
+    private static final long serialVersionUID = 1L;
+
+    private final long generation;
+    private final long sourcePosition;
+    private final long tailPosition;
+    private final long[] recordPositions; // Of each compacted record in this file, ascending; null in older files
+    private final long[] foldedThrough;   // For each compacted record, in the previous file
+
+    /**
+     * Constructs a new OrderLogHeader.
+     *
+     * @param generation      The number of compactions the log has been through, including this one.
+     * @param sourcePosition  The position in the previous file up to which records were compacted.
+     * @param tailPosition    The position in this file where the records copied from the previous file begin.
+     * @param recordPositions The position in this file of each compacted record, in ascending order.
+     * @param foldedThrough   For each compacted record, the position in the previous file just after
+     *                        the last record folded into it.
+     */
+    public OrderLogHeader(long generation, long sourcePosition, long tailPosition,
+                          long[] recordPositions, long[] foldedThrough) {
+        if (recordPositions.length != foldedThrough.length) {
+            throw new IllegalArgumentException("Each compacted record needs one position and one folded position.");
+        }
+        this.generation = generation;
+        this.sourcePosition = sourcePosition;
+        this.tailPosition = tailPosition;
+        this.recordPositions = recordPositions.clone();
+        this.foldedThrough = foldedThrough.clone();
+    }
+
+    /**
+     * Returns the number of compactions the log has been through.
+     * @return The generation of this file; 1 for the first compacted file.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns the position in the previous file up to which records were compacted.
+     * @return The source position.
+     */
+    public long getSourcePosition() {
+        return sourcePosition;
+    }
+
+    /**
+     * Returns the position in this file where the records copied from the previous file begin.
+     * A position {@code p >= getSourcePosition()} in the previous file corresponds to
+     * {@code getTailPosition() + (p - getSourcePosition())} in this one.
+     * @return The tail position.
+     */
+    public long getTailPosition() {
+        return tailPosition;
+    }
+
+    /**
+     * Returns how far into the previous file the changes held by a compacted record reach.
+     *
+     * @param position The position of a record in this file.
+     * @return The position in the previous file just after the last record folded into the
+     *         compacted record at {@code position}, or -1 if no compacted record starts there or
+     *         the file was written before this was recorded.
+     */
+    public long getFoldedThrough(long position) {
+        int index = (recordPositions == null) ? -1 : Arrays.binarySearch(recordPositions, position);
+        return (index < 0) ? -1 : foldedThrough[index];
+    }
+}
@@ -0,0 +1,120 @@
+package project1.COS;
+
+import java.io.Serializable;
+
+/**
+ * How far an {@link OrderLogTailer} has read the order log.
+ * <p>
+ * A position is a byte offset in one generation of the log file; the generation changes each
+ * time the {@link OrderStoreCompactor} replaces the file. While a tailer that fell behind a
+ * compaction reads the compacted orders at the start of the new file, the position also holds
+ * how far it had read the previous file, so that compacted records made only of changes it has
+ * already delivered are skipped.
+ * <p>
+ * A consumer that needs every record exactly once stores the position it is given with each
+ * record in the same transaction as the changes it makes for that record, and passes the stored
+ * position back to the tailer when it restarts. Positions can be saved as text with
+ * {@link #toString()} and read back with {@link #parse(String)}.
+ */
+public final class OrderLogPosition implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** The position before the first record of the log. */
+    public static final OrderLogPosition START = new OrderLogPosition(0, 0, -1);
+
+    private final long generation;
+    private final long position;
+    private final long previousPosition; // In the previous generation; -1 once past the compacted records
+
+    /**
+     * Constructs a new OrderLogPosition.
+     *
+     * @param generation       The generation of the log file the position refers to.
+     * @param position         The byte position in that file.
+     * @param previousPosition How far the previous file had been read when it was compacted away,
+     *                         while reading the compacted records; -1 otherwise.
+     */
+    OrderLogPosition(long generation, long position, long previousPosition) {
+        this.generation = generation;
+        this.position = position;
+        this.previousPosition = previousPosition;
+    }
+
+    /**
+     * Reads a position saved with {@link #toString()}. A single number is read as a byte position
+     * in a log that has never been compacted, as saved by earlier versions of the tailer.
+     *
+     * @param text The saved position.
+     * @return The position.
+     * @throws IllegalArgumentException if the text is not a saved position.
+     */
+    public static OrderLogPosition parse(String text) {
+        String[] parts = text.trim().split(" ");
+        try {
+            switch (parts.length) {
+                case 1:
+                    return new OrderLogPosition(0, Long.parseLong(parts[0]), -1);
+                case 2:
+                    return new OrderLogPosition(Long.parseLong(parts[0]), Long.parseLong(parts[1]), -1);
+                case 3:
+                    return new OrderLogPosition(Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                            Long.parseLong(parts[2]));
+                default:
+                    break;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Not an order log position: " + text);
+    }
+
+    /**
+     * Returns the generation of the log file the position refers to.
+     * @return The generation; 0 before the log was first compacted.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns the byte position in the log file.
+     * @return The byte position of the next record to read.
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Returns how far the previous log file had been read, while the compacted records that
+     * replaced it are being read.
+     * @return The byte position in the previous file, or -1.
+     */
+    long getPreviousPosition() {
+        return previousPosition;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof OrderLogPosition)) {
+            return false;
+        }
+        OrderLogPosition that = (OrderLogPosition) other;
+        return generation == that.generation && position == that.position
+                && previousPosition == that.previousPosition;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(generation) * 31 * 31 + Long.hashCode(position) * 31 + Long.hashCode(previousPosition);
+    }
+
+    /**
+     * Returns the position as text, to be read back with {@link #parse(String)}.
+     *
+     * @return The generation, byte position and previous position, separated by spaces.
+     */
+    @Override
+    public String toString() {
+        return generation + " " + position + " " + previousPosition;
+    }
+}
@@ -0,0 +1,12 @@
+package project1.COS;
+
+import java.io.Serializable;
+
+/**
+ * Marks an object that can be stored in the order log (orders.dat).
+ * The log holds full orders ({@link OrderCreator}) followed by small records describing
+ * later changes to them (such as {@link OrderStatusRecord}), each appended as it happens
+ * instead of rewriting the whole file.
+ */
+public interface OrderLogRecord extends Serializable {
+}
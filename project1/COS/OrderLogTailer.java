@@ -0,0 +1,307 @@
+package project1.COS;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Tails the order log and passes every record added to it to a consumer (change data capture).
+ * <p>
+ * The tailer hands each new {@link OrderLogRecord} (new orders, status changes and events) to the
+ * consumer in log order, together with the {@link OrderLogPosition} just after it. A consumer
+ * that stores that position in the same transaction as the changes it makes for the record, and
+ * gives the stored position back to the tailer when it restarts, receives every record exactly
+ * once. Simpler consumers can let the tailer keep the position in a small checkpoint file instead;
+ * the file is written once per poll, so after a crash the records of the last poll can be
+ * delivered again.
+ * <p>
+ * The tailer only reads the log file, so it can run in the same process as {@link OrderFileStorage}
+ * or in a separate one. An incomplete record still being written is left for the next poll.
+ * <p>
+ * When the {@link OrderStoreCompactor} replaces the log, the position is moved to the matching
+ * place in the new file using its {@link OrderLogHeader}, so delivery carries on without gaps.
+ * A tailer that had not yet read up to where compaction started (for example, one that was not
+ * running) reads the compacted orders at the start of the new file, skipping those made only of
+ * changes it has already delivered; an order that changed after the tailer's position is
+ * delivered once, folded together with its earlier changes. Only a tailer that misses two
+ * compactions in a row cannot tell what it has seen, and reads the log again from the start.
+ * Headers themselves are never delivered.
+ */
+public class OrderLogTailer {
+
+    /** How long to wait between polls when no interval is given. */
+    private static final long DEFAULT_POLL_INTERVAL_MILLIS = 500;
+
+    private final FileStorage<OrderLogRecord> log;
+    private final Path checkpointFile; // Null if the consumer stores the position itself
+    private final BiConsumer<? super OrderLogRecord, OrderLogPosition> consumer;
+    private long generation; // The compaction generation of the file the position refers to
+    private long position;
+    private long previousPosition = -1; // How far the previous file was read, while reading records compacted from it
+    private OrderLogHeader header; // The header of the file being read; null if it was never compacted
+    private Thread poller;
+
+    /**
+     * Constructs a new OrderLogTailer over the application's order log, keeping its position in a
+     * checkpoint file.
+     *
+     * @param checkpointFilename The file that records how far the log has been read.
+     * @param consumer           The consumer that receives each new record.
+     */
+    public OrderLogTailer(String checkpointFilename, Consumer<? super OrderLogRecord> consumer) {
+        this(OrderFileStorage.FILENAME, checkpointFilename, consumer);
+    }
+
+    /**
+     * Constructs a new OrderLogTailer over the given order log file, keeping its position in a
+     * checkpoint file.
+     *
+     * @param logFilename        The order log to read.
+     * @param checkpointFilename The file that records how far the log has been read.
+     * @param consumer           The consumer that receives each new record.
+     */
+    public OrderLogTailer(String logFilename, String checkpointFilename, Consumer<? super OrderLogRecord> consumer) {
+        this.log = new FileStorage<>(logFilename);
+        this.checkpointFile = Paths.get(checkpointFilename);
+        this.consumer = (record, next) -> consumer.accept(record);
+        readCheckpoint();
+    }
+
+    /**
+     * Constructs a new OrderLogTailer over the given order log file for a consumer that stores
+     * its own position, for exactly-once delivery.
+     *
+     * @param logFilename The order log to read.
+     * @param start       The position the consumer last stored, or {@link OrderLogPosition#START}.
+     * @param consumer    The consumer that receives each new record and the position after it, and
+     *                    stores that position with the changes it makes for the record.
+     */
+    public OrderLogTailer(String logFilename, OrderLogPosition start,
+                          BiConsumer<? super OrderLogRecord, OrderLogPosition> consumer) {
+        this.log = new FileStorage<>(logFilename);
+        this.checkpointFile = null;
+        this.consumer = consumer;
+        moveTo(start);
+    }
+
+    /**
+     * Returns the position in the log up to which records have been delivered.
+     *
+     * @return The current position.
+     */
+    public synchronized OrderLogPosition getPosition() {
+        return new OrderLogPosition(generation, position, previousPosition);
+    }
+
+    /**
+     * Reads and delivers every record added to the log since the last poll.
+     * If the consumer throws, the record is not passed and is delivered again on the next poll.
+     *
+     * @return The number of records delivered.
+     */
+    public synchronized int poll() {
+        int[] delivered = new int[1];
+        OrderLogPosition before = getPosition();
+        try {
+            log.forEachFrom(this::startPosition, (record, next) -> {
+                boolean compacted = previousPosition >= 0 && header != null && next <= header.getTailPosition();
+                if (!(record instanceof OrderLogHeader) && !isAlreadyDelivered()) {
+                    consumer.accept(record, new OrderLogPosition(generation, next, compacted ? previousPosition : -1));
+                    delivered[0]++;
+                }
+                position = next;
+                previousPosition = compacted ? previousPosition : -1;
+            });
+        } catch (RuntimeException e) {
+            System.err.println("Error handling order log record (will retry): " + e.getMessage());
+        } finally {
+            if (!getPosition().equals(before)) {
+                writeCheckpoint(); // Once per poll rather than per record
+            }
+        }
+        return delivered[0];
+    }
+
+    /**
+     * Starts polling the log on a background thread every 500 milliseconds.
+     * Calling it again has no effect.
+     */
+    public void start() {
+        start(DEFAULT_POLL_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Starts polling the log on a background thread. Calling it again has no effect.
+     *
+     * @param pollIntervalMillis How long to wait between polls, in milliseconds.
+     */
+    public synchronized void start(long pollIntervalMillis) {
+        if (poller != null) {
+            return;
+        }
+        poller = new Thread(() -> pollLoop(pollIntervalMillis), "order-log-tailer");
+        poller.setDaemon(true); // Unread records are picked up from the checkpoint on the next start
+        poller.start();
+    }
+
+    /**
+     * Stops the background thread. Records not yet delivered are delivered after the next start.
+     */
+    public synchronized void stop() {
+        if (poller != null) {
+            poller.interrupt();
+            poller = null;
+        }
+    }
+
+    /**
+     * Polls the log until the thread is stopped.
+     *
+     * @param pollIntervalMillis How long to wait between polls, in milliseconds.
+     */
+    private void pollLoop(long pollIntervalMillis) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                poll();
+                TimeUnit.MILLISECONDS.sleep(pollIntervalMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Stopped
+        }
+    }
+
+    /**
+     * Prints every record added to the application's order log to standard output, one
+     * tab-separated line per record, for feeding into other tools. Runs until stopped.
+     * Usage: {@code java project1.COS.OrderLogTailer [checkpoint-file]}; the position is kept in
+     * order-feed.pos by default.
+     *
+     * @param args The checkpoint file, optionally.
+     * @throws InterruptedException If interrupted while waiting between polls.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        String checkpointFilename = (args.length > 0) ? args[0] : "order-feed.pos";
+        OrderLogTailer tailer = new OrderLogTailer(checkpointFilename, record -> {
+            System.out.println(toLine(record));
+            System.out.flush();
+        });
+        while (true) {
+            tailer.poll();
+            TimeUnit.MILLISECONDS.sleep(DEFAULT_POLL_INTERVAL_MILLIS);
+        }
+    }
+
+    /**
+     * Describes a record as a single tab-separated line: its kind, the order ID, and the details
+     * of the change.
+     *
+     * @param record The record to describe.
+     * @return The record in line form, without a line terminator.
+     */
+    static String toLine(OrderLogRecord record) {
+        if (record instanceof OrderCreator) {
+            OrderCreator order = (OrderCreator) record;
+            return "ORDER\t" + order.getOrderId() + "\t" + order.getCustomerId() + "\t"
+                    + String.format("%.2f", order.getTotalAmount()) + "\t" + order.getStatus();
+        } else if (record instanceof OrderStatusRecord) {
+            OrderStatusRecord change = (OrderStatusRecord) record;
+            return "STATUS\t" + change.getOrderId() + "\t" + change.getStatus() + "\t" + change.getChangedAt();
+        } else if (record instanceof OrderRefundRecord) {
+            OrderRefundRecord refund = (OrderRefundRecord) record;
+            return "REFUND\t" + refund.getOrderId() + "\t" + String.format("%.2f", refund.getAmount()) + "\t"
+                    + refund.getRefundedAt();
+        } else if (record instanceof OrderEvent) {
+            return "EVENT\t" + ((OrderEvent) record).toLine();
+        }
+        return record.getClass().getSimpleName();
+    }
+
+    /**
+     * Works out where to continue reading, given the first record of the log. If the log has been
+     * compacted since the position was saved, the position is moved into the new file.
+     *
+     * @param first The first record in the log, or null if it is empty.
+     * @return The position of the next record to read.
+     */
+    private long startPosition(OrderLogRecord first) {
+        header = (first instanceof OrderLogHeader) ? (OrderLogHeader) first : null;
+        long fileGeneration = (header == null) ? 0 : header.getGeneration();
+        if (fileGeneration != generation) {
+            if (header != null && fileGeneration == generation + 1 && position >= header.getSourcePosition()) {
+                position = header.getTailPosition() + (position - header.getSourcePosition());
+                previousPosition = -1;
+            } else if (header != null && fileGeneration == generation + 1) {
+                previousPosition = position; // Records we had not read were folded away; skip the rest
+                position = 0;
+            } else {
+                System.err.println("The order log went from generation " + generation + " to " + fileGeneration
+                        + " since it was last read; reading it again from the start.");
+                position = 0;
+                previousPosition = -1;
+            }
+            generation = fileGeneration;
+        }
+        return position;
+    }
+
+    /**
+     * Checks whether the record at the current position was compacted only from records that
+     * had already been delivered when the previous file was replaced.
+     *
+     * @return true if the record should be skipped.
+     */
+    private boolean isAlreadyDelivered() {
+        if (previousPosition < 0 || header == null) {
+            return false;
+        }
+        long foldedThrough = header.getFoldedThrough(position);
+        return foldedThrough >= 0 && foldedThrough <= previousPosition;
+    }
+
+    /**
+     * Sets the position reading continues from.
+     *
+     * @param start The position, or null to read from the start of the log.
+     */
+    private void moveTo(OrderLogPosition start) {
+        OrderLogPosition from = (start == null) ? OrderLogPosition.START : start;
+        generation = from.getGeneration();
+        position = from.getPosition();
+        previousPosition = from.getPreviousPosition();
+    }
+
+    /**
+     * Reads the saved position from the checkpoint file.
+     * If there is none, reading starts from the beginning of the log.
+     */
+    private void readCheckpoint() {
+        try {
+            moveTo(OrderLogPosition.parse(new String(Files.readAllBytes(checkpointFile), StandardCharsets.UTF_8)));
+        } catch (IOException | RuntimeException e) { // Also covers a malformed checkpoint
+            moveTo(OrderLogPosition.START); // Nothing read yet
+        }
+    }
+
+    /**
+     * Saves the position to the checkpoint file, if the tailer keeps one, replacing the file
+     * atomically so that a crash never leaves it half-written.
+     */
+    private void writeCheckpoint() {
+        if (checkpointFile == null) {
+            return; // The consumer stores the position with its own changes
+        }
+        Path temp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        try {
+            Files.write(temp, getPosition().toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Error saving order log checkpoint to " + checkpointFile + ": " + e.getMessage());
+        }
+    }
+}
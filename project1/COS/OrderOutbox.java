@@ -0,0 +1,178 @@
+package project1.COS;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers {@link OrderEvent}s recorded in the order log to the registered {@link OrderEventSink}s.
+ * <p>
+ * This is a transactional outbox: events are saved in the order log in the same append as the
+ * order change they describe, and this class forwards them afterwards on a background thread.
+ * Checkout only adds the event to an in-memory queue, so it never waits for downstream systems.
+ * Events are delivered in batches, and the ID of the last delivered event is saved to a small
+ * position file; events recorded after that position are queued again when the order log is
+ * loaded, so nothing is lost if the application stops before delivering them.
+ */
+public class OrderOutbox {
+
+    /** The maximum number of events delivered to the sinks in one batch. */
+    private static final int BATCH_SIZE = 100;
+    /** How long to wait before retrying a batch that a sink failed to accept. */
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final Path positionFile;
+    private final LinkedBlockingQueue<OrderEvent> pending = new LinkedBlockingQueue<>();
+    private final List<OrderEventSink> sinks = new CopyOnWriteArrayList<>();
+    private volatile long lastDeliveredEventId;
+    private Thread dispatcher;
+
+    /**
+     * Constructs a new OrderOutbox, reading how far delivery had got from the position file.
+     *
+     * @param positionFilename The file that records the ID of the last delivered event.
+     */
+    public OrderOutbox(String positionFilename) {
+        this.positionFile = Paths.get(positionFilename);
+        this.lastDeliveredEventId = readPosition();
+    }
+
+    /**
+     * Registers a sink to receive events. Sinks should be added before {@link #start()}.
+     *
+     * @param sink The sink to add.
+     */
+    public void addSink(OrderEventSink sink) {
+        sinks.add(sink);
+    }
+
+    /**
+     * Queues an event for delivery, unless it was already delivered. Never blocks.
+     *
+     * @param event The event to deliver.
+     */
+    public void enqueue(OrderEvent event) {
+        if (event.getEventId() > lastDeliveredEventId) {
+            pending.offer(event);
+        }
+    }
+
+    /**
+     * Returns the ID of the last event delivered to the sinks.
+     *
+     * @return The last delivered event ID, or 0 if none has been delivered.
+     */
+    public long getLastDeliveredEventId() {
+        return lastDeliveredEventId;
+    }
+
+    /**
+     * Returns the number of events waiting to be delivered.
+     *
+     * @return The number of queued events.
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Starts the background thread that delivers queued events. Calling it again has no effect.
+     */
+    public synchronized void start() {
+        if (dispatcher != null) {
+            return;
+        }
+        dispatcher = new Thread(this::dispatchLoop, "order-outbox-dispatcher");
+        dispatcher.setDaemon(true); // Undelivered events are picked up again on the next start
+        dispatcher.start();
+    }
+
+    /**
+     * Stops the background thread. Events still queued stay recorded in the order log and
+     * are delivered the next time the application starts.
+     */
+    public synchronized void stop() {
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+            dispatcher = null;
+        }
+    }
+
+    /**
+     * Waits for events, then delivers them in batches until the thread is stopped.
+     */
+    private void dispatchLoop() {
+        List<OrderEvent> batch = new ArrayList<>(BATCH_SIZE);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                batch.add(pending.take());
+                pending.drainTo(batch, BATCH_SIZE - 1);
+                deliverWithRetry(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Stopped
+        }
+    }
+
+    /**
+     * Delivers a batch to every sink, retrying until all of them accept it, and then records
+     * the batch as delivered.
+     *
+     * @param batch The events to deliver.
+     * @throws InterruptedException if the thread is stopped while waiting to retry.
+     */
+    private void deliverWithRetry(List<OrderEvent> batch) throws InterruptedException {
+        while (true) {
+            try {
+                for (OrderEventSink sink : sinks) {
+                    sink.deliver(batch);
+                }
+                break;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error delivering order events (will retry): " + e.getMessage());
+                TimeUnit.MILLISECONDS.sleep(RETRY_DELAY_MILLIS);
+            }
+        }
+        long lastId = batch.get(batch.size() - 1).getEventId();
+        lastDeliveredEventId = lastId;
+        writePosition(lastId);
+    }
+
+    /**
+     * Reads the last delivered event ID from the position file.
+     *
+     * @return The saved position, or 0 if there is none.
+     */
+    private long readPosition() {
+        try {
+            return Long.parseLong(new String(Files.readAllBytes(positionFile), StandardCharsets.UTF_8).trim());
+        } catch (IOException | NumberFormatException e) {
+            return 0; // No events delivered yet
+        }
+    }
+
+    /**
+     * Saves the last delivered event ID, replacing the position file atomically so that a
+     * crash never leaves it half-written.
+     *
+     * @param eventId The ID of the last delivered event.
+     */
+    private void writePosition(long eventId) {
+        Path temp = positionFile.resolveSibling(positionFile.getFileName() + ".tmp");
+        try {
+            Files.write(temp, Long.toString(eventId).getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, positionFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Error saving outbox position to " + positionFile + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package project1.COS;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents one page of a customer's order history, as returned by
+ * {@link OrderFileStorage#getOrderHistoryPage(String, int, String)}.
+ * Orders on a page are sorted newest first. The next page is requested by passing
+ * {@link #getNextCursor()} back to the storage.
+ */
+public class OrderPage {
+    /**
+     * The orders on this page, most recent first.
+     */
+    private final List<OrderCreator> orders;
+    /**
+     * The opaque cursor for the next (older) page, or {@code null} if this is the last page.
+     */
+    private final String nextCursor;
+
+    /**
+     * Constructs a new OrderPage.
+     *
+     * @param orders     The orders on this page, most recent first.
+     * @param nextCursor The cursor for the next page, or {@code null} if there are no older orders.
+     */
+    public OrderPage(List<OrderCreator> orders, String nextCursor) {
+        this.orders = Collections.unmodifiableList(orders);
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Returns the orders on this page, most recent first.
+     *
+     * @return An unmodifiable {@link List} of orders.
+     */
+    public List<OrderCreator> getOrders() {
+        return orders;
+    }
+
+    /**
+     * Returns the opaque cursor used to request the next (older) page.
+     *
+     * @return The next page cursor, or {@code null} if this is the last page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Checks whether there are older orders after this page.
+     *
+     * @return true if another page can be requested, false otherwise.
+     */
+    public boolean hasNextPage() {
+        return nextCursor != null;
+    }
+
+    /**
+     * Checks whether this page contains no orders.
+     *
+     * @return true if the page is empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return orders.isEmpty();
+    }
+}
@@ -0,0 +1,63 @@
+package project1.COS;
+
+import java.time.LocalDateTime;
+
+/**
+ * A small order log record describing a refund of part or all of an order's total.
+ * Refunds are appended to the order log as these records rather than by rewriting the
+ * order, and are added to the order's refunded amount when the log is loaded.
+ */
+public class OrderRefundRecord implements OrderLogRecord {
+    private static final long serialVersionUID = 1L;
+
+    private final String orderId;
+    private final double amount;
+    private final LocalDateTime refundedAt;
+    private final String reason; // Optional explanation, e.g. a damaged item
+
+    /**
+     * Constructs a new OrderRefundRecord timestamped with the current time.
+     *
+     * @param orderId The ID of the order being refunded.
+     * @param amount  The amount refunded.
+     * @param reason  An optional explanation of the refund; may be null.
+     */
+    public OrderRefundRecord(String orderId, double amount, String reason) {
+        this.orderId = orderId;
+        this.amount = amount;
+        this.refundedAt = LocalDateTime.now();
+        this.reason = reason;
+    }
+
+    /**
+     * Returns the ID of the order being refunded.
+     * @return The order ID.
+     */
+    public String getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * Returns the amount refunded.
+     * @return The refund amount.
+     */
+    public double getAmount() {
+        return amount;
+    }
+
+    /**
+     * Returns when the refund was made.
+     * @return The date and time of the refund.
+     */
+    public LocalDateTime getRefundedAt() {
+        return refundedAt;
+    }
+
+    /**
+     * Returns the explanation recorded with this refund.
+     * @return The reason, or null if none was recorded.
+     */
+    public String getReason() {
+        return reason;
+    }
+}
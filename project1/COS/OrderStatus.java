@@ -0,0 +1,61 @@
+package project1.COS;
+
+/**
+ * The stages an order passes through, from checkout to completion.
+ * <p>
+ * A checkout records the order as {@link #PENDING} before the card is charged, moves it to
+ * {@link #AUTHORIZED} once the bank approves, and to {@link #PERSISTED} once the order is final.
+ * A declined or abandoned checkout ends in {@link #FAILED}, and only a completed order can later be
+ * {@link #CANCELLED}; an order cancelled mid-checkout fails instead, so it never reaches order
+ * history. Each change is stored as a small {@link OrderStatusRecord} in the order log.
+ */
+public enum OrderStatus {
+    /** The order has been recorded but the payment has not been authorized yet. */
+    PENDING,
+    /** The bank approved the charge, but the order has not been finalized yet. */
+    AUTHORIZED,
+    /** The order is complete and appears in the customer's order history. */
+    PERSISTED,
+    /** The checkout did not complete (e.g. the charge was declined); the order is void. */
+    FAILED,
+    /** The order was cancelled. */
+    CANCELLED;
+
+    /**
+     * Returns whether checkout has finished for an order in this status. Orders in a
+     * non-terminal status were still being checked out and must be reconciled after a restart.
+     *
+     * @return true for {@link #PERSISTED}, {@link #FAILED} and {@link #CANCELLED}; false otherwise.
+     */
+    public boolean isTerminal() {
+        return this == PERSISTED || this == FAILED || this == CANCELLED;
+    }
+
+    /**
+     * Returns whether an order in this status appears in order history and order queries.
+     *
+     * @return true for {@link #PERSISTED} and {@link #CANCELLED}; false otherwise.
+     */
+    public boolean isVisible() {
+        return this == PERSISTED || this == CANCELLED;
+    }
+
+    /**
+     * Checks whether an order may move from this status to {@code next}.
+     *
+     * @param next The proposed new status.
+     * @return true if the transition is allowed, false otherwise.
+     */
+    public boolean canTransitionTo(OrderStatus next) {
+        switch (this) {
+            case PENDING:
+                return next == AUTHORIZED || next == FAILED;
+            case AUTHORIZED:
+                return next == PERSISTED || next == FAILED;
+            case PERSISTED:
+                return next == CANCELLED;
+            default:
+                return false; // FAILED and CANCELLED are final
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package project1.COS;
+
+import java.time.LocalDateTime;
+
+/**
+ * A small order log record describing a change in an order's {@link OrderStatus}.
+ * Status changes are appended to the order log as these records rather than by
+ * rewriting the order, and are applied to the order when the log is loaded.
+ */
+public class OrderStatusRecord implements OrderLogRecord {
+    private static final long serialVersionUID = 1L;
+
+    private final String orderId;
+    private final OrderStatus status;
+    private final LocalDateTime changedAt;
+    private final String authorizationNumber; // Set when the order becomes AUTHORIZED
+    private final String reason; // Optional explanation, e.g. why an order failed
+
+    /**
+     * Constructs a new OrderStatusRecord timestamped with the current time.
+     *
+     * @param orderId             The ID of the order that changed.
+     * @param status              The order's new status.
+     * @param authorizationNumber The bank authorization number, if the change is an authorization; null otherwise.
+     * @param reason              An optional explanation of the change; may be null.
+     */
+    public OrderStatusRecord(String orderId, OrderStatus status, String authorizationNumber, String reason) {
+        this.orderId = orderId;
+        this.status = status;
+        this.changedAt = LocalDateTime.now();
+        this.authorizationNumber = authorizationNumber;
+        this.reason = reason;
+    }
+
+    /**
+     * Returns the ID of the order that changed.
+     * @return The order ID.
+     */
+    public String getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * Returns the order's new status.
+     * @return The new status.
+     */
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns when the change happened.
+     * @return The date and time of the change.
+     */
+    public LocalDateTime getChangedAt() {
+        return changedAt;
+    }
+
+    /**
+     * Returns the bank authorization number recorded with this change.
+     * @return The authorization number, or null if none was recorded.
+     */
+    public String getAuthorizationNumber() {
+        return authorizationNumber;
+    }
+
+    /**
+     * Returns the explanation recorded with this change.
+     * @return The reason, or null if none was recorded.
+     */
+    public String getReason() {
+        return reason;
+    }
+}
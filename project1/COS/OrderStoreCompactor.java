@@ -0,0 +1,295 @@
+package project1.COS;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compacts the order log in the background so that its size, and the time taken to load it,
+ * stay proportional to the live orders rather than to every change ever made.
+ * <p>
+ * The log only grows: status changes, refunds and events are appended after the orders they
+ * refer to, and failed checkouts stay in it. Compaction reads the log up to its current end,
+ * folds each order's status changes and refunds into a single copy of the order, drops failed
+ * orders and events the {@link OrderOutbox} has already delivered, and writes the result to a new
+ * file, at no more than a configured number of bytes per second. Checkouts keep appending to the
+ * old file meanwhile. Finally, the records appended since compaction began are copied across and
+ * the new file atomically replaces the old one; appends wait only for that copy, and readers that
+ * already have the old file open finish reading it undisturbed.
+ * <p>
+ * Each compacted file starts with an {@link OrderLogHeader} describing how positions in the old
+ * file map onto it and how far into the old file each compacted record's changes reach, and the
+ * {@link OrderFileStorage} moves its index entries to the new positions as part of the swap.
+ * If a compaction fails or is stopped, the partly written file is removed.
+ * <p>
+ * Setting the {@code cos.verboseCompaction} system property to true reports the size and duration
+ * of each compaction.
+ */
+public class OrderStoreCompactor {
+
+    /** The log is compacted only once it is at least this large. */
+    private static final long MIN_COMPACTION_BYTES = 1024 * 1024;
+    /** The log is compacted once it has grown to this many times its size after the last compaction. */
+    private static final int GROWTH_FACTOR = 2;
+    /** How often the background thread checks whether the log needs compacting. */
+    private static final long CHECK_INTERVAL_MILLIS = 60_000;
+    /** The number of records written to the new file in each append. */
+    private static final int WRITE_BATCH_SIZE = 256;
+    /** The system property that turns on a report of each compaction. */
+    private static final String VERBOSE_PROPERTY = "cos.verboseCompaction";
+
+    private final OrderFileStorage store;
+    private final FileStorage<OrderLogRecord> storage;
+    private final String filename;
+    private final String compactedFilename;
+    private final OrderOutbox outbox;
+    private final long maxBytesPerSecond;
+    private final Object compactionLock = new Object(); // Allows one compaction at a time
+    private volatile long sizeAfterLastCompaction;
+    private Thread worker;
+
+    /**
+     * Constructs a new OrderStoreCompactor.
+     *
+     * @param store             The order store that owns the log; it performs the swap.
+     * @param storage           The order log to compact.
+     * @param filename          The name of the order log file; the new file is written next to it.
+     * @param outbox            The outbox whose delivered events can be dropped.
+     * @param maxBytesPerSecond The maximum rate at which the log is read and rewritten; 0 for no limit.
+     */
+    OrderStoreCompactor(OrderFileStorage store, FileStorage<OrderLogRecord> storage, String filename,
+                        OrderOutbox outbox, long maxBytesPerSecond) {
+        this.store = store;
+        this.storage = storage;
+        this.filename = filename;
+        this.compactedFilename = filename + ".compact";
+        this.outbox = outbox;
+        this.maxBytesPerSecond = maxBytesPerSecond;
+    }
+
+    /**
+     * Returns whether the log has grown enough since the last compaction to be worth compacting.
+     *
+     * @return true if {@link #compact()} should be run.
+     */
+    public boolean needsCompaction() {
+        long size = storage.size();
+        return size >= MIN_COMPACTION_BYTES && size >= GROWTH_FACTOR * sizeAfterLastCompaction;
+    }
+
+    /**
+     * Compacts the order log now, on the calling thread. Checkouts carry on while it runs.
+     * If anything goes wrong the old file is kept unchanged.
+     *
+     * @return true if the log was replaced with a compacted copy, false otherwise.
+     */
+    public boolean compact() {
+        synchronized (compactionLock) {
+            if (compactLog()) {
+                return true;
+            }
+            try {
+                Files.deleteIfExists(Paths.get(compactedFilename)); // Don't leave a partial copy behind
+            } catch (IOException e) {
+                System.err.println("Error removing " + compactedFilename + ": " + e.getMessage());
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Runs one compaction; see {@link #compact()}.
+     *
+     * @return true if the log was replaced with a compacted copy, false otherwise.
+     */
+    private boolean compactLog() {
+        long startNanos = System.nanoTime();
+        long end = storage.size();
+
+        // Fold the log up to its current end. Records appended after that are copied unchanged at the swap.
+        Map<String, OrderCreator> orders = new LinkedHashMap<>();
+        List<OrderEvent> events = new ArrayList<>();
+        Map<OrderLogRecord, Long> foldedThrough = new IdentityHashMap<>(); // Where each kept record's last change ends
+        long lastDelivered = outbox.getLastDeliveredEventId();
+        long[] generation = new long[1];
+        long read = storage.forEachFrom(0, (record, next) -> {
+            if (next <= end) {
+                OrderLogRecord folded = fold(record, orders, events, lastDelivered, generation);
+                if (folded != null) {
+                    foldedThrough.put(folded, next);
+                }
+                pace(next, startNanos);
+            }
+        });
+        if (read < end || Thread.currentThread().isInterrupted()) {
+            return false; // Unreadable (or legacy-format) log, or stopped
+        }
+        orders.values().removeIf(order -> order.getStatus() == OrderStatus.FAILED);
+
+        FileStorage<OrderLogRecord> compacted = new FileStorage<>(compactedFilename);
+        long nextGeneration = generation[0] + 1;
+        try {
+            Files.deleteIfExists(Paths.get(compactedFilename)); // Left over from an interrupted compaction
+        } catch (IOException e) {
+            System.err.println("Error removing " + compactedFilename + ": " + e.getMessage());
+            return false;
+        }
+        List<OrderLogRecord> live = new ArrayList<>(orders.values());
+        live.addAll(events);
+        // The header's positions are only known at the swap, so write a placeholder of the same size
+        long[] recordPositions = new long[live.size()];
+        long[] recordFoldedThrough = new long[live.size()];
+        if (!compacted.append(new OrderLogHeader(nextGeneration, end, 0, recordPositions, recordFoldedThrough))) {
+            return false;
+        }
+        Map<String, Long> orderPositions = new HashMap<>();
+        Map<Long, Long> eventPositions = new HashMap<>();
+        long readNanos = System.nanoTime() - startNanos;
+        long writeStartNanos = System.nanoTime();
+        for (int from = 0; from < live.size(); from += WRITE_BATCH_SIZE) {
+            List<OrderLogRecord> batch = live.subList(from, Math.min(from + WRITE_BATCH_SIZE, live.size()));
+            long[] positions = compacted.appendAndGetPositions(batch);
+            if (positions == null) {
+                return false;
+            }
+            for (int i = 0; i < positions.length; i++) { // Remember where each record went for the swap
+                OrderLogRecord record = batch.get(i);
+                recordPositions[from + i] = positions[i];
+                recordFoldedThrough[from + i] = foldedThrough.get(record);
+                if (record instanceof OrderCreator) {
+                    orderPositions.put(((OrderCreator) record).getOrderId(), positions[i]);
+                } else {
+                    eventPositions.put(((OrderEvent) record).getEventId(), positions[i]);
+                }
+            }
+            pace(compacted.size(), writeStartNanos);
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+        }
+
+        long tailPosition = store.replaceLog(compacted, end, nextGeneration, orderPositions, eventPositions,
+                recordPositions, recordFoldedThrough);
+        if (tailPosition < 0) {
+            return false;
+        }
+        sizeAfterLastCompaction = storage.size();
+        if (Boolean.getBoolean(VERBOSE_PROPERTY)) {
+            System.err.println(String.format("Compacted %s from %d to %d bytes in %d ms (%d ms reading).",
+                    filename, end, tailPosition, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                    TimeUnit.NANOSECONDS.toMillis(readNanos)));
+        }
+        return true;
+    }
+
+    /**
+     * Starts a background thread that compacts the log whenever {@link #needsCompaction()}.
+     * Calling it again has no effect.
+     */
+    public synchronized void start() {
+        if (worker != null) {
+            return;
+        }
+        worker = new Thread(this::compactionLoop, "order-store-compactor");
+        worker.setDaemon(true); // An unfinished compaction is simply discarded
+        worker.setPriority(Thread.MIN_PRIORITY);
+        worker.start();
+    }
+
+    /**
+     * Stops the background thread, abandoning any compaction in progress.
+     */
+    public synchronized void stop() {
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+    }
+
+    /**
+     * Checks the log periodically and compacts it when needed, until the thread is stopped.
+     */
+    private void compactionLoop() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (needsCompaction()) {
+                    compact();
+                }
+                TimeUnit.MILLISECONDS.sleep(CHECK_INTERVAL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Stopped
+        }
+    }
+
+    /**
+     * Applies one record of the old log to the compacted state.
+     *
+     * @param record        The record to fold in.
+     * @param orders        The orders found so far, by ID, in the order they were placed.
+     * @param events        The undelivered events found so far.
+     * @param lastDelivered The ID of the last event delivered by the outbox.
+     * @param generation    Holds the generation of the old file, set from its header.
+     * @return The order or event the record was folded into, or null if it is not kept.
+     */
+    private static OrderLogRecord fold(OrderLogRecord record, Map<String, OrderCreator> orders,
+                                       List<OrderEvent> events, long lastDelivered, long[] generation) {
+        if (record instanceof OrderCreator) {
+            OrderCreator order = (OrderCreator) record;
+            orders.put(order.getOrderId(), order);
+            return order;
+        } else if (record instanceof OrderStatusRecord) {
+            OrderStatusRecord change = (OrderStatusRecord) record;
+            OrderCreator order = orders.get(change.getOrderId());
+            if (order != null) {
+                order.applyStatus(change);
+            }
+            return order;
+        } else if (record instanceof OrderRefundRecord) {
+            OrderRefundRecord refund = (OrderRefundRecord) record;
+            OrderCreator order = orders.get(refund.getOrderId());
+            if (order != null) {
+                order.applyRefund(refund);
+            }
+            return order;
+        } else if (record instanceof OrderEvent) {
+            OrderEvent event = (OrderEvent) record;
+            if (event.getEventId() > lastDelivered) {
+                events.add(event);
+                return event;
+            }
+        } else if (record instanceof OrderLogHeader) {
+            generation[0] = ((OrderLogHeader) record).getGeneration();
+        }
+        return null;
+    }
+
+    /**
+     * Sleeps as needed to keep the I/O rate at or below {@link #maxBytesPerSecond}.
+     * If interrupted, returns at once and leaves the thread's interrupt flag set.
+     *
+     * @param bytes      The number of bytes read or written since {@code startNanos}.
+     * @param startNanos When the reading or writing began, from {@link System#nanoTime()}.
+     */
+    private void pace(long bytes, long startNanos) {
+        if (maxBytesPerSecond <= 0 || Thread.currentThread().isInterrupted()) {
+            return;
+        }
+        long dueNanos = (long) (bytes * (1_000_000_000.0 / maxBytesPerSecond));
+        long aheadNanos = dueNanos - (System.nanoTime() - startNanos);
+        if (aheadNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(aheadNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // Checked by compact() between steps
+            }
+        }
+    }
+}
@@ -1,8 +1,6 @@
 package project1.COS;
 
-import java.util.ArrayList;
 import java.util.Scanner;
-import java.util.Comparator; // For sorting orders
 
 /**
  * Handles the viewing of past orders for a logged-in customer.
@@ -10,36 +8,47 @@ import java.util.Comparator; // For sorting orders
 public class OrderViewer {
 
     /**
-     * Displays all past orders for a given customer ID.
+     * The number of orders shown on each page of the order history.
+     */
+    public static final int PAGE_SIZE = 5;
+
+    /**
+     * Displays the past orders for a given customer ID, most recent first, one page at a time.
+     * After each page the customer can ask for the next (older) page or return to the menu.
      *
-     * @param input The Scanner object for user input (can be used for future filtering/sorting options).
+     * @param input The Scanner object for user input, used to page through the order history.
      * @param customerId The ID of the customer whose orders are to be viewed.
      * @param orderFileStorage The OrderFileStorage instance to retrieve order data from.
      */
     public static void viewOrders(Scanner input, String customerId, OrderFileStorage orderFileStorage) {
         System.out.println("\n--- Viewing Past Orders for Customer ID: " + customerId + " ---");
 
-        // Retrieve all orders from storage
-        ArrayList<OrderCreator> allOrders = orderFileStorage.getAllOrders();
-        ArrayList<OrderCreator> customerOrders = new ArrayList<>();
-
-        // Filter orders to only include those belonging to the current customer
-        for (OrderCreator order : allOrders) {
-            if (order.getCustomerId().equals(customerId)) {
-                customerOrders.add(order);
-            }
-        }
+        // Fetch the newest page first; later pages are only fetched if the customer asks for them
+        OrderPage page = orderFileStorage.getOrderHistoryPage(customerId, PAGE_SIZE, null);
 
-        if (customerOrders.isEmpty()) {
+        if (page.isEmpty()) {
             System.out.println("No past orders found for this customer.");
         } else {
-            // Sort orders by date, most recent first, to display them chronologically
-            customerOrders.sort(Comparator.comparing(OrderCreator::getOrderDate).reversed());
+            boolean viewing = true;
+            while (viewing) {
+                // Display each order's details
+                for (OrderCreator order : page.getOrders()) {
+                    System.out.println(order.toString());
+                    System.out.println();
+                }
 
-            // Display each order's details
-            for (OrderCreator order : customerOrders) {
-                System.out.println(order.toString()); 
-                System.out.println(); 
+                if (!page.hasNextPage()) {
+                    System.out.println("No more orders.");
+                    viewing = false;
+                } else {
+                    System.out.print("Enter 'n' for older orders, or press Enter to return to the menu: ");
+                    String choice = input.nextLine();
+                    if (choice.equalsIgnoreCase("n")) {
+                        page = orderFileStorage.getOrderHistoryPage(customerId, PAGE_SIZE, page.getNextCursor());
+                    } else {
+                        viewing = false;
+                    }
+                }
             }
         }
         System.out.println("------------------------------------------");
@@ -23,6 +23,7 @@ public class PostSessionManager {
                                     OrderFileStorage orderFileStorage,
                                     Cart currentCart) {
         System.out.println("\nWelcome, " + customer.getId() + "! You are now logged in.");
+        currentCart.setTaxRate(TaxRates.getDefault().getRate(customer)); // Taxed where the customer lives
 
         // Cart is now passed in, not initialized here
 
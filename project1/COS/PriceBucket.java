@@ -0,0 +1,64 @@
+package project1.COS;
+
+/**
+ * The price ranges merchandise can be filtered by, based on each item's current price
+ * ({@link Merchandise#getCurrentPrice()}). Every price falls in exactly one bucket.
+ */
+public enum PriceBucket {
+    /** Items priced under $50. */
+    UNDER_50(50, "Under $50"),
+    /** Items priced from $50 up to, but not including, $100. */
+    FROM_50_TO_100(100, "$50 - $100"),
+    /** Items priced from $100 up to, but not including, $500. */
+    FROM_100_TO_500(500, "$100 - $500"),
+    /** Items priced $500 or more. */
+    FROM_500(Double.POSITIVE_INFINITY, "$500 and over");
+
+    private final double high;
+    private final String label;
+
+    /**
+     * Constructs a PriceBucket.
+     *
+     * @param high  The price just above the bucket.
+     * @param label The range as shown to customers.
+     */
+    PriceBucket(double high, String label) {
+        this.high = high;
+        this.label = label;
+    }
+
+    /**
+     * Returns the bucket a price falls in.
+     *
+     * @param price The price.
+     * @return The bucket whose range contains the price; {@link #UNDER_50} for negative prices.
+     */
+    public static PriceBucket of(double price) {
+        for (PriceBucket bucket : values()) {
+            if (price < bucket.high) {
+                return bucket;
+            }
+        }
+        return FROM_500; // NaN
+    }
+
+    /**
+     * Returns the range as shown to customers (e.g. "$50 - $100").
+     *
+     * @return The bucket's label.
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Returns the bucket's label.
+     *
+     * @return The bucket's label.
+     */
+    @Override
+    public String toString() {
+        return label;
+    }
+}
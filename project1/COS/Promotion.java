@@ -0,0 +1,211 @@
+package project1.COS;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * A promotion that lowers the price of a cart. There are three kinds:
+ * <ul>
+ * <li>{@link Kind#MULTI_BUY}: buy a number of one item and get some more of it free,
+ * e.g. "3 for 2" on a mouse;</li>
+ * <li>{@link Kind#CATEGORY_PERCENT_OFF}: a percentage off every item in a category;</li>
+ * <li>{@link Kind#CART_THRESHOLD}: an amount off the whole cart once its subtotal, after the
+ * other promotions, reaches a minimum.</li>
+ * </ul>
+ * A promotion may be limited to a range of dates. Promotions are not applied one by one;
+ * they are compiled into {@link PromotionRules}, which {@link Cart} uses.
+ */
+public class Promotion implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The kinds of promotion.
+     */
+    public enum Kind {
+        /** Buy a number of one item, get some more of it free. */
+        MULTI_BUY,
+        /** A percentage off every item in a category. */
+        CATEGORY_PERCENT_OFF,
+        /** An amount off a cart whose subtotal reaches a minimum. */
+        CART_THRESHOLD
+    }
+
+    private final String name;
+    private final Kind kind;
+    private final String merchandiseId; // MULTI_BUY only
+    private final int buyQuantity;      // MULTI_BUY only
+    private final int freeQuantity;     // MULTI_BUY only
+    private final String category;      // CATEGORY_PERCENT_OFF only
+    private final double percentOff;    // CATEGORY_PERCENT_OFF only
+    private final double minimumSubtotal; // CART_THRESHOLD only
+    private final double amountOff;     // CART_THRESHOLD only
+    private LocalDate startDate; // Null if the promotion has no start
+    private LocalDate endDate;   // Null if the promotion never ends
+
+    /**
+     * Constructs a Promotion; use the factory methods.
+     */
+    private Promotion(String name, Kind kind, String merchandiseId, int buyQuantity, int freeQuantity,
+                      String category, double percentOff, double minimumSubtotal, double amountOff) {
+        this.name = name;
+        this.kind = kind;
+        this.merchandiseId = merchandiseId;
+        this.buyQuantity = buyQuantity;
+        this.freeQuantity = freeQuantity;
+        this.category = category;
+        this.percentOff = percentOff;
+        this.minimumSubtotal = minimumSubtotal;
+        this.amountOff = amountOff;
+    }
+
+    /**
+     * Creates a promotion that gives units of an item free when enough are bought.
+     *
+     * @param name          The promotion as shown to customers, e.g. "Mice: 3 for 2".
+     * @param merchandiseId The ID of the item (case-insensitive).
+     * @param buyQuantity   The number of units that must be paid for; must be positive.
+     * @param freeQuantity  The number of units then given free; must be positive.
+     * @return The promotion.
+     */
+    public static Promotion multiBuy(String name, String merchandiseId, int buyQuantity, int freeQuantity) {
+        if (buyQuantity <= 0 || freeQuantity <= 0) {
+            throw new IllegalArgumentException("Buy and free quantities must be positive.");
+        }
+        return new Promotion(name, Kind.MULTI_BUY, merchandiseId, buyQuantity, freeQuantity, null, 0, 0, 0);
+    }
+
+    /**
+     * Creates a promotion that takes a percentage off every item in a category.
+     *
+     * @param name       The promotion as shown to customers.
+     * @param category   The category (case-insensitive).
+     * @param percentOff The percentage off, greater than 0 and at most 100.
+     * @return The promotion.
+     */
+    public static Promotion categoryPercentOff(String name, String category, double percentOff) {
+        if (!(percentOff > 0 && percentOff <= 100)) {
+            throw new IllegalArgumentException("Percentage off must be greater than 0 and at most 100.");
+        }
+        return new Promotion(name, Kind.CATEGORY_PERCENT_OFF, null, 0, 0, category, percentOff, 0, 0);
+    }
+
+    /**
+     * Creates a promotion that takes an amount off a cart whose subtotal reaches a minimum.
+     *
+     * @param name            The promotion as shown to customers.
+     * @param minimumSubtotal The subtotal, after other promotions, the cart must reach.
+     * @param amountOff       The amount taken off; must be positive.
+     * @return The promotion.
+     */
+    public static Promotion cartThreshold(String name, double minimumSubtotal, double amountOff) {
+        if (!(amountOff > 0)) {
+            throw new IllegalArgumentException("Amount off must be positive.");
+        }
+        return new Promotion(name, Kind.CART_THRESHOLD, null, 0, 0, null, 0, minimumSubtotal, amountOff);
+    }
+
+    /**
+     * Limits the promotion to a range of dates.
+     *
+     * @param startDate The first day the promotion runs, or null if it has no start.
+     * @param endDate   The last day the promotion runs, or null if it never ends.
+     * @return This promotion.
+     */
+    public Promotion during(LocalDate startDate, LocalDate endDate) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+        return this;
+    }
+
+    /**
+     * Checks whether the promotion runs on a date.
+     *
+     * @param date The date.
+     * @return true if the date is within the promotion's dates.
+     */
+    public boolean isActive(LocalDate date) {
+        return (startDate == null || !date.isBefore(startDate)) && (endDate == null || !date.isAfter(endDate));
+    }
+
+    /**
+     * Returns the promotion as shown to customers.
+     * @return The promotion as shown to customers.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the kind of promotion.
+     * @return The kind of promotion.
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the ID of the item a multi-buy applies to.
+     * @return The ID of the item a multi-buy applies to; null for other kinds.
+     */
+    public String getMerchandiseId() {
+        return merchandiseId;
+    }
+
+    /**
+     * Returns the units a multi-buy must pay for.
+     * @return The units a multi-buy must pay for; 0 for other kinds.
+     */
+    public int getBuyQuantity() {
+        return buyQuantity;
+    }
+
+    /**
+     * Returns the units a multi-buy gives free.
+     * @return The units a multi-buy gives free; 0 for other kinds.
+     */
+    public int getFreeQuantity() {
+        return freeQuantity;
+    }
+
+    /**
+     * Returns the category a percentage applies to.
+     * @return The category a percentage applies to; null for other kinds.
+     */
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * Returns the percentage off a category.
+     * @return The percentage off a category; 0 for other kinds.
+     */
+    public double getPercentOff() {
+        return percentOff;
+    }
+
+    /**
+     * Returns the subtotal a cart threshold needs.
+     * @return The subtotal a cart threshold needs; 0 for other kinds.
+     */
+    public double getMinimumSubtotal() {
+        return minimumSubtotal;
+    }
+
+    /**
+     * Returns the amount a cart threshold takes off.
+     * @return The amount a cart threshold takes off; 0 for other kinds.
+     */
+    public double getAmountOff() {
+        return amountOff;
+    }
+
+    /**
+     * Returns the promotion's name.
+     *
+     * @return The promotion as shown to customers.
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,442 @@
+package project1.COS;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The active {@link Promotion}s compiled into lookup tables, so a {@link Cart} can price a line
+ * or its whole subtotal without going through the promotions.
+ * <p>
+ * {@link #compile(List, MerchCatalog, LocalDate)} drops the promotions that are not running on
+ * the given date and resolves the rest against a snapshot of the catalog: every item that a
+ * multi-buy or category promotion applies to gets one precomputed rule holding its best
+ * multi-buy and its best percentage off, keyed by ID. Pricing a cart line is then one hash
+ * lookup and a little arithmetic, however many promotions there are. Items added to the
+ * catalog after the snapshot are resolved the first time they are priced, from the multi-buys
+ * by ID and the percentages by category, and remembered.
+ * <p>
+ * Cart thresholds are kept as an array of minimum subtotals in ascending order, each paired
+ * with the best amount off any threshold up to it gives, so the discount for a subtotal is
+ * found by one binary search.
+ * <p>
+ * Promotions do not stack on a line: each line gets whichever of its multi-buy and its
+ * percentage off saves more. The cart threshold applies on top, to the subtotal after the
+ * line discounts. Compiled rules never change, so they can be shared between threads.
+ * <p>
+ * The default rules are compiled against {@link MerchCatalog#getDefault()}, and compiled again
+ * when the date changes, so promotions start and end while the application runs.
+ */
+public class PromotionRules {
+
+    /** The system property naming the file the store's promotions are read from. */
+    private static final String PROMOTIONS_FILE_PROPERTY = "cos.promotionsFile";
+    private static final String DEFAULT_PROMOTIONS_FILENAME = "promotions.txt";
+
+    /** The rule of an item no multi-buy or category promotion applies to. */
+    private static final LineRule NO_RULE = new LineRule(null, null);
+
+    private static PromotionRules defaultRules; // Guarded by PromotionRules.class
+
+    private final List<Promotion> promotions;
+    private final MerchCatalog catalog;
+    private final LocalDate date;
+    private final Map<String, LineRule> rulesById = new ConcurrentHashMap<>(); // Upper-case ID
+    private final Map<String, Promotion> multiBuysById = new HashMap<>(); // Upper-case ID
+    private final Map<String, Promotion> percentagesByCategory = new HashMap<>(); // Upper-case category
+    private final long[] thresholdCents; // Minimum subtotals, ascending
+    private final Promotion[] bestThresholds; // The best threshold at or below each minimum
+
+    /**
+     * Constructs PromotionRules; use {@link #compile(List, MerchCatalog, LocalDate)}.
+     *
+     * @param promotions The active promotions.
+     * @param catalog    The catalog the rules are compiled against.
+     * @param date       The date the rules are compiled for.
+     */
+    private PromotionRules(List<Promotion> promotions, MerchCatalog catalog, LocalDate date) {
+        this.promotions = Collections.unmodifiableList(promotions);
+        this.catalog = catalog;
+        this.date = date;
+        List<Promotion> thresholds = new ArrayList<>();
+        for (Promotion promotion : promotions) {
+            switch (promotion.getKind()) {
+                case MULTI_BUY:
+                    multiBuysById.merge(key(promotion.getMerchandiseId()), promotion,
+                            (a, b) -> freeShare(b) > freeShare(a) ? b : a);
+                    break;
+                case CATEGORY_PERCENT_OFF:
+                    percentagesByCategory.merge(key(promotion.getCategory()), promotion,
+                            (a, b) -> b.getPercentOff() > a.getPercentOff() ? b : a);
+                    break;
+                case CART_THRESHOLD:
+                    thresholds.add(promotion);
+                    break;
+            }
+        }
+        thresholds.sort((a, b) -> Long.compare(toCents(a.getMinimumSubtotal()), toCents(b.getMinimumSubtotal())));
+        thresholdCents = new long[thresholds.size()];
+        bestThresholds = new Promotion[thresholds.size()];
+        Promotion best = null;
+        for (int i = 0; i < thresholds.size(); i++) {
+            Promotion threshold = thresholds.get(i);
+            if (best == null || threshold.getAmountOff() > best.getAmountOff()) {
+                best = threshold; // A higher minimum that gives less never wins
+            }
+            thresholdCents[i] = toCents(threshold.getMinimumSubtotal());
+            bestThresholds[i] = best;
+        }
+    }
+
+    /**
+     * Compiles the promotions running on a date against the items in a catalog.
+     *
+     * @param promotions The promotions, running or not.
+     * @param catalog    The catalog whose items are resolved up front.
+     * @param date       The date whose promotions are compiled.
+     * @return The compiled rules.
+     */
+    public static PromotionRules compile(List<Promotion> promotions, MerchCatalog catalog, LocalDate date) {
+        List<Promotion> active = new ArrayList<>();
+        for (Promotion promotion : promotions) {
+            if (promotion.isActive(date)) {
+                active.add(promotion);
+            }
+        }
+        PromotionRules rules = new PromotionRules(active, catalog, date);
+        if (!rules.multiBuysById.isEmpty() || !rules.percentagesByCategory.isEmpty()) {
+            for (Merchandise item : catalog.getAllMerchandise()) {
+                LineRule rule = rules.resolve(item);
+                if (rule != NO_RULE) {
+                    rules.rulesById.put(key(item.getId()), rule);
+                }
+            }
+        }
+        return rules;
+    }
+
+    /**
+     * Returns the rules shared by the console and GUI: the store's promotions running today,
+     * compiled against the default catalog. The rules are compiled again the first time they are
+     * used on a new day.
+     *
+     * @return The default rules.
+     */
+    public static synchronized PromotionRules getDefault() {
+        MerchCatalog defaultCatalog = MerchCatalog.getDefault();
+        LocalDate today = LocalDate.now();
+        if (defaultRules == null || !defaultRules.isCompiledFor(defaultCatalog, today)) {
+            defaultRules = compile(getStorePromotions(), defaultCatalog, today);
+        }
+        return defaultRules;
+    }
+
+    /**
+     * Returns the store's promotions, read from the file named by the {@code cos.promotionsFile}
+     * system property ({@code promotions.txt} by default). There are none if the file does not
+     * exist; see {@link #loadPromotions(String)} for its format.
+     *
+     * @return The promotions, running or not.
+     */
+    public static List<Promotion> getStorePromotions() {
+        return loadPromotions(System.getProperty(PROMOTIONS_FILE_PROPERTY, DEFAULT_PROMOTIONS_FILENAME));
+    }
+
+    /**
+     * Reads promotions from a text file with one promotion per line. Each line holds a kind,
+     * the name shown to customers and the kind's values, separated by {@code |}, optionally
+     * followed by a first and last day (yyyy-mm-dd, either of which may be left empty):
+     * <pre>
+     * multi-buy|Wireless Mouse: 3 for 2|M003|2|1
+     * category|10% off Accessories|Accessories|10|2026-11-27|2026-11-30
+     * threshold|$25 off orders over $250|250.00|25.00
+     * </pre>
+     * A multi-buy gives an item ID, the quantity paid for and the quantity then free; a category
+     * promotion a category and a percentage off; a threshold a minimum subtotal and an amount off.
+     * Blank lines and lines starting with {@code #} are ignored, and lines that cannot be read
+     * are reported and skipped.
+     *
+     * @param filename The file to read.
+     * @return The promotions in the file; empty if it does not exist or cannot be read.
+     */
+    public static List<Promotion> loadPromotions(String filename) {
+        List<Promotion> promotions = new ArrayList<>();
+        Path file = Paths.get(filename);
+        if (!Files.exists(file)) {
+            return promotions; // No promotions running
+        }
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.err.println("Error reading promotions from " + filename + ": " + e.getMessage());
+            return promotions;
+        }
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                promotions.add(parsePromotion(line.split("\\|", -1)));
+            } catch (RuntimeException e) { // Missing fields, bad numbers or dates, or values out of range
+                System.err.println("Skipping promotion on line " + (i + 1) + " of " + filename + ": " + line);
+            }
+        }
+        return promotions;
+    }
+
+    /**
+     * Creates a promotion from the fields of one line of a promotions file.
+     *
+     * @param fields The kind, name, values and optional dates.
+     * @return The promotion.
+     * @throws IllegalArgumentException if the fields do not describe a promotion.
+     */
+    private static Promotion parsePromotion(String[] fields) {
+        String kind = fields[0].trim().toLowerCase(Locale.ROOT);
+        String name = fields[1].trim();
+        Promotion promotion;
+        int values;
+        switch (kind) {
+            case "multi-buy":
+                promotion = Promotion.multiBuy(name, fields[2].trim(), Integer.parseInt(fields[3].trim()),
+                        Integer.parseInt(fields[4].trim()));
+                values = 3;
+                break;
+            case "category":
+                promotion = Promotion.categoryPercentOff(name, fields[2].trim(), Double.parseDouble(fields[3].trim()));
+                values = 2;
+                break;
+            case "threshold":
+                promotion = Promotion.cartThreshold(name, Double.parseDouble(fields[2].trim()),
+                        Double.parseDouble(fields[3].trim()));
+                values = 2;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown kind of promotion: " + kind);
+        }
+        int datesAt = 2 + values;
+        if (fields.length == datesAt + 2) {
+            promotion.during(parseDate(fields[datesAt]), parseDate(fields[datesAt + 1]));
+        } else if (fields.length != datesAt) {
+            throw new IllegalArgumentException("Expected " + datesAt + " or " + (datesAt + 2) + " fields.");
+        }
+        return promotion;
+    }
+
+    /**
+     * Reads an optional date from a promotions file.
+     *
+     * @param text The date as yyyy-mm-dd, or blank.
+     * @return The date, or null if blank.
+     */
+    private static LocalDate parseDate(String text) {
+        return text.trim().isEmpty() ? null : LocalDate.parse(text.trim());
+    }
+
+    /**
+     * Returns the promotions that were running when the rules were compiled.
+     *
+     * @return The active promotions.
+     */
+    public List<Promotion> getPromotions() {
+        return promotions;
+    }
+
+    /**
+     * Checks whether the rules were compiled against a catalog for a date.
+     *
+     * @param catalog The catalog.
+     * @param date    The date.
+     * @return true if the rules hold that catalog's items and the promotions running that day.
+     */
+    public boolean isCompiledFor(MerchCatalog catalog, LocalDate date) {
+        return this.catalog == catalog && this.date.equals(date);
+    }
+
+    /**
+     * Calculates the amount taken off one cart line by its item's promotion.
+     *
+     * @param item     The item.
+     * @param quantity Its quantity in the cart.
+     * @return The discount on the line, rounded to the cent; 0 if no promotion applies.
+     */
+    public double getLineDiscount(Merchandise item, int quantity) {
+        return ruleFor(item).discount(item.getCurrentPrice(), quantity);
+    }
+
+    /**
+     * Returns the promotion that gives a cart line its discount.
+     *
+     * @param item     The item.
+     * @param quantity Its quantity in the cart.
+     * @return The promotion, or null if no promotion applies to the line.
+     */
+    public Promotion getLinePromotion(Merchandise item, int quantity) {
+        return ruleFor(item).best(item.getCurrentPrice(), quantity);
+    }
+
+    /**
+     * Returns the cart threshold promotion a subtotal qualifies for.
+     *
+     * @param subtotal The cart's subtotal after line discounts.
+     * @return The threshold promotion with the largest amount off, or null if none applies.
+     */
+    public Promotion getOrderPromotion(double subtotal) {
+        // Find the last minimum at or below the subtotal
+        long cents = toCents(subtotal);
+        int low = 0;
+        int high = thresholdCents.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (thresholdCents[mid] <= cents) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return (low == 0) ? null : bestThresholds[low - 1];
+    }
+
+    /**
+     * Calculates the amount taken off a cart's subtotal by its threshold promotion.
+     *
+     * @param subtotal The cart's subtotal after line discounts.
+     * @return The discount, never more than the subtotal; 0 if no threshold is reached.
+     */
+    public double getOrderDiscount(double subtotal) {
+        Promotion threshold = getOrderPromotion(subtotal);
+        return (threshold == null) ? 0.0 : Math.min(threshold.getAmountOff(), subtotal);
+    }
+
+    /**
+     * Returns an item's compiled rule, resolving and remembering it if the item was added to the
+     * catalog after the rules were compiled.
+     *
+     * @param item The item.
+     * @return The item's rule; {@link #NO_RULE} if no promotion applies to it.
+     */
+    private LineRule ruleFor(Merchandise item) {
+        LineRule rule = rulesById.get(key(item.getId()));
+        if (rule == null) {
+            rule = resolve(item);
+            rulesById.put(key(item.getId()), rule);
+        }
+        return rule;
+    }
+
+    /**
+     * Works out an item's rule from the multi-buys and category percentages.
+     *
+     * @param item The item.
+     * @return The item's rule; {@link #NO_RULE} if no promotion applies to it.
+     */
+    private LineRule resolve(Merchandise item) {
+        Promotion multiBuy = multiBuysById.get(key(item.getId()));
+        Promotion percentage = percentagesByCategory.get(key(item.getCategory()));
+        return (multiBuy == null && percentage == null) ? NO_RULE : new LineRule(multiBuy, percentage);
+    }
+
+    /**
+     * Returns the share of units a multi-buy gives free, to compare multi-buys on the same item.
+     *
+     * @param multiBuy The multi-buy promotion.
+     * @return The free units as a fraction of the units in each deal.
+     */
+    private static double freeShare(Promotion multiBuy) {
+        return (double) multiBuy.getFreeQuantity() / (multiBuy.getBuyQuantity() + multiBuy.getFreeQuantity());
+    }
+
+    /**
+     * Returns the key an item ID or category is looked up by.
+     *
+     * @param value The ID or category.
+     * @return The value in upper case.
+     */
+    private static String key(String value) {
+        return value.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Converts an amount to whole cents, rounding to the nearest cent.
+     *
+     * @param amount The amount.
+     * @return The amount in cents.
+     */
+    private static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    /**
+     * The compiled promotions for one item: its best multi-buy and its best percentage off.
+     */
+    private static class LineRule {
+        private final Promotion multiBuy;   // Null if none
+        private final Promotion percentage; // Null if none
+
+        /**
+         * Constructs a LineRule.
+         *
+         * @param multiBuy   The item's best multi-buy, or null.
+         * @param percentage The best percentage off the item's category, or null.
+         */
+        LineRule(Promotion multiBuy, Promotion percentage) {
+            this.multiBuy = multiBuy;
+            this.percentage = percentage;
+        }
+
+        /**
+         * Calculates the discount on a line, using whichever promotion saves more.
+         *
+         * @param unitPrice The item's price.
+         * @param quantity  Its quantity.
+         * @return The discount, rounded to the cent.
+         */
+        double discount(double unitPrice, int quantity) {
+            return Math.max(multiBuyDiscount(unitPrice, quantity), percentageDiscount(unitPrice, quantity));
+        }
+
+        /**
+         * Returns the promotion that gives a line its discount.
+         *
+         * @param unitPrice The item's price.
+         * @param quantity  Its quantity.
+         * @return The promotion that saves more, or null if neither saves anything.
+         */
+        Promotion best(double unitPrice, int quantity) {
+            double byMultiBuy = multiBuyDiscount(unitPrice, quantity);
+            double byPercentage = percentageDiscount(unitPrice, quantity);
+            if (byMultiBuy <= 0 && byPercentage <= 0) {
+                return null;
+            }
+            return (byMultiBuy >= byPercentage) ? multiBuy : percentage;
+        }
+
+        private double multiBuyDiscount(double unitPrice, int quantity) {
+            if (multiBuy == null) {
+                return 0.0;
+            }
+            int deals = quantity / (multiBuy.getBuyQuantity() + multiBuy.getFreeQuantity());
+            return roundToCents((double) deals * multiBuy.getFreeQuantity() * unitPrice);
+        }
+
+        private double percentageDiscount(double unitPrice, int quantity) {
+            return (percentage == null) ? 0.0 : roundToCents(unitPrice * quantity * percentage.getPercentOff() / 100);
+        }
+
+        private static double roundToCents(double amount) {
+            return Math.round(amount * 100) / 100.0;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package project1.COS;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * An {@link OrderEventSink} that sends each event as a line of text (see
+ * {@link OrderEvent#toLine()}) to a process listening on a local TCP port.
+ * The connection is opened on first use and reopened if it breaks.
+ */
+public class SocketOrderEventSink implements OrderEventSink {
+
+    private final int port;
+    private Socket socket;
+    private BufferedWriter out;
+
+    /**
+     * Constructs a new SocketOrderEventSink.
+     *
+     * @param port The port on the local machine that the receiving process listens on.
+     */
+    public SocketOrderEventSink(int port) {
+        this.port = port;
+    }
+
+    @Override
+    public void deliver(List<OrderEvent> events) throws IOException {
+        try {
+            if (out == null) {
+                socket = new Socket(InetAddress.getLoopbackAddress(), port);
+                out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            }
+            for (OrderEvent event : events) {
+                out.write(event.toLine());
+                out.newLine();
+            }
+            out.flush();
+        } catch (IOException e) {
+            close(); // Reconnect on the next attempt
+            throw e;
+        }
+    }
+
+    /**
+     * Closes the connection, if one is open.
+     */
+    public void close() {
+        try {
+            if (socket != null) {
+                socket.close();
+            }
+        } catch (IOException e) {
+            // Nothing to recover; the connection is being discarded
+        }
+        socket = null;
+        out = null;
+    }
+}
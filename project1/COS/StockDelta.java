@@ -0,0 +1,42 @@
+package project1.COS;
+
+import java.io.Serializable;
+
+/**
+ * A record in the inventory journal: a change to one item's stock level. Reservations at
+ * checkout are negative, and releases and restocks are positive. An item's stock level is the
+ * sum of its deltas, so the journal is only ever appended to.
+ */
+public class StockDelta implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String merchandiseId;
+    private final int delta;
+
+    /**
+     * Constructs a new StockDelta.
+     *
+     * @param merchandiseId The ID of the item, in upper case.
+     * @param delta         The change to its stock level.
+     */
+    public StockDelta(String merchandiseId, int delta) {
+        this.merchandiseId = merchandiseId;
+        this.delta = delta;
+    }
+
+    /**
+     * Returns the ID of the item whose stock changed.
+     * @return The merchandise ID, in upper case.
+     */
+    public String getMerchandiseId() {
+        return merchandiseId;
+    }
+
+    /**
+     * Returns the change to the item's stock level.
+     * @return The number of units added (positive) or taken (negative).
+     */
+    public int getDelta() {
+        return delta;
+    }
+}
@@ -0,0 +1,301 @@
+package project1.COS;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The sales tax rates of the regions orders are shipped to, and the lookups that find a
+ * customer's rate.
+ * <p>
+ * Regions have hierarchical codes such as "US-CA", and a rate can be given for a region at any
+ * level. The rate for a code is the rate of the most specific region in the table that contains
+ * it, so "US-CA-SF" is taxed at the "US-CA" rate unless the city has its own; codes matching
+ * nothing are taxed at the standard rate. Each code is resolved once and its rate cached, so
+ * later lookups for the same region cost one hash lookup.
+ * <p>
+ * A customer without a region code is placed by their address. When the table is built, every
+ * region's short code and name (e.g. "CA" and "CALIFORNIA") are put in an index, and the end of
+ * the address, after any ZIP code, is looked up in it; words earlier in the address are never
+ * taken for a region, so "1 Hi St" is not placed in Hawaii. A short code is only taken when a
+ * ZIP code follows it or it stands alone after the city's comma, so "12 Oak Ct" is not placed in
+ * Connecticut. {@link Cart} keeps the resolved {@link TaxRate}, so the tax on a cart is one
+ * multiplication.
+ */
+public class TaxRates {
+
+    /** The rate used where no regional rate applies; the rate every order was charged before regions. */
+    public static final double STANDARD_RATE = 0.08;
+
+    /**
+     * The default table: the base state sales tax rates of the United States, as region code,
+     * name and rate. Local rates are not included.
+     */
+    private static final Object[][] US_STATE_RATES = {
+            {"US-AL", "Alabama", 0.04}, {"US-AK", "Alaska", 0.0}, {"US-AZ", "Arizona", 0.056},
+            {"US-AR", "Arkansas", 0.065}, {"US-CA", "California", 0.0725}, {"US-CO", "Colorado", 0.029},
+            {"US-CT", "Connecticut", 0.0635}, {"US-DE", "Delaware", 0.0}, {"US-DC", "District of Columbia", 0.06},
+            {"US-FL", "Florida", 0.06}, {"US-GA", "Georgia", 0.04}, {"US-HI", "Hawaii", 0.04},
+            {"US-ID", "Idaho", 0.06}, {"US-IL", "Illinois", 0.0625}, {"US-IN", "Indiana", 0.07},
+            {"US-IA", "Iowa", 0.06}, {"US-KS", "Kansas", 0.065}, {"US-KY", "Kentucky", 0.06},
+            {"US-LA", "Louisiana", 0.0445}, {"US-ME", "Maine", 0.055}, {"US-MD", "Maryland", 0.06},
+            {"US-MA", "Massachusetts", 0.0625}, {"US-MI", "Michigan", 0.06}, {"US-MN", "Minnesota", 0.06875},
+            {"US-MS", "Mississippi", 0.07}, {"US-MO", "Missouri", 0.04225}, {"US-MT", "Montana", 0.0},
+            {"US-NE", "Nebraska", 0.055}, {"US-NV", "Nevada", 0.0685}, {"US-NH", "New Hampshire", 0.0},
+            {"US-NJ", "New Jersey", 0.06625}, {"US-NM", "New Mexico", 0.04875}, {"US-NY", "New York", 0.04},
+            {"US-NC", "North Carolina", 0.0475}, {"US-ND", "North Dakota", 0.05}, {"US-OH", "Ohio", 0.0575},
+            {"US-OK", "Oklahoma", 0.045}, {"US-OR", "Oregon", 0.0}, {"US-PA", "Pennsylvania", 0.06},
+            {"US-RI", "Rhode Island", 0.07}, {"US-SC", "South Carolina", 0.06}, {"US-SD", "South Dakota", 0.042},
+            {"US-TN", "Tennessee", 0.07}, {"US-TX", "Texas", 0.0625}, {"US-UT", "Utah", 0.061},
+            {"US-VT", "Vermont", 0.06}, {"US-VA", "Virginia", 0.053}, {"US-WA", "Washington", 0.065},
+            {"US-WV", "West Virginia", 0.06}, {"US-WI", "Wisconsin", 0.05}, {"US-WY", "Wyoming", 0.04},
+    };
+    /** The most words in a region name, e.g. "District of Columbia". */
+    private static final int MAX_NAME_WORDS = 3;
+
+    private final Map<String, TaxRate> ratesByCode = new HashMap<>(); // The table, by upper-case code
+    private final Map<String, String> codesByName = new HashMap<>(); // The region index for addresses
+    private final Map<String, TaxRate> resolvedByCode = new ConcurrentHashMap<>(); // Upper-case code
+    private final TaxRate standardRate;
+
+    /**
+     * Constructs an empty rate table, in which every region is taxed at the standard rate.
+     *
+     * @param standardRate The rate where no regional rate applies, e.g. 0.08 for 8%.
+     */
+    public TaxRates(double standardRate) {
+        this.standardRate = new TaxRate(null, "Standard", standardRate);
+    }
+
+    /**
+     * Returns the rate table shared by the console and GUI: the standard rate of
+     * {@value #STANDARD_RATE}, and the base sales tax rate of each US state.
+     *
+     * @return The default rate table.
+     */
+    public static TaxRates getDefault() {
+        return DefaultHolder.DEFAULT;
+    }
+
+    /**
+     * Adds a region's rate to the table, and its name and the last part of its code to the
+     * region index for addresses. Regions should all be added before the table is shared.
+     *
+     * @param regionCode The region's code, e.g. "US-CA" (case-insensitive).
+     * @param name       The region's name, e.g. "California".
+     * @param rate       The region's rate, e.g. 0.0725 for 7.25%.
+     */
+    public void addRegion(String regionCode, String name, double rate) {
+        String code = key(regionCode);
+        ratesByCode.put(code, new TaxRate(code, name, rate));
+        codesByName.put(key(name), code);
+        codesByName.put(code.substring(code.lastIndexOf('-') + 1), code);
+        resolvedByCode.clear(); // Codes resolved so far may fall in the new region
+    }
+
+    /**
+     * Returns the rate used where no regional rate applies.
+     *
+     * @return The standard rate.
+     */
+    public TaxRate getStandardRate() {
+        return standardRate;
+    }
+
+    /**
+     * Returns the rate for a region: that of the most specific region in the table containing it.
+     *
+     * @param regionCode The region's code, e.g. "US-CA-SF" (case-insensitive); may be null.
+     * @return The region's rate, or the standard rate if no region in the table contains it.
+     */
+    public TaxRate getRate(String regionCode) {
+        if (regionCode == null || regionCode.isBlank()) {
+            return standardRate;
+        }
+        return resolvedByCode.computeIfAbsent(key(regionCode.trim()), this::resolve);
+    }
+
+    /**
+     * Checks whether a region code falls in a region in the table.
+     *
+     * @param regionCode The region's code, e.g. "US-CA-SF" (case-insensitive); may be null.
+     * @return true if a region in the table contains it, false if it would get the standard rate.
+     */
+    public boolean isKnownRegion(String regionCode) {
+        return getRate(regionCode) != standardRate;
+    }
+
+    /**
+     * Returns the rate for a customer's orders, from their region code if they have one and
+     * from their address otherwise.
+     *
+     * @param customer The customer.
+     * @return The customer's rate, or the standard rate if their region is not known.
+     */
+    public TaxRate getRate(Customer customer) {
+        String regionCode = customer.getRegionCode();
+        boolean hasRegionCode = regionCode != null && !regionCode.isBlank();
+        return getRate(hasRegionCode ? regionCode : findRegion(customer.getAddress()));
+    }
+
+    /**
+     * Finds the region an address is in from its last words, after any ZIP code, using the
+     * region index. A region's name may end any address, but its two-letter code only counts when
+     * a ZIP code follows it or it is the whole of the last comma-separated part, after the city;
+     * otherwise it could be a street suffix such as "Ct" or "Me".
+     *
+     * @param address The address, e.g. "1 Main St, Sacramento, CA 95814"; may be null.
+     * @return The code of the region the address ends with, or null if it ends with none.
+     */
+    public String findRegion(String address) {
+        if (address == null) {
+            return null;
+        }
+        String text = key(address).trim();
+        String[] words = text.split("[^A-Z0-9]+");
+        int end = words.length;
+        while (end > 0 && words[end - 1].matches("\\d*")) {
+            end--; // Skip the ZIP code, e.g. "95814" or "95814-1234"
+        }
+        boolean hasZip = end < words.length;
+        // Try the longest names first, so "West Virginia" is not taken for Virginia
+        for (int count = Math.min(MAX_NAME_WORDS, end); count > 0; count--) {
+            String name = String.join(" ", Arrays.copyOfRange(words, end - count, end));
+            String code = codesByName.get(name);
+            if (code != null && (!code.endsWith("-" + name) || hasZip || followsCity(text, name))) {
+                return code;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether a short region code is the whole of the last comma-separated part of an
+     * address, with the street and city before it, as in "5 Oak Ave, Portland, OR".
+     *
+     * @param address The upper-case address.
+     * @param code    The short code the address ends with, e.g. "OR".
+     * @return true if the code stands alone after the last comma, false otherwise.
+     */
+    private static boolean followsCity(String address, String code) {
+        int comma = address.lastIndexOf(',');
+        return comma > 0 && address.substring(comma + 1).replaceAll("[^A-Z0-9]+", "").equals(code);
+    }
+
+    /**
+     * Works out the rate for a region code by dropping its last part until it names a region in
+     * the table.
+     *
+     * @param code The upper-case region code.
+     * @return The rate of the most specific containing region, or the standard rate.
+     */
+    private TaxRate resolve(String code) {
+        for (String region = code; ; region = region.substring(0, region.lastIndexOf('-'))) {
+            TaxRate rate = ratesByCode.get(region);
+            if (rate != null) {
+                return rate;
+            }
+            if (region.lastIndexOf('-') < 0) {
+                return standardRate;
+            }
+        }
+    }
+
+    /**
+     * Returns the key a region code or name is looked up by.
+     *
+     * @param value The code or name.
+     * @return The value in upper case.
+     */
+    private static String key(String value) {
+        return value.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Creates the default rate table.
+     *
+     * @return The default rate table.
+     */
+    private static TaxRates createDefault() {
+        TaxRates rates = new TaxRates(STANDARD_RATE);
+        for (Object[] state : US_STATE_RATES) {
+            rates.addRegion((String) state[0], (String) state[1], (Double) state[2]);
+        }
+        return rates;
+    }
+
+    /**
+     * Holds the default rate table, which is built the first time it is used.
+     */
+    private static class DefaultHolder {
+        private static final TaxRates DEFAULT = createDefault();
+    }
+
+    /**
+     * A resolved sales tax rate and the region it belongs to.
+     */
+    public static class TaxRate {
+        private final String regionCode;
+        private final String regionName;
+        private final double rate;
+
+        /**
+         * Constructs a TaxRate.
+         *
+         * @param regionCode The region's upper-case code, or null for the standard rate.
+         * @param regionName The region's name.
+         * @param rate       The rate, e.g. 0.0725 for 7.25%.
+         */
+        private TaxRate(String regionCode, String regionName, double rate) {
+            this.regionCode = regionCode;
+            this.regionName = regionName;
+            this.rate = rate;
+        }
+
+        /**
+         * Returns the code of the region the rate belongs to.
+         * @return The region code, or null for the standard rate.
+         */
+        public String getRegionCode() {
+            return regionCode;
+        }
+
+        /**
+         * Returns the name of the region the rate belongs to.
+         * @return The region name, e.g. "California", or "Standard".
+         */
+        public String getRegionName() {
+            return regionName;
+        }
+
+        /**
+         * Returns the rate.
+         * @return The rate as a fraction, e.g. 0.0725 for 7.25%.
+         */
+        public double getRate() {
+            return rate;
+        }
+
+        /**
+         * Returns the rate as a percentage, as shown beside the taxes.
+         * @return The percentage, e.g. "7.25%".
+         */
+        public String getPercentage() {
+            return BigDecimal.valueOf(rate).movePointRight(2).stripTrailingZeros().toPlainString() + "%";
+        }
+
+        /**
+         * Returns the rate with its region, as shown beside the taxes.
+         *
+         * @return The region and percentage, e.g. "California 7.25%", or just the percentage
+         *         for the standard rate.
+         */
+        @Override
+        public String toString() {
+            return (regionCode == null) ? getPercentage() : regionName + " " + getPercentage();
+        }
+    }
+}
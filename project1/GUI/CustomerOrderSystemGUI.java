@@ -1,16 +1,32 @@
 package project1.GUI;
 
+import javafx.animation.PauseTransition;
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.event.EventHandler;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 import javafx.scene.control.Alert;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.input.InputEvent;
+import javafx.scene.layout.VBox;
+import javafx.geometry.Pos;
+import javafx.util.Duration;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import project1.GUI.GUIPanals.*;
 import project1.COS.Cart;
 import project1.COS.Customer;
 import project1.COS.CustomerStorageCreator;
+import project1.COS.FileOrderEventSink;
+import project1.COS.Inventory;
 import project1.COS.MerchCatalog;
 import project1.COS.OrderFileStorage;
+import project1.COS.TaxRates;
 
 /**
  * The main entry point for the Customer Ordering System GUI application.
@@ -23,20 +39,35 @@ import project1.COS.OrderFileStorage;
  */
 public class CustomerOrderSystemGUI extends Application {
 
+    /** Set to true to create the views not yet opened while the user is idle. */
+    private static final String PREWARM_PROPERTY = "cos.prewarmViews";
+    /** How long the user must be idle before the next view is created in advance. */
+    private static final Duration PREWARM_IDLE_TIME = Duration.seconds(2);
+
     /** The primary window (stage) for this application. */
     private Stage primaryStage;
-    /** Manages the persistence of customer data. */
-    private CustomerStorageCreator customerStorageCreator;
-    /** Manages the persistence of order data. */
-    private OrderFileStorage orderFileStorage;
-    /** Provides access to the merchandise catalog. */
-    private MerchCatalog merchCatalog;
+    /** Loads the customer, order and catalog stores in parallel at startup. */
+    private final ExecutorService storeLoader = Executors.newFixedThreadPool(3, runnable -> {
+        Thread thread = new Thread(runnable, "store-loader");
+        thread.setDaemon(true); // Loading is abandoned if the window is closed first
+        return thread;
+    });
+    /** Completes with the customer store once customers.dat has been loaded. */
+    private CompletableFuture<CustomerStorageCreator> customerStorageReady;
+    /** Completes with the order store once its indexes have been loaded. */
+    private CompletableFuture<OrderFileStorage> orderStorageReady;
+    /** Completes with the merchandise catalog once it has been loaded. */
+    private CompletableFuture<MerchCatalog> merchCatalogReady;
+    /** Completes once both the customer and order stores have been loaded. */
+    private CompletableFuture<Void> customerAndOrderStorageReady;
+    /** Shown while a store that the requested scene needs is still loading. */
+    private Scene loadingScene;
     /** Represents the current shopping cart for the user. */
     private Cart currentCart;
     /** Stores the currently logged-in customer; null if no user is logged in. */
     private Customer loggedInCustomer;
 
-    // References to view panels
+    // References to view panels; each is created the first time it is shown and then reused
     /** The view panel for user login and initial welcome options. */
     private LoginView loginView;
     /** The view panel for creating new customer accounts. */
@@ -56,8 +87,11 @@ public class CustomerOrderSystemGUI extends Application {
      * The main entry point for all JavaFX applications. The start method is called
      * after the init method has returned,
      * and after the system is ready for the application to begin running.
-     * This method sets up the primary stage, initializes backend components,
-     * initializes all GUI view panels, and displays the initial login scene.
+     * This method sets up the primary stage and starts loading the customer, order
+     * and catalog stores in parallel on background threads. The login scene is shown
+     * as soon as the customer store is ready. Views are created the first time they
+     * are shown, or in advance while the user is idle if the cos.prewarmViews system
+     * property is true.
      *
      * @param primaryStage The primary stage for this application, onto which the
      *                     application scene can be set.
@@ -69,24 +103,243 @@ public class CustomerOrderSystemGUI extends Application {
         this.primaryStage = primaryStage;
         this.primaryStage.setTitle("Customer Ordering System");
 
-        // Initialize backend components
-        customerStorageCreator = new CustomerStorageCreator();
-        orderFileStorage = new OrderFileStorage();
-        merchCatalog = new MerchCatalog();
+        // Initialize backend components in parallel; each view waits only for the stores it uses
+        customerStorageReady = CompletableFuture.supplyAsync(CustomerStorageCreator::new, storeLoader);
+        orderStorageReady = CompletableFuture.supplyAsync(() -> {
+            OrderFileStorage orderFileStorage = new OrderFileStorage();
+            orderFileStorage.getOutbox().addSink(new FileOrderEventSink("order-events.log")); // Publish order events
+            orderFileStorage.getOutbox().start();
+            orderFileStorage.getCompactor().start(); // Keep orders.dat small in the background
+            return orderFileStorage;
+        }, storeLoader);
+        merchCatalogReady = CompletableFuture.supplyAsync(() -> {
+            Inventory.getDefault(); // Loaded with the catalog, so browsing never waits for stock levels
+            return MerchCatalog.getDefault(); // Carts are priced against the catalog being browsed
+        }, storeLoader);
+        CompletableFuture.allOf(customerStorageReady, orderStorageReady, merchCatalogReady)
+                .whenComplete((ignored, error) -> storeLoader.shutdown());
+        customerAndOrderStorageReady = CompletableFuture.allOf(customerStorageReady, orderStorageReady);
         currentCart = new Cart(); // Initialize a shared cart
 
-        // Initialize all view panels, passing necessary dependencies and a reference to
-        // this main app
-        loginView = new LoginView(this, customerStorageCreator);
-        createAccountView = new CreateAccountView(this, customerStorageCreator);
-        sessionManagerView = new SessionManagerView(this);
-        merchandiseView = new MerchandiseView(this, merchCatalog, currentCart);
-        cartView = new CartView(this, currentCart);
-        checkoutView = new CheckoutView(this, currentCart, customerStorageCreator, orderFileStorage);
-        orderViewerView = new OrderViewerView(this, orderFileStorage);
+        loadingScene = createLoadingScene();
+        setScene(loadingScene);
+
+        // Set up initial scene as soon as customers can log in
+        customerStorageReady.whenCompleteAsync((customerStorageCreator, error) -> {
+            if (error != null) {
+                showStoreLoadError(error);
+                Platform.exit(); // Nobody can log in without the customer store
+                return;
+            }
+            showLoginScene();
+            if (Boolean.getBoolean(PREWARM_PROPERTY)) {
+                startPrewarming();
+            }
+        }, Platform::runLater);
+    }
 
-        // Set up initial scene
-        showLoginScene();
+    /**
+     * Returns a future that completes with the order store once it has finished loading.
+     * Callers that need orders should chain onto it rather than block the JavaFX thread.
+     *
+     * @return The order store's readiness future.
+     */
+    public CompletableFuture<OrderFileStorage> getOrderStorageReady() {
+        return orderStorageReady;
+    }
+
+    /**
+     * Returns a future that completes with the merchandise catalog once it has finished loading.
+     * Callers that need the catalog should chain onto it rather than block the JavaFX thread.
+     *
+     * @return The catalog's readiness future.
+     */
+    public CompletableFuture<MerchCatalog> getMerchCatalogReady() {
+        return merchCatalogReady;
+    }
+
+    /**
+     * Checks whether the stores a scene needs have been loaded. If not, shows the loading
+     * scene and arranges for the scene to be shown once they are.
+     *
+     * @param storesReady The future that completes once the scene's stores are loaded.
+     * @param showScene   Shows the scene; called again on the JavaFX thread once ready.
+     * @return true if the scene can be shown now, false if it will be shown later.
+     */
+    private boolean storesReady(CompletableFuture<?> storesReady, Runnable showScene) {
+        if (isLoaded(storesReady)) {
+            return true;
+        }
+        setScene(loadingScene);
+        storesReady.whenCompleteAsync((ignored, error) -> {
+            if (error != null) {
+                showStoreLoadError(error);
+                showSessionManagerScene();
+            } else if (primaryStage.getScene() == loadingScene) { // Still waiting: the user has not navigated away
+                showScene.run();
+            }
+        }, Platform::runLater);
+        return false;
+    }
+
+    /**
+     * Returns whether a store has finished loading successfully.
+     *
+     * @param storeReady The store's readiness future.
+     * @return true if the store can be used without waiting.
+     */
+    private static boolean isLoaded(CompletableFuture<?> storeReady) {
+        return storeReady.isDone() && !storeReady.isCompletedExceptionally();
+    }
+
+    // --- Lazily Created Views ---
+    // Each view is built on first use. Views that need a store are only requested once it is
+    // loaded (see storesReady), so join() returns immediately.
+
+    /**
+     * Returns the login view, creating it on first use.
+     *
+     * @return The {@link LoginView}.
+     */
+    private LoginView getLoginView() {
+        if (loginView == null) {
+            loginView = new LoginView(this, customerStorageReady.join());
+        }
+        return loginView;
+    }
+
+    /**
+     * Returns the create account view, creating it on first use.
+     *
+     * @return The {@link CreateAccountView}.
+     */
+    private CreateAccountView getCreateAccountView() {
+        if (createAccountView == null) {
+            createAccountView = new CreateAccountView(this, customerStorageReady.join());
+        }
+        return createAccountView;
+    }
+
+    /**
+     * Returns the session manager view, creating it on first use.
+     *
+     * @return The {@link SessionManagerView}.
+     */
+    private SessionManagerView getSessionManagerView() {
+        if (sessionManagerView == null) {
+            sessionManagerView = new SessionManagerView(this);
+        }
+        return sessionManagerView;
+    }
+
+    /**
+     * Returns the merchandise view, creating it on first use. The catalog must be loaded.
+     *
+     * @return The {@link MerchandiseView}.
+     */
+    private MerchandiseView getMerchandiseView() {
+        if (merchandiseView == null) {
+            merchandiseView = new MerchandiseView(this, merchCatalogReady.join(), currentCart);
+        }
+        return merchandiseView;
+    }
+
+    /**
+     * Returns the cart view, creating it on first use.
+     *
+     * @return The {@link CartView}.
+     */
+    private CartView getCartView() {
+        if (cartView == null) {
+            cartView = new CartView(this, currentCart);
+        }
+        return cartView;
+    }
+
+    /**
+     * Returns the checkout view, creating it on first use. The customer and order stores must be loaded.
+     *
+     * @return The {@link CheckoutView}.
+     */
+    private CheckoutView getCheckoutView() {
+        if (checkoutView == null) {
+            checkoutView = new CheckoutView(this, currentCart, customerStorageReady.join(), orderStorageReady.join());
+        }
+        return checkoutView;
+    }
+
+    /**
+     * Returns the order viewer view, creating it on first use. The order store must be loaded.
+     *
+     * @return The {@link OrderViewerView}.
+     */
+    private OrderViewerView getOrderViewerView() {
+        if (orderViewerView == null) {
+            orderViewerView = new OrderViewerView(this, orderStorageReady.join());
+        }
+        return orderViewerView;
+    }
+
+    /**
+     * Creates the views that have not been shown yet, one at a time, whenever the user has been
+     * idle for {@link #PREWARM_IDLE_TIME}, so that later navigation does not pause to build them.
+     * Order history is created last, as most sessions never open it.
+     */
+    private void startPrewarming() {
+        PauseTransition idleTimer = new PauseTransition(PREWARM_IDLE_TIME);
+        EventHandler<InputEvent> restartOnInput = event -> idleTimer.playFromStart();
+        primaryStage.addEventFilter(InputEvent.ANY, restartOnInput);
+        idleTimer.setOnFinished(event -> {
+            prewarmNextView();
+            if (sessionManagerView == null || merchandiseView == null || cartView == null
+                    || checkoutView == null || createAccountView == null || orderViewerView == null) {
+                idleTimer.playFromStart(); // More to create after the next idle period
+            } else {
+                primaryStage.removeEventFilter(InputEvent.ANY, restartOnInput);
+            }
+        });
+        idleTimer.play();
+    }
+
+    /**
+     * Creates the next view that has not been created yet and whose stores are loaded, if any.
+     */
+    private void prewarmNextView() {
+        if (sessionManagerView == null) {
+            getSessionManagerView();
+        } else if (merchandiseView == null && isLoaded(merchCatalogReady)) {
+            getMerchandiseView();
+        } else if (cartView == null) {
+            getCartView();
+        } else if (checkoutView == null && isLoaded(customerAndOrderStorageReady)) {
+            getCheckoutView();
+        } else if (createAccountView == null) {
+            getCreateAccountView();
+        } else if (orderViewerView == null && isLoaded(orderStorageReady)) {
+            getOrderViewerView();
+        }
+    }
+
+    /**
+     * Creates the scene shown while stores are loading.
+     *
+     * @return The loading scene.
+     */
+    private Scene createLoadingScene() {
+        VBox vbox = new VBox(15, new ProgressIndicator(), new Label("Loading..."));
+        vbox.setAlignment(Pos.CENTER);
+        return new Scene(vbox, 400, 350);
+    }
+
+    /**
+     * Tells the user that a store could not be loaded.
+     *
+     * @param error The error thrown while loading.
+     */
+    private void showStoreLoadError(Throwable error) {
+        Throwable cause = (error.getCause() != null) ? error.getCause() : error; // Unwrap CompletionException
+        System.err.println("Error loading application data: " + cause);
+        showAlert(Alert.AlertType.ERROR, "Loading Error", "Application data could not be loaded: " + cause.getMessage());
     }
 
     /**
@@ -108,10 +361,10 @@ public class CustomerOrderSystemGUI extends Application {
      */
     public void showLoginScene() {
         // Clear any previous login state
-        loggedInCustomer = null;
+        setLoggedInCustomer(null);
         currentCart.clear(); // Clear cart on returning to login
-        loginView.resetFields(); // Reset fields on login view
-        setScene(loginView.getScene());
+        getLoginView().resetFields(); // Reset fields on login view
+        setScene(getLoginView().getScene());
     }
 
     /**
@@ -120,8 +373,8 @@ public class CustomerOrderSystemGUI extends Application {
      * Resets the fields in the Create Account view before displaying.
      */
     public void showCreateAccountScene() {
-        createAccountView.resetFields();
-        setScene(createAccountView.getScene());
+        getCreateAccountView().resetFields();
+        setScene(getCreateAccountView().getScene());
     }
 
     /**
@@ -138,8 +391,8 @@ public class CustomerOrderSystemGUI extends Application {
             showLoginScene();
             return;
         }
-        sessionManagerView.setLoggedInCustomer(loggedInCustomer);
-        setScene(sessionManagerView.getScene());
+        getSessionManagerView().setLoggedInCustomer(loggedInCustomer);
+        setScene(getSessionManagerView().getScene());
     }
 
     /**
@@ -148,8 +401,11 @@ public class CustomerOrderSystemGUI extends Application {
      * Refreshes the merchandise display to ensure the latest catalog is shown.
      */
     public void showMerchandiseViewScene() {
-        merchandiseView.refreshMerchandise(); // Ensure latest catalog is displayed
-        setScene(merchandiseView.getScene());
+        if (!storesReady(merchCatalogReady, this::showMerchandiseViewScene)) {
+            return; // Shown once the catalog has loaded
+        }
+        getMerchandiseView().refreshMerchandise(); // Ensure latest catalog is displayed
+        setScene(getMerchandiseView().getScene());
     }
 
     /**
@@ -158,8 +414,8 @@ public class CustomerOrderSystemGUI extends Application {
      * Refreshes the cart display to show up-to-date items and totals.
      */
     public void showViewCartScene() {
-        cartView.updateCartDisplay(); // Refresh cart display
-        setScene(cartView.getScene());
+        getCartView().updateCartDisplay(); // Refresh cart display
+        setScene(getCartView().getScene());
     }
 
     /**
@@ -177,9 +433,12 @@ public class CustomerOrderSystemGUI extends Application {
             showMerchandiseViewScene(); // Redirect to browse if cart is empty
             return;
         }
-        checkoutView.setCustomerAndCart(loggedInCustomer, currentCart); // Pass current customer and cart
-        checkoutView.updateCheckoutDisplay(); // Refresh checkout details
-        setScene(checkoutView.getScene());
+        if (!storesReady(customerAndOrderStorageReady, this::showCheckoutScene)) {
+            return; // Shown once the order store has loaded
+        }
+        getCheckoutView().setCustomerAndCart(loggedInCustomer, currentCart); // Pass current customer and cart
+        getCheckoutView().updateCheckoutDisplay(); // Refresh checkout details
+        setScene(getCheckoutView().getScene());
     }
 
     /**
@@ -189,9 +448,12 @@ public class CustomerOrderSystemGUI extends Application {
      * display.
      */
     public void showViewOrdersScene() {
-        orderViewerView.setCustomer(loggedInCustomer); // Pass current customer
-        orderViewerView.loadAndDisplayOrders(); // Load and display orders for this customer
-        setScene(orderViewerView.getScene());
+        if (!storesReady(orderStorageReady, this::showViewOrdersScene)) {
+            return; // Shown once the order store has loaded
+        }
+        getOrderViewerView().setCustomer(loggedInCustomer); // Pass current customer
+        getOrderViewerView().loadAndDisplayOrders(); // Load and display orders for this customer
+        setScene(getOrderViewerView().getScene());
     }
 
     // --- State Management Methods (called by views to update main app state) ---
@@ -213,6 +475,7 @@ public class CustomerOrderSystemGUI extends Application {
      */
     public void setLoggedInCustomer(Customer customer) {
         this.loggedInCustomer = customer;
+        currentCart.setTaxRate((customer == null) ? null : TaxRates.getDefault().getRate(customer));
     }
 
     /**
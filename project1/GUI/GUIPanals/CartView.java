@@ -1,5 +1,11 @@
 package project1.GUI.GUIPanals;
 
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
@@ -9,14 +15,17 @@ import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.scene.control.Alert;
 import project1.COS.Cart;
+import project1.COS.DomainEvent;
+import project1.COS.DomainEventBus;
 import project1.COS.Merchandise;
+import project1.COS.Promotion;
 import project1.GUI.CustomerOrderSystemGUI;
 
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -26,6 +35,9 @@ import java.util.Map;
  * clear the cart, and proceed to checkout. It interacts with the {@link Cart}
  * backend object and the main {@link CustomerOrderSystemGUI} for scene
  * transitions and alerts.
+ * The table is patched as the cart changes: each {@link DomainEvent.CartChanged}
+ * event adds, updates or removes only the affected row, and the totals are read
+ * from the cart's running subtotal.
  */
 public class CartView {
 
@@ -38,8 +50,14 @@ public class CartView {
     private Scene scene;
     /** TableView to display the list of items in the cart. */
     private TableView<CartItemDisplay> cartTableView;
+    /** The rows of the cart table, in the order the items were added. */
+    private final ObservableList<CartItemDisplay> cartRows = FXCollections.observableArrayList();
+    /** The row showing each item, for updating a single row in place. */
+    private final Map<Merchandise, CartItemDisplay> rowsByItem = new HashMap<>();
     /** Label to display the subtotal of the cart. */
     private Label cartSubtotalLabel;
+    /** Label to display the promotions taken off the cart. */
+    private Label cartDiscountLabel;
     /** Label to display the tax amount of the cart. */
     private Label cartTaxLabel;
     /** Label to display the grand total of the cart. */
@@ -59,6 +77,12 @@ public class CartView {
         this.mainApp = mainApp;
         this.currentCart = currentCart;
         initializeUI();
+        // Patch the table and totals whenever the cart changes, wherever the change came from
+        DomainEventBus.getDefault().subscribe(DomainEvent.CartChanged.class, Platform::runLater, event -> {
+            if (event.getCart() == this.currentCart) {
+                applyCartChange(event);
+            }
+        });
     }
 
     /**
@@ -74,30 +98,31 @@ public class CartView {
         Label title = new Label("--- Your Cart ---");
         title.setStyle("-fx-font-size: 18px; -fx-font-weight: bold;");
 
-        cartTableView = new TableView<>();
+        cartTableView = new TableView<>(cartRows);
         cartTableView.setPlaceholder(new Label("Your cart is empty.")); // Message when cart is empty in table
 
         // Define table columns for displaying cart item details
         TableColumn<CartItemDisplay, String> nameCol = new TableColumn<>("Item");
-        nameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
+        nameCol.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getName()));
         nameCol.setPrefWidth(200);
 
         TableColumn<CartItemDisplay, Integer> quantityCol = new TableColumn<>("Quantity");
-        quantityCol.setCellValueFactory(new PropertyValueFactory<>("quantity"));
+        quantityCol.setCellValueFactory(cell -> cell.getValue().quantityProperty().asObject());
         quantityCol.setPrefWidth(80);
 
         TableColumn<CartItemDisplay, String> priceCol = new TableColumn<>("Price Each");
-        priceCol.setCellValueFactory(new PropertyValueFactory<>("priceEach"));
+        priceCol.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getPriceEach()));
         priceCol.setPrefWidth(100);
 
         TableColumn<CartItemDisplay, String> lineTotalCol = new TableColumn<>("Line Total");
-        lineTotalCol.setCellValueFactory(new PropertyValueFactory<>("lineTotal"));
+        lineTotalCol.setCellValueFactory(cell -> cell.getValue().lineTotalProperty());
         lineTotalCol.setPrefWidth(100);
 
         cartTableView.getColumns().addAll(nameCol, quantityCol, priceCol, lineTotalCol);
 
         // Labels for cart summary totals
         cartSubtotalLabel = new Label();
+        cartDiscountLabel = new Label();
         cartTaxLabel = new Label();
         cartTotalLabel = new Label();
         cartMessageLabel = new Label(""); // For displaying transient messages (e.g., "Cart cleared.")
@@ -118,7 +143,7 @@ public class CartView {
         buttons.setAlignment(Pos.CENTER);
 
         // Add all UI elements to the main VBox
-        vbox.getChildren().addAll(title, cartTableView, cartSubtotalLabel, cartTaxLabel, cartTotalLabel,
+        vbox.getChildren().addAll(title, cartTableView, cartSubtotalLabel, cartDiscountLabel, cartTaxLabel, cartTotalLabel,
                 cartMessageLabel, buttons);
 
         // Create the scene
@@ -140,21 +165,87 @@ public class CartView {
      * to ensure the UI reflects the most current state.
      */
     public void updateCartDisplay() {
-        ObservableList<CartItemDisplay> cartItems = FXCollections.observableArrayList();
+        refreshCartContents();
+        cartMessageLabel.setText(""); // Clear previous messages to avoid stale feedback
+    }
+
+    /**
+     * Rebuilds the cart table and the total summary labels from the cart's current
+     * contents, leaving any message shown to the user in place.
+     */
+    private void refreshCartContents() {
+        cartRows.clear();
+        rowsByItem.clear();
         for (Map.Entry<Merchandise, Integer> entry : currentCart.getItems().entrySet()) {
-            Merchandise item = entry.getKey();
-            int quantity = entry.getValue();
-            // Create CartItemDisplay objects for the TableView
-            cartItems.add(new CartItemDisplay(item.getName(), quantity, item.getCurrentPrice(),
-                    (item.getCurrentPrice() * quantity)));
+            setRowQuantity(entry.getKey(), entry.getValue());
         }
-        cartTableView.setItems(cartItems); // Update the TableView with new items
+        updateTotals();
+    }
 
-        // Update summary labels
+    /**
+     * Applies one change to the cart to the table, touching only the affected row,
+     * and updates the totals.
+     *
+     * @param event The change to the cart.
+     */
+    private void applyCartChange(DomainEvent.CartChanged event) {
+        if (event.getChange() == DomainEvent.CartChanged.Change.CLEARED) {
+            cartRows.clear();
+            rowsByItem.clear();
+        } else {
+            setRowQuantity(event.getItem(), event.getQuantity());
+        }
+        updateTotals();
+    }
+
+    /**
+     * Shows an item's quantity in its row, adding the row if the item is new and
+     * removing it if the quantity is 0.
+     *
+     * @param item     The merchandise item.
+     * @param quantity The item's quantity in the cart.
+     */
+    private void setRowQuantity(Merchandise item, int quantity) {
+        CartItemDisplay row = rowsByItem.get(item);
+        if (quantity <= 0) {
+            if (row != null) {
+                rowsByItem.remove(item);
+                cartRows.remove(row);
+            }
+        } else if (row == null) {
+            // Create a CartItemDisplay object for the TableView
+            row = new CartItemDisplay(item.getName(), quantity, item.getCurrentPrice(),
+                    (item.getCurrentPrice() * quantity));
+            rowsByItem.put(item, row);
+            cartRows.add(row);
+        } else {
+            row.setQuantity(quantity); // The table redraws just this row's cells
+        }
+    }
+
+    /**
+     * Updates the total summary labels from the cart's running totals.
+     */
+    private void updateTotals() {
         cartSubtotalLabel.setText(String.format("Subtotal: $%.2f", currentCart.getSubtotal()));
-        cartTaxLabel.setText(String.format("Taxes (8%%): $%.2f", currentCart.getTaxAmount()));
+        cartDiscountLabel.setText(describeDiscount(currentCart));
+        cartTaxLabel.setText(String.format("Taxes (%s): $%.2f", currentCart.getTaxRate(), currentCart.getTaxAmount()));
         cartTotalLabel.setText(String.format("Total: $%.2f", currentCart.getTotal()));
-        cartMessageLabel.setText(""); // Clear previous messages to avoid stale feedback
+    }
+
+    /**
+     * Describes the promotions taken off a cart, naming the cart threshold reached, if any.
+     *
+     * @param cart The cart.
+     * @return The discount as shown under the subtotal, or an empty string if there is none.
+     */
+    static String describeDiscount(Cart cart) {
+        if (cart.getDiscount() <= 0) {
+            return "";
+        }
+        Promotion orderPromotion = cart.getOrderPromotion();
+        return String.format("Promotions: -$%.2f", cart.getDiscount())
+                + ((orderPromotion == null) ? "" : " (includes " + orderPromotion.getName() + ")");
     }
 
     /**
@@ -171,14 +262,15 @@ public class CartView {
     /**
      * Helper class for formatting and displaying individual cart items in the
      * {@link TableView}.
-     * This class uses JavaFX Properties to enable data binding with
-     * {@link PropertyValueFactory}.
+     * The quantity and line total are JavaFX properties, so changing an item's
+     * quantity redraws only its own cells.
      */
     public static class CartItemDisplay {
         private final String name;
-        private final int quantity;
+        private final double unitPrice;
+        private final ReadOnlyIntegerWrapper quantity;
         private final String priceEach;
-        private final String lineTotal;
+        private final ReadOnlyStringWrapper lineTotal;
 
         /**
          * Constructs a new CartItemDisplay object.
@@ -191,9 +283,20 @@ public class CartView {
          */
         public CartItemDisplay(String name, int quantity, double priceEach, double lineTotal) {
             this.name = name;
-            this.quantity = quantity;
+            this.unitPrice = priceEach;
+            this.quantity = new ReadOnlyIntegerWrapper(quantity);
             this.priceEach = String.format("$%.2f", priceEach); // Format price as currency string
-            this.lineTotal = String.format("$%.2f", lineTotal); // Format total as currency string
+            this.lineTotal = new ReadOnlyStringWrapper(String.format("$%.2f", lineTotal)); // Format total as currency string
+        }
+
+        /**
+         * Changes the quantity shown, and the line total with it.
+         *
+         * @param quantity The new quantity of the item in the cart.
+         */
+        void setQuantity(int quantity) {
+            this.quantity.set(quantity);
+            this.lineTotal.set(String.format("$%.2f", unitPrice * quantity));
         }
 
         /**
@@ -211,7 +314,16 @@ public class CartView {
          * @return The item quantity.
          */
         public int getQuantity() {
-            return quantity;
+            return quantity.get();
+        }
+
+        /**
+         * Returns the quantity of the item as an observable property.
+         *
+         * @return The item quantity property.
+         */
+        public ReadOnlyIntegerProperty quantityProperty() {
+            return quantity.getReadOnlyProperty();
         }
 
         /**
@@ -229,7 +341,16 @@ public class CartView {
          * @return The formatted line total.
          */
         public String getLineTotal() {
-            return lineTotal;
+            return lineTotal.get();
+        }
+
+        /**
+         * Returns the total price for this line item as an observable property.
+         *
+         * @return The formatted line total property.
+         */
+        public ReadOnlyStringProperty lineTotalProperty() {
+            return lineTotal.getReadOnlyProperty();
         }
     }
 }
\ No newline at end of file
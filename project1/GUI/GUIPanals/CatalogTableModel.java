@@ -0,0 +1,175 @@
+package project1.GUI.GUIPanals;
+
+import javafx.collections.ObservableListBase;
+import project1.COS.MerchCatalog;
+import project1.COS.Merchandise;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A read-only list of the {@link MerchCatalog}'s items for a {@link javafx.scene.control.TableView},
+ * which fetches rows from the catalog a page at a time as they are displayed.
+ * <p>
+ * The TableView only asks for the rows it is drawing, so opening or scrolling a very large catalog
+ * copies a few pages rather than the whole catalog. Recently used pages are cached; the rest are
+ * fetched again when scrolled back into view. Because catalog items are only appended, a
+ * {@link #refresh()} reports the new rows at the end and leaves the cached pages valid.
+ * <p>
+ * The whole catalog can also be listed in price order; pages are then read from the catalog's
+ * price index, so the catalog is never sorted here. Because new items land anywhere in price
+ * order, such a model is replaced rather than refreshed when items are added.
+ * <p>
+ * A model can instead list a fixed set of catalog ordinals, such as search results; its rows
+ * are then read from the catalog one at a time, and {@link #refresh()} has no effect.
+ * <p>
+ * The list cannot be modified or sorted, so columns showing it must not be sortable.
+ */
+class CatalogTableModel extends ObservableListBase<Merchandise> {
+
+    /** The number of rows fetched from the catalog at a time. */
+    private static final int PAGE_SIZE = 256;
+    /** The number of pages kept in memory; enough for several screens in both directions. */
+    private static final int CACHED_PAGES = 16;
+
+    /**
+     * The orders the whole catalog can be listed in.
+     */
+    enum SortOrder {
+        /** The order items were added to the catalog. */
+        CATALOG("Catalog order"),
+        /** Cheapest first. */
+        PRICE_ASCENDING("Price: low to high"),
+        /** Most expensive first. */
+        PRICE_DESCENDING("Price: high to low");
+
+        private final String label;
+
+        /**
+         * Constructs a SortOrder.
+         *
+         * @param label The order as shown to customers.
+         */
+        SortOrder(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Returns the order as shown to customers.
+         *
+         * @return The order's label.
+         */
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private final MerchCatalog catalog;
+    private final SortOrder order; // The order the whole catalog is listed in
+    private final int[] ordinals; // The ordinals listed, or null to list the whole catalog
+    private int size;
+    // Pages by page number, least recently used first
+    private final Map<Integer, List<Merchandise>> pages = new LinkedHashMap<>(CACHED_PAGES * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Merchandise>> eldest) {
+            return size() > CACHED_PAGES;
+        }
+    };
+
+    /**
+     * Constructs a CatalogTableModel over a catalog.
+     *
+     * @param catalog The catalog whose items are listed.
+     */
+    CatalogTableModel(MerchCatalog catalog) {
+        this(catalog, SortOrder.CATALOG);
+    }
+
+    /**
+     * Constructs a CatalogTableModel over a catalog, listed in the given order.
+     *
+     * @param catalog The catalog whose items are listed.
+     * @param order   The order to list the items in.
+     */
+    CatalogTableModel(MerchCatalog catalog, SortOrder order) {
+        this.catalog = catalog;
+        this.order = order;
+        this.ordinals = null;
+        this.size = catalog.size();
+    }
+
+    /**
+     * Constructs a CatalogTableModel listing only some of a catalog's items.
+     *
+     * @param catalog  The catalog the items belong to.
+     * @param ordinals The ordinals of the items to list, in the order to list them.
+     */
+    CatalogTableModel(MerchCatalog catalog, int[] ordinals) {
+        this.catalog = catalog;
+        this.order = null;
+        this.ordinals = ordinals;
+        this.size = ordinals.length;
+    }
+
+    /**
+     * Checks whether {@link #refresh()} picks up items added to the catalog.
+     *
+     * @return true if the whole catalog is listed in catalog order.
+     */
+    boolean isRefreshable() {
+        return order == SortOrder.CATALOG;
+    }
+
+    /**
+     * Returns the item in a row, fetching its page from the catalog if it is not cached.
+     *
+     * @param index The row; when the whole catalog is listed, also the item's ordinal.
+     * @return The {@link Merchandise} item.
+     */
+    @Override
+    public Merchandise get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Row " + index + " of " + size);
+        }
+        if (ordinals != null) {
+            return catalog.getMerchandise(ordinals[index]);
+        }
+        List<Merchandise> page = pages.computeIfAbsent(index / PAGE_SIZE, pageNumber -> (order == SortOrder.CATALOG)
+                ? catalog.getMerchandisePage(pageNumber * PAGE_SIZE, PAGE_SIZE)
+                : catalog.getMerchandiseByPrice(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+                        pageNumber * PAGE_SIZE, PAGE_SIZE, order == SortOrder.PRICE_DESCENDING));
+        return page.get(index % PAGE_SIZE);
+    }
+
+    /**
+     * Returns the number of rows, as of the last {@link #refresh()}.
+     *
+     * @return The number of items in the catalog.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Picks up items added to the catalog since the last refresh, telling the table about the new rows.
+     * Must be called on the JavaFX thread.
+     */
+    void refresh() {
+        if (!isRefreshable()) {
+            return; // A fixed set of items, or an order new items may land anywhere in
+        }
+        int newSize = catalog.size();
+        if (newSize <= size) {
+            return; // Nothing added; items are never removed
+        }
+        int oldSize = size;
+        pages.remove(oldSize / PAGE_SIZE); // The last page may have been partly filled
+        size = newSize;
+        beginChange();
+        nextAdd(oldSize, newSize);
+        endChange();
+    }
+}
@@ -1,10 +1,13 @@
 package project1.GUI.GUIPanals;
 
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.RadioButton;
 import javafx.scene.control.Separator;
 import javafx.scene.control.TextField;
@@ -15,12 +18,18 @@ import project1.COS.BankSimulator;
 import project1.COS.Cart;
 import project1.COS.Customer;
 import project1.COS.CustomerStorageCreator;
+import project1.COS.DomainEvent;
+import project1.COS.DomainEventBus;
 import project1.COS.Merchandise;
 import project1.COS.OrderCreator;
 import project1.COS.OrderFileStorage;
+import project1.COS.OrderStatus;
+import project1.COS.Promotion;
 import project1.GUI.CustomerOrderSystemGUI;
 
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Represents the graphical user interface panel for the checkout process in the
@@ -31,6 +40,9 @@ import java.util.Map;
  * {@link BankSimulator},
  * and finalize their order. It interacts with various backend components and
  * the main GUI application.
+ * Orders are processed by a background {@link Task}, so the window stays
+ * responsive while customer details are saved and the card is charged; only the
+ * final result is applied on the JavaFX thread.
  */
 public class CheckoutView {
 
@@ -50,8 +62,16 @@ public class CheckoutView {
 
     /** The JavaFX scene managed by this view. */
     private Scene scene;
-    /** Label to display a summary of items in the cart before checkout. */
-    private Label checkoutCartSummaryLabel;
+    /** Holds one label per item in the cart, followed by the subtotal, discount and tax labels. */
+    private VBox checkoutCartSummaryBox;
+    /** The label showing each item's line of the cart summary, for updating one line in place. */
+    private final Map<Merchandise, Label> summaryLinesByItem = new HashMap<>();
+    /** Label to display the cart subtotal in the summary. */
+    private Label checkoutSubtotalLabel;
+    /** Label to display the promotions taken off the cart in the summary. */
+    private Label checkoutDiscountLabel;
+    /** Label to display the tax amount in the summary. */
+    private Label checkoutTaxLabel;
     /** Radio button for selecting mail delivery. */
     private RadioButton mailDeliveryRadio;
     /** Radio button for selecting in-store pickup. */
@@ -70,6 +90,23 @@ public class CheckoutView {
      * errors, warnings).
      */
     private Label checkoutMessageLabel;
+    /** Button that submits the order; disabled while an order is being processed. */
+    private Button processOrderButton;
+    /** Button that returns to the main menu; disabled while an order is being processed. */
+    private Button backButton;
+    /** Button that cancels an order being processed, until the card is about to be charged. */
+    private Button cancelOrderButton;
+    /** Shows how far the order being processed has got. */
+    private ProgressBar checkoutProgressBar;
+    /** Describes the step the order being processed is on. */
+    private Label checkoutProgressLabel;
+    /** The order being processed; null when none is. */
+    private CheckoutTask checkoutTask;
+    /**
+     * Idempotency key for the checkout currently on screen; renewed each time the
+     * checkout is displayed so that repeated submissions of one checkout place one order.
+     */
+    private String checkoutKey;
 
     /**
      * Constructs a new CheckoutView.
@@ -90,6 +127,12 @@ public class CheckoutView {
         this.customerStorageCreator = customerStorageCreator;
         this.orderFileStorage = orderFileStorage;
         initializeUI();
+        // Patch the summary and totals when the cart changes while the checkout is shown
+        DomainEventBus.getDefault().subscribe(DomainEvent.CartChanged.class, Platform::runLater, event -> {
+            if (event.getCart() == this.currentCart) {
+                applyCartChange(event);
+            }
+        });
     }
 
     /**
@@ -106,8 +149,13 @@ public class CheckoutView {
         Label title = new Label("--- Proceed to Checkout ---");
         title.setStyle("-fx-font-size: 18px; -fx-font-weight: bold;");
 
-        checkoutCartSummaryLabel = new Label();
-        checkoutCartSummaryLabel.setStyle("-fx-font-weight: bold;");
+        checkoutSubtotalLabel = new Label();
+        checkoutDiscountLabel = new Label();
+        checkoutTaxLabel = new Label();
+        checkoutCartSummaryBox = new VBox(2, new Label("Cart Summary:"), checkoutSubtotalLabel, checkoutDiscountLabel,
+                checkoutTaxLabel);
+        checkoutCartSummaryBox.setAlignment(Pos.CENTER);
+        checkoutCartSummaryBox.setStyle("-fx-font-weight: bold;");
 
         ToggleGroup deliveryGroup = new ToggleGroup();
         mailDeliveryRadio = new RadioButton(
@@ -127,24 +175,31 @@ public class CheckoutView {
         checkoutCreditCardField = new TextField();
         checkoutCreditCardField.setPromptText("Enter new credit card if needed");
 
-        Button processOrderButton = new Button("Process Order");
+        processOrderButton = new Button("Process Order");
         processOrderButton.setId("processOrderButton"); // Assign an ID for easy lookup
         processOrderButton.setOnAction(e -> handleProcessOrder());
 
+        cancelOrderButton = new Button("Cancel");
+        cancelOrderButton.setOnAction(e -> handleCancelOrder());
+        checkoutProgressBar = new ProgressBar(0);
+        checkoutProgressLabel = new Label("");
+        showProcessing(false); // Shown only while an order is being processed
+
         checkoutMessageLabel = new Label("");
         checkoutMessageLabel.setStyle("-fx-text-fill: red;");
 
-        Button backButton = new Button("Back to Main Menu");
+        backButton = new Button("Back to Main Menu");
         backButton.setOnAction(e -> mainApp.showSessionManagerScene());
 
-        vbox.getChildren().addAll(title, checkoutCartSummaryLabel,
+        vbox.getChildren().addAll(title, checkoutCartSummaryBox,
                 new Separator(),
                 new Label("Select Delivery Method:"),
                 mailDeliveryRadio, inStorePickupRadio,
                 checkoutDeliveryFeeLabel, checkoutFinalTotalLabel,
                 new Separator(),
                 creditCardLabel, checkoutCreditCardField,
-                processOrderButton, checkoutMessageLabel, backButton);
+                processOrderButton, checkoutProgressBar, checkoutProgressLabel, cancelOrderButton,
+                checkoutMessageLabel, backButton);
 
         scene = new Scene(vbox, 500, 600);
     }
@@ -180,67 +235,103 @@ public class CheckoutView {
      * status changes.
      */
     public void updateCheckoutDisplay() {
+        checkoutKey = OrderCreator.newIdempotencyKey(); // A fresh checkout gets a fresh key
         if (currentCart.isEmpty()) {
             checkoutMessageLabel.setText("Your cart is empty. Cannot proceed to checkout.");
             return;
         }
 
-        // Lookup the process order button to enable/disable it
-        Button processButton = (Button) scene.lookup("#processOrderButton");
-
         if (loggedInCustomer == null) {
             // If not logged in, disable credit card field and process button, show login
             // prompt
             checkoutCreditCardField.setDisable(true);
             checkoutCreditCardField.setText("Please log in to proceed.");
             checkoutMessageLabel.setText("You must be logged in to complete your order.");
-            if (processButton != null) {
-                processButton.setDisable(true);
-            }
+            processOrderButton.setDisable(true);
         } else {
             // If logged in, enable fields and set default credit card
             checkoutCreditCardField.setDisable(false);
             checkoutCreditCardField.setText(loggedInCustomer.getCreditCard());
             checkoutMessageLabel.setText("");
-            if (processButton != null) {
-                processButton.setDisable(false);
-            }
+            processOrderButton.setDisable(false);
         }
 
-        checkoutCartSummaryLabel.setText("Cart Summary:\n" + getCartSummaryText());
+        rebuildCartSummary();
         updateCheckoutTotals(); // Recalculate and display totals
     }
 
     /**
-     * Generates a formatted text summary of the items currently in the shopping
-     * cart.
-     *
-     * @return A {@link String} containing a detailed list of cart items, their
-     *         quantities, and prices.
+     * Rebuilds the cart summary with one line per item currently in the shopping cart.
      */
-    private String getCartSummaryText() {
-        StringBuilder sb = new StringBuilder();
+    private void rebuildCartSummary() {
+        for (Label line : summaryLinesByItem.values()) {
+            checkoutCartSummaryBox.getChildren().remove(line);
+        }
+        summaryLinesByItem.clear();
         for (Map.Entry<Merchandise, Integer> entry : currentCart.getItems().entrySet()) {
-            Merchandise item = entry.getKey();
-            int quantity = entry.getValue();
-            sb.append(String.format("%d x %s ($%.2f each) = $%.2f\n",
-                    quantity, item.getName(), item.getCurrentPrice(),
-                    (quantity * item.getCurrentPrice())));
+            setSummaryLine(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Applies one change to the cart to the summary, touching only the affected
+     * line, and updates the totals.
+     *
+     * @param event The change to the cart.
+     */
+    private void applyCartChange(DomainEvent.CartChanged event) {
+        if (event.getChange() == DomainEvent.CartChanged.Change.CLEARED) {
+            rebuildCartSummary(); // Removes every line
+        } else {
+            setSummaryLine(event.getItem(), event.getQuantity());
         }
-        sb.append(String.format("\nSubtotal: $%.2f\n", currentCart.getSubtotal()));
-        sb.append(String.format("Taxes (8%%): $%.2f\n", currentCart.getTaxAmount()));
-        return sb.toString();
+        updateCheckoutTotals();
     }
 
     /**
-     * Updates the displayed delivery fee and final total based on the selected
-     * delivery method
-     * and the current cart total.
+     * Shows an item's quantity and line total in its line of the summary, adding the
+     * line if the item is new and removing it if the quantity is 0.
+     *
+     * @param item     The merchandise item.
+     * @param quantity The item's quantity in the cart.
+     */
+    private void setSummaryLine(Merchandise item, int quantity) {
+        Label line = summaryLinesByItem.get(item);
+        if (quantity <= 0) {
+            if (line != null) {
+                summaryLinesByItem.remove(item);
+                checkoutCartSummaryBox.getChildren().remove(line);
+            }
+            return;
+        }
+        if (line == null) {
+            line = new Label();
+            summaryLinesByItem.put(item, line);
+            // Lines go after the heading and before the subtotal, discount and tax
+            checkoutCartSummaryBox.getChildren().add(checkoutCartSummaryBox.getChildren().size() - 3, line);
+        }
+        String text = String.format("%d x %s ($%.2f each) = $%.2f",
+                quantity, item.getName(), item.getCurrentPrice(),
+                (quantity * item.getCurrentPrice()));
+        Promotion promotion = currentCart.getLinePromotion(item); // A line's discount only changes with its quantity
+        if (promotion != null) {
+            text += String.format(" (%s: -$%.2f)", promotion.getName(), currentCart.getLineDiscount(item));
+        }
+        line.setText(text);
+    }
+
+    /**
+     * Updates the displayed subtotal, taxes, delivery fee and final total based on
+     * the selected delivery method and the cart's running totals.
      */
     private void updateCheckoutTotals() {
         double deliveryFee = mailDeliveryRadio.isSelected() ? OrderCreator.MAIL_DELIVERY_FEE : 0.0;
         double currentTotal = currentCart.getTotal() + deliveryFee;
 
+        checkoutSubtotalLabel.setText(String.format("Subtotal: $%.2f", currentCart.getSubtotal()));
+        checkoutDiscountLabel.setText(CartView.describeDiscount(currentCart));
+        checkoutTaxLabel.setText(String.format("Taxes (%s): $%.2f", currentCart.getTaxRate(),
+                currentCart.getTaxAmount()));
         checkoutDeliveryFeeLabel.setText(String.format("Delivery Fee: $%.2f", deliveryFee));
         checkoutFinalTotalLabel.setText(String.format("Final Total: $%.2f", currentTotal));
     }
@@ -248,11 +339,15 @@ public class CheckoutView {
     /**
      * Handles the process order action when the "Process Order" button is clicked.
      * This method performs several validations (empty cart, login status, credit
-     * card format),
-     * simulates the bank charge, and if successful, creates and saves the order,
-     * then clears the cart and navigates back to the main session menu.
+     * card format) on the JavaFX thread, then starts a {@link CheckoutTask} that
+     * saves any changed card number, simulates the bank charge, and creates and
+     * saves the order in the background. While it runs, the form is disabled so the
+     * order cannot be submitted twice and the cart cannot change.
      */
     private void handleProcessOrder() {
+        if (checkoutTask != null) {
+            return; // Already processing this order
+        }
         if (currentCart.isEmpty()) {
             checkoutMessageLabel.setText("Error: Your cart is empty.");
             return;
@@ -282,38 +377,181 @@ public class CheckoutView {
             return;
         }
 
-        // Update customer's credit card if it was changed in the field
-        if (!creditCardToUse.equals(loggedInCustomer.getCreditCard())) {
-            loggedInCustomer.setCreditCard(creditCardToUse);
-            customerStorageCreator.addCustomer(loggedInCustomer); // Save updated customer info
-        }
+        CheckoutTask task = new CheckoutTask(loggedInCustomer, creditCardToUse, finalTotal, deliveryMethod, deliveryFee);
+        task.setOnSucceeded(e -> finishCheckout(task.getValue()));
+        task.setOnCancelled(e -> {
+            endProcessing();
+            checkoutMessageLabel.setText("Checkout cancelled. Your card has not been charged.");
+        });
+        task.setOnFailed(e -> {
+            endProcessing();
+            System.err.println("Error processing order: " + task.getException());
+            checkoutMessageLabel.setText("Your order could not be processed. Please try again.");
+        });
+
+        checkoutTask = task;
+        checkoutMessageLabel.setText("");
+        checkoutProgressBar.progressProperty().bind(task.progressProperty());
+        checkoutProgressLabel.textProperty().bind(task.messageProperty());
+        showProcessing(true);
+
+        Thread thread = new Thread(task, "checkout");
+        thread.setDaemon(true); // An interrupted checkout is reconciled from the order log on restart
+        thread.start();
+    }
 
-        // Call the BankSimulator and get the ChargeResult with specific details
-        BankSimulator.ChargeResult result = BankSimulator.chargeCard(creditCardToUse, finalTotal);
+    /**
+     * Cancels the order being processed, if the card has not yet started to be charged.
+     */
+    private void handleCancelOrder() {
+        if (checkoutTask != null && !checkoutTask.cancelBeforeCharging()) {
+            checkoutMessageLabel.setText("The card is already being charged; the order can no longer be cancelled.");
+        }
+    }
 
+    /**
+     * Applies the result of a finished checkout on the JavaFX thread.
+     * If the bank approved the charge, clears the cart, confirms the order and
+     * navigates back to the main session menu; otherwise shows the denial reason or
+     * the item that is out of stock.
+     *
+     * @param result The result of submitting the order.
+     */
+    private void finishCheckout(OrderCreator.OrderResult result) {
+        endProcessing();
         if (result.isApproved()) {
-            // If bank approves, finalize the order
-            String orderId = "ORD-" + java.util.UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-            OrderCreator newOrder = new OrderCreator(
-                    orderId,
-                    loggedInCustomer.getId(),
-                    currentCart.getItems(),
-                    finalTotal,
-                    deliveryMethod,
-                    deliveryFee);
-            newOrder.setBankAuthorizationNumber(result.getAuthorizationNumber()); // Use auth number from result
-
-            orderFileStorage.addOrder(newOrder); // Save order to persistence
+            // If bank approves, the order has been finalized and saved
+            OrderCreator newOrder = result.getOrder();
             currentCart.clear(); // Clear the cart after successful order
 
             // Show confirmation alert and navigate back to main session
             mainApp.showAlert(Alert.AlertType.INFORMATION, "Order Placed",
                     "Order placed successfully!\n" + newOrder.toString());
             mainApp.showSessionManagerScene();
+        } else if (result.isOutOfStock()) {
+            checkoutMessageLabel.setText(result.getDenialReason() + ". Please update your cart. Your card was not charged.");
+        } else if (result.isNotSaved()) {
+            checkoutMessageLabel.setText(result.getDenialReason() + " Please try again later.");
         } else {
-            // Display the specific denial reason from the ChargeResult
+            // Display the specific denial reason from the OrderResult
             checkoutMessageLabel.setText(
                     "Bank charge denied: " + result.getDenialReason() + " Please try again or use a different card.");
         }
     }
+
+    /**
+     * Re-enables the form after an order has finished processing.
+     */
+    private void endProcessing() {
+        checkoutTask = null;
+        checkoutProgressBar.progressProperty().unbind();
+        checkoutProgressLabel.textProperty().unbind();
+        showProcessing(false);
+    }
+
+    /**
+     * Switches the form between accepting input and showing the progress of an order.
+     *
+     * @param processing true while an order is being processed.
+     */
+    private void showProcessing(boolean processing) {
+        processOrderButton.setDisable(processing);
+        backButton.setDisable(processing);
+        mailDeliveryRadio.setDisable(processing);
+        inStorePickupRadio.setDisable(processing);
+        checkoutCreditCardField.setDisable(processing);
+        cancelOrderButton.setDisable(!processing);
+        cancelOrderButton.setVisible(processing);
+        checkoutProgressBar.setVisible(processing);
+        checkoutProgressLabel.setVisible(processing);
+    }
+
+    /**
+     * Processes one order on a background thread: saves the customer's card number
+     * if it changed, then charges the card and saves the order through
+     * {@link OrderCreator#submitOrder}, reporting progress as it goes.
+     * It can be cancelled until the card is about to be charged; after that it always
+     * runs to completion, so the result of a charge is never lost.
+     */
+    private class CheckoutTask extends Task<OrderCreator.OrderResult> {
+        private final Customer customer;
+        private final String creditCard;
+        private final double finalTotal;
+        private final String deliveryMethod;
+        private final double deliveryFee;
+        private final String idempotencyKey;
+        /** Set once the charge has begun (or the task was cancelled); guards the point of no return. */
+        private final AtomicBoolean committed = new AtomicBoolean();
+
+        /**
+         * Constructs a CheckoutTask for the checkout currently on screen.
+         *
+         * @param customer       The customer placing the order.
+         * @param creditCard     The validated credit card number to charge.
+         * @param finalTotal     The amount to charge, including taxes and delivery fee.
+         * @param deliveryMethod The chosen delivery method.
+         * @param deliveryFee    The fee for the chosen delivery method.
+         */
+        CheckoutTask(Customer customer, String creditCard, double finalTotal, String deliveryMethod,
+                     double deliveryFee) {
+            this.customer = customer;
+            this.creditCard = creditCard;
+            this.finalTotal = finalTotal;
+            this.deliveryMethod = deliveryMethod;
+            this.deliveryFee = deliveryFee;
+            this.idempotencyKey = checkoutKey; // A retry of this checkout must reuse its key
+        }
+
+        /**
+         * Cancels the task if the card has not started to be charged.
+         *
+         * @return true if the task was cancelled, false if it is past the point of no return.
+         */
+        boolean cancelBeforeCharging() {
+            return committed.compareAndSet(false, true) && cancel(false);
+        }
+
+        @Override
+        protected OrderCreator.OrderResult call() {
+            updateProgress(0, 4);
+            // Update customer's credit card if it was changed in the field
+            if (!creditCard.equals(customer.getCreditCard())) {
+                updateMessage("Saving card details...");
+                customer.setCreditCard(creditCard);
+                customerStorageCreator.addCustomer(customer); // Save updated customer info
+            }
+            updateProgress(1, 4);
+
+            if (!committed.compareAndSet(false, true)) {
+                return null; // Cancelled before charging; the result is discarded
+            }
+            // Charge the card and save the order; reusing the checkout's key means a repeated
+            // submission returns the original order instead of charging the card again
+            updateMessage("Recording order...");
+            return OrderCreator.submitOrder(idempotencyKey, customer.getId(), currentCart, creditCard,
+                    finalTotal, deliveryMethod, deliveryFee, orderFileStorage, this::reportStatus);
+        }
+
+        /**
+         * Reports the status the order has reached.
+         *
+         * @param status The order's new status.
+         */
+        private void reportStatus(OrderStatus status) {
+            switch (status) {
+                case PENDING:
+                    updateMessage("Authorizing payment...");
+                    updateProgress(2, 4);
+                    break;
+                case AUTHORIZED:
+                    updateMessage("Saving order...");
+                    updateProgress(3, 4);
+                    break;
+                default:
+                    updateMessage("Done.");
+                    updateProgress(4, 4);
+                    break;
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -12,6 +12,7 @@ import javafx.scene.layout.GridPane;
 import javafx.scene.control.Alert;
 import project1.COS.Customer;
 import project1.COS.CustomerStorageCreator;
+import project1.COS.TaxRates;
 import project1.GUI.CustomerOrderSystemGUI;
 
 /**
@@ -41,6 +42,8 @@ public class CreateAccountView {
     private TextField newNameField;
     /** Text field for the new customer's address. */
     private TextField newAddressField;
+    /** Text field for the new customer's tax region code, which may be left empty. */
+    private TextField newRegionCodeField;
     /** Text field for the new customer's credit card number. */
     private TextField newCreditCardField;
     /** ComboBox for selecting a security question. */
@@ -111,46 +114,53 @@ public class CreateAccountView {
         GridPane.setConstraints(newAddressField, 1, 4);
         grid.getChildren().addAll(newAddressLabel, newAddressField);
 
+        Label newRegionCodeLabel = new Label("Tax Region:");
+        GridPane.setConstraints(newRegionCodeLabel, 0, 5);
+        newRegionCodeField = new TextField();
+        newRegionCodeField.setPromptText("Optional, e.g. US-CA; taken from address if empty");
+        GridPane.setConstraints(newRegionCodeField, 1, 5);
+        grid.getChildren().addAll(newRegionCodeLabel, newRegionCodeField);
+
         Label newCreditCardLabel = new Label("Credit Card #:");
-        GridPane.setConstraints(newCreditCardLabel, 0, 5);
+        GridPane.setConstraints(newCreditCardLabel, 0, 6);
         newCreditCardField = new TextField();
         newCreditCardField.setPromptText("Numbers only");
-        GridPane.setConstraints(newCreditCardField, 1, 5);
+        GridPane.setConstraints(newCreditCardField, 1, 6);
         grid.getChildren().addAll(newCreditCardLabel, newCreditCardField);
 
         Label securityQLabel = new Label("Security Question:");
-        GridPane.setConstraints(securityQLabel, 0, 6);
+        GridPane.setConstraints(securityQLabel, 0, 7);
         securityQuestionComboBox = new ComboBox<>();
         securityQuestionComboBox.getItems().addAll(
                 "What is your mother's maiden name?",
                 "What was your first pet's name?",
                 "What is your favorite book?");
         securityQuestionComboBox.setValue("What is your mother's maiden name?"); // Default
-        GridPane.setConstraints(securityQuestionComboBox, 1, 6);
+        GridPane.setConstraints(securityQuestionComboBox, 1, 7);
         grid.getChildren().addAll(securityQLabel, securityQuestionComboBox);
 
         Label securityALabel = new Label("Answer:");
-        GridPane.setConstraints(securityALabel, 0, 7);
+        GridPane.setConstraints(securityALabel, 0, 8);
         newSecurityAnswerField = new TextField();
-        GridPane.setConstraints(newSecurityAnswerField, 1, 7);
+        GridPane.setConstraints(newSecurityAnswerField, 1, 8);
         grid.getChildren().addAll(securityALabel, newSecurityAnswerField);
 
         Button createButton = new Button("Create Account");
-        GridPane.setConstraints(createButton, 1, 8);
+        GridPane.setConstraints(createButton, 1, 9);
         createButton.setOnAction(e -> handleCreateAccount());
         grid.getChildren().add(createButton);
 
         Button backButton = new Button("Back to Main Menu");
-        GridPane.setConstraints(backButton, 0, 8);
+        GridPane.setConstraints(backButton, 0, 9);
         backButton.setOnAction(e -> mainApp.showLoginScene());
         grid.getChildren().add(backButton);
 
         createAccountMessageLabel = new Label("");
         createAccountMessageLabel.setStyle("-fx-text-fill: red;");
-        GridPane.setConstraints(createAccountMessageLabel, 0, 9, 2, 1);
+        GridPane.setConstraints(createAccountMessageLabel, 0, 10, 2, 1);
         grid.getChildren().add(createAccountMessageLabel);
 
-        scene = new Scene(grid, 500, 450);
+        scene = new Scene(grid, 500, 490);
     }
 
     /**
@@ -174,6 +184,7 @@ public class CreateAccountView {
         newPasswordField.clear();
         newNameField.clear();
         newAddressField.clear();
+        newRegionCodeField.clear();
         newCreditCardField.clear();
         securityQuestionComboBox.setValue("What is your mother's maiden name?");
         newSecurityAnswerField.clear();
@@ -195,6 +206,7 @@ public class CreateAccountView {
         String password = newPasswordField.getText();
         String name = newNameField.getText();
         String address = newAddressField.getText();
+        String regionCode = newRegionCodeField.getText().trim();
         String creditCard = newCreditCardField.getText();
         String securityQuestion = securityQuestionComboBox.getValue();
         String securityAnswer = newSecurityAnswerField.getText();
@@ -220,6 +232,12 @@ public class CreateAccountView {
             return;
         }
 
+        // Validate the tax region, if one was given
+        if (!regionCode.isEmpty() && !TaxRates.getDefault().isKnownRegion(regionCode)) {
+            createAccountMessageLabel.setText("Unknown tax region. Enter a code such as US-CA, or leave it empty.");
+            return;
+        }
+
         // Validate credit card format (numbers only)
         if (!creditCard.matches("\\d+")) {
             createAccountMessageLabel.setText("Invalid credit card number. It must contain only numbers.");
@@ -228,6 +246,9 @@ public class CreateAccountView {
 
         // Create and save new customer if all validations pass
         Customer newCustomer = new Customer(id, password, name, address, creditCard, securityQuestion, securityAnswer);
+        if (!regionCode.isEmpty()) {
+            newCustomer.setRegionCode(regionCode);
+        }
         customerStorageCreator.addCustomer(newCustomer);
         createAccountMessageLabel.setText("Account created successfully!");
         mainApp.showAlert(Alert.AlertType.INFORMATION, "Account Created",
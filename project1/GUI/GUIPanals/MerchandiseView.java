@@ -1,23 +1,44 @@
 package project1.GUI.GUIPanals;
 
-import javafx.collections.FXCollections;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.geometry.Side;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.CustomMenuItem;
 import javafx.scene.control.Label;
+import javafx.scene.control.MenuButton;
+import javafx.scene.control.MenuItem;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import javafx.util.Duration;
 import javafx.scene.control.Alert;
 import project1.COS.Cart;
+import project1.COS.DomainEvent;
+import project1.COS.DomainEventBus;
+import project1.COS.Inventory;
 import project1.COS.MerchCatalog;
+import project1.COS.MerchFilter;
 import project1.COS.Merchandise;
+import project1.COS.PriceBucket;
 import project1.GUI.CustomerOrderSystemGUI;
 
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 /**
  * Represents the graphical user interface panel for browsing merchandise and
  * adding items to the shopping cart.
@@ -27,9 +48,22 @@ import project1.GUI.CustomerOrderSystemGUI;
  * {@link Cart}.
  * It interacts with the main {@link CustomerOrderSystemGUI} for scene
  * transitions and alerts.
+ * The table reads the catalog through a {@link CatalogTableModel}, which fetches
+ * only the rows being displayed, so even a very large catalog opens at once.
+ * Typing in the search field filters the table to the items whose name or
+ * description contains the words typed; the search runs on a background thread
+ * once typing pauses. Items whose ID or name starts with what was typed are also
+ * suggested in a menu under the search field; choosing one shows just that item.
+ * The table can also be narrowed to items on sale, to price ranges and to categories,
+ * with the number of items for each choice shown beside it, and listed in price order.
  */
 public class MerchandiseView {
 
+    /** How long typing must pause before a search is run. */
+    private static final Duration SEARCH_DELAY = Duration.millis(200);
+    /** The maximum number of suggestions shown under the search field. */
+    private static final int MAX_SUGGESTIONS = 8;
+
     /** A reference to the main GUI application for scene switching and alerts. */
     private CustomerOrderSystemGUI mainApp;
     /** The merchandise catalog containing all available products. */
@@ -41,6 +75,34 @@ public class MerchandiseView {
     private Scene scene;
     /** TableView to display the list of merchandise items. */
     private TableView<Merchandise> merchTableView;
+    /** The catalog-backed rows of the merchandise table, fetched a page at a time. */
+    private CatalogTableModel merchTableModel;
+    /** Text field for the words to search for; empty to show the whole catalog. */
+    private TextField searchField;
+    /** Restarted on every keystroke in the search field; runs the search when it finishes. */
+    private PauseTransition searchDelay;
+    /** The items whose ID or name starts with the text in the search field. */
+    private ContextMenu suggestionMenu;
+    /** The sale, price range and category selections applied to the table. */
+    private final MerchFilter merchFilter = new MerchFilter();
+    /** Check box for showing only items on sale. */
+    private CheckBox onSaleBox;
+    /** A check box for each price range, in the price range menu. */
+    private final Map<PriceBucket, CheckBox> priceBoxes = new EnumMap<>(PriceBucket.class);
+    /** Menu of check boxes for the categories in the catalog. */
+    private MenuButton categoryMenu;
+    /** A check box for each category, in the category menu, in alphabetical order. */
+    private final Map<String, CheckBox> categoryBoxes = new TreeMap<>();
+    /** The order the table lists items in, whichever items are shown. */
+    private CatalogTableModel.SortOrder sortOrder = CatalogTableModel.SortOrder.CATALOG;
+    /** The search currently running; null when none is. */
+    private Task<SearchResult> searchTask;
+    /** Runs searches off the JavaFX thread, one at a time. */
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "merchandise-search");
+        thread.setDaemon(true); // Searches are abandoned when the application exits
+        return thread;
+    });
     /**
      * Text field for entering the quantity of a selected item to add to the cart.
      */
@@ -65,6 +127,13 @@ public class MerchandiseView {
         this.merchCatalog = merchCatalog;
         this.currentCart = currentCart;
         initializeUI();
+        // Show merchandise added to the catalog while the view is open
+        DomainEventBus.getDefault().subscribe(DomainEvent.CatalogChanged.class, Platform::runLater, event -> {
+            if (event.getCatalog() == this.merchCatalog) {
+                runSearch(); // The new item may match the search and changes the counts
+            }
+        });
+        runSearch(); // Show the counts beside the filters
     }
 
     /**
@@ -80,28 +149,72 @@ public class MerchandiseView {
         Label title = new Label("--- Browse Merchandise ---");
         title.setStyle("-fx-font-size: 18px; -fx-font-weight: bold;");
 
-        merchTableView = new TableView<>();
+        searchField = new TextField();
+        searchField.setPromptText("Search merchandise");
+        searchDelay = new PauseTransition(SEARCH_DELAY);
+        searchDelay.setOnFinished(e -> runSearch());
+        searchField.textProperty().addListener((obs, oldVal, newVal) -> searchDelay.playFromStart());
+        suggestionMenu = new ContextMenu();
+        searchField.focusedProperty().addListener((obs, wasFocused, isFocused) -> {
+            if (!isFocused) {
+                suggestionMenu.hide();
+            }
+        });
+
+        // Filters, each showing how many items it would leave
+        onSaleBox = new CheckBox("On sale");
+        onSaleBox.setOnAction(e -> {
+            merchFilter.setOnSaleOnly(onSaleBox.isSelected());
+            runSearch();
+        });
+        MenuButton priceMenu = new MenuButton("Price");
+        for (PriceBucket bucket : PriceBucket.values()) {
+            CheckBox box = new CheckBox(bucket.getLabel());
+            box.setOnAction(e -> {
+                merchFilter.setPriceBucket(bucket, box.isSelected());
+                runSearch();
+            });
+            priceBoxes.put(bucket, box);
+            priceMenu.getItems().add(facetItem(box));
+        }
+        categoryMenu = new MenuButton("Category"); // Filled in once the counts are known
+        ComboBox<CatalogTableModel.SortOrder> sortBox = new ComboBox<>();
+        sortBox.getItems().addAll(CatalogTableModel.SortOrder.values());
+        sortBox.setValue(sortOrder);
+        sortBox.setOnAction(e -> {
+            sortOrder = sortBox.getValue();
+            runSearch();
+        });
+        HBox filterControls = new HBox(10, onSaleBox, priceMenu, categoryMenu, sortBox);
+        filterControls.setAlignment(Pos.CENTER);
+
+        merchTableModel = new CatalogTableModel(merchCatalog);
+        merchTableView = new TableView<>(merchTableModel);
         merchTableView.setPlaceholder(new Label("No merchandise available.")); // Message when table is empty
+        merchTableView.setFixedCellSize(24); // Rows need not be measured, so scrolling stays smooth
 
-        // Define table columns for displaying merchandise details
+        // Define table columns for displaying merchandise details. Values are read
+        // directly from each item, and the catalog order is kept (it cannot be sorted).
         TableColumn<Merchandise, String> idCol = new TableColumn<>("ID");
-        idCol.setCellValueFactory(new PropertyValueFactory<>("id"));
+        idCol.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getId()));
         idCol.setPrefWidth(70);
 
         TableColumn<Merchandise, String> nameCol = new TableColumn<>("Name");
-        nameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
+        nameCol.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getName()));
         nameCol.setPrefWidth(150);
 
         TableColumn<Merchandise, String> descCol = new TableColumn<>("Description");
-        descCol.setCellValueFactory(new PropertyValueFactory<>("description"));
+        descCol.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getDescription()));
         descCol.setPrefWidth(200);
 
         TableColumn<Merchandise, Double> priceCol = new TableColumn<>("Price");
-        priceCol.setCellValueFactory(new PropertyValueFactory<>("currentPrice"));
+        priceCol.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getCurrentPrice()));
         priceCol.setPrefWidth(100);
 
         merchTableView.getColumns().addAll(idCol, nameCol, descCol, priceCol);
-        // Items will be populated dynamically by refreshMerchandise()
+        for (TableColumn<Merchandise, ?> column : merchTableView.getColumns()) {
+            column.setSortable(false); // The rows come straight from the catalog, page by page
+        }
 
         // Controls for adding items to cart
         HBox addControls = new HBox(10);
@@ -121,7 +234,7 @@ public class MerchandiseView {
         backButton.setOnAction(e -> mainApp.showSessionManagerScene());
 
         // Add all UI elements to the main VBox
-        vbox.getChildren().addAll(title, merchTableView, addControls, browseMessageLabel, backButton);
+        vbox.getChildren().addAll(title, searchField, filterControls, merchTableView, addControls, browseMessageLabel, backButton);
 
         // Create the scene
         scene = new Scene(vbox, 600, 500);
@@ -138,19 +251,171 @@ public class MerchandiseView {
 
     /**
      * Refreshes the display of the merchandise table with the latest data from the
-     * catalog.
+     * catalog. Only items added since the last refresh are fetched.
      * This method also clears any previous messages and resets the quantity field
      * to its default.
      */
     public void refreshMerchandise() {
-        merchTableView.setItems(FXCollections.observableArrayList(merchCatalog.getAllMerchandise()));
+        merchTableModel.refresh();
         browseMessageLabel.setText(""); // Clear previous messages
         quantityField.setText("1"); // Reset quantity field to default
     }
 
+    /**
+     * Searches the catalog for the words in the search field and applies the selected
+     * filters on a background thread, then shows the matching items in the table and
+     * the number of items beside each filter. With no search words and no filters the
+     * whole catalog is shown. Rows are listed in the chosen order; price order is read
+     * from the catalog's price index. The items whose ID or name starts with the text are offered
+     * as suggestions. A search still running when another starts is cancelled, and
+     * results for text that has since changed are discarded.
+     */
+    private void runSearch() {
+        if (searchTask != null) {
+            searchTask.cancel();
+            searchTask = null;
+        }
+        String query = searchField.getText();
+        MerchFilter filter = merchFilter.copy(); // Later selections must not change this search
+        CatalogTableModel.SortOrder order = sortOrder;
+        if (query.isBlank()) {
+            suggestionMenu.hide();
+        }
+
+        Task<SearchResult> task = new Task<>() {
+            @Override
+            protected SearchResult call() {
+                // All are served from the catalog's indexes
+                MerchCatalog.FilterResult filtered = merchCatalog.filter(filter, query);
+                int[] matches = (query.isBlank() && filter.isEmpty()) ? null : filtered.getOrdinals();
+                if (matches != null && order != CatalogTableModel.SortOrder.CATALOG) {
+                    matches = merchCatalog.sortByPrice(matches, order == CatalogTableModel.SortOrder.PRICE_DESCENDING);
+                }
+                int[] suggestions = query.isBlank() ? new int[0] : merchCatalog.complete(query, MAX_SUGGESTIONS);
+                return new SearchResult(filtered, matches, suggestions);
+            }
+        };
+        task.setOnSucceeded(e -> {
+            if (task != searchTask || !query.equals(searchField.getText())) {
+                return; // Superseded by a newer search
+            }
+            searchTask = null;
+            SearchResult result = task.getValue();
+            showFacetCounts(result.filtered);
+            if (!query.isBlank()) {
+                showSuggestions(result.suggestions);
+            }
+            if (result.matches == null) { // Nothing to narrow by, so show the whole catalog
+                if (merchTableModel.isRefreshable() && order == CatalogTableModel.SortOrder.CATALOG) {
+                    merchTableModel.refresh(); // Keeps the scroll position
+                } else {
+                    showRows(new CatalogTableModel(merchCatalog, order)); // Pages are read in that order
+                }
+                browseMessageLabel.setText("");
+                return;
+            }
+            showRows(new CatalogTableModel(merchCatalog, result.matches));
+            if (result.matches.length > 0) {
+                browseMessageLabel.setText(result.matches.length + " item(s) found.");
+            } else if (query.isBlank()) {
+                browseMessageLabel.setText("No merchandise matches the selected filters.");
+            } else {
+                browseMessageLabel.setText("No merchandise matches \"" + query.trim() + "\""
+                        + (filter.isEmpty() ? "." : " with the selected filters."));
+            }
+        });
+        task.setOnFailed(e -> System.err.println("Error searching merchandise: " + task.getException()));
+        searchTask = task;
+        searchExecutor.execute(task);
+    }
+
+    /**
+     * Shows beside each filter how many items it would leave, adding any new
+     * categories to the category menu.
+     *
+     * @param filtered The counts from the latest search.
+     */
+    private void showFacetCounts(MerchCatalog.FilterResult filtered) {
+        onSaleBox.setText("On sale (" + filtered.getOnSaleCount() + ")");
+        for (Map.Entry<PriceBucket, Integer> entry : filtered.getPriceBucketCounts().entrySet()) {
+            priceBoxes.get(entry.getKey()).setText(entry.getKey().getLabel() + " (" + entry.getValue() + ")");
+        }
+        boolean newCategory = false;
+        for (Map.Entry<String, Integer> entry : filtered.getCategoryCounts().entrySet()) {
+            String category = entry.getKey();
+            CheckBox box = categoryBoxes.get(category);
+            if (box == null) {
+                CheckBox categoryBox = new CheckBox();
+                categoryBox.setOnAction(e -> {
+                    merchFilter.setCategory(category, categoryBox.isSelected());
+                    runSearch();
+                });
+                categoryBoxes.put(category, categoryBox);
+                box = categoryBox;
+                newCategory = true;
+            }
+            box.setText(category + " (" + entry.getValue() + ")");
+        }
+        if (newCategory) { // Rebuild the menu to keep it in alphabetical order
+            categoryMenu.getItems().clear();
+            for (CheckBox box : categoryBoxes.values()) {
+                categoryMenu.getItems().add(facetItem(box));
+            }
+        }
+    }
+
+    /**
+     * Wraps a filter check box as a menu item that stays open when clicked, so several
+     * values can be chosen at once.
+     *
+     * @param box The check box.
+     * @return The menu item.
+     */
+    private static CustomMenuItem facetItem(CheckBox box) {
+        CustomMenuItem item = new CustomMenuItem(box);
+        item.setHideOnClick(false);
+        return item;
+    }
+
+    /**
+     * Shows suggested items in a menu under the search field while it has focus.
+     * Choosing a suggestion shows only that item in the table, selected.
+     *
+     * @param ordinals The ordinals of the suggested items; the menu is hidden if empty.
+     */
+    private void showSuggestions(int[] ordinals) {
+        suggestionMenu.getItems().clear();
+        for (int ordinal : ordinals) {
+            Merchandise item = merchCatalog.getMerchandise(ordinal);
+            MenuItem suggestion = new MenuItem(item.getId() + " - " + item.getName());
+            suggestion.setOnAction(e -> {
+                showRows(new CatalogTableModel(merchCatalog, new int[] { ordinal }));
+                merchTableView.getSelectionModel().select(0);
+                browseMessageLabel.setText(item.getName() + " selected.");
+            });
+            suggestionMenu.getItems().add(suggestion);
+        }
+        if (ordinals.length == 0 || !searchField.isFocused()) {
+            suggestionMenu.hide();
+        } else if (!suggestionMenu.isShowing()) {
+            suggestionMenu.show(searchField, Side.BOTTOM, 0, 0);
+        }
+    }
+
+    /**
+     * Replaces the rows shown in the merchandise table.
+     *
+     * @param model The rows to show.
+     */
+    private void showRows(CatalogTableModel model) {
+        merchTableModel = model;
+        merchTableView.setItems(model);
+    }
+
     /**
      * Handles the action of adding a selected merchandise item to the cart.
-     * This method performs validation for item selection and quantity input.
+     * This method performs validation for item selection and quantity input,
+     * and checks that enough of the item is in stock.
      * If valid, it adds the specified quantity of the item to the {@link Cart}
      * and provides feedback to the user.
      */
@@ -173,9 +438,45 @@ public class MerchandiseView {
             return;
         }
 
+        // Stock is only reserved at checkout, but warn now rather than then
+        int available = Inventory.getDefault().getAvailable(selectedMerchandise.getId());
+        if (currentCart.getQuantity(selectedMerchandise) + quantity > available) {
+            browseMessageLabel.setText((available == 0) ? selectedMerchandise.getName() + " is out of stock."
+                    : "Only " + available + " of " + selectedMerchandise.getName() + " left in stock.");
+            return;
+        }
+
         // Add item to the cart and confirm
         currentCart.addItem(selectedMerchandise, quantity);
         browseMessageLabel.setText(quantity + "x " + selectedMerchandise.getName() + " added to cart.");
         quantityField.setText("1"); // Reset quantity field after successful addition
     }
+
+    /**
+     * What a background search found for the text in the search field and the selected filters.
+     */
+    private static class SearchResult {
+        /** The filtered items and the counts for each filter. */
+        private final MerchCatalog.FilterResult filtered;
+        /**
+         * The ordinals of the items that contain the words and pass the filters, in the
+         * chosen order; null if there are no words or filters, and so the whole catalog is shown.
+         */
+        private final int[] matches;
+        /** The ordinals of the items whose ID or name starts with the text. */
+        private final int[] suggestions;
+
+        /**
+         * Constructs a SearchResult.
+         *
+         * @param filtered    The filtered items and counts.
+         * @param matches     The ordinals of the matching items, or null for the whole catalog.
+         * @param suggestions The ordinals of the suggested items.
+         */
+        SearchResult(MerchCatalog.FilterResult filtered, int[] matches, int[] suggestions) {
+            this.filtered = filtered;
+            this.matches = matches;
+            this.suggestions = suggestions;
+        }
+    }
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 package project1.GUI.GUIPanals;
 
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -11,12 +13,17 @@ import javafx.scene.control.TextArea;
 import javafx.scene.layout.VBox;
 import javafx.scene.control.Alert;
 import project1.COS.Customer;
+import project1.COS.DomainEvent;
+import project1.COS.DomainEventBus;
 import project1.COS.OrderCreator;
 import project1.COS.OrderFileStorage;
+import project1.COS.OrderPage;
 import project1.GUI.CustomerOrderSystemGUI;
 
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Represents the graphical user interface panel for viewing a customer's past
@@ -24,11 +31,17 @@ import java.util.Comparator;
  * This view displays a list of orders associated with the logged-in customer,
  * allows selection of an order to view its details, and provides navigation
  * back to the main menu.
+ * The history is read on a background thread a page at a time, and each page is
+ * added to the list as soon as it arrives, so the view stays responsive for
+ * customers with very long histories.
  * It interacts with {@link OrderFileStorage} to retrieve order data and with
  * the main {@link CustomerOrderSystemGUI} for scene transitions.
  */
 public class OrderViewerView {
 
+    /** The number of orders fetched and added to the list at a time. */
+    private static final int PAGE_SIZE = 20;
+
     /** A reference to the main GUI application for scene switching and alerts. */
     private CustomerOrderSystemGUI mainApp;
     /** Manages the persistence and retrieval of order data. */
@@ -56,6 +69,13 @@ public class OrderViewerView {
      * customer's ID.
      */
     private Label titleLabel;
+    /** The background task loading the current customer's history; null when none is running. */
+    private Task<Void> historyLoader;
+    /**
+     * The IDs of the orders in the list. Orders are matched by ID, since the same order may be
+     * read from the log again as a different object.
+     */
+    private final Set<String> shownOrderIds = new HashSet<>();
 
     /**
      * Constructs a new OrderViewerView.
@@ -70,6 +90,12 @@ public class OrderViewerView {
         this.mainApp = mainApp;
         this.orderFileStorage = orderFileStorage;
         initializeUI();
+        // Show newly placed orders at the top of the list without reloading the history
+        DomainEventBus.getDefault().subscribe(DomainEvent.OrderPlaced.class, Platform::runLater,
+                event -> addPlacedOrder(event.getOrder()));
+        // Redraw orders that are cancelled or refunded while they are shown
+        DomainEventBus.getDefault().subscribe(DomainEvent.OrderUpdated.class, Platform::runLater,
+                event -> refreshOrder(event.getOrder()));
     }
 
     /**
@@ -87,6 +113,14 @@ public class OrderViewerView {
         titleLabel.setStyle("-fx-font-size: 18px; -fx-font-weight: bold;");
 
         ordersListView = new ListView<>();
+        // Display the selected order's details; registered once, as the list is reused for every load
+        ordersListView.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
+            if (newVal != null) {
+                orderDetailsTextArea.setText(newVal.toString());
+            } else {
+                orderDetailsTextArea.clear();
+            }
+        });
         orderDetailsTextArea = new TextArea();
         orderDetailsTextArea.setEditable(false); // Make text area read-only
         orderDetailsTextArea.setWrapText(true); // Enable text wrapping
@@ -96,10 +130,13 @@ public class OrderViewerView {
         viewOrdersMessageLabel.setStyle("-fx-text-fill: blue;");
 
         Button backButton = new Button("Back to Main Menu");
-        backButton.setOnAction(e -> mainApp.showSessionManagerScene());
+        backButton.setOnAction(e -> {
+            cancelHistoryLoader(); // No need to keep reading a history nobody is looking at
+            mainApp.showSessionManagerScene();
+        });
 
-        vbox.getChildren().addAll(titleLabel, viewOrdersMessageLabel, ordersListView, new Label("Order Details:"),
-                orderDetailsTextArea, backButton);
+        vbox.getChildren().addAll(titleLabel, viewOrdersMessageLabel, ordersListView,
+                new Label("Order Details:"), orderDetailsTextArea, backButton);
 
         scene = new Scene(vbox, 600, 600);
     }
@@ -127,54 +164,141 @@ public class OrderViewerView {
     }
 
     /**
-     * Loads and displays the past orders for the currently set {@link Customer}.
-     * Orders are retrieved from {@link OrderFileStorage}, filtered by customer ID,
-     * sorted by date (most recent first), and then displayed in the
-     * {@link ListView}.
+     * Loads and displays the past orders of the currently set {@link Customer}.
+     * Orders are read from {@link OrderFileStorage} one page at a time, most recent
+     * first, by a background {@link Task}; each page is appended to the
+     * {@link ListView} as it arrives, and the first order is selected as soon as it
+     * is shown. Any load still running for a previous call is cancelled.
      * An appropriate message is displayed if no orders are found or if no customer
      * is logged in.
      */
     public void loadAndDisplayOrders() {
+        cancelHistoryLoader();
+        ordersListView.setItems(FXCollections.observableArrayList());
+        shownOrderIds.clear();
+        orderDetailsTextArea.clear();
+
         if (loggedInCustomer == null) {
             viewOrdersMessageLabel.setText("No customer logged in to view orders.");
-            ordersListView.setItems(FXCollections.emptyObservableList());
-            orderDetailsTextArea.clear();
             return;
         }
 
-        ArrayList<OrderCreator> allOrders = orderFileStorage.getAllOrders();
-        ArrayList<OrderCreator> customerOrders = new ArrayList<>();
-        // Filter orders to only include those belonging to the logged-in customer
-        for (OrderCreator order : allOrders) {
-            if (order.getCustomerId().equals(loggedInCustomer.getId())) {
-                customerOrders.add(order);
+        String customerId = loggedInCustomer.getId();
+        Task<Void> loader = new Task<>() {
+            @Override
+            protected Void call() {
+                String cursor = null;
+                do {
+                    OrderPage page = orderFileStorage.getOrderHistoryPage(customerId, PAGE_SIZE, cursor);
+                    Platform.runLater(() -> showPage(this, page));
+                    cursor = page.getNextCursor();
+                } while (cursor != null && !isCancelled());
+                return null;
+            }
+        };
+        loader.setOnSucceeded(e -> {
+            if (loader != historyLoader) {
+                return; // Finished just as a newer load replaced it
             }
+            // A newly placed order may have been added while loading, so check the list itself
+            viewOrdersMessageLabel.setText(ordersListView.getItems().isEmpty()
+                    ? "No past orders found for this customer." : "");
+        });
+        loader.setOnFailed(e -> {
+            System.err.println("Error loading order history: " + loader.getException());
+            if (loader == historyLoader) {
+                viewOrdersMessageLabel.setText("Order history could not be loaded.");
+            }
+        });
+        historyLoader = loader;
+        viewOrdersMessageLabel.setText("Loading orders...");
+
+        Thread thread = new Thread(loader, "order-history-loader");
+        thread.setDaemon(true); // Abandoned if the application exits
+        thread.start();
+    }
+
+    /**
+     * Appends a page of orders read by a history loader to the {@link ListView}.
+     * Pages from a loader that has since been cancelled or replaced are ignored.
+     *
+     * @param loader The loader that read the page.
+     * @param page   The page to append.
+     */
+    private void showPage(Task<Void> loader, OrderPage page) {
+        if (loader != historyLoader || loader.isCancelled()) {
+            return;
+        }
+        boolean first = ordersListView.getItems().isEmpty();
+        List<OrderCreator> newOrders = new ArrayList<>(page.getOrders().size());
+        for (OrderCreator order : page.getOrders()) {
+            if (shownOrderIds.add(order.getOrderId())) { // Skip an order placed, and shown, during the load
+                newOrders.add(order);
+            }
+        }
+        ordersListView.getItems().addAll(newOrders);
+        if (first && !newOrders.isEmpty()) {
+            // Automatically select the first order, to display its details immediately
+            ordersListView.getSelectionModel().selectFirst();
+        }
+    }
+
+    /**
+     * Cancels the history loader, if one is running.
+     */
+    private void cancelHistoryLoader() {
+        if (historyLoader != null) {
+            historyLoader.cancel();
+            historyLoader = null;
         }
-        // Sort customer's orders by date in reverse chronological order (most recent
-        // first)
-        customerOrders.sort(Comparator.comparing(OrderCreator::getOrderDate).reversed());
-
-        if (customerOrders.isEmpty()) {
-            viewOrdersMessageLabel.setText("No past orders found for this customer.");
-            ordersListView.setItems(FXCollections.emptyObservableList());
-            orderDetailsTextArea.clear();
-        } else {
-            viewOrdersMessageLabel.setText(""); // Clear message if orders are found
-            ordersListView.setItems(FXCollections.observableArrayList(customerOrders));
-            // Add a listener to display order details in the TextArea when an item is
-            // selected in the ListView
-            ordersListView.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
-                if (newVal != null) {
-                    orderDetailsTextArea.setText(newVal.toString());
-                } else {
-                    orderDetailsTextArea.clear();
-                }
-            });
-            // Automatically select the first order if available, to display its details
-            // immediately
-            if (!customerOrders.isEmpty()) {
-                ordersListView.getSelectionModel().selectFirst();
+    }
+
+    /**
+     * Adds a newly placed order to the top of the list if it belongs to the customer
+     * whose orders are being viewed.
+     *
+     * @param order The order that was placed.
+     */
+    private void addPlacedOrder(OrderCreator order) {
+        if (loggedInCustomer == null || !order.getCustomerId().equals(loggedInCustomer.getId())
+                || !shownOrderIds.add(order.getOrderId())) { // Already shown by a reload
+            return;
+        }
+        viewOrdersMessageLabel.setText(""); // The "no past orders" message no longer applies
+        ordersListView.getItems().add(0, order);
+    }
+
+    /**
+     * Redraws an order that has been cancelled or refunded, if it is in the list, and its
+     * details if it is the selected order.
+     *
+     * @param order The order that changed.
+     */
+    private void refreshOrder(OrderCreator order) {
+        int index = shownOrderIds.contains(order.getOrderId()) ? indexOf(order.getOrderId()) : -1;
+        if (index < 0) {
+            return;
+        }
+        boolean selected = ordersListView.getSelectionModel().getSelectedIndex() == index;
+        ordersListView.getItems().set(index, order); // Replacing the item makes its cell redraw
+        if (selected) {
+            ordersListView.getSelectionModel().select(index);
+            orderDetailsTextArea.setText(order.toString());
+        }
+    }
+
+    /**
+     * Finds an order's row in the list by its ID.
+     *
+     * @param orderId The order's ID.
+     * @return The order's index in the list, or -1 if it is not shown.
+     */
+    private int indexOf(String orderId) {
+        for (int i = 0; i < ordersListView.getItems().size(); i++) {
+            if (ordersListView.getItems().get(i).getOrderId().equals(orderId)) {
+                return i;
             }
         }
+        return -1;
     }
 }
\ No newline at end of file
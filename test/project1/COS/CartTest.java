@@ -0,0 +1,116 @@
+package project1.COS;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for the change events and running subtotal of {@link Cart}: each change publishes one
+ * event naming the line and its new quantity, so replaying the events rebuilds the cart, and the
+ * subtotal always matches the items.
+ * <p>
+ * Run with {@code java project1.COS.CartTest}; exits with status 1 if a check fails.
+ */
+public class CartTest {
+
+    private static final MerchCatalog CATALOG = new MerchCatalog();
+    private static final Merchandise LAPTOP = CATALOG.getMerchandiseById("M001");
+    private static final Merchandise KEYBOARD = CATALOG.getMerchandiseById("M002");
+    private static final Merchandise MOUSE = CATALOG.getMerchandiseById("M003");
+
+    private static int failures;
+
+    public static void main(String[] args) {
+        testEvents();
+        testSubtotal();
+        finish("CartTest");
+    }
+
+    /**
+     * Checks the kind, item and quantity of the event published for each change.
+     */
+    private static void testEvents() {
+        Cart cart = new Cart();
+        List<DomainEvent.CartChanged> events = new ArrayList<>();
+        DomainEventBus.Subscription subscription = DomainEventBus.getDefault().subscribe(
+                DomainEvent.CartChanged.class, Runnable::run, event -> {
+                    if (event.getCart() == cart) {
+                        events.add(event);
+                    }
+                });
+        cart.addItem(MOUSE, 2);
+        cart.addItem(MOUSE, 1);
+        cart.addItem(KEYBOARD, 1);
+        cart.addItem(KEYBOARD, 0); // No change, so no event
+        cart.removeItem(MOUSE, 1);
+        cart.removeItem(KEYBOARD, 5);
+        cart.clear();
+        subscription.cancel();
+
+        check(events.size() == 6, "one event for each change, not " + events.size());
+        checkEvent(events, 0, DomainEvent.CartChanged.Change.ITEM_ADDED, MOUSE, 2);
+        checkEvent(events, 1, DomainEvent.CartChanged.Change.QUANTITY_CHANGED, MOUSE, 3);
+        checkEvent(events, 2, DomainEvent.CartChanged.Change.ITEM_ADDED, KEYBOARD, 1);
+        checkEvent(events, 3, DomainEvent.CartChanged.Change.QUANTITY_CHANGED, MOUSE, 2);
+        checkEvent(events, 4, DomainEvent.CartChanged.Change.ITEM_REMOVED, KEYBOARD, 0);
+        checkEvent(events, 5, DomainEvent.CartChanged.Change.CLEARED, null, 0);
+    }
+
+    /**
+     * Checks that the running subtotal matches the items after every change, and is exactly zero
+     * once the cart is empty again.
+     */
+    private static void testSubtotal() {
+        Cart cart = new Cart();
+        for (int i = 0; i < 100; i++) {
+            cart.addItem(MOUSE, 3);
+            cart.addItem(LAPTOP, 1);
+            cart.removeItem(MOUSE, 2);
+            check(Math.abs(cart.getSubtotal() - scanSubtotal(cart)) < 1e-6, "the subtotal matches the items");
+        }
+        cart.removeItem(MOUSE, 1000);
+        cart.removeItem(LAPTOP, 1000);
+        check(cart.isEmpty() && cart.getSubtotal() == 0.0, "an emptied cart has a subtotal of exactly zero");
+        cart.addItem(KEYBOARD, 2);
+        cart.clear();
+        check(cart.getSubtotal() == 0.0 && cart.getQuantity(KEYBOARD) == 0, "a cleared cart is empty");
+    }
+
+    /**
+     * Adds up the cart's items at their current prices.
+     *
+     * @param cart The cart.
+     * @return The subtotal.
+     */
+    private static double scanSubtotal(Cart cart) {
+        double subtotal = 0.0;
+        for (Map.Entry<Merchandise, Integer> line : cart.getItems().entrySet()) {
+            subtotal += line.getKey().getCurrentPrice() * line.getValue();
+        }
+        return subtotal;
+    }
+
+    private static void checkEvent(List<DomainEvent.CartChanged> events, int index,
+                                   DomainEvent.CartChanged.Change change, Merchandise item, int quantity) {
+        if (index >= events.size()) {
+            check(false, "event " + index + " was published");
+            return;
+        }
+        DomainEvent.CartChanged event = events.get(index);
+        check(event.getChange() == change && event.getItem() == item && event.getQuantity() == quantity,
+                "event " + index + " is " + change + " with quantity " + quantity + ", not " + event.getChange()
+                        + " with quantity " + event.getQuantity());
+    }
+
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            failures++;
+            System.err.println("FAILED: " + description);
+        }
+    }
+
+    private static void finish(String name) {
+        System.out.println(name + ": " + (failures == 0 ? "all checks passed" : failures + " check(s) failed"));
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,192 @@
+package project1.COS;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link DomainEventBus}: subscribers get the events of their type in the order they
+ * were published, a slow or failing subscriber does not hold up the others, cancelled
+ * subscribers get nothing more, and the order store publishes its changes once they are saved.
+ * <p>
+ * Run with {@code java project1.COS.DomainEventBusTest}; exits with status 1 if a check fails.
+ * Files are written to a temporary directory.
+ */
+public class DomainEventBusTest {
+
+    private static final long DELIVERY_TIMEOUT_MILLIS = 5000;
+
+    private static int failures;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        testOrderAndTypes();
+        testSlowSubscriber();
+        testCancel();
+        testOrderStore(Files.createTempDirectory("event-bus-test"));
+        finish("DomainEventBusTest");
+    }
+
+    /**
+     * Checks that each subscriber gets only the events of its type and its subclasses, in the
+     * order they were published, and that a handler throwing does not stop later events.
+     *
+     * @throws InterruptedException If interrupted while waiting for delivery.
+     */
+    private static void testOrderAndTypes() throws InterruptedException {
+        DomainEventBus bus = new DomainEventBus();
+        List<DomainEvent> all = new CopyOnWriteArrayList<>();
+        List<Integer> quantities = new CopyOnWriteArrayList<>();
+        DomainEventBus.Subscription everything = bus.subscribe(DomainEvent.class, all::add);
+        DomainEventBus.Subscription carts = bus.subscribe(DomainEvent.CartChanged.class, event -> {
+            if (event.getQuantity() == 3) {
+                throw new IllegalStateException("Handler failed"); // Reported, and delivery carries on
+            }
+            quantities.add(event.getQuantity());
+        });
+
+        List<Integer> published = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            bus.publish(new DomainEvent.CartChanged(null, DomainEvent.CartChanged.Change.QUANTITY_CHANGED, null, i));
+            if (i != 3) {
+                published.add(i);
+            }
+        }
+        bus.publish(new DomainEvent.CatalogChanged(null));
+        awaitSize(all, 101);
+        awaitSize(quantities, 99);
+        everything.cancel();
+        carts.cancel();
+
+        check(all.size() == 101 && all.get(100) instanceof DomainEvent.CatalogChanged,
+                "a subscriber to every event gets every event");
+        check(quantities.equals(published), "events are delivered in the order they were published");
+    }
+
+    /**
+     * Checks that a subscriber blocked in its handler does not delay publishing or the other
+     * subscribers.
+     *
+     * @throws InterruptedException If interrupted while waiting for delivery.
+     */
+    private static void testSlowSubscriber() throws InterruptedException {
+        DomainEventBus bus = new DomainEventBus();
+        CountDownLatch release = new CountDownLatch(1);
+        List<DomainEvent> fast = new CopyOnWriteArrayList<>();
+        DomainEventBus.Subscription slow = bus.subscribe(DomainEvent.class, event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        DomainEventBus.Subscription quick = bus.subscribe(DomainEvent.class, fast::add);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            bus.publish(new DomainEvent.CatalogChanged(null));
+        }
+        check(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1), "publishing does not wait for handlers");
+        awaitSize(fast, 10);
+        check(fast.size() == 10, "a fast subscriber is not held up by a slow one");
+        release.countDown();
+        slow.cancel();
+        quick.cancel();
+    }
+
+    /**
+     * Checks that a cancelled subscriber gets no more events, on an executor it supplied.
+     *
+     * @throws InterruptedException If interrupted while waiting for delivery.
+     */
+    private static void testCancel() throws InterruptedException {
+        DomainEventBus bus = new DomainEventBus();
+        List<DomainEvent> received = new CopyOnWriteArrayList<>();
+        DomainEventBus.Subscription subscription = bus.subscribe(DomainEvent.class, Runnable::run, received::add);
+        bus.publish(new DomainEvent.CatalogChanged(null));
+        check(received.size() == 1, "an event is delivered on the subscriber's executor");
+        subscription.cancel();
+        bus.publish(new DomainEvent.CatalogChanged(null));
+        TimeUnit.MILLISECONDS.sleep(50);
+        check(received.size() == 1, "a cancelled subscriber gets no more events");
+    }
+
+    /**
+     * Checks that the order store publishes a placed order once it is complete, and an update when
+     * it is cancelled, but nothing for a checkout that failed.
+     *
+     * @param directory The directory to keep the order store in.
+     * @throws InterruptedException If interrupted while waiting for delivery.
+     */
+    private static void testOrderStore(Path directory) throws InterruptedException {
+        List<DomainEvent> received = new CopyOnWriteArrayList<>();
+        DomainEventBus.Subscription placed = DomainEventBus.getDefault().subscribe(DomainEvent.OrderPlaced.class,
+                received::add);
+        DomainEventBus.Subscription updated = DomainEventBus.getDefault().subscribe(DomainEvent.OrderUpdated.class,
+                received::add);
+        OrderFileStorage store = new OrderFileStorage(directory);
+        Merchandise mouse = MerchCatalog.getDefault().getMerchandiseById("M003");
+
+        check(store.addOrder(newOrder("ORD-FAILED", mouse)), "start a checkout");
+        check(store.updateStatus("ORD-FAILED", OrderStatus.FAILED, null, "Card declined"), "fail the checkout");
+        check(store.addOrder(newOrder("ORD-A", mouse)), "add an order");
+        check(store.updateStatus("ORD-A", OrderStatus.AUTHORIZED, "AUTH-A", null), "authorize the order");
+        TimeUnit.MILLISECONDS.sleep(50);
+        check(received.isEmpty(), "nothing is published before an order is complete");
+
+        check(store.updateStatus("ORD-A", OrderStatus.PERSISTED, null, null), "complete the order");
+        awaitSize(received, 1);
+        check(store.cancelOrder("ORD-A", "Changed my mind"), "cancel the order");
+        awaitSize(received, 2);
+        placed.cancel();
+        updated.cancel();
+
+        check(received.size() == 2 && received.get(0) instanceof DomainEvent.OrderPlaced
+                && "ORD-A".equals(((DomainEvent.OrderPlaced) received.get(0)).getOrder().getOrderId()),
+                "the completed order is published as placed");
+        check(received.size() == 2 && received.get(1) instanceof DomainEvent.OrderUpdated,
+                "the cancelled order is published as updated");
+    }
+
+    /**
+     * Creates a pending order for one mouse.
+     *
+     * @param orderId The ID to give the order.
+     * @param mouse   The mouse from the catalog.
+     * @return The order.
+     */
+    private static OrderCreator newOrder(String orderId, Merchandise mouse) {
+        return new OrderCreator(orderId, "C1", Collections.singletonMap(mouse, 1), 25.00, "In-store Pickup", 0.0);
+    }
+
+    /**
+     * Waits until the list holds the given number of events, or the timeout passes.
+     *
+     * @param received The events received so far.
+     * @param count    The number of events expected.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private static void awaitSize(List<?> received, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + DELIVERY_TIMEOUT_MILLIS;
+        while (received.size() < count && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            failures++;
+            System.err.println("FAILED: " + description);
+        }
+    }
+
+    private static void finish(String name) {
+        System.out.println(name + ": " + (failures == 0 ? "all checks passed" : failures + " check(s) failed"));
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
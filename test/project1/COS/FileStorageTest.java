@@ -0,0 +1,104 @@
+package project1.COS;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Tests for {@link FileStorage}: reading and appending records, and recovering from a torn or
+ * corrupt tail left by an interrupted write.
+ * <p>
+ * Run with {@code java project1.COS.FileStorageTest}; exits with status 1 if a check fails.
+ * Files are written to a temporary directory.
+ */
+public class FileStorageTest {
+
+    private static int failures;
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("filestorage-test");
+        testAppendAndRead(directory.resolve("records.dat"));
+        testTornTail(directory, "half-record", new int[] {100}, new byte[] {1, 2, 3});
+        testTornTail(directory, "length-prefix-only", new int[0], new byte[] {0, 0});
+        testTornTail(directory, "huge-length", new int[] {Integer.MAX_VALUE}, new byte[] {1, 2, 3, 4});
+        testTornTail(directory, "negative-length", new int[] {-5, 7}, new byte[0]);
+        finish("FileStorageTest");
+    }
+
+    /**
+     * Checks that appended records are read back in order by each of the read methods.
+     *
+     * @param file The file to use.
+     */
+    private static void testAppendAndRead(Path file) {
+        FileStorage<String> storage = new FileStorage<>(file.toString());
+        check(storage.append("a"), "append a record");
+        check(storage.appendAll(Arrays.asList("b", "c")), "append several records");
+        check(storage.load().equals(Arrays.asList("a", "b", "c")), "load returns the records in order");
+        try (Stream<String> records = storage.stream()) {
+            check(records.collect(Collectors.toList()).equals(Arrays.asList("a", "b", "c")), "stream returns the records");
+        }
+
+        List<Long> positions = new ArrayList<>();
+        long end = storage.forEachFrom(0, (record, next) -> positions.add(next));
+        check(positions.size() == 3 && end == storage.size(), "forEachFrom reads to the end of the file");
+        List<String> rest = new ArrayList<>();
+        storage.forEachFrom(positions.get(0), (record, next) -> rest.add(record));
+        check(rest.equals(Arrays.asList("b", "c")), "forEachFrom resumes from a saved position");
+        check("c".equals(storage.readAt(positions.get(1))), "readAt reads the record at a position");
+    }
+
+    /**
+     * Writes two records followed by a bad tail, then checks that every reader stops at the last
+     * complete record and that the next append cuts the tail off without losing a record.
+     *
+     * @param directory The directory to write the file in.
+     * @param name      The name of the case, used for the file name and failure messages.
+     * @param lengths   Length prefixes to write after the complete records.
+     * @param bytes     Bytes to write after the length prefixes.
+     * @throws IOException If the bad tail cannot be written.
+     */
+    private static void testTornTail(Path directory, String name, int[] lengths, byte[] bytes) throws IOException {
+        String filename = directory.resolve(name + ".dat").toString();
+        FileStorage<String> storage = new FileStorage<>(filename);
+        storage.appendAll(Arrays.asList("a", "b"));
+        long complete = storage.size();
+        try (RandomAccessFile file = new RandomAccessFile(filename, "rw")) {
+            file.seek(file.length());
+            for (int length : lengths) {
+                file.writeInt(length);
+            }
+            file.write(bytes);
+        }
+
+        FileStorage<String> reopened = new FileStorage<>(filename); // As after a restart
+        check(reopened.load().equals(Arrays.asList("a", "b")), name + ": load skips the bad tail");
+        try (Stream<String> records = reopened.stream()) {
+            check(records.count() == 2, name + ": stream skips the bad tail");
+        }
+        List<String> read = new ArrayList<>();
+        long end = reopened.forEachFrom(0, (record, next) -> read.add(record));
+        check(read.size() == 2 && end == complete, name + ": forEachFrom stops at the last complete record");
+
+        check(reopened.append("c"), name + ": append after the bad tail");
+        check(reopened.load().equals(Arrays.asList("a", "b", "c")), name + ": the bad tail is cut off before appending");
+    }
+
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            failures++;
+            System.err.println("FAILED: " + description);
+        }
+    }
+
+    private static void finish(String name) {
+        System.out.println(name + ": " + (failures == 0 ? "all checks passed" : failures + " check(s) failed"));
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,151 @@
+package project1.COS;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link IdempotencyCache}: an operation runs once per key, even when requested from
+ * many threads at once, failures and invalidated keys run again, and keys are forgotten when
+ * they expire or the cache is full.
+ * <p>
+ * Run with {@code java project1.COS.IdempotencyCacheTest}; exits with status 1 if a check fails.
+ */
+public class IdempotencyCacheTest {
+
+    private static int failures;
+
+    public static void main(String[] args) throws InterruptedException {
+        testRunsOnce();
+        testConcurrentRequests();
+        testFailureAndInvalidate();
+        testExpiryAndEviction();
+        finish("IdempotencyCacheTest");
+    }
+
+    /**
+     * Checks that repeating a key returns the first result without running the operation again.
+     */
+    private static void testRunsOnce() {
+        IdempotencyCache<String> cache = new IdempotencyCache<>(10, Duration.ofMinutes(1));
+        AtomicInteger runs = new AtomicInteger();
+        String first = cache.getOrCompute("CHK-1", () -> "ORD-" + runs.incrementAndGet());
+        String repeated = cache.getOrCompute("CHK-1", () -> "ORD-" + runs.incrementAndGet());
+        check(first.equals("ORD-1") && repeated.equals("ORD-1") && runs.get() == 1, "a repeated key is not run again");
+        check(cache.getOrCompute("CHK-2", () -> "ORD-" + runs.incrementAndGet()).equals("ORD-2"),
+                "another key is run");
+        check(cache.size() == 2, "both keys are remembered");
+
+        boolean rejected = false;
+        try {
+            new IdempotencyCache<String>(0, Duration.ofMinutes(1));
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        check(rejected, "a cache without room is rejected");
+    }
+
+    /**
+     * Checks that threads arriving with the same key while it is running wait for its result
+     * rather than running it a second time.
+     *
+     * @throws InterruptedException If interrupted while waiting for the threads.
+     */
+    private static void testConcurrentRequests() throws InterruptedException {
+        IdempotencyCache<Integer> cache = new IdempotencyCache<>(10, Duration.ofMinutes(1));
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        int[] results = new int[8];
+        Thread[] threads = new Thread[results.length];
+        for (int t = 0; t < threads.length; t++) {
+            int slot = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                results[slot] = cache.getOrCompute("CHK-HOT", () -> {
+                    sleep(50); // Keep the key running while the other threads arrive
+                    return runs.incrementAndGet();
+                });
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        check(runs.get() == 1, "the operation runs once for threads sharing a key, not " + runs.get() + " times");
+        for (int result : results) {
+            check(result == 1, "every thread gets the one result");
+        }
+    }
+
+    /**
+     * Checks that a failed operation and an invalidated key are run again on the next request.
+     */
+    private static void testFailureAndInvalidate() {
+        IdempotencyCache<String> cache = new IdempotencyCache<>(10, Duration.ofMinutes(1));
+        boolean thrown = false;
+        try {
+            cache.getOrCompute("CHK-1", () -> {
+                throw new IllegalStateException("Bank unavailable");
+            });
+        } catch (IllegalStateException e) {
+            thrown = true;
+        }
+        check(thrown, "the operation's exception is passed on");
+        check(cache.size() == 0, "a failure is not remembered");
+        check(cache.getOrCompute("CHK-1", () -> "ORD-1").equals("ORD-1"), "a failed key is run again");
+
+        cache.invalidate("CHK-1");
+        check(cache.getOrCompute("CHK-1", () -> "ORD-2").equals("ORD-2"), "an invalidated key is run again");
+    }
+
+    /**
+     * Checks that keys are forgotten once their window has passed, and that the oldest keys are
+     * forgotten when more than the maximum are added.
+     */
+    private static void testExpiryAndEviction() {
+        IdempotencyCache<String> expiring = new IdempotencyCache<>(10, Duration.ofMillis(20));
+        expiring.getOrCompute("CHK-1", () -> "first");
+        sleep(40);
+        check(expiring.getOrCompute("CHK-1", () -> "second").equals("second"), "an expired key is run again");
+
+        IdempotencyCache<String> small = new IdempotencyCache<>(3, Duration.ofMinutes(1));
+        for (int i = 1; i <= 5; i++) {
+            String value = "ORD-" + i;
+            small.getOrCompute("CHK-" + i, () -> value);
+        }
+        check(small.size() == 3, "the cache holds at most its maximum, not " + small.size());
+        check(small.getOrCompute("CHK-5", () -> "again").equals("ORD-5"), "the newest key is kept");
+        check(small.getOrCompute("CHK-1", () -> "again").equals("again"), "the oldest key is forgotten");
+    }
+
+    /**
+     * Sleeps for the given time, ignoring interrupts.
+     *
+     * @param millis The time to sleep, in milliseconds.
+     */
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            failures++;
+            System.err.println("FAILED: " + description);
+        }
+    }
+
+    private static void finish(String name) {
+        System.out.println(name + ": " + (failures == 0 ? "all checks passed" : failures + " check(s) failed"));
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,172 @@
+package project1.COS;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link Inventory}: reservations take all of a cart or none of it and never oversell
+ * under concurrency, reservations and releases are saved, the initial stock comes from the
+ * catalog, and cancelled or refunded orders put their items back in stock.
+ * <p>
+ * Run with {@code java project1.COS.InventoryTest}; exits with status 1 if a check fails.
+ * Files are written to a temporary directory.
+ */
+public class InventoryTest {
+
+    private static final MerchCatalog CATALOG = new MerchCatalog();
+    private static final Merchandise LAPTOP = CATALOG.getMerchandiseById("M001");
+    private static final Merchandise MOUSE = CATALOG.getMerchandiseById("M003");
+
+    private static int failures;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path directory = Files.createTempDirectory("inventory-test");
+        testInitialStock(directory.resolve("initial.dat").toString());
+        testReserveAndRelease(directory.resolve("reserve.dat").toString());
+        testHotItem(directory.resolve("hot.dat").toString());
+        testReturnedOrders(Files.createTempDirectory("inventory-test"));
+        finish("InventoryTest");
+    }
+
+    /**
+     * Checks that a new inventory is stocked from the catalog data, and only the first time.
+     *
+     * @param filename The journal file to use.
+     */
+    private static void testInitialStock(String filename) {
+        Map<String, Integer> initialStock = CATALOG.getInitialStock();
+        check(initialStock.size() == CATALOG.size(), "every sample item has an initial stock");
+        Inventory inventory = Inventory.load(filename, initialStock);
+        for (Map.Entry<String, Integer> item : initialStock.entrySet()) {
+            check(inventory.getAvailable(item.getKey()) == item.getValue(), item.getKey() + " starts with its stock");
+        }
+        Inventory reopened = Inventory.load(filename, Collections.singletonMap("M001", 999));
+        check(reopened.getAvailable("M001") == initialStock.get("M001"), "the initial stock is only given once");
+        check(!reopened.isTracked("M900") && reopened.getAvailable("M900") == Inventory.UNLIMITED,
+                "an item without stock is not tracked");
+    }
+
+    /**
+     * Checks that a reservation takes every item or none, and that reserved and released units
+     * are saved.
+     *
+     * @param filename The journal file to use.
+     */
+    private static void testReserveAndRelease(String filename) {
+        Inventory inventory = new Inventory(filename);
+        inventory.restock("M001", 2).join();
+        inventory.restock("M003", 10).join();
+
+        Map<Merchandise, Integer> tooMany = new LinkedHashMap<>();
+        tooMany.put(MOUSE, 3);
+        tooMany.put(LAPTOP, 5);
+        Inventory.Reservation refused = inventory.reserve(tooMany);
+        check(!refused.isSuccessful() && refused.getShortage().contains("Only 2"), "a short item refuses the cart");
+        check(inventory.getAvailable("M003") == 10, "nothing is taken when one item is short");
+
+        Map<Merchandise, Integer> cart = new HashMap<>();
+        cart.put(MOUSE, 3);
+        cart.put(LAPTOP, 1);
+        Inventory.Reservation reservation = inventory.reserve(cart);
+        check(reservation.isSuccessful() && reservation.awaitDurable(), "the cart is reserved and saved");
+        check(new Inventory(filename).getAvailable("M003") == 7, "the reservation survives a restart");
+
+        check(reservation.release(), "the reservation is released and saved");
+        check(reservation.release(), "releasing twice does nothing");
+        check(inventory.getAvailable("M003") == 10 && inventory.getAvailable("M001") == 2, "released units are back");
+        check(new Inventory(filename).getAvailable("M003") == 10, "the release survives a restart");
+    }
+
+    /**
+     * Checks that many checkouts racing for the last units of one item never sell more than
+     * there is.
+     *
+     * @param filename The journal file to use.
+     * @throws InterruptedException If interrupted while waiting for the checkouts.
+     */
+    private static void testHotItem(String filename) throws InterruptedException {
+        Inventory inventory = new Inventory(filename);
+        inventory.restock("M003", 50).join();
+        AtomicInteger sold = new AtomicInteger();
+        Thread[] checkouts = new Thread[8];
+        for (int t = 0; t < checkouts.length; t++) {
+            checkouts[t] = new Thread(() -> {
+                for (int i = 0; i < 20; i++) {
+                    if (inventory.reserve(Collections.singletonMap(MOUSE, 1)).isSuccessful()) {
+                        sold.incrementAndGet();
+                    }
+                }
+            });
+            checkouts[t].start();
+        }
+        for (Thread checkout : checkouts) {
+            checkout.join();
+        }
+        check(sold.get() == 50 && inventory.getAvailable("M003") == 0, "exactly the stock is sold, not more");
+    }
+
+    /**
+     * Checks that cancelling an order, or refunding all of it, puts its items back in stock once,
+     * and that a partial refund does not.
+     *
+     * @param directory The directory to keep the order store and inventory in.
+     */
+    private static void testReturnedOrders(Path directory) {
+        Inventory inventory = new Inventory(directory.resolve("inventory.dat").toString());
+        inventory.restock("M003", 10).join();
+        OrderFileStorage store = new OrderFileStorage(directory, inventory);
+
+        placeOrder(store, inventory, "ORD-CANCEL", 2);
+        placeOrder(store, inventory, "ORD-REFUND", 3);
+        check(inventory.getAvailable("M003") == 5, "placed orders take their stock");
+
+        check(store.cancelOrder("ORD-CANCEL", "Changed my mind"), "cancel an order");
+        check(inventory.getAvailable("M003") == 7, "a cancelled order's items are back in stock");
+        check(store.refundOrder("ORD-CANCEL", 50.00, null), "refund the cancelled order");
+        check(inventory.getAvailable("M003") == 7, "refunding a cancelled order returns nothing more");
+
+        check(store.refundOrder("ORD-REFUND", 25.00, "Scratched"), "refund part of an order");
+        check(inventory.getAvailable("M003") == 7, "a partial refund returns no stock");
+        check(store.refundOrder("ORD-REFUND", 50.00, null), "refund the rest of the order");
+        check(inventory.getAvailable("M003") == 10, "a fully refunded order's items are back in stock");
+        check(store.cancelOrder("ORD-REFUND", null), "cancel the refunded order");
+        check(inventory.getAvailable("M003") == 10, "cancelling a refunded order returns nothing more");
+        check(new Inventory(directory.resolve("inventory.dat").toString()).getAvailable("M003") == 10,
+                "returned stock survives a restart");
+    }
+
+    /**
+     * Reserves stock for an order of mice and completes it, as a checkout does.
+     *
+     * @param store     The store to place the order in.
+     * @param inventory The inventory to reserve the mice from.
+     * @param orderId   The ID to give the order.
+     * @param quantity  The number of mice, at $25 each.
+     */
+    private static void placeOrder(OrderFileStorage store, Inventory inventory, String orderId, int quantity) {
+        Map<Merchandise, Integer> items = Collections.singletonMap(MOUSE, quantity);
+        check(inventory.reserve(items).awaitDurable(), orderId + ": reserve the stock");
+        check(store.addOrder(new OrderCreator(orderId, "C1", items, 25.00 * quantity, "In-store Pickup", 0.0)),
+                orderId + ": add the order");
+        check(store.updateStatus(orderId, OrderStatus.AUTHORIZED, "AUTH-" + orderId, null), orderId + ": authorize");
+        check(store.updateStatus(orderId, OrderStatus.PERSISTED, null, null), orderId + ": complete");
+    }
+
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            failures++;
+            System.err.println("FAILED: " + description);
+        }
+    }
+
+    private static void finish(String name) {
+        System.out.println(name + ": " + (failures == 0 ? "all checks passed" : failures + " check(s) failed"));
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,428 @@
+package project1.COS;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Tests for the pages and indexes of {@link MerchCatalog}: each lookup is checked on the sample
+ * items and against a scan of a larger generated catalog, including items added after the index
+ * was read.
+ * <p>
+ * Run with {@code java project1.COS.MerchCatalogTest}; exits with status 1 if a check fails.
+ */
+public class MerchCatalogTest {
+
+    private static final String[] ADJECTIVES = {"Wireless", "Compact", "Gaming", "Portable", "Silent", "Smart"};
+    private static final String[] NOUNS = {"Mouse", "Keyboard", "Monitor", "Speaker", "Charger", "Headset"};
+    private static final String[] FEATURES = {"bluetooth", "usb-c", "rgb", "ergonomic", "waterproof", "solar"};
+    private static final String[] CATEGORIES = {"Accessories", "Audio", "Computers", "Power"};
+    /** The number of items generated on top of the sample ones. */
+    private static final int GENERATED = 2000;
+
+    private static int failures;
+
+    public static void main(String[] args) {
+        testPages();
+        testSearch();
+        testComplete();
+        testFilter();
+        testPriceOrder();
+        finish("MerchCatalogTest");
+    }
+
+    /**
+     * Checks that pages of the catalog hold the items in catalog order, including items added
+     * after a page was read, and that a page past the end is empty.
+     */
+    private static void testPages() {
+        MerchCatalog catalog = new MerchCatalog();
+        addGenerated(catalog, new Random(9));
+        List<Merchandise> all = catalog.getAllMerchandise();
+        List<Merchandise> paged = new ArrayList<>();
+        for (int offset = 0; offset < catalog.size(); offset += 256) {
+            paged.addAll(catalog.getMerchandisePage(offset, 256));
+        }
+        check(paged.equals(all), "the pages together hold the catalog in order");
+        check(catalog.getMerchandisePage(catalog.size(), 10).isEmpty(), "a page past the end is empty");
+        check(catalog.getMerchandisePage(catalog.size() - 3, 10).size() == 3, "the last page is short");
+
+        Merchandise added = new Merchandise("X001", "Late Arrival", "Added last", 10.00, 0.00);
+        catalog.addMerchandise(added);
+        check(catalog.getMerchandisePage(catalog.size() - 1, 10).equals(Arrays.asList(added)),
+                "an item added after paging is on the last page");
+        boolean rejected = false;
+        try {
+            catalog.getMerchandisePage(-1, 10);
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        check(rejected, "a negative offset is rejected");
+    }
+
+    /**
+     * Checks that a search finds the items containing every word of the query, in the name or
+     * description and ignoring case and punctuation, in catalog order.
+     */
+    private static void testSearch() {
+        MerchCatalog catalog = new MerchCatalog();
+        check(ids(catalog, catalog.search("wireless mouse")).equals(Arrays.asList("M003")), "search by name");
+        check(ids(catalog, catalog.search("PORTABLE drive")).equals(Arrays.asList("M005")),
+                "search by description, ignoring case");
+        check(ids(catalog, catalog.search("usb-c")).equals(Arrays.asList("M004")), "punctuation splits words");
+        check(catalog.search("laptop keyboard").length == 0, "every word must match");
+        check(catalog.search("toaster").length == 0 && catalog.search(" ").length == 0,
+                "an unknown word or a blank query matches nothing");
+        check(catalog.searchMerchandise("accessories", 5).isEmpty(), "categories are not searched");
+
+        addGenerated(catalog, new Random(1));
+        Random random = new Random(2);
+        for (int i = 0; i < 200; i++) {
+            String query = pick(random, FEATURES) + " " + pick(random, NOUNS).toUpperCase(Locale.ROOT);
+            check(Arrays.equals(catalog.search(query), scanSearch(catalog, query)),
+                    "\"" + query + "\" finds the same items as a scan");
+        }
+        int[] all = catalog.search("mouse");
+        check(catalog.searchMerchandise("mouse", 10).size() == Math.min(10, all.length), "results are limited");
+
+        catalog.addMerchandise(new Merchandise("X001", "Solar Mouse", "Charges in daylight", 40.00, 0.00));
+        int[] after = catalog.search("solar mouse");
+        check(after.length > 0 && catalog.getMerchandise(after[after.length - 1]).getId().equals("X001"),
+                "an item added after searching is found");
+    }
+
+    /**
+     * Checks that completions are the items whose ID or name starts with the text typed, ignoring
+     * case, in alphabetical order of the matching key and each item once.
+     */
+    private static void testComplete() {
+        MerchCatalog catalog = new MerchCatalog();
+        List<String> sampleIds = Arrays.asList("M001", "M002", "M003", "M004", "M005");
+        check(ids(catalog, catalog.complete("m00", 10)).equals(sampleIds), "complete by ID");
+        check(ids(catalog, catalog.complete("WIRE", 10)).equals(Arrays.asList("M003")),
+                "complete by name, ignoring case");
+        check(ids(catalog, catalog.complete("m", 10)).equals(sampleIds),
+                "an item whose ID and name both match is listed once");
+        check(catalog.complete("m00", 2).length == 2, "completions are limited");
+        check(catalog.complete("  ", 10).length == 0 && catalog.complete("zzz", 10).length == 0,
+                "a blank or unknown prefix completes nothing");
+
+        addGenerated(catalog, new Random(3));
+        Random random = new Random(4);
+        for (int i = 0; i < 200; i++) {
+            String word = random.nextBoolean() ? pick(random, ADJECTIVES) : "g0" + random.nextInt(100);
+            String prefix = word.substring(0, 1 + random.nextInt(word.length()));
+            int limit = 1 + random.nextInt(20);
+            check(Arrays.equals(catalog.complete(prefix, limit), scanComplete(catalog, prefix, limit)),
+                    "\"" + prefix + "\" completes the same items as a scan");
+        }
+
+        catalog.addMerchandise(new Merchandise("X001", "Zebra Mouse", "Striped", 40.00, 0.00));
+        check(ids(catalog, catalog.complete("zeb", 5)).equals(Arrays.asList("X001")),
+                "an item added after completing is found");
+    }
+
+    /**
+     * Checks that a filter passes the items matching every selected facet and the query, and
+     * that each facet's counts apply every other facet's selection but not its own.
+     */
+    private static void testFilter() {
+        MerchCatalog catalog = new MerchCatalog();
+        MerchFilter onSale = new MerchFilter();
+        onSale.setOnSaleOnly(true);
+        MerchCatalog.FilterResult result = catalog.filter(onSale, null);
+        check(ids(catalog, result.getOrdinals()).equals(Arrays.asList("M001", "M003", "M005")), "filter by sale");
+        check(result.getCategoryCounts().get("Accessories") == 1 && result.getPriceBucketCounts().get(
+                PriceBucket.UNDER_50) == 1, "the category and price counts apply the sale selection");
+        check(result.getOnSaleCount() == 3, "the on-sale count applies no other selection");
+        MerchFilter unknown = new MerchFilter();
+        unknown.setCategory("Toys", true);
+        MerchCatalog.FilterResult none = catalog.filter(unknown, null);
+        check(none.getMatchCount() == 0 && none.getCategoryCounts().get("Toys") == 0,
+                "an unknown category matches nothing but is still counted");
+
+        addGenerated(catalog, new Random(5));
+        Random random = new Random(6);
+        for (int i = 0; i < 200; i++) {
+            MerchFilter filter = new MerchFilter();
+            filter.setOnSaleOnly(random.nextBoolean());
+            for (PriceBucket bucket : PriceBucket.values()) {
+                filter.setPriceBucket(bucket, random.nextInt(3) == 0);
+            }
+            for (String category : CATEGORIES) {
+                filter.setCategory(category, random.nextInt(3) == 0);
+            }
+            String query = random.nextBoolean() ? null : pick(random, NOUNS);
+            checkFilter(catalog, filter, query);
+        }
+
+        catalog.addMerchandise(new Merchandise("X001", "Solar Charger", "Weatherproof", 30.00, 20.00, "Outdoor"));
+        MerchFilter outdoor = new MerchFilter();
+        outdoor.setCategory("Outdoor", true);
+        outdoor.setOnSaleOnly(true);
+        check(ids(catalog, catalog.filter(outdoor, null).getOrdinals()).equals(Arrays.asList("X001")),
+                "an item added after filtering is found, in a new category");
+    }
+
+    /**
+     * Checks a filter's matches and counts against a scan of the catalog.
+     *
+     * @param catalog The catalog.
+     * @param filter  The filter.
+     * @param query   The words to search for, or null.
+     */
+    private static void checkFilter(MerchCatalog catalog, MerchFilter filter, String query) {
+        MerchCatalog.FilterResult result = catalog.filter(filter, query);
+        Set<Integer> within = new HashSet<>();
+        if (query != null) {
+            for (int ordinal : catalog.search(query)) {
+                within.add(ordinal);
+            }
+        }
+        List<Integer> matches = new ArrayList<>();
+        int onSaleCount = 0;
+        int[] bucketCounts = new int[PriceBucket.values().length];
+        Map<String, Integer> categoryCounts = new TreeMap<>();
+        for (int ordinal = 0; ordinal < catalog.size(); ordinal++) {
+            Merchandise item = catalog.getMerchandise(ordinal);
+            categoryCounts.putIfAbsent(item.getCategory(), 0);
+            if (query != null && !within.contains(ordinal)) {
+                continue;
+            }
+            boolean sale = !filter.isOnSaleOnly() || item.isOnSale();
+            PriceBucket bucket = PriceBucket.of(item.getCurrentPrice());
+            boolean price = filter.getPriceBuckets().isEmpty() || filter.getPriceBuckets().contains(bucket);
+            boolean category = filter.getCategories().isEmpty() || filter.getCategories().contains(item.getCategory());
+            if (sale && price && category) {
+                matches.add(ordinal);
+            }
+            if (price && category && item.isOnSale()) {
+                onSaleCount++;
+            }
+            if (sale && category) {
+                bucketCounts[bucket.ordinal()]++;
+            }
+            if (sale && price) {
+                categoryCounts.merge(item.getCategory(), 1, Integer::sum);
+            }
+        }
+
+        String description = "filter " + filter.isOnSaleOnly() + " " + filter.getPriceBuckets() + " "
+                + filter.getCategories() + " \"" + query + "\"";
+        check(Arrays.equals(result.getOrdinals(), matches.stream().mapToInt(Integer::intValue).toArray())
+                && result.getMatchCount() == matches.size(), description + " passes the same items as a scan");
+        check(result.getOnSaleCount() == onSaleCount, description + " counts the items on sale");
+        for (PriceBucket bucket : PriceBucket.values()) {
+            check(result.getPriceBucketCounts().get(bucket) == bucketCounts[bucket.ordinal()],
+                    description + " counts the items in " + bucket);
+        }
+        check(result.getCategoryCounts().equals(categoryCounts), description + " counts the items in each category");
+    }
+
+    /**
+     * Checks that the items in a price range are counted and paged in price order, and that any
+     * set of items can be put in price order, both ways.
+     */
+    private static void testPriceOrder() {
+        MerchCatalog catalog = new MerchCatalog();
+        check(ids(catalog, catalog.getOrdinalsByPrice(20, 100, 0, 10, false)).equals(
+                Arrays.asList("M003", "M004", "M002")), "a range is listed cheapest first, at current prices");
+        check(ids(catalog, catalog.getOrdinalsByPrice(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 1, 2, true))
+                .equals(Arrays.asList("M005", "M002")), "a page of the whole catalog, most expensive first");
+        check(catalog.countByPrice(25.00, 25.00) == 1 && catalog.countByPrice(100, 20) == 0,
+                "both ends of a range are included, and a reversed range is empty");
+        check(catalog.getOrdinalsByPrice(20, 100, 5, 10, false).length == 0, "a page past the end is empty");
+        boolean rejected = false;
+        try {
+            catalog.getOrdinalsByPrice(0, 100, -1, 10, false);
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        check(rejected, "a negative offset is rejected");
+
+        addGenerated(catalog, new Random(7));
+        Random random = new Random(8);
+        for (int i = 0; i < 200; i++) {
+            int low = random.nextInt(150_000);
+            int high = low + random.nextInt(50_000);
+            double min = low / 100.0;
+            double max = high / 100.0;
+            boolean descending = random.nextBoolean();
+            int[] all = scanPriceRange(catalog, min, max, descending);
+            int offset = random.nextInt(all.length + 1);
+            int limit = random.nextInt(30);
+            int[] page = Arrays.copyOfRange(all, offset, Math.min(all.length, offset + limit));
+            String description = "$" + min + " to $" + max + (descending ? " descending" : "");
+            check(catalog.countByPrice(min, max) == all.length, description + " counts the same items as a scan");
+            check(Arrays.equals(catalog.getOrdinalsByPrice(min, max, offset, limit, descending), page),
+                    description + " pages the same items as a scan");
+        }
+
+        int[] many = catalog.search("mouse"); // Enough to be read off the index rather than sorted
+        int[] few = Arrays.copyOf(many, 10);
+        for (int[] ordinals : new int[][] {few, many}) {
+            for (boolean descending : new boolean[] {false, true}) {
+                int[] expected = scanPriceRange(catalog, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+                        descending);
+                Set<Integer> wanted = new HashSet<>();
+                for (int ordinal : ordinals) {
+                    wanted.add(ordinal);
+                }
+                expected = Arrays.stream(expected).filter(wanted::contains).toArray();
+                check(Arrays.equals(catalog.sortByPrice(ordinals, descending), expected),
+                        ordinals.length + " items are put in price order" + (descending ? ", descending" : ""));
+            }
+        }
+
+        catalog.addMerchandise(new Merchandise("X001", "Penny Sticker", "Cheapest item", 0.01, 0.00));
+        check(ids(catalog, catalog.getOrdinalsByPrice(0, 1, 0, 1, false)).equals(Arrays.asList("X001")),
+                "an item added after the index was read is found");
+    }
+
+    /**
+     * Finds the items whose current price, to the cent, is within a range by reading each one.
+     *
+     * @param catalog    The catalog.
+     * @param min        The lowest price, inclusive.
+     * @param max        The highest price, inclusive.
+     * @param descending true for the most expensive first, and later items first at the same price.
+     * @return The ordinals of the items in the range, in price order.
+     */
+    private static int[] scanPriceRange(MerchCatalog catalog, double min, double max, boolean descending) {
+        List<long[]> items = new ArrayList<>(); // Price in cents and ordinal
+        for (int ordinal = 0; ordinal < catalog.size(); ordinal++) {
+            double price = catalog.getMerchandise(ordinal).getCurrentPrice();
+            if (price >= min - 0.005 && price <= max + 0.005) {
+                items.add(new long[] {Math.round(price * 100), ordinal});
+            }
+        }
+        items.sort((a, b) -> (a[0] != b[0]) ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        int[] ordinals = new int[items.size()];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = (int) items.get(descending ? ordinals.length - 1 - i : i)[1];
+        }
+        return ordinals;
+    }
+
+    /**
+     * Finds the items whose ID or name starts with a prefix by reading each one.
+     *
+     * @param catalog The catalog.
+     * @param prefix  The prefix.
+     * @param limit   The maximum number of items.
+     * @return The ordinals of up to {@code limit} items, in order of the matching ID or name.
+     */
+    private static int[] scanComplete(MerchCatalog catalog, String prefix, int limit) {
+        String folded = prefix.toLowerCase(Locale.ROOT);
+        List<String[]> keys = new ArrayList<>(); // Key and ordinal
+        for (int ordinal = 0; ordinal < catalog.size(); ordinal++) {
+            Merchandise item = catalog.getMerchandise(ordinal);
+            for (String key : new String[] {item.getId(), item.getName()}) {
+                if (key.toLowerCase(Locale.ROOT).startsWith(folded)) {
+                    keys.add(new String[] {key.toLowerCase(Locale.ROOT), String.valueOf(ordinal)});
+                }
+            }
+        }
+        keys.sort((a, b) -> a[0].equals(b[0]) ? Integer.compare(Integer.parseInt(a[1]), Integer.parseInt(b[1]))
+                : a[0].compareTo(b[0]));
+        Set<Integer> seen = new LinkedHashSet<>();
+        for (String[] key : keys) {
+            if (seen.size() < limit) {
+                seen.add(Integer.parseInt(key[1]));
+            }
+        }
+        return seen.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Finds the items containing every word of a query by reading each one.
+     *
+     * @param catalog The catalog.
+     * @param query   The query.
+     * @return The ordinals of the matching items, in catalog order.
+     */
+    private static int[] scanSearch(MerchCatalog catalog, String query) {
+        Set<String> wanted = words(query);
+        List<Integer> matches = new ArrayList<>();
+        for (int ordinal = 0; ordinal < catalog.size(); ordinal++) {
+            Merchandise item = catalog.getMerchandise(ordinal);
+            Set<String> itemWords = words(item.getName() + " " + item.getDescription());
+            if (!wanted.isEmpty() && itemWords.containsAll(wanted)) {
+                matches.add(ordinal);
+            }
+        }
+        return matches.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Splits text into lower-case words at anything that is not a letter or digit.
+     *
+     * @param text The text.
+     * @return The words.
+     */
+    private static Set<String> words(String text) {
+        Set<String> words = new HashSet<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Adds {@value #GENERATED} items with random names, descriptions, categories and prices,
+     * about a third of them on sale.
+     *
+     * @param catalog The catalog to add to.
+     * @param random  The source of the random choices.
+     */
+    private static void addGenerated(MerchCatalog catalog, Random random) {
+        for (int i = 0; i < GENERATED; i++) {
+            String name = pick(random, ADJECTIVES) + " " + pick(random, NOUNS);
+            String description = pick(random, FEATURES) + " " + pick(random, FEATURES) + " model " + i;
+            double regularPrice = 5 + random.nextInt(150_000) / 100.0;
+            double salePrice = random.nextInt(3) == 0 ? Math.floor(regularPrice * 80) / 100.0 : 0.0;
+            catalog.addMerchandise(new Merchandise(String.format("G%05d", i), name, description, regularPrice,
+                    salePrice, pick(random, CATEGORIES)));
+        }
+    }
+
+    /**
+     * Returns the IDs of the items with the given ordinals.
+     *
+     * @param catalog  The catalog.
+     * @param ordinals The ordinals.
+     * @return The item IDs, in the order of the ordinals.
+     */
+    private static List<String> ids(MerchCatalog catalog, int[] ordinals) {
+        List<String> ids = new ArrayList<>();
+        for (int ordinal : ordinals) {
+            ids.add(catalog.getMerchandise(ordinal).getId());
+        }
+        return ids;
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            failures++;
+            System.err.println("FAILED: " + description);
+        }
+    }
+
+    private static void finish(String name) {
+        System.out.println(name + ": " + (failures == 0 ? "all checks passed" : failures + " check(s) failed"));
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,137 @@
+package project1.COS;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for cancelling and refunding orders in {@link OrderFileStorage}: a cancelled order stays
+ * in history marked as cancelled, an order still being checked out fails instead, refunds never
+ * exceed the order total, and both survive a restart.
+ * <p>
+ * Run with {@code java project1.COS.OrderCancelRefundTest}; exits with status 1 if a check fails.
+ * Files are written to a temporary directory.
+ */
+public class OrderCancelRefundTest {
+
+    private static int failures;
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("cancel-refund-test");
+        OrderFileStorage store = new OrderFileStorage(directory);
+        testCancel(store);
+        testRefund(store);
+        testRestart(new OrderFileStorage(directory));
+        finish("OrderCancelRefundTest");
+    }
+
+    /**
+     * Checks that a completed order is cancelled but kept in history, that it cannot be cancelled
+     * twice, and that an order still being checked out fails instead.
+     *
+     * @param store The store to place the orders in.
+     */
+    private static void testCancel(OrderFileStorage store) {
+        placeOrder(store, "ORD-CANCEL");
+        check(store.cancelOrder("ORD-CANCEL", "Changed my mind"), "cancel a completed order");
+        check(store.getOrderById("ORD-CANCEL").getStatus() == OrderStatus.CANCELLED, "the order is cancelled");
+        check(historyIds(store).contains("ORD-CANCEL"), "a cancelled order stays in history");
+        check(!store.cancelOrder("ORD-CANCEL", null), "a cancelled order cannot be cancelled again");
+        check(!store.cancelOrder("ORD-MISSING", null), "an unknown order cannot be cancelled");
+
+        check(store.addOrder(newOrder("ORD-PENDING")), "start a checkout");
+        check(store.cancelOrder("ORD-PENDING", null), "cancel the checkout");
+        check(store.getOrderById("ORD-PENDING").getStatus() == OrderStatus.FAILED,
+                "an order cancelled during checkout fails");
+        check(!historyIds(store).contains("ORD-PENDING"), "a failed checkout is not in history");
+    }
+
+    /**
+     * Checks that refunds add up to at most the order total, that nothing else can be refunded,
+     * and that a cancelled order can still be refunded.
+     *
+     * @param store The store to place the orders in.
+     */
+    private static void testRefund(OrderFileStorage store) {
+        placeOrder(store, "ORD-REFUND"); // Two mice, $50.00
+        check(store.refundOrder("ORD-REFUND", 20.00, "Scratched"), "refund part of an order");
+        check(store.refundOrder("ORD-REFUND", 20.00, null), "refund another part");
+        check(!store.refundOrder("ORD-REFUND", 10.01, null), "a refund past the total is refused");
+        check(store.refundOrder("ORD-REFUND", 10.00, null), "refund the rest");
+        check(store.getOrderById("ORD-REFUND").getRefundedAmount() == 50.00, "the refunds add up");
+        check(store.getOrderById("ORD-REFUND").getStatus() == OrderStatus.PERSISTED,
+                "a refunded order is not cancelled");
+
+        check(!store.refundOrder("ORD-REFUND", 0, null), "a refund of nothing is refused");
+        check(!store.refundOrder("ORD-MISSING", 5.00, null), "an unknown order cannot be refunded");
+        check(!store.refundOrder("ORD-PENDING", 5.00, null), "a failed checkout cannot be refunded");
+        check(store.refundOrder("ORD-CANCEL", 50.00, null), "a cancelled order can be refunded");
+    }
+
+    /**
+     * Checks that cancellations and refunds are read back after a restart.
+     *
+     * @param store The store reopened on the same directory.
+     */
+    private static void testRestart(OrderFileStorage store) {
+        check(store.getOrderById("ORD-CANCEL").getStatus() == OrderStatus.CANCELLED
+                && store.getOrderById("ORD-CANCEL").getRefundedAmount() == 50.00,
+                "a cancelled and refunded order survives a restart");
+        check(store.getOrderById("ORD-REFUND").getRefundedAmount() == 50.00, "refunds survive a restart");
+        check(!store.refundOrder("ORD-REFUND", 0.01, null), "the refunded total is still enforced after a restart");
+        check(store.getOrderById("ORD-PENDING").getStatus() == OrderStatus.FAILED,
+                "a failed checkout stays failed after a restart");
+    }
+
+    /**
+     * Returns the IDs of the orders in customer C1's history.
+     *
+     * @param store The store to read.
+     * @return The order IDs, newest first.
+     */
+    private static List<String> historyIds(OrderFileStorage store) {
+        List<String> ids = new ArrayList<>();
+        for (OrderCreator order : store.getOrderHistoryPage("C1", 100, null).getOrders()) {
+            ids.add(order.getOrderId());
+        }
+        return ids;
+    }
+
+    /**
+     * Places an order and takes it through to {@link OrderStatus#PERSISTED}, as a checkout does.
+     *
+     * @param store   The store to place the order in.
+     * @param orderId The ID to give the order.
+     */
+    private static void placeOrder(OrderFileStorage store, String orderId) {
+        check(store.addOrder(newOrder(orderId)), orderId + ": add the order");
+        check(store.updateStatus(orderId, OrderStatus.AUTHORIZED, "AUTH-" + orderId, null), orderId + ": authorize");
+        check(store.updateStatus(orderId, OrderStatus.PERSISTED, null, null), orderId + ": complete");
+    }
+
+    /**
+     * Creates a pending order for two mice.
+     *
+     * @param orderId The ID to give the order.
+     * @return The order.
+     */
+    private static OrderCreator newOrder(String orderId) {
+        Merchandise mouse = MerchCatalog.getDefault().getMerchandiseById("M003");
+        return new OrderCreator(orderId, "C1", Collections.singletonMap(mouse, 2), 50.00, "In-store Pickup", 0.0);
+    }
+
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            failures++;
+            System.err.println("FAILED: " + description);
+        }
+    }
+
+    private static void finish(String name) {
+        System.out.println(name + ": " + (failures == 0 ? "all checks passed" : failures + " check(s) failed"));
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
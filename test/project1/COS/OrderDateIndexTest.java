@@ -0,0 +1,142 @@
+package project1.COS;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for {@link OrderDateIndex} and the time-window queries of {@link OrderFileStorage}:
+ * windows include their start but not their end, orders added out of time order are still found,
+ * and the index is rebuilt after a restart.
+ * <p>
+ * Run with {@code java project1.COS.OrderDateIndexTest}; exits with status 1 if a check fails.
+ * Files are written to a temporary directory.
+ */
+public class OrderDateIndexTest {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2026, 10, 18, 12, 0);
+
+    private static int failures;
+
+    public static void main(String[] args) throws IOException {
+        testWindows();
+        testOutOfOrder();
+        testStore(Files.createTempDirectory("date-index-test"));
+        finish("OrderDateIndexTest");
+    }
+
+    /**
+     * Checks the bounds of a window: the start is included, the end is not, and a window ending
+     * before it starts matches nothing.
+     */
+    private static void testWindows() {
+        OrderDateIndex index = new OrderDateIndex(2); // Small, so adding grows it
+        for (int i = 0; i < 10; i++) {
+            index.add("ORD-" + i, NOON.plusMinutes(i));
+        }
+        check(index.size() == 10, "every order is indexed");
+        check(index.getOrderIdsBetween(NOON.plusMinutes(2), NOON.plusMinutes(5)).equals(
+                Arrays.asList("ORD-2", "ORD-3", "ORD-4")), "a window includes its start but not its end");
+        check(index.countOrdersBetween(NOON.plusMinutes(2), NOON.plusMinutes(5)) == 3, "the count matches the list");
+        check(index.getOrderIdsBetween(NOON.plusMinutes(5), NOON.plusMinutes(2)).isEmpty()
+                && index.countOrdersBetween(NOON.plusMinutes(5), NOON.plusMinutes(2)) == 0,
+                "a window ending before it starts is empty");
+        check(index.getOrderIdsBetween(NOON.minusDays(1), NOON).isEmpty(), "a window before every order is empty");
+        check(index.countOrdersBetween(LocalDateTime.MIN, LocalDateTime.MAX) == 10,
+                "the widest possible window holds every order");
+    }
+
+    /**
+     * Checks that orders added out of time order are placed by their date, and that orders with
+     * the same date keep the order they were added in.
+     */
+    private static void testOutOfOrder() {
+        OrderDateIndex index = new OrderDateIndex();
+        index.add("ORD-C", NOON.plusMinutes(2));
+        index.add("ORD-A", NOON);
+        index.add("ORD-D", NOON.plusMinutes(3));
+        index.add("ORD-B1", NOON.plusMinutes(1));
+        index.add("ORD-B2", NOON.plusMinutes(1));
+        check(index.getOrderIdsBetween(LocalDateTime.MIN, LocalDateTime.MAX).equals(
+                Arrays.asList("ORD-A", "ORD-B1", "ORD-B2", "ORD-C", "ORD-D")), "orders are kept in date order");
+    }
+
+    /**
+     * Checks that the store finds completed orders by when they were placed, leaves out checkouts
+     * that did not complete, and finds the same orders after a restart.
+     *
+     * @param directory The directory to keep the order store in.
+     */
+    private static void testStore(Path directory) {
+        OrderFileStorage store = new OrderFileStorage(directory);
+        LocalDateTime before = LocalDateTime.now();
+        placeOrder(store, "ORD-1");
+        placeOrder(store, "ORD-2");
+        check(store.addOrder(newOrder("ORD-FAILED")), "start a checkout");
+        check(store.updateStatus("ORD-FAILED", OrderStatus.FAILED, null, "Card declined"), "fail the checkout");
+        LocalDateTime after = LocalDateTime.now().plusNanos(1);
+
+        check(ids(store.getOrdersBetween(before, after)).equals(Arrays.asList("ORD-1", "ORD-2")),
+                "the orders placed in the window are found, oldest first");
+        check(ids(store.getOrdersInLast(Duration.ofMinutes(15))).equals(Arrays.asList("ORD-1", "ORD-2")),
+                "the orders placed in the last 15 minutes are found");
+        check(store.getOrdersBetween(before.minusDays(1), before).isEmpty(), "no orders were placed before");
+        check(ids(new OrderFileStorage(directory).getOrdersBetween(before, after)).equals(
+                Arrays.asList("ORD-1", "ORD-2")), "the same orders are found after a restart");
+    }
+
+    /**
+     * Returns the IDs of the given orders, in order.
+     *
+     * @param orders The orders.
+     * @return The order IDs.
+     */
+    private static List<String> ids(List<OrderCreator> orders) {
+        List<String> ids = new ArrayList<>();
+        for (OrderCreator order : orders) {
+            ids.add(order.getOrderId());
+        }
+        return ids;
+    }
+
+    /**
+     * Places an order and takes it through to {@link OrderStatus#PERSISTED}, as a checkout does.
+     *
+     * @param store   The store to place the order in.
+     * @param orderId The ID to give the order.
+     */
+    private static void placeOrder(OrderFileStorage store, String orderId) {
+        check(store.addOrder(newOrder(orderId)), orderId + ": add the order");
+        check(store.updateStatus(orderId, OrderStatus.AUTHORIZED, "AUTH-" + orderId, null), orderId + ": authorize");
+        check(store.updateStatus(orderId, OrderStatus.PERSISTED, null, null), orderId + ": complete");
+    }
+
+    /**
+     * Creates a pending order for one mouse.
+     *
+     * @param orderId The ID to give the order.
+     * @return The order.
+     */
+    private static OrderCreator newOrder(String orderId) {
+        Merchandise mouse = MerchCatalog.getDefault().getMerchandiseById("M003");
+        return new OrderCreator(orderId, "C1", Collections.singletonMap(mouse, 1), 25.00, "In-store Pickup", 0.0);
+    }
+
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            failures++;
+            System.err.println("FAILED: " + description);
+        }
+    }
+
+    private static void finish(String name) {
+        System.out.println(name + ": " + (failures == 0 ? "all checks passed" : failures + " check(s) failed"));
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
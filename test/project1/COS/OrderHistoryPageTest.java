@@ -0,0 +1,158 @@
+package project1.COS;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for {@link OrderFileStorage#getOrderHistoryPage}: pages come newest first and together
+ * hold each completed order once, orders placed while paging do not shift later pages, and the
+ * history is rebuilt after a restart.
+ * <p>
+ * Run with {@code java project1.COS.OrderHistoryPageTest}; exits with status 1 if a check fails.
+ * Files are written to a temporary directory.
+ */
+public class OrderHistoryPageTest {
+
+    private static int failures;
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("history-test");
+        OrderFileStorage store = new OrderFileStorage(directory);
+        for (int i = 1; i <= 5; i++) {
+            placeOrder(store, "ORD-" + i, "C1");
+        }
+        placeOrder(store, "ORD-OTHER", "C2");
+        check(store.addOrder(newOrder("ORD-PENDING", "C1")), "start a checkout");
+
+        testPaging(store);
+        testInvalidRequests(store);
+        check(pageIds(new OrderFileStorage(directory), "C1", 10, null).equals(
+                Arrays.asList("ORD-6", "ORD-5", "ORD-4", "ORD-3", "ORD-2", "ORD-1")),
+                "the history is the same after a restart");
+        finish("OrderHistoryPageTest");
+    }
+
+    /**
+     * Checks that a customer's completed orders come newest first, a page at a time, and that an
+     * order placed after the first page is on a new first page rather than on a later page.
+     *
+     * @param store The store holding orders ORD-1 to ORD-5 for customer C1.
+     */
+    private static void testPaging(OrderFileStorage store) {
+        OrderPage first = store.getOrderHistoryPage("C1", 2, null);
+        check(ids(first).equals(Arrays.asList("ORD-5", "ORD-4")), "the first page holds the newest orders");
+        check(first.hasNextPage(), "the first page has a next page");
+
+        placeOrder(store, "ORD-6", "C1");
+        OrderPage second = store.getOrderHistoryPage("C1", 2, first.getNextCursor());
+        check(ids(second).equals(Arrays.asList("ORD-3", "ORD-2")), "a new order does not shift later pages");
+        OrderPage last = store.getOrderHistoryPage("C1", 2, second.getNextCursor());
+        check(ids(last).equals(Collections.singletonList("ORD-1")) && !last.hasNextPage(),
+                "the last page holds the oldest order and has no next page");
+        check(ids(store.getOrderHistoryPage("C1", 2, null)).equals(Arrays.asList("ORD-6", "ORD-5")),
+                "the new order is on a new first page");
+
+        check(store.getOrderHistoryPage("C3", 2, null).isEmpty(), "a customer without orders has an empty page");
+        check(pageIds(store, "C2", 10, null).equals(Collections.singletonList("ORD-OTHER")),
+                "each customer sees only their own orders");
+    }
+
+    /**
+     * Checks that a page size below one and a cursor the store did not give out are rejected.
+     *
+     * @param store The store to page through.
+     */
+    private static void testInvalidRequests(OrderFileStorage store) {
+        for (String cursor : new String[] {"not a cursor", "", "AAAA"}) {
+            boolean rejected = false;
+            try {
+                store.getOrderHistoryPage("C1", 2, cursor);
+            } catch (IllegalArgumentException e) {
+                rejected = true;
+            }
+            check(rejected, "the cursor \"" + cursor + "\" is rejected");
+        }
+        boolean rejected = false;
+        try {
+            store.getOrderHistoryPage("C1", 0, null);
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        check(rejected, "a page size of 0 is rejected");
+    }
+
+    /**
+     * Returns the order IDs on every page of a customer's history, following the cursors.
+     *
+     * @param store      The store to page through.
+     * @param customerId The customer whose history is read.
+     * @param pageSize   The number of orders on each page.
+     * @param cursor     The cursor to start from, or {@code null} for the newest orders.
+     * @return The order IDs, newest first.
+     */
+    private static List<String> pageIds(OrderFileStorage store, String customerId, int pageSize, String cursor) {
+        List<String> ids = new ArrayList<>();
+        do {
+            OrderPage page = store.getOrderHistoryPage(customerId, pageSize, cursor);
+            ids.addAll(ids(page));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    /**
+     * Returns the IDs of the orders on a page, in order.
+     *
+     * @param page The page.
+     * @return The order IDs.
+     */
+    private static List<String> ids(OrderPage page) {
+        List<String> ids = new ArrayList<>();
+        for (OrderCreator order : page.getOrders()) {
+            ids.add(order.getOrderId());
+        }
+        return ids;
+    }
+
+    /**
+     * Places an order and takes it through to {@link OrderStatus#PERSISTED}, as a checkout does.
+     *
+     * @param store      The store to place the order in.
+     * @param orderId    The ID to give the order.
+     * @param customerId The customer placing the order.
+     */
+    private static void placeOrder(OrderFileStorage store, String orderId, String customerId) {
+        check(store.addOrder(newOrder(orderId, customerId)), orderId + ": add the order");
+        check(store.updateStatus(orderId, OrderStatus.AUTHORIZED, "AUTH-" + orderId, null), orderId + ": authorize");
+        check(store.updateStatus(orderId, OrderStatus.PERSISTED, null, null), orderId + ": complete");
+    }
+
+    /**
+     * Creates a pending order for one mouse.
+     *
+     * @param orderId    The ID to give the order.
+     * @param customerId The customer placing the order.
+     * @return The order.
+     */
+    private static OrderCreator newOrder(String orderId, String customerId) {
+        Merchandise mouse = MerchCatalog.getDefault().getMerchandiseById("M003");
+        return new OrderCreator(orderId, customerId, Collections.singletonMap(mouse, 1), 25.00, "In-store Pickup", 0.0);
+    }
+
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            failures++;
+            System.err.println("FAILED: " + description);
+        }
+    }
+
+    private static void finish(String name) {
+        System.out.println(name + ": " + (failures == 0 ? "all checks passed" : failures + " check(s) failed"));
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
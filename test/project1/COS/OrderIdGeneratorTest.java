@@ -0,0 +1,129 @@
+package project1.COS;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tests for {@link OrderIdGenerator}: IDs increase and never repeat across threads, their
+ * string form sorts like the numbers and reads back in any locale, and the generator can be
+ * moved past IDs saved earlier.
+ * <p>
+ * Run with {@code java project1.COS.OrderIdGeneratorTest}; exits with status 1 if a check fails.
+ */
+public class OrderIdGeneratorTest {
+
+    private static int failures;
+
+    public static void main(String[] args) throws InterruptedException {
+        testIncreasing();
+        testFormat();
+        testConcurrent();
+        testAdvancePast();
+        finish("OrderIdGeneratorTest");
+    }
+
+    /**
+     * Checks that each ID is greater than the last and carries its node and creation time.
+     */
+    private static void testIncreasing() {
+        OrderIdGenerator generator = new OrderIdGenerator(7);
+        long before = System.currentTimeMillis();
+        long previous = generator.nextId();
+        for (int i = 0; i < 10_000; i++) {
+            long id = generator.nextId();
+            check(id > previous, "IDs increase");
+            previous = id;
+        }
+        long created = OrderIdGenerator.getTimestampMillis(previous);
+        check(created >= before && created <= System.currentTimeMillis() + 10, "an ID holds its creation time");
+        check(((previous >>> 12) & 1023) == 7, "an ID holds its node number");
+
+        boolean rejected = false;
+        try {
+            new OrderIdGenerator(1024);
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        check(rejected, "node numbers above 1023 are rejected");
+    }
+
+    /**
+     * Checks that formatted IDs are fixed-width, sort like the numbers and parse back, even where
+     * the default locale upper-cases letters differently (the Turkish dotted capital I).
+     */
+    private static void testFormat() {
+        Locale original = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            long id = Long.parseLong("1i2j3k4l5m6n", 36); // Base-36 digits including 'i'
+            String orderId = OrderIdGenerator.format(id);
+            check(orderId.equals("ORD-01I2J3K4L5M6N"), "IDs are upper-cased the same in every locale: " + orderId);
+            check(OrderIdGenerator.parse(orderId) == id, "a formatted ID parses back to its number");
+            check(OrderIdGenerator.format(35).compareTo(OrderIdGenerator.format(36)) < 0,
+                    "formatted IDs sort like the numbers");
+            check(OrderCreator.newIdempotencyKey().matches("CHK-[0-9A-Z]+"),
+                    "idempotency keys use plain capital letters");
+        } finally {
+            Locale.setDefault(original);
+        }
+        check(OrderIdGenerator.parse("ORD-1") == -1, "a short ID is not one of ours");
+        check(OrderIdGenerator.parse("ORDER-12345") == -1, "an old-style ID is not one of ours");
+        check(OrderIdGenerator.parse(null) == -1, "no ID is not one of ours");
+    }
+
+    /**
+     * Checks that threads sharing a generator never get the same ID.
+     *
+     * @throws InterruptedException If interrupted while waiting for the threads.
+     */
+    private static void testConcurrent() throws InterruptedException {
+        OrderIdGenerator generator = new OrderIdGenerator(1);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    ids.add(generator.nextId());
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        check(ids.size() == threads.length * 20_000, "no ID is given out twice");
+    }
+
+    /**
+     * Checks that after advancing past a saved ID, even one from a later time or another node,
+     * every new ID is greater than it.
+     */
+    private static void testAdvancePast() {
+        OrderIdGenerator generator = new OrderIdGenerator(0);
+        long inAnHour = (System.currentTimeMillis() + 3_600_000 - OrderIdGenerator.EPOCH_MILLIS) << 22;
+        long saved = inAnHour | (1023L << 12) | 4095; // Last sequence of the highest node
+        generator.advancePast(saved);
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < 5000; i++) {
+            long id = generator.nextId();
+            check(id > saved && seen.add(id), "new IDs come after the saved one");
+        }
+        long next = generator.nextId();
+        generator.advancePast(0);
+        check(generator.nextId() > next, "advancing past an older ID changes nothing");
+    }
+
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            failures++;
+            System.err.println("FAILED: " + description);
+        }
+    }
+
+    private static void finish(String name) {
+        System.out.println(name + ": " + (failures == 0 ? "all checks passed" : failures + " check(s) failed"));
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,148 @@
+package project1.COS;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the index checkpoint of {@link OrderFileStorage}: a saved checkpoint covers the log
+ * up to where it was taken, a restart from it also applies the changes written after it, and a
+ * checkpoint that is damaged or from before a compaction is ignored.
+ * <p>
+ * Run with {@code java project1.COS.OrderIndexCheckpointTest}; exits with status 1 if a check fails.
+ * Files are written to a temporary directory.
+ */
+public class OrderIndexCheckpointTest {
+
+    private static final String INDEX_FILENAME = "orders.idx";
+
+    private static int failures;
+
+    public static void main(String[] args) throws IOException {
+        testRestartFromCheckpoint(Files.createTempDirectory("checkpoint-test"));
+        testIgnoredCheckpoints(Files.createTempDirectory("checkpoint-test"));
+        finish("OrderIndexCheckpointTest");
+    }
+
+    /**
+     * Checks that the checkpoint holds every order up to the end of the log when it was saved,
+     * and that a restart from it also picks up the orders, cancellations, refunds and undelivered
+     * events written afterwards.
+     *
+     * @param directory The directory to keep the order store in.
+     * @throws IOException If the log size cannot be read.
+     */
+    private static void testRestartFromCheckpoint(Path directory) throws IOException {
+        OrderFileStorage store = new OrderFileStorage(directory);
+        placeOrder(store, "ORD-A");
+        placeOrder(store, "ORD-B");
+        check(store.addOrder(newOrder("ORD-PENDING")), "start a checkout");
+        check(store.saveCheckpoint(), "save the checkpoint");
+
+        OrderIndexCheckpoint checkpoint = OrderIndexCheckpoint.read(directory.resolve(INDEX_FILENAME).toString());
+        check(checkpoint != null && checkpoint.getEntries().size() == 3, "the checkpoint holds every order");
+        check(checkpoint != null && checkpoint.getCoveredPosition()
+                == Files.size(directory.resolve(OrderFileStorage.FILENAME)), "the checkpoint covers the whole log");
+
+        placeOrder(store, "ORD-C");
+        check(store.cancelOrder("ORD-A", "Changed my mind"), "cancel an order after the checkpoint");
+        check(store.refundOrder("ORD-B", 10.00, null), "refund an order after the checkpoint");
+        int pendingEvents = store.getOutbox().getPendingCount();
+
+        OrderFileStorage restarted = new OrderFileStorage(directory);
+        check(restarted.getAllOrders().size() == 3, "the restarted store holds the three completed orders");
+        check(restarted.getOrderById("ORD-A").getStatus() == OrderStatus.CANCELLED,
+                "a cancellation after the checkpoint is applied");
+        check(restarted.getOrderById("ORD-B").getRefundedAmount() == 10.00, "a refund after the checkpoint is applied");
+        check(restarted.getOrderById("ORD-C") != null, "an order placed after the checkpoint is found");
+        check(restarted.getOrderById("ORD-PENDING").getStatus() == OrderStatus.FAILED,
+                "an order in checkout when the checkpoint was saved is found and recovered");
+        check(restarted.getOutbox().getPendingCount() == pendingEvents,
+                "undelivered events before and after the checkpoint are queued again");
+        check(restarted.getOrderHistoryPage("C1", 10, null).getOrders().size() == 3,
+                "the customer index is rebuilt from the checkpoint");
+    }
+
+    /**
+     * Checks that a damaged checkpoint, and one saved before the log was compacted, are ignored
+     * and the whole log replayed instead.
+     *
+     * @param directory The directory to keep the order store in.
+     * @throws IOException If the checkpoint cannot be copied or overwritten.
+     */
+    private static void testIgnoredCheckpoints(Path directory) throws IOException {
+        OrderFileStorage store = new OrderFileStorage(directory);
+        placeOrder(store, "ORD-A");
+        check(store.saveCheckpoint(), "save the checkpoint");
+        Path index = directory.resolve(INDEX_FILENAME);
+        byte[] beforeCompaction = Files.readAllBytes(index);
+        check(store.cancelOrder("ORD-A", "Changed my mind"), "cancel the order");
+        placeOrder(store, "ORD-B");
+        check(store.getCompactor().compact(), "compact the log");
+
+        sleep(100); // Let the checkpoint the compaction schedules be written before it is replaced
+        Files.write(index, beforeCompaction); // As if the process stopped before a new checkpoint was saved
+        OrderFileStorage afterCompaction = new OrderFileStorage(directory);
+        check(afterCompaction.getAllOrders().size() == 2
+                && afterCompaction.getOrderById("ORD-A").getStatus() == OrderStatus.CANCELLED,
+                "a checkpoint from before the compaction is ignored and the log replayed");
+
+        Files.write(index, "not a checkpoint".getBytes(StandardCharsets.UTF_8));
+        OrderFileStorage damaged = new OrderFileStorage(directory);
+        check(damaged.getAllOrders().size() == 2 && damaged.getOrderById("ORD-A").getStatus() == OrderStatus.CANCELLED,
+                "a damaged checkpoint is ignored and the log replayed");
+        check(damaged.saveCheckpoint() && OrderIndexCheckpoint.read(index.toString()).getEntries().size() == 2,
+                "a new checkpoint replaces the damaged one");
+    }
+
+    /**
+     * Places an order and takes it through to {@link OrderStatus#PERSISTED}, as a checkout does.
+     *
+     * @param store   The store to place the order in.
+     * @param orderId The ID to give the order.
+     */
+    private static void placeOrder(OrderFileStorage store, String orderId) {
+        check(store.addOrder(newOrder(orderId)), orderId + ": add the order");
+        check(store.updateStatus(orderId, OrderStatus.AUTHORIZED, "AUTH-" + orderId, null), orderId + ": authorize");
+        check(store.updateStatus(orderId, OrderStatus.PERSISTED, null, null), orderId + ": complete");
+    }
+
+    /**
+     * Creates a pending order for one mouse.
+     *
+     * @param orderId The ID to give the order.
+     * @return The order.
+     */
+    private static OrderCreator newOrder(String orderId) {
+        Merchandise mouse = MerchCatalog.getDefault().getMerchandiseById("M003");
+        return new OrderCreator(orderId, "C1", Collections.singletonMap(mouse, 1), 25.00, "In-store Pickup", 0.0);
+    }
+
+    /**
+     * Sleeps for the given time, ignoring interrupts.
+     *
+     * @param millis The time to sleep, in milliseconds.
+     */
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            failures++;
+            System.err.println("FAILED: " + description);
+        }
+    }
+
+    private static void finish(String name) {
+        System.out.println(name + ": " + (failures == 0 ? "all checks passed" : failures + " check(s) failed"));
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,175 @@
+package project1.COS;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for {@link OrderLogTailer}: resuming from a position stored by the consumer or from a
+ * checkpoint file, and carrying on without repeats after the log is compacted.
+ * <p>
+ * Run with {@code java project1.COS.OrderLogTailerTest}; exits with status 1 if a check fails.
+ * Files are written to a temporary directory.
+ */
+public class OrderLogTailerTest {
+
+    private static int failures;
+
+    public static void main(String[] args) throws IOException {
+        testConsumerPosition(Files.createTempDirectory("tailer-test"));
+        testCheckpointFile(Files.createTempDirectory("tailer-test"));
+        testCompaction(Files.createTempDirectory("tailer-test"));
+        finish("OrderLogTailerTest");
+    }
+
+    /**
+     * Checks that a tailer restarted from the position the consumer stored delivers only the
+     * records written after it.
+     *
+     * @param directory The directory to keep the order store in.
+     */
+    private static void testConsumerPosition(Path directory) {
+        OrderFileStorage store = new OrderFileStorage(directory);
+        placeOrder(store, "ORD-A");
+        String log = directory.resolve(OrderFileStorage.FILENAME).toString();
+
+        List<OrderLogRecord> received = new ArrayList<>();
+        OrderLogPosition[] stored = {OrderLogPosition.START};
+        OrderLogTailer tailer = new OrderLogTailer(log, stored[0], (record, next) -> {
+            received.add(record);
+            stored[0] = next;
+        });
+        int delivered = tailer.poll();
+        check(delivered > 0 && delivered == received.size(), "the first poll delivers the existing records");
+        check(stored[0].equals(tailer.getPosition()), "the last position given to the consumer is the tailer's");
+        check(tailer.poll() == 0, "a second poll delivers nothing new");
+
+        placeOrder(store, "ORD-B");
+        received.clear();
+        OrderLogTailer restarted = new OrderLogTailer(log, OrderLogPosition.parse(stored[0].toString()),
+                (record, next) -> received.add(record));
+        restarted.poll();
+        check(!received.isEmpty() && orderIds(received).equals(Collections.singletonList("ORD-B")),
+                "a restarted tailer delivers only the records written after the stored position");
+    }
+
+    /**
+     * Checks that a tailer keeping a checkpoint file saves its position after each poll and
+     * resumes from it.
+     *
+     * @param directory The directory to keep the order store and checkpoint in.
+     */
+    private static void testCheckpointFile(Path directory) {
+        OrderFileStorage store = new OrderFileStorage(directory);
+        placeOrder(store, "ORD-A");
+        String log = directory.resolve(OrderFileStorage.FILENAME).toString();
+        String checkpoint = directory.resolve("tailer.pos").toString();
+
+        List<OrderLogRecord> received = new ArrayList<>();
+        OrderLogTailer tailer = new OrderLogTailer(log, checkpoint, received::add);
+        tailer.poll();
+        check(orderIds(received).equals(Collections.singletonList("ORD-A")), "the first order is delivered");
+        check(!Files.exists(directory.resolve("tailer.pos.tmp")), "no temporary checkpoint is left behind");
+
+        placeOrder(store, "ORD-B");
+        received.clear();
+        new OrderLogTailer(log, checkpoint, received::add).poll();
+        check(orderIds(received).equals(Collections.singletonList("ORD-B")),
+                "a tailer resumes from the saved checkpoint");
+    }
+
+    /**
+     * Checks that after the log is compacted, a tailer that had read all of it carries on without
+     * repeats, and one that had read only part of it gets only the orders that changed since.
+     *
+     * @param directory The directory to keep the order store in.
+     */
+    private static void testCompaction(Path directory) {
+        OrderFileStorage store = new OrderFileStorage(directory);
+        placeOrder(store, "ORD-A");
+        placeOrder(store, "ORD-B");
+        String log = directory.resolve(OrderFileStorage.FILENAME).toString();
+
+        List<OrderLogRecord> partial = new ArrayList<>();
+        OrderLogPosition[] partialPosition = {OrderLogPosition.START};
+        new OrderLogTailer(log, OrderLogPosition.START, (record, next) -> partialPosition[0] = next).poll();
+
+        placeOrder(store, "ORD-C");
+        check(store.cancelOrder("ORD-A", "Changed my mind"), "cancel an order");
+        List<OrderLogRecord> current = new ArrayList<>();
+        OrderLogTailer caughtUp = new OrderLogTailer(log, OrderLogPosition.START, (record, next) -> current.add(record));
+        caughtUp.poll();
+        current.clear();
+
+        check(store.getCompactor().compact(), "compact the log");
+        placeOrder(store, "ORD-D");
+
+        caughtUp.poll();
+        check(orderIds(current).equals(Collections.singletonList("ORD-D")),
+                "a tailer at the end of the log gets only the orders added after compaction, but got "
+                        + orderIds(current));
+
+        new OrderLogTailer(log, partialPosition[0], (record, next) -> partial.add(record)).poll();
+        List<String> ids = orderIds(partial);
+        check(ids.contains("ORD-A") && ids.contains("ORD-C") && ids.contains("ORD-D") && !ids.contains("ORD-B"),
+                "a tailer behind the compaction gets the changed and new orders but not the unchanged one, but got "
+                        + ids);
+        check(Collections.frequency(ids, "ORD-A") == 1, "the changed order is delivered once, folded");
+        for (OrderLogRecord record : partial) {
+            if (record instanceof OrderCreator && "ORD-A".equals(((OrderCreator) record).getOrderId())) {
+                check(((OrderCreator) record).getStatus() == OrderStatus.CANCELLED,
+                        "the folded order carries its later changes");
+            }
+        }
+
+        List<OrderLogRecord> all = new ArrayList<>();
+        new OrderLogTailer(log, OrderLogPosition.START, (record, next) -> all.add(record)).poll();
+        check(orderIds(all).size() == 4, "a new tailer reads every live order from the compacted log");
+    }
+
+    /**
+     * Places an order and takes it through to {@link OrderStatus#PERSISTED}, as a checkout does.
+     *
+     * @param store   The store to place the order in.
+     * @param orderId The ID to give the order.
+     */
+    private static void placeOrder(OrderFileStorage store, String orderId) {
+        Merchandise mouse = new MerchCatalog().getMerchandiseById("M003");
+        OrderCreator order = new OrderCreator(orderId, "C1", Collections.singletonMap(mouse, 1), 25.00,
+                "In-store Pickup", 0.0);
+        check(store.addOrder(order), orderId + ": add the order");
+        check(store.updateStatus(orderId, OrderStatus.AUTHORIZED, "AUTH-" + orderId, null), orderId + ": authorize");
+        check(store.updateStatus(orderId, OrderStatus.PERSISTED, null, null), orderId + ": complete");
+    }
+
+    /**
+     * Returns the IDs of the whole orders among the given records, in order.
+     *
+     * @param records The delivered records.
+     * @return The order IDs.
+     */
+    private static List<String> orderIds(List<OrderLogRecord> records) {
+        List<String> ids = new ArrayList<>();
+        for (OrderLogRecord record : records) {
+            if (record instanceof OrderCreator) {
+                ids.add(((OrderCreator) record).getOrderId());
+            }
+        }
+        return ids;
+    }
+
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            failures++;
+            System.err.println("FAILED: " + description);
+        }
+    }
+
+    private static void finish(String name) {
+        System.out.println(name + ": " + (failures == 0 ? "all checks passed" : failures + " check(s) failed"));
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
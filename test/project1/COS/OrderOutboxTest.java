@@ -0,0 +1,125 @@
+package project1.COS;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link OrderOutbox}: events recorded with orders are delivered to the sinks, events
+ * left undelivered are queued again after a restart, and events written after the clock was set
+ * back are not mistaken for delivered ones.
+ * <p>
+ * Run with {@code java project1.COS.OrderOutboxTest}; exits with status 1 if a check fails.
+ * Files are written to a temporary directory.
+ */
+public class OrderOutboxTest {
+
+    private static final long DELIVERY_TIMEOUT_MILLIS = 5000;
+
+    private static int failures;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        testRedeliveryAfterRestart(Files.createTempDirectory("outbox-test"));
+        testClockSetBack(Files.createTempDirectory("outbox-test"));
+        finish("OrderOutboxTest");
+    }
+
+    /**
+     * Checks that an event not delivered before a restart is delivered after it, and that once
+     * delivered it is not queued again.
+     *
+     * @param directory The directory to keep the order store in.
+     * @throws InterruptedException If interrupted while waiting for delivery.
+     */
+    private static void testRedeliveryAfterRestart(Path directory) throws InterruptedException {
+        OrderFileStorage store = new OrderFileStorage(directory);
+        placeOrder(store, "ORD-A");
+        check(store.getOutbox().getPendingCount() == 1, "placing an order queues one event");
+
+        OrderFileStorage restarted = new OrderFileStorage(directory); // The first outbox was never started
+        check(restarted.getOutbox().getPendingCount() == 1, "the undelivered event is queued again on restart");
+        List<OrderEvent> delivered = new CopyOnWriteArrayList<>();
+        restarted.getOutbox().addSink(delivered::addAll);
+        restarted.getOutbox().start();
+        awaitDelivery(delivered, 1);
+        restarted.getOutbox().stop();
+        check(delivered.size() == 1 && "ORD-A".equals(delivered.get(0).getOrderId())
+                && delivered.get(0).getType() == OrderEvent.Type.ORDER_PLACED, "the order placed event is delivered");
+
+        check(new OrderFileStorage(directory).getOutbox().getPendingCount() == 0,
+                "a delivered event is not queued again");
+    }
+
+    /**
+     * Checks that events are still delivered when the last delivered event ID is later than the
+     * clock, as after the clock is set back across a restart.
+     *
+     * @param directory The directory to keep the order store in.
+     * @throws IOException          If the outbox position cannot be written.
+     * @throws InterruptedException If interrupted while waiting for delivery.
+     */
+    private static void testClockSetBack(Path directory) throws IOException, InterruptedException {
+        // An ID from this time tomorrow: the timestamp sits above the 10 node and 12 sequence bits
+        long tomorrow = (System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1) - OrderIdGenerator.EPOCH_MILLIS) << 22;
+        Files.write(directory.resolve("outbox.pos"), Long.toString(tomorrow).getBytes(StandardCharsets.UTF_8));
+
+        OrderFileStorage store = new OrderFileStorage(directory);
+        placeOrder(store, "ORD-B");
+        check(store.getOutbox().getPendingCount() == 1, "an event written after the clock was set back is queued");
+        List<OrderEvent> delivered = new CopyOnWriteArrayList<>();
+        store.getOutbox().addSink(delivered::addAll);
+        store.getOutbox().start();
+        awaitDelivery(delivered, 1);
+        store.getOutbox().stop();
+        check(delivered.size() == 1 && delivered.get(0).getEventId() > tomorrow,
+                "the event is delivered with an ID after the last delivered one");
+        check(OrderIdGenerator.getDefault().nextId() > tomorrow, "new IDs stay after the saved ones");
+    }
+
+    /**
+     * Waits until the sink has received the given number of events, or the timeout passes.
+     *
+     * @param delivered The events received by the sink.
+     * @param count     The number of events expected.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private static void awaitDelivery(List<OrderEvent> delivered, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + DELIVERY_TIMEOUT_MILLIS;
+        while (delivered.size() < count && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        TimeUnit.MILLISECONDS.sleep(50); // Let the position be saved after the batch
+    }
+
+    /**
+     * Places an order and takes it through to {@link OrderStatus#PERSISTED}, as a checkout does.
+     *
+     * @param store   The store to place the order in.
+     * @param orderId The ID to give the order.
+     */
+    private static void placeOrder(OrderFileStorage store, String orderId) {
+        Merchandise mouse = new MerchCatalog().getMerchandiseById("M003");
+        OrderCreator order = new OrderCreator(orderId, "C1", Collections.singletonMap(mouse, 1), 25.00,
+                "In-store Pickup", 0.0);
+        check(store.addOrder(order), orderId + ": add the order");
+        check(store.updateStatus(orderId, OrderStatus.AUTHORIZED, "AUTH-" + orderId, null), orderId + ": authorize");
+        check(store.updateStatus(orderId, OrderStatus.PERSISTED, null, null), orderId + ": complete");
+    }
+
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            failures++;
+            System.err.println("FAILED: " + description);
+        }
+    }
+
+    private static void finish(String name) {
+        System.out.println(name + ": " + (failures == 0 ? "all checks passed" : failures + " check(s) failed"));
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,77 @@
+package project1.COS;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Tests for {@link OrderStatus}: which status changes are allowed, and which statuses are
+ * terminal and visible in order history.
+ * <p>
+ * Run with {@code java project1.COS.OrderStatusTest}; exits with status 1 if a check fails.
+ */
+public class OrderStatusTest {
+
+    private static int failures;
+
+    public static void main(String[] args) {
+        testTransitions();
+        testTerminalAndVisible();
+        finish("OrderStatusTest");
+    }
+
+    /**
+     * Checks every pair of statuses against the allowed transitions.
+     */
+    private static void testTransitions() {
+        for (OrderStatus from : OrderStatus.values()) {
+            Set<OrderStatus> allowed;
+            switch (from) {
+                case PENDING:
+                    allowed = EnumSet.of(OrderStatus.AUTHORIZED, OrderStatus.FAILED);
+                    break;
+                case AUTHORIZED:
+                    allowed = EnumSet.of(OrderStatus.PERSISTED, OrderStatus.FAILED);
+                    break;
+                case PERSISTED:
+                    allowed = EnumSet.of(OrderStatus.CANCELLED); // Only completed orders can be cancelled
+                    break;
+                default:
+                    allowed = EnumSet.noneOf(OrderStatus.class); // FAILED and CANCELLED are final
+                    break;
+            }
+            for (OrderStatus to : OrderStatus.values()) {
+                check(from.canTransitionTo(to) == allowed.contains(to),
+                        from + " -> " + to + " should be " + (allowed.contains(to) ? "allowed" : "refused"));
+            }
+        }
+    }
+
+    /**
+     * Checks which statuses end checkout and which appear in order history.
+     */
+    private static void testTerminalAndVisible() {
+        check(!OrderStatus.PENDING.isTerminal(), "PENDING is not terminal");
+        check(!OrderStatus.AUTHORIZED.isTerminal(), "AUTHORIZED is not terminal");
+        check(OrderStatus.PERSISTED.isTerminal(), "PERSISTED is terminal");
+        check(OrderStatus.FAILED.isTerminal(), "FAILED is terminal");
+        check(OrderStatus.CANCELLED.isTerminal(), "CANCELLED is terminal");
+
+        check(OrderStatus.PERSISTED.isVisible(), "PERSISTED is visible");
+        check(OrderStatus.CANCELLED.isVisible(), "CANCELLED is visible");
+        check(!OrderStatus.PENDING.isVisible(), "PENDING is hidden");
+        check(!OrderStatus.AUTHORIZED.isVisible(), "AUTHORIZED is hidden");
+        check(!OrderStatus.FAILED.isVisible(), "FAILED is hidden");
+    }
+
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            failures++;
+            System.err.println("FAILED: " + description);
+        }
+    }
+
+    private static void finish(String name) {
+        System.out.println(name + ": " + (failures == 0 ? "all checks passed" : failures + " check(s) failed"));
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
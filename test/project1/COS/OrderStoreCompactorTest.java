@@ -0,0 +1,131 @@
+package project1.COS;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Tests for {@link OrderStoreCompactor}: the compacted log holds the same orders in less space,
+ * survives a restart and takes new orders, readers of the old file are not disturbed, and
+ * nothing is printed unless asked for.
+ * <p>
+ * Run with {@code java project1.COS.OrderStoreCompactorTest}; exits with status 1 if a check fails.
+ * Files are written to a temporary directory.
+ */
+public class OrderStoreCompactorTest {
+
+    private static int failures;
+
+    public static void main(String[] args) throws IOException {
+        testCompaction(Files.createTempDirectory("compactor-test"));
+        testOpenReader(Files.createTempDirectory("compactor-test"));
+        finish("OrderStoreCompactorTest");
+    }
+
+    /**
+     * Checks that compaction folds changes into the orders, drops failed checkouts and leaves no
+     * temporary file, and that the result loads after a restart and can be appended to.
+     *
+     * @param directory The directory to keep the order store in.
+     */
+    private static void testCompaction(Path directory) {
+        OrderFileStorage store = new OrderFileStorage(directory);
+        placeOrder(store, "ORD-A");
+        placeOrder(store, "ORD-B");
+        check(store.cancelOrder("ORD-A", "Changed my mind"), "cancel an order");
+        check(store.addOrder(newOrder("ORD-F")), "start a checkout");
+        check(store.updateStatus("ORD-F", OrderStatus.FAILED, null, "Card declined"), "fail the checkout");
+        Path log = directory.resolve(OrderFileStorage.FILENAME);
+        long before = log.toFile().length();
+
+        PrintStream err = System.err;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(output, true));
+        boolean compacted;
+        try {
+            compacted = store.getCompactor().compact();
+        } finally {
+            System.setErr(err);
+        }
+        check(compacted, "compact the log");
+        check(output.size() == 0, "compaction prints nothing by default, but printed: " + output);
+        check(log.toFile().length() < before, "the compacted log is smaller");
+        check(!Files.exists(directory.resolve(OrderFileStorage.FILENAME + ".compact")),
+                "no compacted copy is left behind");
+        check(store.getOrderById("ORD-A").getStatus() == OrderStatus.CANCELLED, "orders can be read after compaction");
+
+        placeOrder(store, "ORD-C");
+        OrderFileStorage restarted = new OrderFileStorage(directory);
+        check(restarted.getOrderById("ORD-A").getStatus() == OrderStatus.CANCELLED,
+                "a folded change survives a restart");
+        check(restarted.getOrderById("ORD-B").getStatus() == OrderStatus.PERSISTED, "an unchanged order survives");
+        check(restarted.getOrderById("ORD-C") != null, "an order added after compaction survives");
+        check(restarted.getOrderById("ORD-F") == null, "the failed checkout is dropped");
+        check(restarted.getAllOrders().size() == 3, "order history holds the three completed orders");
+    }
+
+    /**
+     * Checks that a stream opened before compaction keeps reading the old file to its end.
+     *
+     * @param directory The directory to keep the order store in.
+     */
+    private static void testOpenReader(Path directory) {
+        OrderFileStorage store = new OrderFileStorage(directory);
+        for (int i = 0; i < 5; i++) {
+            placeOrder(store, "ORD-" + i);
+        }
+        int records = 0;
+        try (Stream<OrderLogRecord> log = store.streamLogFromDisk()) {
+            Iterator<OrderLogRecord> reader = log.iterator();
+            reader.next();
+            records++;
+            check(store.getCompactor().compact(), "compact the log while it is being read");
+            while (reader.hasNext()) {
+                reader.next();
+                records++;
+            }
+        }
+        check(records == 5 * 4, "the open stream reads every record of the old file"); // Order, 2 changes, event
+        check(new OrderFileStorage(directory).getAllOrders().size() == 5, "the compacted log holds every order");
+    }
+
+    /**
+     * Places an order and takes it through to {@link OrderStatus#PERSISTED}, as a checkout does.
+     *
+     * @param store   The store to place the order in.
+     * @param orderId The ID to give the order.
+     */
+    private static void placeOrder(OrderFileStorage store, String orderId) {
+        check(store.addOrder(newOrder(orderId)), orderId + ": add the order");
+        check(store.updateStatus(orderId, OrderStatus.AUTHORIZED, "AUTH-" + orderId, null), orderId + ": authorize");
+        check(store.updateStatus(orderId, OrderStatus.PERSISTED, null, null), orderId + ": complete");
+    }
+
+    /**
+     * Creates a pending order for one mouse.
+     *
+     * @param orderId The ID to give the order.
+     * @return The order.
+     */
+    private static OrderCreator newOrder(String orderId) {
+        Merchandise mouse = MerchCatalog.getDefault().getMerchandiseById("M003");
+        return new OrderCreator(orderId, "C1", Collections.singletonMap(mouse, 1), 25.00, "In-store Pickup", 0.0);
+    }
+
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            failures++;
+            System.err.println("FAILED: " + description);
+        }
+    }
+
+    private static void finish(String name) {
+        System.out.println(name + ": " + (failures == 0 ? "all checks passed" : failures + " check(s) failed"));
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
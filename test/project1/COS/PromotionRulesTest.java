@@ -0,0 +1,211 @@
+package project1.COS;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link PromotionRules}: line discounts, cart thresholds, promotion dates, items added
+ * after the rules were compiled, how {@link Cart} applies the rules, and reading promotions from
+ * a file.
+ * <p>
+ * Run with {@code java project1.COS.PromotionRulesTest}; exits with status 1 if a check fails.
+ */
+public class PromotionRulesTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 10, 18);
+
+    private static int failures;
+
+    public static void main(String[] args) throws IOException {
+        testLineDiscounts();
+        testThresholds();
+        testDates();
+        testItemAddedAfterCompile();
+        testCart();
+        testLoadPromotions(Files.createTempDirectory("promotions-test"));
+        finish("PromotionRulesTest");
+    }
+
+    /**
+     * Checks that each line gets whichever of its promotions saves more.
+     */
+    private static void testLineDiscounts() {
+        MerchCatalog catalog = new MerchCatalog();
+        PromotionRules rules = PromotionRules.compile(samplePromotions(), catalog, TODAY);
+        Merchandise mouse = catalog.getMerchandiseById("M003"); // $25, Accessories, 3 for 2
+        Merchandise laptop = catalog.getMerchandiseById("M001"); // $1000, Computers
+
+        checkAmount(rules.getLineDiscount(mouse, 1), 2.50, "one mouse gets 10% off Accessories");
+        checkAmount(rules.getLineDiscount(mouse, 3), 25.00, "three mice get one free");
+        checkAmount(rules.getLineDiscount(mouse, 5), 25.00, "five mice get one free");
+        checkAmount(rules.getLineDiscount(mouse, 6), 50.00, "six mice get two free");
+        check(rules.getLinePromotion(mouse, 3).getKind() == Promotion.Kind.MULTI_BUY, "three mice use the multi-buy");
+        check(rules.getLinePromotion(mouse, 1).getKind() == Promotion.Kind.CATEGORY_PERCENT_OFF,
+                "one mouse uses the category percentage");
+        checkAmount(rules.getLineDiscount(laptop, 2), 0.0, "laptops have no line promotion");
+        check(rules.getLinePromotion(laptop, 2) == null, "laptops have no line promotion to show");
+        check(rules.getLineDiscount(catalog.getMerchandiseById("m003"), 3) == 25.00, "IDs are case-insensitive");
+    }
+
+    /**
+     * Checks the threshold boundaries and that a higher minimum giving less never wins.
+     */
+    private static void testThresholds() {
+        MerchCatalog catalog = new MerchCatalog();
+        PromotionRules rules = PromotionRules.compile(samplePromotions(), catalog, TODAY);
+        checkAmount(rules.getOrderDiscount(249.99), 0.0, "just under $250 gets nothing");
+        checkAmount(rules.getOrderDiscount(250.00), 25.00, "$250 gets $25 off");
+        checkAmount(rules.getOrderDiscount(999.99), 25.00, "just under $1000 gets $25 off");
+        checkAmount(rules.getOrderDiscount(1000.00), 100.00, "$1000 gets $100 off");
+        check(rules.getOrderPromotion(10.00) == null, "small carts reach no threshold");
+
+        List<Promotion> promotions = new ArrayList<>();
+        promotions.add(Promotion.cartThreshold("$20 off $100", 100.00, 20.00));
+        promotions.add(Promotion.cartThreshold("$10 off $200", 200.00, 10.00));
+        promotions.add(Promotion.cartThreshold("$500 off $50", 50.00, 500.00));
+        rules = PromotionRules.compile(promotions, catalog, TODAY);
+        checkAmount(rules.getOrderDiscount(250.00), 250.00, "the discount never exceeds the subtotal");
+        promotions.remove(2);
+        rules = PromotionRules.compile(promotions, catalog, TODAY);
+        checkAmount(rules.getOrderDiscount(250.00), 20.00, "a higher minimum that gives less never wins");
+    }
+
+    /**
+     * Checks that only the promotions running on the compile date are applied.
+     */
+    private static void testDates() {
+        MerchCatalog catalog = new MerchCatalog();
+        List<Promotion> promotions = new ArrayList<>();
+        promotions.add(Promotion.categoryPercentOff("Storage sale", "Storage", 20).during(TODAY, TODAY.plusDays(6)));
+        Merchandise ssd = catalog.getMerchandiseById("M005"); // $130, Storage
+
+        check(PromotionRules.compile(promotions, catalog, TODAY.minusDays(1)).getPromotions().isEmpty(),
+                "a promotion does not run before its start date");
+        checkAmount(PromotionRules.compile(promotions, catalog, TODAY).getLineDiscount(ssd, 1), 26.00,
+                "a promotion runs on its start date");
+        checkAmount(PromotionRules.compile(promotions, catalog, TODAY.plusDays(6)).getLineDiscount(ssd, 1), 26.00,
+                "a promotion runs on its end date");
+        checkAmount(PromotionRules.compile(promotions, catalog, TODAY.plusDays(7)).getLineDiscount(ssd, 1), 0.0,
+                "a promotion does not run after its end date");
+
+        PromotionRules rules = PromotionRules.compile(promotions, catalog, TODAY);
+        check(rules.isCompiledFor(catalog, TODAY), "rules know the catalog and date they were compiled for");
+        check(!rules.isCompiledFor(catalog, TODAY.plusDays(1)), "rules are stale the next day");
+        check(!rules.isCompiledFor(new MerchCatalog(), TODAY), "rules are stale for another catalog");
+    }
+
+    /**
+     * Checks that an item added to the catalog after compiling is priced by its ID and category.
+     */
+    private static void testItemAddedAfterCompile() {
+        MerchCatalog catalog = new MerchCatalog();
+        PromotionRules rules = PromotionRules.compile(samplePromotions(), catalog, TODAY);
+        Merchandise cable = new Merchandise("M900", "USB Cable", "1 m cable", 10.00, 0.00, "Accessories");
+        catalog.addMerchandise(cable);
+        checkAmount(rules.getLineDiscount(cable, 2), 2.00, "a new Accessories item gets 10% off");
+    }
+
+    /**
+     * Checks that a cart's running discounts match the rules as lines are added and removed,
+     * and that setting new rules reprices every line.
+     */
+    private static void testCart() {
+        MerchCatalog catalog = new MerchCatalog();
+        Cart cart = new Cart();
+        cart.setPromotions(PromotionRules.compile(samplePromotions(), catalog, TODAY));
+        cart.addItem(catalog.getMerchandiseById("M003"), 3); // $75, $25 off
+        cart.addItem(catalog.getMerchandiseById("M001"), 1); // $1000
+        checkAmount(cart.getSubtotal(), 1075.00, "cart subtotal");
+        checkAmount(cart.getDiscount(), 125.00, "line discount plus $100 off $1000");
+        checkAmount(cart.getDiscountedSubtotal(), 950.00, "discounted subtotal");
+
+        cart.removeItem(catalog.getMerchandiseById("M003"), 1); // Two mice: 10% off instead
+        checkAmount(cart.getLineDiscount(catalog.getMerchandiseById("M003")), 5.00, "two mice get 10% off");
+        checkAmount(cart.getDiscount(), 105.00, "discounts follow the changed line");
+
+        cart.setPromotions(PromotionRules.compile(new ArrayList<>(), catalog, TODAY));
+        checkAmount(cart.getDiscount(), 0.0, "new rules reprice every line");
+        cart.clear();
+        checkAmount(cart.getDiscount(), 0.0, "an empty cart has no discount");
+    }
+
+    /**
+     * Checks that promotions are read from a file with their dates, that bad lines are skipped,
+     * and that there are none without a file.
+     *
+     * @param directory The directory to write the file in.
+     * @throws IOException If the file cannot be written.
+     */
+    private static void testLoadPromotions(Path directory) throws IOException {
+        Path file = directory.resolve("promotions.txt");
+        Files.write(file, Arrays.asList(
+                "# Kind|Name|Values|First day|Last day",
+                "multi-buy|Wireless Mouse: 3 for 2|M003|2|1",
+                "",
+                "category|Storage sale|Storage|20|2026-10-18|2026-10-24",
+                "threshold|$25 off orders over $250|250.00|25.00||2026-12-31",
+                "category|Too much off|Storage|150",
+                "threshold|Missing amount|250.00",
+                "bogo|Unknown kind|M001|1|1"), StandardCharsets.UTF_8);
+
+        List<Promotion> promotions = PromotionRules.loadPromotions(file.toString());
+        check(promotions.size() == 3, "the three good lines are read and the bad ones skipped");
+        if (promotions.size() == 3) {
+            Promotion multiBuy = promotions.get(0);
+            check(multiBuy.getKind() == Promotion.Kind.MULTI_BUY && "M003".equals(multiBuy.getMerchandiseId())
+                    && multiBuy.getBuyQuantity() == 2 && multiBuy.getFreeQuantity() == 1, "a multi-buy is read");
+            Promotion sale = promotions.get(1);
+            check(sale.getKind() == Promotion.Kind.CATEGORY_PERCENT_OFF && sale.getPercentOff() == 20
+                    && sale.isActive(TODAY) && !sale.isActive(TODAY.plusDays(7)),
+                    "a category promotion and its dates are read");
+            Promotion threshold = promotions.get(2);
+            check(threshold.getMinimumSubtotal() == 250.00 && threshold.getAmountOff() == 25.00
+                    && threshold.isActive(TODAY.minusYears(1)) && !threshold.isActive(LocalDate.of(2027, 1, 1)),
+                    "a threshold with only a last day is read");
+        }
+
+        check(PromotionRules.loadPromotions(directory.resolve("missing.txt").toString()).isEmpty(),
+                "there are no promotions without a file");
+        System.setProperty("cos.promotionsFile", directory.resolve("missing.txt").toString());
+        check(PromotionRules.getStorePromotions().isEmpty(), "the store runs no promotions unless some are set up");
+        System.setProperty("cos.promotionsFile", file.toString());
+        check(PromotionRules.getStorePromotions().size() == 3, "the store's promotions come from the file");
+        System.clearProperty("cos.promotionsFile");
+    }
+
+    /**
+     * Returns the sample promotions most checks are made against.
+     *
+     * @return A multi-buy on mice, 10% off accessories, and two cart thresholds.
+     */
+    private static List<Promotion> samplePromotions() {
+        List<Promotion> promotions = new ArrayList<>();
+        promotions.add(Promotion.multiBuy("Wireless Mouse: 3 for 2", "M003", 2, 1));
+        promotions.add(Promotion.categoryPercentOff("10% off Accessories", "Accessories", 10));
+        promotions.add(Promotion.cartThreshold("$25 off orders over $250", 250.00, 25.00));
+        promotions.add(Promotion.cartThreshold("$100 off orders over $1000", 1000.00, 100.00));
+        return promotions;
+    }
+
+    private static void checkAmount(double actual, double expected, String description) {
+        check(Math.abs(actual - expected) < 0.005, description + ": expected " + expected + " but was " + actual);
+    }
+
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            failures++;
+            System.err.println("FAILED: " + description);
+        }
+    }
+
+    private static void finish(String name) {
+        System.out.println(name + ": " + (failures == 0 ? "all checks passed" : failures + " check(s) failed"));
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
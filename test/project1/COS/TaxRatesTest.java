@@ -0,0 +1,111 @@
+package project1.COS;
+
+/**
+ * Tests for {@link TaxRates}: resolving region codes, finding a region from an address, and
+ * choosing a customer's rate.
+ * <p>
+ * Run with {@code java project1.COS.TaxRatesTest}; exits with status 1 if a check fails.
+ */
+public class TaxRatesTest {
+
+    private static int failures;
+
+    public static void main(String[] args) {
+        testResolve();
+        testAddRegion();
+        testFindRegion();
+        testCustomerRate();
+        finish("TaxRatesTest");
+    }
+
+    /**
+     * Checks that a code resolves to the most specific region containing it.
+     */
+    private static void testResolve() {
+        TaxRates rates = TaxRates.getDefault();
+        check("US-CA".equals(rates.getRate("US-CA").getRegionCode()), "a state code resolves to the state");
+        check("US-CA".equals(rates.getRate("us-ca-sf").getRegionCode()), "a city falls back to its state");
+        check(rates.getRate("XX-YY") == rates.getStandardRate(), "an unknown code gets the standard rate");
+        check(rates.getRate((String) null) == rates.getStandardRate(), "no code gets the standard rate");
+        check(rates.getRate(" ") == rates.getStandardRate(), "a blank code gets the standard rate");
+        check(rates.getStandardRate().getRate() == TaxRates.STANDARD_RATE, "the standard rate is 8%");
+        check("7.25%".equals(rates.getRate("US-CA").getPercentage()), "percentages drop trailing zeros");
+        check("California 7.25%".equals(rates.getRate("US-CA").toString()), "rates are shown with their region");
+
+        check(rates.isKnownRegion("US-NY-NYC"), "a city in a known state is known");
+        check(!rates.isKnownRegion("XX"), "an unknown code is not known");
+        check(!rates.isKnownRegion(""), "an empty code is not known");
+    }
+
+    /**
+     * Checks that adding a region takes effect for codes that were already resolved.
+     */
+    private static void testAddRegion() {
+        TaxRates rates = new TaxRates(0.05);
+        rates.addRegion("US-CA", "California", 0.0725);
+        check(rates.getRate("US-CA-SF").getRate() == 0.0725, "a city uses its state's rate");
+        rates.addRegion("US-CA-SF", "San Francisco", 0.08625);
+        check(rates.getRate("US-CA-SF").getRate() == 0.08625, "a city added later gets its own rate");
+        check(rates.getRate("US-NY").getRate() == 0.05, "regions not in the table get the standard rate");
+    }
+
+    /**
+     * Checks that only the end of an address, after any ZIP code, is read as a region, and that a
+     * short code needs a ZIP code or a city before it.
+     */
+    private static void testFindRegion() {
+        TaxRates rates = TaxRates.getDefault();
+        checkRegion(rates, "1 Main St, Sacramento, CA 95814", "US-CA");
+        checkRegion(rates, "1 Main St, Sacramento, CA 95814-1234", "US-CA");
+        checkRegion(rates, "5 Oak Ave, Portland, OR", "US-OR");
+        checkRegion(rates, "12 Elm Rd, Charleston, West Virginia 25301", "US-WV");
+        checkRegion(rates, "200 Pine St, Richmond, Virginia", "US-VA");
+        checkRegion(rates, "1600 Pennsylvania Ave NW, Washington, DC 20500", "US-DC");
+        checkRegion(rates, "9 Broadway, Albany, new york", "US-NY");
+        checkRegion(rates, "1 Hi St, Springfield, IL 62701", "US-IL"); // "Hi" is not Hawaii
+        checkRegion(rates, "Apt 3 IN Building, Paris", null); // "IN" is not Indiana
+        checkRegion(rates, "1 Me Way", null);
+        checkRegion(rates, "12 Oak Ct", null); // "Ct" is not Connecticut without a city or ZIP code
+        checkRegion(rates, "12 Oak Ct, Hartford", null);
+        checkRegion(rates, "12 Oak Ct, Hartford, CT", "US-CT");
+        checkRegion(rates, "12 Oak Ct 06103", "US-CT");
+        checkRegion(rates, "4 Elm St, Augusta, Maine", "US-ME"); // A full name needs neither
+        checkRegion(rates, "", null);
+        checkRegion(rates, null, null);
+    }
+
+    /**
+     * Checks that a customer's region code is used if set, and their address otherwise.
+     */
+    private static void testCustomerRate() {
+        TaxRates rates = TaxRates.getDefault();
+        Customer customer = new Customer("C1", "Secret1!", "Pat", "1 Main St, Sacramento, CA 95814",
+                "4111111111111111", "What is your favorite book?", "Dune");
+        check("US-CA".equals(rates.getRate(customer).getRegionCode()), "the address is used without a region code");
+        customer.setRegionCode("US-NY");
+        check("US-NY".equals(rates.getRate(customer).getRegionCode()), "a region code overrides the address");
+        customer.setRegionCode("  ");
+        check("US-CA".equals(rates.getRate(customer).getRegionCode()), "a blank region code falls back to the address");
+        customer.setRegionCode(null);
+        customer.setAddress("Somewhere");
+        check(rates.getRate(customer) == rates.getStandardRate(), "an unknown address gets the standard rate");
+    }
+
+    private static void checkRegion(TaxRates rates, String address, String expected) {
+        String actual = rates.findRegion(address);
+        check(expected == null ? actual == null : expected.equals(actual),
+                "\"" + address + "\": expected " + expected + " but was " + actual);
+    }
+
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            failures++;
+            System.err.println("FAILED: " + description);
+        }
+    }
+
+    private static void finish(String name) {
+        System.out.println(name + ": " + (failures == 0 ? "all checks passed" : failures + " check(s) failed"));
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}